@@ -0,0 +1,62 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formatting the log messages, which is done for every logged bucket
+ * operation whether or not the level is enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LogFormatterBenchmark {
+
+	private final String bucketName = "db_1336330530_1336330000_12";
+	private final Exception exception = new IOException("Connection refused");
+
+	@Benchmark
+	public String happened() {
+		return LogFormatter.happened("Listed buckets", "index", "main",
+				"buckets", 1000);
+	}
+
+	@Benchmark
+	public String did() {
+		return LogFormatter.did("Archived bucket", exception,
+				"To transfer the bucket", "bucket", bucketName, "index", "main");
+	}
+
+	@Benchmark
+	public String warn() {
+		return LogFormatter.warn("Thawed bucket", exception, "Skipping bucket",
+				"bucket", bucketName);
+	}
+}
@@ -0,0 +1,71 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.benchmark.BenchmarkBuckets;
+
+/**
+ * Building the archive URIs of all the buckets in a listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PathResolverBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int buckets;
+
+	private PathResolver pathResolver;
+	private List<Bucket> bucketList;
+
+	@Setup
+	public void setUp() {
+		pathResolver = BenchmarkBuckets.createPathResolver();
+		bucketList = BenchmarkBuckets.createArchivedBuckets(buckets);
+	}
+
+	@Benchmark
+	public void resolveArchivedBucketURIs(Blackhole blackhole) {
+		for (Bucket bucket : bucketList)
+			blackhole.consume(pathResolver.resolveArchivedBucketURI(
+					bucket.getIndex(), bucket.getName(), bucket.getFormat()));
+	}
+
+	@Benchmark
+	public void resolveArchivePaths(Blackhole blackhole) {
+		for (Bucket bucket : bucketList)
+			blackhole.consume(pathResolver.resolveArchivePath(bucket));
+	}
+}
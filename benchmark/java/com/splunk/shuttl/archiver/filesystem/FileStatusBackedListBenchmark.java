@@ -0,0 +1,80 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.splunk.shuttl.benchmark.BenchmarkBuckets;
+
+/**
+ * Reading a listing of the archive file system, the first time when every
+ * URI is converted from its {@link FileStatus} and again when it's cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FileStatusBackedListBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int buckets;
+
+	private FileStatus[] fileStatuses;
+	private FileStatusBackedList cachedList;
+
+	@Setup
+	public void setUp() {
+		List<String> names = BenchmarkBuckets.createBucketNames(buckets);
+		fileStatuses = new FileStatus[buckets];
+		for (int i = 0; i < buckets; i++)
+			fileStatuses[i] = new FileStatus(0, true, 1, 0, 0, new Path(
+					BenchmarkBuckets.ARCHIVING_ROOT + "/index/" + names.get(i)));
+		cachedList = new FileStatusBackedList(fileStatuses);
+		for (int i = 0; i < cachedList.size(); i++)
+			cachedList.get(i);
+	}
+
+	@Benchmark
+	public void getUncached(Blackhole blackhole) {
+		FileStatusBackedList list = new FileStatusBackedList(fileStatuses);
+		for (int i = 0; i < list.size(); i++)
+			blackhole.consume(list.get(i));
+	}
+
+	@Benchmark
+	public void getCached(Blackhole blackhole) {
+		for (URI uri : cachedList)
+			blackhole.consume(uri);
+	}
+}
@@ -0,0 +1,85 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.splunk.shuttl.archiver.listers.BucketTable;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.benchmark.BenchmarkBuckets;
+
+/**
+ * Filtering a listing of buckets by a time range covering a quarter of the
+ * buckets, as a list of {@link Bucket}s, as a {@link BucketTable} and with a
+ * reused {@link BucketIntervalIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BucketFilterBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int buckets;
+
+	private List<Bucket> bucketList;
+	private BucketTable bucketTable;
+	private BucketIntervalIndex bucketIntervalIndex;
+	private Date earliest;
+	private Date latest;
+
+	@Setup
+	public void setUp() {
+		bucketList = BenchmarkBuckets.createArchivedBuckets(buckets);
+		bucketTable = BucketTable.create(bucketList,
+				BenchmarkBuckets.createPathResolver());
+		bucketIntervalIndex = BucketIntervalIndex.create(bucketList);
+		long quarter = BenchmarkBuckets.YEAR_IN_SECONDS / 4;
+		long first = BenchmarkBuckets.FIRST_EARLIEST_SECONDS;
+		earliest = new Date((first + quarter) * 1000);
+		latest = new Date((first + 2 * quarter) * 1000);
+	}
+
+	@Benchmark
+	public List<Bucket> filterBuckets() {
+		return BucketFilter.filterBuckets(bucketList, earliest, latest);
+	}
+
+	@Benchmark
+	public List<Bucket> filterBucketIntervalIndex() {
+		return bucketIntervalIndex.getBucketsWithinTimeRange(earliest, latest);
+	}
+
+	@Benchmark
+	public BucketTable filterBucketTable() {
+		return bucketTable.filterByTimeRange(earliest, latest);
+	}
+}
@@ -0,0 +1,253 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.BucketArchiver;
+import com.splunk.shuttl.archiver.archive.BucketArchiverFactory;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
+import com.splunk.shuttl.archiver.metrics.MetricsRegistry;
+import com.splunk.shuttl.archiver.metrics.PipelineStage;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.IllegalIndexException;
+import com.splunk.shuttl.archiver.thaw.BucketThawer;
+import com.splunk.shuttl.archiver.thaw.BucketThawerFactory;
+import com.splunk.shuttl.archiver.thaw.SplunkSettings;
+
+/**
+ * Archives and thaws synthetic buckets with the real {@link BucketArchiver}
+ * and {@link BucketThawer} against an archive on the local file system, and
+ * reports buckets per second, megabytes per second and the latency
+ * percentiles of each {@link PipelineStage}. Settings are read from system
+ * properties prefixed with {@value #PREFIX}:
+ * 
+ * <pre>
+ * buckets             number of buckets (100)
+ * files.min/files.max files per bucket (1/10)
+ * file.kb.min/max     size of each file in kilobytes (64/4096)
+ * seed                of the bucket contents (0)
+ * archive.threads     buckets archived concurrently (1)
+ * thaw.transfers      thaw transfer workers (BucketThawer's default)
+ * thaw.imports        thaw import workers (BucketThawer's default)
+ * dir                 working directory (a new temporary directory)
+ * results             file to write the JSON report to (none)
+ * </pre>
+ */
+public class ArchiveThawThroughputBenchmark {
+
+	public static final String PREFIX = "shuttl.benchmark.";
+
+	private static final String INDEX = "benchmark";
+	private static final long FIRST_EARLIEST_SECONDS = 1325376000L; // 2012-01-01
+	private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+	private final int bucketCount;
+	private final int archiveThreads;
+	private final int thawTransfers;
+	private final int thawImports;
+	private final SyntheticBuckets syntheticBuckets;
+	private final File directory;
+
+	public ArchiveThawThroughputBenchmark(int bucketCount, int archiveThreads,
+			int thawTransfers, int thawImports, SyntheticBuckets syntheticBuckets,
+			File directory) {
+		this.bucketCount = bucketCount;
+		this.archiveThreads = Math.max(1, archiveThreads);
+		this.thawTransfers = thawTransfers;
+		this.thawImports = thawImports;
+		this.syntheticBuckets = syntheticBuckets;
+		this.directory = directory;
+	}
+
+	/**
+	 * Runs the benchmark once.
+	 * 
+	 * @return report of the archiving and the thawing.
+	 */
+	public Map<String, Object> run() throws InterruptedException {
+		File dbDirectory = new File(directory, "splunk/" + INDEX + "/db");
+		final File thawDirectory = new File(directory, "splunk/" + INDEX
+				+ "/thaweddb");
+		File archiveDirectory = new File(directory, "archive");
+		thawDirectory.mkdirs();
+		archiveDirectory.mkdirs();
+
+		ArchiveConfiguration config = createConfiguration(archiveDirectory);
+		LocalFileSystemPaths localFileSystemPaths = new LocalFileSystemPaths(
+				new File(directory, "archiver-data").getAbsolutePath());
+		BucketArchiver archiver = BucketArchiverFactory
+				.createWithConfFileSystemAndCsvDirectory(config,
+						ArchiveFileSystemFactory.getWithConfiguration(config),
+						localFileSystemPaths);
+		BucketThawer thawer = BucketThawerFactory
+				.createWithConfigAndSplunkSettingsAndLocalFileSystemPaths(config,
+						new SplunkSettings(null) {
+
+							@Override
+							public File getThawLocation(String index)
+									throws IllegalIndexException {
+								return thawDirectory;
+							}
+						}, localFileSystemPaths, thawTransfers, thawImports);
+
+		List<Bucket> buckets = syntheticBuckets.createBuckets(INDEX, dbDirectory,
+				bucketCount, FIRST_EARLIEST_SECONDS);
+		long bytes = FileUtils.sizeOfDirectory(dbDirectory);
+
+		Map<String, Object> report = new LinkedHashMap<String, Object>();
+		report.put("buckets", bucketCount);
+		report.put("bytes", bytes);
+		report.put("archive_threads", archiveThreads);
+		report.put("thaw_transfers", thawTransfers);
+		report.put("thaw_imports", thawImports);
+		report.put("archive", archive(archiver, buckets, bytes));
+		report.put("thaw", thaw(thawer, bytes));
+		return report;
+	}
+
+	private static ArchiveConfiguration createConfiguration(
+			File archiveDirectory) {
+		List<BucketFormat> formats = new ArrayList<BucketFormat>();
+		formats.add(BucketFormat.SPLUNK_BUCKET);
+		return ArchiveConfiguration.createSafeConfiguration(
+				URI.create("file:" + archiveDirectory.getAbsolutePath()), formats,
+				"cluster", "server", formats);
+	}
+
+	private Map<String, Object> archive(final BucketArchiver archiver,
+			List<Bucket> buckets, long bytes) throws InterruptedException {
+		MetricsRegistry.getSharedInstance().reset();
+		ExecutorService executor = Executors.newFixedThreadPool(archiveThreads);
+		long start = System.nanoTime();
+		for (final Bucket bucket : buckets)
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					archiver.archiveBucket(bucket);
+				}
+			});
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		long nanos = System.nanoTime() - start;
+
+		int archived = 0;
+		for (Bucket bucket : buckets)
+			if (!bucket.getDirectory().exists())
+				archived++;
+		return createPhaseReport(archived, buckets.size() - archived, bytes, nanos);
+	}
+
+	private Map<String, Object> thaw(BucketThawer thawer, long bytes) {
+		MetricsRegistry.getSharedInstance().reset();
+		long start = System.nanoTime();
+		thawer.thawBuckets(INDEX, new Date(FIRST_EARLIEST_SECONDS * 1000),
+				new Date((FIRST_EARLIEST_SECONDS + bucketCount) * 1000));
+		long nanos = System.nanoTime() - start;
+		return createPhaseReport(thawer.getThawedBuckets().size(), thawer
+				.getFailedBuckets().size(), bytes, nanos);
+	}
+
+	private static Map<String, Object> createPhaseReport(int succeeded,
+			int failed, long bytes, long nanos) {
+		double seconds = nanos / 1e9;
+		Map<String, Object> phase = new LinkedHashMap<String, Object>();
+		phase.put("succeeded", succeeded);
+		phase.put("failed", failed);
+		phase.put("seconds", seconds);
+		phase.put("buckets_per_second", succeeded / seconds);
+		phase.put("mb_per_second", bytes / BYTES_PER_MEGABYTE / seconds);
+		phase.put("stages", getStageMetrics());
+		return phase;
+	}
+
+	/**
+	 * @return the metrics of the stages that ran since the registry was reset.
+	 */
+	private static Map<String, Number> getStageMetrics() {
+		Map<String, Number> snapshot = MetricsRegistry.getSharedInstance()
+				.getSnapshot();
+		Map<String, Number> stages = new LinkedHashMap<String, Number>();
+		for (PipelineStage stage : PipelineStage.values()) {
+			String name = stage.getMetricName();
+			Number count = snapshot.get(name + ".latency.count");
+			if (count == null || count.longValue() == 0)
+				continue;
+			for (Map.Entry<String, Number> metric : snapshot.entrySet())
+				if (metric.getKey().startsWith(name + "."))
+					stages.put(metric.getKey(), metric.getValue());
+		}
+		return stages;
+	}
+
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		int buckets = Integer.getInteger(PREFIX + "buckets", 100);
+		SyntheticBuckets syntheticBuckets = new SyntheticBuckets(Long.getLong(
+				PREFIX + "seed", 0), Integer.getInteger(PREFIX + "files.min", 1),
+				Integer.getInteger(PREFIX + "files.max", 10), 1024 * Long.getLong(
+						PREFIX + "file.kb.min", 64), 1024 * Long.getLong(PREFIX
+						+ "file.kb.max", 4096));
+		String dir = System.getProperty(PREFIX + "dir");
+		File directory = dir != null ? new File(dir) : new File(
+				System.getProperty("java.io.tmpdir"), "shuttl-throughput-"
+						+ System.currentTimeMillis());
+		if (!directory.mkdirs() && directory.list().length > 0)
+			throw new IllegalArgumentException("Working directory is not empty: "
+					+ directory);
+
+		try {
+			Map<String, Object> report = new ArchiveThawThroughputBenchmark(
+					buckets, Integer.getInteger(PREFIX + "archive.threads", 1),
+					Integer.getInteger(PREFIX + "thaw.transfers",
+							BucketThawer.DEFAULT_TRANSFER_WORKERS), Integer.getInteger(
+							PREFIX + "thaw.imports", BucketThawer.DEFAULT_IMPORT_WORKERS),
+					syntheticBuckets, directory).run();
+			writeReport(report, System.getProperty(PREFIX + "results"));
+		} finally {
+			FileUtils.deleteDirectory(directory);
+		}
+	}
+
+	private static void writeReport(Map<String, Object> report, String results)
+			throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.configure(SerializationConfig.Feature.INDENT_OUTPUT, true);
+		System.out.println(mapper.writeValueAsString(report));
+		if (results != null) {
+			File resultsFile = new File(results);
+			resultsFile.getAbsoluteFile().getParentFile().mkdirs();
+			mapper.writeValue(resultsFile, report);
+		}
+	}
+}
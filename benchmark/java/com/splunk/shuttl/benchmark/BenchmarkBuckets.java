@@ -0,0 +1,94 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.benchmark;
+
+import static java.util.Arrays.*;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.PathResolver;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Creates the buckets that the benchmarks run on. The buckets are remote, so
+ * that no bucket directories have to exist, and spread over a year with one
+ * bucket per time slot, like the buckets of a real index.
+ */
+public class BenchmarkBuckets {
+
+	public static final URI ARCHIVING_ROOT = URI
+			.create("hdfs://localhost:9000/archiving_root");
+	public static final long FIRST_EARLIEST_SECONDS = 1325376000L; // 2012-01-01
+	public static final long YEAR_IN_SECONDS = 365L * 24 * 60 * 60;
+
+	private static final int INDEXES = 8;
+
+	/**
+	 * @return names of buckets in the format db_latest_earliest_id.
+	 */
+	public static List<String> createBucketNames(int count) {
+		List<String> names = new ArrayList<String>(count);
+		long slot = YEAR_IN_SECONDS / count;
+		for (int i = 0; i < count; i++) {
+			long earliest = FIRST_EARLIEST_SECONDS + i * slot;
+			long latest = earliest + slot - 1;
+			names.add("db_" + latest + "_" + earliest + "_" + i);
+		}
+		return names;
+	}
+
+	/**
+	 * @return archived buckets with sizes, spread over a few indexes.
+	 */
+	public static List<Bucket> createArchivedBuckets(int count) {
+		PathResolver pathResolver = createPathResolver();
+		List<Bucket> buckets = new ArrayList<Bucket>(count);
+		List<String> names = createBucketNames(count);
+		for (int i = 0; i < count; i++) {
+			String index = getIndex(i);
+			String name = names.get(i);
+			buckets.add(createRemoteBucket(pathResolver.resolveArchivedBucketURI(
+					index, name, BucketFormat.SPLUNK_BUCKET), index, name,
+					1024L * 1024 * (1 + i % 100)));
+		}
+		return buckets;
+	}
+
+	public static String getIndex(int i) {
+		return "index" + i % INDEXES;
+	}
+
+	private static Bucket createRemoteBucket(URI uri, String index,
+			String name, long size) {
+		try {
+			return new Bucket(uri, index, name, BucketFormat.SPLUNK_BUCKET, size);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return resolver of paths under {@link #ARCHIVING_ROOT}.
+	 */
+	public static PathResolver createPathResolver() {
+		List<BucketFormat> formats = asList(BucketFormat.SPLUNK_BUCKET);
+		return new PathResolver(ArchiveConfiguration.createSafeConfiguration(
+				ARCHIVING_ROOT, formats, "cluster", "server", formats));
+	}
+}
@@ -0,0 +1,130 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Generates buckets with random content on the local file system. The number
+ * of files in a bucket and the size of each file are uniformly distributed
+ * between a minimum and a maximum, drawn from a seeded {@link Random} so that
+ * runs with the same settings generate the same buckets.
+ */
+public class SyntheticBuckets {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Random random;
+	private final int minFiles;
+	private final int maxFiles;
+	private final long minFileBytes;
+	private final long maxFileBytes;
+	private final byte[] buffer;
+
+	/**
+	 * @param seed
+	 *          of the random number generator.
+	 * @param minFiles
+	 *          minimum number of files in a bucket, at least 1.
+	 * @param maxFiles
+	 *          maximum number of files in a bucket.
+	 * @param minFileBytes
+	 *          minimum size of a file.
+	 * @param maxFileBytes
+	 *          maximum size of a file.
+	 */
+	public SyntheticBuckets(long seed, int minFiles, int maxFiles,
+			long minFileBytes, long maxFileBytes) {
+		if (minFiles < 1 || maxFiles < minFiles || minFileBytes < 0
+				|| maxFileBytes < minFileBytes)
+			throw new IllegalArgumentException("Illegal distribution, files: "
+					+ minFiles + "-" + maxFiles + ", bytes: " + minFileBytes + "-"
+					+ maxFileBytes);
+		this.random = new Random(seed);
+		this.minFiles = minFiles;
+		this.maxFiles = maxFiles;
+		this.minFileBytes = minFileBytes;
+		this.maxFileBytes = maxFileBytes;
+		this.buffer = new byte[BUFFER_SIZE];
+	}
+
+	/**
+	 * Creates buckets in a directory, one per second starting at
+	 * {@code firstEarliestSeconds}.
+	 * 
+	 * @param index
+	 *          that the buckets belong to.
+	 * @param directory
+	 *          to create the bucket directories in.
+	 * @return the created buckets, in the order of their times.
+	 */
+	public List<Bucket> createBuckets(String index, File directory, int count,
+			long firstEarliestSeconds) {
+		List<Bucket> buckets = new ArrayList<Bucket>(count);
+		for (int i = 0; i < count; i++) {
+			long earliest = firstEarliestSeconds + i;
+			String name = "db_" + earliest + "_" + earliest + "_" + i;
+			buckets.add(createBucket(index, new File(directory, name)));
+		}
+		return buckets;
+	}
+
+	private Bucket createBucket(String index, File bucketDirectory) {
+		File rawdata = new File(bucketDirectory, "rawdata");
+		if (!rawdata.mkdirs())
+			throw new RuntimeException("Could not create directory: " + rawdata);
+		int files = minFiles + random.nextInt(maxFiles - minFiles + 1);
+		for (int i = 0; i < files; i++)
+			writeRandomFile(new File(i == 0 ? rawdata : bucketDirectory,
+					i == 0 ? "journal.gz" : i + ".tsidx"), nextFileSize());
+		try {
+			return new Bucket(index, bucketDirectory, BucketFormat.SPLUNK_BUCKET);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private long nextFileSize() {
+		long range = maxFileBytes - minFileBytes;
+		return minFileBytes
+				+ (range == 0 ? 0 : (long) (random.nextDouble() * (range + 1)));
+	}
+
+	private void writeRandomFile(File file, long size) {
+		OutputStream output = null;
+		try {
+			output = new FileOutputStream(file);
+			for (long written = 0; written < size; written += buffer.length) {
+				random.nextBytes(buffer);
+				output.write(buffer, 0, (int) Math.min(buffer.length, size - written));
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			IOUtils.closeQuietly(output);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.splunk.shuttl.archiver.listers.BucketTable;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.benchmark.BenchmarkBuckets;
+
+/**
+ * Serializing a listing of buckets to JSON, both as the whole response string
+ * of {@link RestUtil#respondWithBuckets(List)} and streamed with
+ * {@link StreamingBucketsOutput}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RestUtilBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int buckets;
+
+	private List<Bucket> bucketList;
+	private BucketTable bucketTable;
+
+	@Setup
+	public void setUp() {
+		bucketList = BenchmarkBuckets.createArchivedBuckets(buckets);
+		bucketTable = BucketTable.create(bucketList,
+				BenchmarkBuckets.createPathResolver());
+	}
+
+	@Benchmark
+	public String respondWithBuckets() {
+		return RestUtil.respondWithBuckets(bucketList);
+	}
+
+	@Benchmark
+	public void streamBucketList() throws IOException {
+		StreamingBucketsOutput.create(bucketList, null, Integer.MAX_VALUE).write(
+				new NullOutputStream());
+	}
+
+	@Benchmark
+	public void streamBucketTable() throws IOException {
+		StreamingBucketsOutput.create(bucketTable, null, Integer.MAX_VALUE, null)
+				.write(new NullOutputStream());
+	}
+}
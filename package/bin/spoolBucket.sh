@@ -0,0 +1,69 @@
+#!/usr/bin/env sh
+
+# spoolBucket.sh - spools a frozen bucket for the running Shuttl server
+#
+# Use instead of archiveBucket.sh to archive without starting a JVM per
+# bucket. The bucket is renamed into the freeze spool, where the Shuttl
+# server picks it up and archives it.
+#
+# ex.
+#
+#  [archiver-test-index]
+#  homePath   = $SPLUNK_HOME/var/lib/splunk/archiver-test-index/db
+#  coldPath   = $SPLUNK_HOME/var/lib/splunk/archiver-test-index/colddb
+#  thawedPath = $SPLUNK_HOME/var/lib/splunk/archiver-test-index/thaweddb
+#  coldToFrozenScript = $SPLUNK_HOME/etc/apps/shuttl/bin/spoolBucket.sh archiver-test-index
+
+#
+#
+# Copyright (C) 2011 Splunk Inc.
+#
+# Splunk Inc. licenses this file
+# to you under the Apache License, Version 2.0 (the
+# "License"); you may not use this file except in compliance
+# with the License.  You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+set -e
+set -u
+
+
+: ${SPLUNK_HOME:?"Need to set SPLUNK_HOME to non-empty"}
+
+# Same working directory as the Shuttl server, so relative archiver
+# directories resolve to the same place.
+cd $SPLUNK_HOME/etc/apps/shuttl/bin
+
+if [ $# -lt 2 ]; then
+    echo 1>&2 "usage: $0 <index> <bucket>"
+    exit 1
+fi
+
+index=$1
+bucket=$2
+
+if [ ! -d "$bucket" ]; then
+    echo 1>&2 "$bucket is not a directory"
+    exit 12
+fi
+
+# Resolves the localArchiverDir of archiver.xml like LocalFileSystemPaths does.
+archiver_dir=`sed -n 's:.*<localArchiverDir>\(.*\)</localArchiverDir>.*:\1:p' ../conf/archiver.xml`
+archiver_dir=`echo "$archiver_dir" | sed -e "s:~:$HOME:" -e "s#^file:/##"`
+spool=$archiver_dir/data/freeze-spool/$index
+
+mkdir -p "$spool"
+name=`basename "$bucket"`
+
+# The dot name hides the bucket from the server until it's completely moved,
+# in case the spool is on another file system and mv has to copy.
+mv "$bucket" "$spool/.$name"
+mv "$spool/.$name" "$spool/$name"
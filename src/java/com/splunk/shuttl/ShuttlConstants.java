@@ -38,6 +38,7 @@ public final class ShuttlConstants {
 	public static final String ENDPOINT_SINK_PREFIX = "/sinkprefix";
 	public static final String ENDPOINT_BUCKET_ARCHIVER = "/bucket/archive";
 	public static final String ENDPOINT_BUCKET_THAW = "/bucket/thaw";
+	public static final String ENDPOINT_BUCKET_THAW_JOBS = "/bucket/thaw/jobs";
 	public static final String ENDPOINT_BUCKET_FLUSH = "/bucket/flush";
 	public static final String ENDPOINT_THAW_LIST = "/thaw/list";
 	public static final String ENDPOINT_LIST_BUCKETS = "/bucket/list";
@@ -45,6 +46,8 @@ public final class ShuttlConstants {
 	public static final String ENDPOINT_ARCHIVER = "/archiver";
 	public static final String ENDPOINT_SHUTDOWN = "/shutdown";
 	public static final String ENDPOINT_EXPORT_SRVC_STATUS = "/exportservicestatus";
+	public static final String ENDPOINT_METRICS = "/metrics";
+	public static final String ENDPOINT_HISTORY = "/history";
 	public static final String ATT_DEF_HADOOP_CLUSTER_HOST = "DefHadoopClusterHost";
 	public static final String ATT_DEF_HADOOP_CLUSTER_PORT = "DefHadoopClusterPort";
 
@@ -45,6 +45,14 @@ public class LocalFileSystemPaths {
 
 	final String METADATA_DIR_NAME = "metadata-dir";
 
+	final String ARCHIVE_JOBS_NAME = "archive-jobs-dir";
+
+	final String ARCHIVE_CATALOG_NAME = "archive-catalog-dir";
+
+	final String FREEZE_SPOOL_NAME = "freeze-spool";
+
+	final String OPERATION_LEDGER_NAME = "operation-ledger";
+
 	private final String archiverDirectoryPath;
 
 	public LocalFileSystemPaths(String archiverDirectoryPath) {
@@ -123,6 +131,35 @@ public class LocalFileSystemPaths {
 		return createDirectoryUnderArchiverDir(METADATA_DIR_NAME);
 	}
 
+	/**
+	 * Contains the journal of archive jobs that have not finished yet.
+	 */
+	public File getArchiveJobsDirectory() {
+		return createDirectoryUnderArchiverDir(ARCHIVE_JOBS_NAME);
+	}
+
+	/**
+	 * Contains the local mirrors of the archive catalogs.
+	 */
+	public File getArchiveCatalogDirectory() {
+		return createDirectoryUnderArchiverDir(ARCHIVE_CATALOG_NAME);
+	}
+
+	/**
+	 * Contains buckets that the freeze script has spooled for archiving, in a
+	 * directory per index.
+	 */
+	public File getFreezeSpoolDirectory() {
+		return createDirectoryUnderArchiverDir(FREEZE_SPOOL_NAME);
+	}
+
+	/**
+	 * Contains the ledger of archive, thaw and flush operations.
+	 */
+	public File getOperationLedgerDirectory() {
+		return createDirectoryUnderArchiverDir(OPERATION_LEDGER_NAME);
+	}
+
 	public static LocalFileSystemPaths create() {
 		String archiverPath = getPathForArchiverData();
 		return new LocalFileSystemPaths(archiverPath);
@@ -20,6 +20,14 @@ package com.splunk.shuttl.archiver;
  */
 public class LogFormatter {
 
+	public static final String OUTPUT_PROPERTY = "shuttl.log.format";
+
+	private static final int INITIAL_BUILDER_CAPACITY = 256;
+	private static final int MAX_REUSED_BUILDER_CAPACITY = 8 * 1024;
+
+	private static final ThreadLocal<StringBuilder> builders = new ThreadLocal<StringBuilder>();
+	private static volatile Output output = getConfiguredOutput();
+
 	/**
 	 * Format: {@code happened="$message"}<br/>
 	 * Use when logging events not fit for will/done, such as events originated
@@ -81,34 +89,139 @@ public class LogFormatter {
 
 	private static String combineAdditionalKeyValues(
 			Object[] additionalKeyValues, Object... logSpecificKeyValues) {
-		Object[] allKeyValues = new Object[additionalKeyValues.length
-				+ logSpecificKeyValues.length];
-		System.arraycopy(logSpecificKeyValues, 0, allKeyValues, 0,
-				logSpecificKeyValues.length);
-		System.arraycopy(additionalKeyValues, 0, allKeyValues,
-				logSpecificKeyValues.length, additionalKeyValues.length);
-		return pairKeysWithValues(allKeyValues);
+		if (additionalKeyValues.length % 2 != 0)
+			throw new IllegalArgumentException(
+					"You need even number of arguments to create key/value pairs");
+		StringBuilder sb = takeBuilder();
+		Output output = LogFormatter.output;
+		output.start(sb);
+		appendPairs(sb, output, logSpecificKeyValues, true);
+		appendPairs(sb, output, additionalKeyValues, false);
+		output.end(sb);
+		return releaseBuilder(sb);
+	}
+
+	private static void appendPairs(StringBuilder sb, Output output,
+			Object[] keyValues, boolean first) {
+		for (int i = 0; i < keyValues.length; i += 2)
+			output.appendPair(sb, keyValues[i], keyValues[i + 1], first && i == 0);
+	}
+
+	/**
+	 * Formatting reuses a builder per thread, unless it's already in use by a
+	 * {@link Object#toString()} that is logging.
+	 */
+	private static StringBuilder takeBuilder() {
+		StringBuilder sb = builders.get();
+		if (sb == null)
+			return new StringBuilder(INITIAL_BUILDER_CAPACITY);
+		builders.set(null);
+		sb.setLength(0);
+		return sb;
+	}
+
+	private static String releaseBuilder(StringBuilder sb) {
+		String message = sb.toString();
+		if (sb.capacity() <= MAX_REUSED_BUILDER_CAPACITY)
+			builders.set(sb);
+		return message;
+	}
+
+	/**
+	 * Sets how the key/value pairs are written. Defaults to the value of the
+	 * system property {@value #OUTPUT_PROPERTY}, or {@link Output#KEY_VALUE}.
+	 */
+	public static void setOutput(Output output) {
+		LogFormatter.output = output;
+	}
+
+	public static Output getOutput() {
+		return output;
+	}
+
+	private static Output getConfiguredOutput() {
+		String configured = System.getProperty(OUTPUT_PROPERTY);
+		return "json".equalsIgnoreCase(configured) ? Output.JSON
+				: Output.KEY_VALUE;
 	}
 
-	private static String pairKeysWithValues(Object... messages) {
-		StringBuffer sb = new StringBuffer();
-		try {
-			sb.append(messages[0]);
-			sb.append("=\"");
-			sb.append(messages[1]);
-			sb.append("\"");
-			for (int i = 2; i < messages.length; i += 2) {
-				sb.append(" ");
-				sb.append(messages[i]);
-				sb.append("=\"");
-				sb.append(messages[i + 1]);
-				sb.append("\"");
+	/**
+	 * How the key/value pairs of a message are written.
+	 */
+	public enum Output {
+		/**
+		 * {@code key1="value1" key2="value2"}
+		 */
+		KEY_VALUE {
+			@Override
+			void start(StringBuilder sb) {
 			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			throw new IllegalArgumentException(
-					"You need even number of arguments to create key/value pairs");
-		}
-		return sb.toString();
+
+			@Override
+			void appendPair(StringBuilder sb, Object key, Object value,
+					boolean first) {
+				if (!first)
+					sb.append(' ');
+				sb.append(key).append("=\"").append(value).append('"');
+			}
+
+			@Override
+			void end(StringBuilder sb) {
+			}
+		},
+		/**
+		 * {@code {"key1":"value1","key2":"value2"}}
+		 */
+		JSON {
+			@Override
+			void start(StringBuilder sb) {
+				sb.append('{');
+			}
+
+			@Override
+			void appendPair(StringBuilder sb, Object key, Object value,
+					boolean first) {
+				if (!first)
+					sb.append(',');
+				appendJsonString(sb, String.valueOf(key));
+				sb.append(':');
+				if (value == null)
+					sb.append("null");
+				else
+					appendJsonString(sb, value.toString());
+			}
+
+			@Override
+			void end(StringBuilder sb) {
+				sb.append('}');
+			}
+		};
+
+		abstract void start(StringBuilder sb);
+
+		abstract void appendPair(StringBuilder sb, Object key, Object value,
+				boolean first);
+
+		abstract void end(StringBuilder sb);
 	}
 
+	private static void appendJsonString(StringBuilder sb, String string) {
+		sb.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c == '\n')
+				sb.append("\\n");
+			else if (c == '\r')
+				sb.append("\\r");
+			else if (c == '\t')
+				sb.append("\\t");
+			else if (c < 0x20)
+				sb.append(String.format("\\u%04x", (int) c));
+			else
+				sb.append(c);
+		}
+		sb.append('"');
+	}
 }
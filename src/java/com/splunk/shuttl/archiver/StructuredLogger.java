@@ -0,0 +1,138 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Logs {@link LogFormatter} messages without formatting them, or calling
+ * {@link Object#toString()} on their values, when the level is disabled:
+ * 
+ * <pre>
+ * private static final StructuredLogger log = StructuredLogger
+ * 		.getLogger(Foo.class);
+ * 
+ * log.debug().will(&quot;Transfer bucket&quot;, &quot;bucket&quot;, bucket);
+ * </pre>
+ * 
+ * The level is checked when calling {@link #debug()}, {@link #info()},
+ * {@link #warn()} or {@link #error()}, which return a logger that does nothing
+ * if the level is disabled.<br/>
+ * <br/>
+ * Messages are formatted by {@link LogFormatter}, so they are written in the
+ * same format, key/value or JSON, as the messages of classes that still log
+ * {@link LogFormatter} strings directly.
+ */
+public class StructuredLogger {
+
+	private static final String FQCN = LevelLogger.class.getName();
+
+	private final Logger logger;
+	private final LevelLogger debug;
+	private final LevelLogger info;
+	private final LevelLogger warn;
+	private final LevelLogger error;
+
+	public StructuredLogger(Logger logger) {
+		this.logger = logger;
+		this.debug = new LevelLogger(logger, Level.DEBUG);
+		this.info = new LevelLogger(logger, Level.INFO);
+		this.warn = new LevelLogger(logger, Level.WARN);
+		this.error = new LevelLogger(logger, Level.ERROR);
+	}
+
+	public LevelLogger debug() {
+		return logger.isDebugEnabled() ? debug : LevelLogger.DISABLED;
+	}
+
+	public LevelLogger info() {
+		return logger.isInfoEnabled() ? info : LevelLogger.DISABLED;
+	}
+
+	public LevelLogger warn() {
+		return logger.isEnabledFor(Level.WARN) ? warn : LevelLogger.DISABLED;
+	}
+
+	public LevelLogger error() {
+		return logger.isEnabledFor(Level.ERROR) ? error : LevelLogger.DISABLED;
+	}
+
+	/**
+	 * @return the log4j logger, for messages that are not key/value pairs.
+	 */
+	public Logger getLogger() {
+		return logger;
+	}
+
+	public static StructuredLogger getLogger(Class<?> clazz) {
+		return new StructuredLogger(Logger.getLogger(clazz));
+	}
+
+	/**
+	 * Logs messages at one level. The methods match the ones in
+	 * {@link LogFormatter}.
+	 */
+	public static class LevelLogger {
+
+		private static final LevelLogger DISABLED = new LevelLogger(null, null);
+
+		private final Logger logger;
+		private final Level level;
+
+		private LevelLogger(Logger logger, Level level) {
+			this.logger = logger;
+			this.level = level;
+		}
+
+		/**
+		 * @return true if messages are logged.
+		 */
+		public boolean isEnabled() {
+			return logger != null;
+		}
+
+		public void happened(Object message, Object... keyValues) {
+			if (isEnabled())
+				log(LogFormatter.happened(message, keyValues));
+		}
+
+		public void will(Object message, Object... keyValues) {
+			if (isEnabled())
+				log(LogFormatter.will(message, keyValues));
+		}
+
+		public void done(Object message, Object... keyValues) {
+			if (isEnabled())
+				log(LogFormatter.done(message, keyValues));
+		}
+
+		public void did(Object did, Object happened, Object expected,
+				Object... keyValues) {
+			if (isEnabled())
+				log(LogFormatter.did(did, happened, expected, keyValues));
+		}
+
+		public void warn(Object did, Object happened, Object result,
+				Object... keyValues) {
+			if (isEnabled())
+				log(LogFormatter.warn(did, happened, result, keyValues));
+		}
+
+		private void log(String message) {
+			logger.log(FQCN, level, message, null);
+		}
+	}
+}
@@ -15,18 +15,27 @@
 
 package com.splunk.shuttl.archiver.archive;
 
-import static com.splunk.shuttl.archiver.LogFormatter.*;
-
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
-import org.apache.log4j.Logger;
-
-import com.splunk.shuttl.archiver.bucketsize.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.StructuredLogger;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogStore;
+import com.splunk.shuttl.archiver.catalog.CatalogEntry;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.ChecksumManifest;
 import com.splunk.shuttl.archiver.filesystem.FileOverwriteException;
+import com.splunk.shuttl.archiver.filesystem.WritesToStream;
+import com.splunk.shuttl.archiver.importexport.compressed.BucketCompressor;
+import com.splunk.shuttl.archiver.metrics.PipelineStage;
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
@@ -35,20 +44,44 @@ import com.splunk.shuttl.archiver.model.Bucket;
 public class ArchiveBucketTransferer {
 
 	private final ArchiveFileSystem archiveFileSystem;
-	private final static Logger logger = Logger
+	private final static StructuredLogger log = StructuredLogger
 			.getLogger(ArchiveBucketTransferer.class);
 	private final PathResolver pathResolver;
-	private final ArchiveBucketSize archiveBucketSize;
+	private final Map<BucketFormat, WritesBucketToStream> streamedFormats;
+	private final ArchiveCatalogStore archiveCatalogStore;
 
+	/**
+	 * @param streamedFormats
+	 *          formats that are written directly to the archive as a single
+	 *          file, instead of transferring the bucket's directory.
+	 * @param archiveCatalogStore
+	 *          for adding transferred buckets and their sizes to their index's
+	 *          catalog.
+	 */
 	public ArchiveBucketTransferer(ArchiveFileSystem archive,
-			PathResolver pathResolver, ArchiveBucketSize archiveBucketSize) {
+			PathResolver pathResolver,
+			Map<BucketFormat, WritesBucketToStream> streamedFormats,
+			ArchiveCatalogStore archiveCatalogStore) {
 		this.archiveFileSystem = archive;
 		this.pathResolver = pathResolver;
-		this.archiveBucketSize = archiveBucketSize;
+		this.streamedFormats = streamedFormats;
+		this.archiveCatalogStore = archiveCatalogStore;
+	}
+
+	/**
+	 * @return the formats that are always streamed to the archive.
+	 */
+	public static Map<BucketFormat, WritesBucketToStream> getDefaultStreamedFormats() {
+		Map<BucketFormat, WritesBucketToStream> streamedFormats = new HashMap<BucketFormat, WritesBucketToStream>();
+		streamedFormats.put(BucketFormat.SPLUNK_BUCKET_COMPRESSED,
+				BucketCompressor.create());
+		return streamedFormats;
 	}
 
 	/**
-	 * Transfers the bucket and its content to the archive.
+	 * Transfers the bucket and its content to the archive. The checksum of the
+	 * archived bucket's {@link ChecksumManifest} is added to the catalog with
+	 * the bucket.
 	 * 
 	 * @param bucket
 	 *          to transfer to {@link ArchiveFileSystem}
@@ -57,11 +90,11 @@ public class ArchiveBucketTransferer {
 	 */
 	public void transferBucketToArchive(Bucket bucket) {
 		URI destination = pathResolver.resolveArchivePath(bucket);
-		logger.info(will("attempting to transfer bucket to archive", "bucket",
-				bucket, "destination", destination));
+		log.info().will("attempting to transfer bucket to archive", "bucket",
+				bucket, "destination", destination);
 		try {
-			archiveFileSystem.putFileAtomically(bucket.getDirectory(), destination);
-			archiveBucketSize.putSize(bucket);
+			String checksum = putBucket(bucket, destination);
+			addBucketToCatalog(bucket, checksum);
 		} catch (FileNotFoundException e) {
 			logFileNotFoundException(bucket, destination, e);
 			throw new FailedToArchiveBucketException(e);
@@ -74,26 +107,118 @@ public class ArchiveBucketTransferer {
 		}
 	}
 
+	private String putBucket(Bucket bucket, URI destination)
+			throws IOException {
+		long start = System.nanoTime();
+		try {
+			String checksum;
+			Long bytes;
+			if (streamedFormats.containsKey(bucket.getFormat())) {
+				ChecksumManifest checksums = putStreamedBucket(bucket, destination);
+				checksum = checksums.getDigest();
+				bytes = checksums.getTotalLength();
+			} else {
+				archiveFileSystem.putFileAtomically(bucket.getDirectory(), destination);
+				checksum = getArchivedChecksum(destination);
+				bytes = bucket.getSize();
+			}
+			PipelineStage.HDFS_PUT.succeeded(start, bytes);
+			return checksum;
+		} catch (IOException e) {
+			PipelineStage.HDFS_PUT.failed(start);
+			throw e;
+		}
+	}
+
+	/**
+	 * The size of the bucket is put in the archive with its catalog entry.
+	 */
+	private void addBucketToCatalog(Bucket bucket, String checksum)
+			throws IOException {
+		long start = System.nanoTime();
+		try {
+			archiveCatalogStore.addBucket(bucket, checksum);
+			PipelineStage.SIZE_PUT.succeeded(start, null);
+		} catch (IOException e) {
+			PipelineStage.SIZE_PUT.failed(start);
+			throw e;
+		}
+	}
+
+	/**
+	 * The bucket is written in its format while it is transferred to the
+	 * archive, so the format is never stored locally. The checksum of the
+	 * written file is computed on the same pass and stored in the bucket's
+	 * {@link ChecksumManifest}. The file and the manifest are put in the archive
+	 * together, so the bucket is never archived without its manifest.
+	 * 
+	 * @return the manifest of the written file.
+	 */
+	private ChecksumManifest putStreamedBucket(final Bucket bucket, URI destination)
+			throws IOException {
+		final WritesBucketToStream writer = streamedFormats.get(bucket
+				.getFormat());
+		final String fileName = writer.getFileName(bucket);
+		final ChecksumManifest checksums = new ChecksumManifest();
+		Map<String, WritesToStream> files = new LinkedHashMap<String, WritesToStream>();
+		files.put(fileName, new WritesToStream() {
+
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				CountingCheckedOutputStream checked = new CountingCheckedOutputStream(
+						out);
+				writer.writeBucket(bucket, checked);
+				checksums.add(fileName, checked.length, checked.getChecksum()
+						.getValue());
+			}
+		});
+		files.put(ChecksumManifest.RELATIVE_PATH, new WritesToStream() {
+
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				checksums.writeTo(out);
+			}
+		});
+		archiveFileSystem.putStreamsAtomically(files, destination);
+		return checksums;
+	}
+
+	/**
+	 * @return checksum of the archived bucket's manifest, or null if the bucket
+	 *         doesn't have one.
+	 */
+	private String getArchivedChecksum(URI archivedBucket) {
+		try {
+			ChecksumManifest checksums = ChecksumManifest.readFromArchive(
+					archiveFileSystem, archivedBucket);
+			return checksums != null ? checksums.getDigest() : null;
+		} catch (IOException e) {
+			log.warn().warn("Read checksum manifest of archived bucket", e,
+					"Will add the bucket to the catalog without checksum",
+					"archived_bucket", archivedBucket);
+			return null;
+		}
+	}
+
 	private void logFileNotFoundException(Bucket bucket, URI destination,
 			FileNotFoundException e) {
-		logger.error(did("attempted to transfer bucket to archive",
+		log.error().did("attempted to transfer bucket to archive",
 				"bucket path does not exist", "success", "bucket", bucket,
-				"destination", destination, "exception", e));
+				"destination", destination, "exception", e);
 	}
 
 	private void logFileOverwriteException(Bucket bucket, URI destination,
 			FileOverwriteException e) {
-		logger
-				.error(did("attempted to transfer bucket to archive",
-						"a bucket with the same path already exists on the filesystem",
-						"success", "bucket", bucket, "destination", destination,
-						"exception", e));
+		log.error().did("attempted to transfer bucket to archive",
+				"a bucket with the same path already exists on the filesystem",
+				"success", "bucket", bucket, "destination", destination,
+				"exception", e);
 	}
 
 	private void logIOException(Bucket bucket, URI destination, IOException e) {
-		logger.error(did("attempted to transfer bucket to archive",
+		log.error().did("attempted to transfer bucket to archive",
 				"IOException raised", "success", "bucket", bucket, "destination",
-				destination, "exception", e));
+				destination, "exception", e);
 	}
 
 	/**
@@ -102,14 +227,48 @@ public class ArchiveBucketTransferer {
 	 * attempt. And since buckets can exist in different formats, one format may
 	 * have successfully been archived while another format failed.<br/>
 	 * This method can be used to test if the bucket in a specific format has been
-	 * successfully transfered.
+	 * successfully transfered.<br/>
+	 * A bucket can be transferred while adding it to the catalog fails. Once an
+	 * index has a catalog, the bucket is only listed if it's in the catalog, so
+	 * a transferred bucket that is missing from the catalog is added to it
+	 * before it's reported as archived.
 	 * 
 	 * @return true if the {@link Bucket} in {@link BucketFormat} is archived.
 	 */
 	public boolean isArchived(Bucket bucket, BucketFormat format) {
 		URI bucketUriWithFormat = pathResolver.resolveArchivedBucketURI(
 				bucket.getIndex(), bucket.getName(), format);
-		return !listPathsForBucketUri(bucketUriWithFormat).isEmpty();
+		if (listPathsForBucketUri(bucketUriWithFormat).isEmpty())
+			return false;
+		try {
+			addToCatalogIfMissing(bucket, format, bucketUriWithFormat);
+		} catch (IOException e) {
+			logIOException(bucketUriWithFormat, e);
+			throw new RuntimeException(e);
+		}
+		return true;
+	}
+
+	/**
+	 * A catalog is created from the buckets that are already archived, so an
+	 * index without a catalog doesn't miss any.
+	 */
+	private void addToCatalogIfMissing(Bucket bucket, BucketFormat format,
+			URI archivedBucket) throws IOException {
+		ArchiveCatalog catalog = archiveCatalogStore.getCatalog(bucket
+				.getIndex());
+		if (catalog == null || isInCatalog(catalog, bucket, format))
+			return;
+		log.warn().happened("Archived bucket was missing from the catalog",
+				"bucket", bucket, "format", format);
+		archiveCatalogStore.addEntry(bucket.getIndex(), CatalogEntry.create(
+				bucket, format, getArchivedChecksum(archivedBucket)));
+	}
+
+	private boolean isInCatalog(ArchiveCatalog catalog, Bucket bucket,
+			BucketFormat format) {
+		CatalogEntry entry = catalog.getEntry(bucket.getName());
+		return entry != null && entry.getFormats().contains(format);
 	}
 
 	private List<URI> listPathsForBucketUri(URI bucketUriWithFormat) {
@@ -122,10 +281,28 @@ public class ArchiveBucketTransferer {
 	}
 
 	private void logIOException(URI bucketUriWithFormat, IOException e) {
-		Logger.getLogger(getClass())
-				.error(
-						did("Listed path in the archive with uri: + uri", e,
-								"To list files at uri", "uri", bucketUriWithFormat,
-								"exception", e));
+		log.error().did("Listed path in the archive with uri: + uri", e,
+				"To list files at uri", "uri", bucketUriWithFormat, "exception", e);
+	}
+
+	private static class CountingCheckedOutputStream extends CheckedOutputStream {
+
+		private long length;
+
+		public CountingCheckedOutputStream(OutputStream out) {
+			super(out, new CRC32());
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			super.write(b);
+			length++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			super.write(b, off, len);
+			length += len;
+		}
 	}
 }
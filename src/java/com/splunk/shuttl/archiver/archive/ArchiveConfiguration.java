@@ -27,6 +27,7 @@ import javax.management.InstanceNotFoundException;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.importexport.csv.CsvExportMode;
 import com.splunk.shuttl.server.mbeans.ShuttlArchiver;
 import com.splunk.shuttl.server.mbeans.ShuttlArchiverMBean;
 
@@ -34,6 +35,7 @@ public class ArchiveConfiguration {
 
 	private static final String ARCHIVE_DATA_DIRECTORY_NAME = "archive_data";
 	private static final String TEMPORARY_DATA_DIRECTORY_NAME = "temporary_data";
+	private static final String ARCHIVE_CATALOG_DIRECTORY_NAME = "archive_catalog";
 
 	private final List<BucketFormat> bucketFormats;
 	private final URI archivingRoot;
@@ -41,16 +43,21 @@ public class ArchiveConfiguration {
 	private final String serverName;
 	private final List<BucketFormat> bucketFormatPriority;
 	private final URI tmpDirectory;
+	private final CsvExportMode csvExportMode;
+	private final URI catalogRoot;
 
 	private ArchiveConfiguration(List<BucketFormat> bucketFormats,
 			URI archivingRoot, String clusterName, String serverName,
-			List<BucketFormat> bucketFormatPriority, URI tmpDirectory) {
+			List<BucketFormat> bucketFormatPriority, URI tmpDirectory,
+			CsvExportMode csvExportMode, URI catalogRoot) {
 		this.bucketFormats = bucketFormats;
 		this.archivingRoot = archivingRoot;
 		this.clusterName = clusterName;
 		this.serverName = serverName;
 		this.bucketFormatPriority = bucketFormatPriority;
 		this.tmpDirectory = tmpDirectory;
+		this.csvExportMode = csvExportMode;
+		this.catalogRoot = catalogRoot;
 	}
 
 	/**
@@ -99,21 +106,33 @@ public class ArchiveConfiguration {
 		String clusterName = mBean.getClusterName();
 		String serverName = mBean.getServerName();
 		List<BucketFormat> bucketFormatPriority = createFormatPriorityList(mBean);
+		CsvExportMode csvExportMode = CsvExportMode.fromName(mBean
+				.getCsvExportMode());
 		return createSafeConfiguration(archivingRootURI, bucketFormats,
-				clusterName,
-				serverName, bucketFormatPriority);
+				clusterName, serverName, bucketFormatPriority, csvExportMode);
 	}
 
 	public static ArchiveConfiguration createSafeConfiguration(
 			URI archivingRootURI,
 			List<BucketFormat> bucketFormats, String clusterName, String serverName,
 			List<BucketFormat> bucketFormatPriority) {
+		return createSafeConfiguration(archivingRootURI, bucketFormats,
+				clusterName, serverName, bucketFormatPriority, CsvExportMode.FILE);
+	}
+
+	public static ArchiveConfiguration createSafeConfiguration(
+			URI archivingRootURI, List<BucketFormat> bucketFormats,
+			String clusterName, String serverName,
+			List<BucketFormat> bucketFormatPriority, CsvExportMode csvExportMode) {
 		URI archivingData = getChildToArchivingRoot(archivingRootURI,
 				ARCHIVE_DATA_DIRECTORY_NAME);
 		URI tmpDirectory = getChildToArchivingRoot(archivingRootURI,
 				TEMPORARY_DATA_DIRECTORY_NAME);
+		URI catalogRoot = getChildToArchivingRoot(archivingRootURI,
+				ARCHIVE_CATALOG_DIRECTORY_NAME);
 		return new ArchiveConfiguration(bucketFormats, archivingData, clusterName,
-				serverName, bucketFormatPriority, tmpDirectory);
+				serverName, bucketFormatPriority, tmpDirectory, csvExportMode,
+				catalogRoot);
 	}
 
 	private static URI archivingRootFromMBean(ShuttlArchiverMBean mBean) {
@@ -182,4 +201,19 @@ public class ArchiveConfiguration {
 		return tmpDirectory;
 	}
 
+	/**
+	 * @return root of the archive catalogs, which lives next to the archived
+	 *         data so that listing the data never lists the catalogs.
+	 */
+	public URI getCatalogRoot() {
+		return catalogRoot;
+	}
+
+	/**
+	 * @return how buckets are exported to {@link BucketFormat#CSV}.
+	 */
+	public CsvExportMode getCsvExportMode() {
+		return csvExportMode;
+	}
+
 }
@@ -14,11 +14,10 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.archive;
 
-import static com.splunk.shuttl.archiver.LogFormatter.*;
-
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -30,30 +29,61 @@ import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.ShuttlConstants;
+import com.splunk.shuttl.archiver.StructuredLogger;
+import com.splunk.shuttl.archiver.StructuredLogger.LevelLogger;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
 import com.splunk.shuttl.archiver.model.Bucket;
-import com.splunk.shuttl.server.mbeans.rest.ListBucketsEndpoint;
+import com.splunk.shuttl.server.mbeans.ShuttlServer;
+import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
+import com.splunk.shuttl.server.mbeans.rest.ArchiveBucketEndpoint;
 
 /**
- * Handling all the calls and returns to and from {@link ListBucketsEndpoint}
+ * Handling all the calls and returns to and from {@link ArchiveBucketEndpoint}
  */
 public class ArchiveRestHandler implements SharedLockBucketHandler {
 
+	private static final StructuredLogger staticLog = StructuredLogger
+			.getLogger(ArchiveRestHandler.class);
+
+	public static final String DEFAULT_HOST = "localhost";
+	public static final int DEFAULT_PORT = 9090;
+
+	/* package private */static final int MAX_CONNECTIONS = 4;
+	/* package private */static final int CONNECT_TIMEOUT_MILLIS = 10 * 1000;
+	/* package private */static final int SOCKET_TIMEOUT_MILLIS = 60 * 1000;
+	/* package private */static final long MAX_KEEP_ALIVE_MILLIS = 30 * 1000;
+
 	private final HttpClient httpClient;
-	private final Logger logger;
+	private final StructuredLogger log;
+	private final String archiverUrl;
 
 	public ArchiveRestHandler(HttpClient httpClient) {
 		this(httpClient, Logger.getLogger(ArchiveRestHandler.class));
 	}
 
 	public ArchiveRestHandler(HttpClient httpClient, Logger logger) {
+		this(httpClient, DEFAULT_HOST, DEFAULT_PORT, logger);
+	}
+
+	public ArchiveRestHandler(HttpClient httpClient, String host, int port,
+			Logger logger) {
 		this.httpClient = httpClient;
-		this.logger = logger;
+		this.log = new StructuredLogger(logger);
+		this.archiverUrl = "http://" + host + ":" + port + "/"
+				+ ShuttlConstants.ENDPOINT_CONTEXT + ShuttlConstants.ENDPOINT_ARCHIVER;
 	}
 
 	public void callRestToArchiveBucket(Bucket bucket) {
@@ -71,14 +101,10 @@ public class ArchiveRestHandler implements SharedLockBucketHandler {
 		}
 	}
 
-	private static HttpUriRequest createBucketArchiveRequest(Bucket bucket)
+	private HttpUriRequest createBucketArchiveRequest(Bucket bucket)
 			throws UnsupportedEncodingException {
-		// CONFIG configure the host and port with a general solution.
-		String requestString = "http://localhost:9090/"
-				+ ShuttlConstants.ENDPOINT_CONTEXT + ShuttlConstants.ENDPOINT_ARCHIVER
-				+ ShuttlConstants.ENDPOINT_BUCKET_ARCHIVER;
-
-		HttpPost request = new HttpPost(requestString);
+		HttpPost request = new HttpPost(archiverUrl
+				+ ShuttlConstants.ENDPOINT_BUCKET_ARCHIVER);
 
 		ArrayList<NameValuePair> params = new ArrayList<NameValuePair>();
 		params.add(new BasicNameValuePair("path", bucket.getDirectory()
@@ -92,19 +118,21 @@ public class ArchiveRestHandler implements SharedLockBucketHandler {
 	private HttpResponse executeArchiveBucketRequest(Bucket bucket,
 			HttpUriRequest archiveBucketRequest) throws IOException,
 			ClientProtocolException, HttpResponseException {
-		logger.debug(will("Send an archive bucket request", "request_uri",
-				archiveBucketRequest.getURI()));
+		log.debug().will("Send an archive bucket request", "request_uri",
+				archiveBucketRequest.getURI());
 		HttpResponse response = httpClient.execute(archiveBucketRequest);
-		handleResponseFromDoingArchiveBucketRequest(response, bucket);
+		handleResponseFromDoingArchiveBucketRequest(response, bucket.getName());
 		return response;
 	}
 
 	private void handleResponseFromDoingArchiveBucketRequest(
-			HttpResponse response, Bucket bucket) throws HttpResponseException {
+			HttpResponse response, String bucketName) throws HttpResponseException {
 		switch (response.getStatusLine().getStatusCode()) {
 		case HttpStatus.SC_OK:
+		case HttpStatus.SC_ACCEPTED:
 		case HttpStatus.SC_NO_CONTENT:
-			logSuccess(response, bucket, response.getStatusLine().getStatusCode());
+			logSuccess(response, bucketName, response.getStatusLine()
+					.getStatusCode());
 			break;
 		default:
 			throw new HttpResponseException(response.getStatusLine().getStatusCode(),
@@ -112,11 +140,13 @@ public class ArchiveRestHandler implements SharedLockBucketHandler {
 		}
 	}
 
-	private void logSuccess(HttpResponse response, Bucket bucket, int statusCode) {
-		String entity = getEntityFromResponse(response);
-		logger.debug(done("Got http response from archiveBucketRequest",
-				"status_code", statusCode, "bucket_name", bucket.getName(), "entity",
-				entity));
+	private void logSuccess(HttpResponse response, String bucketName,
+			int statusCode) {
+		LevelLogger debug = log.debug();
+		if (debug.isEnabled())
+			debug.done("Got http response from archiveBucketRequest",
+					"status_code", statusCode, "bucket_name", bucketName, "entity",
+					getEntityFromResponse(response));
 	}
 
 	/**
@@ -133,25 +163,25 @@ public class ArchiveRestHandler implements SharedLockBucketHandler {
 	}
 
 	private void logHttpResponseException(Bucket bucket, HttpResponseException e) {
-		logger.error(did("Sent an archive bucket reuqest",
-				"Got non ok http_status", "expected HttpStatus.SC_OK or SC_NO_CONTENT",
-				"http_status", e.getStatusCode(), "bucket_name", bucket.getName()));
+		log.error().did("Sent an archive bucket reuqest",
+				"Got non ok http_status", "expected HttpStatus.SC_OK, SC_ACCEPTED or SC_NO_CONTENT",
+				"http_status", e.getStatusCode(), "bucket_name", bucket.getName());
 	}
 
 	private void logIOExceptionGenereratedByDoingArchiveBucketRequest(
 			IOException e, Bucket bucket) {
-		logger.error(did("Sent archive bucket request", "got IOException",
+		log.error().did("Sent archive bucket request", "got IOException",
 				"request to succeed", "exception", e, "bucket_name", bucket.getName(),
-				"cause", e.getCause()));
+				"cause", e.getCause());
 	}
 
 	private void consumeResponseHandlingErrors(HttpResponse response) {
 		try {
 			EntityUtils.consume(response.getEntity());
 		} catch (IOException e) {
-			logger.error(did(
+			log.error().did(
 					"Tried to consume http response of archive bucket request", e,
-					"no exception", "response", response));
+					"no exception", "response", response);
 		}
 	}
 
@@ -179,4 +209,76 @@ public class ArchiveRestHandler implements SharedLockBucketHandler {
 		// Do nothing.
 	}
 
+	/**
+	 * @return {@link ArchiveRestHandler} with a pooled keep-alive http client,
+	 *         talking to the host and port configured in the
+	 *         {@link ShuttlServerMBean}.
+	 */
+	public static ArchiveRestHandler create() {
+		String host = DEFAULT_HOST;
+		int port = DEFAULT_PORT;
+		try {
+			ShuttlServerMBean serverMBean = new ShuttlServer();
+			host = getConnectableHost(serverMBean.getHttpHost());
+			port = serverMBean.getHttpPort();
+		} catch (RuntimeException e) {
+			staticLog.warn().warn("Read shuttl server host and port", e,
+					"will use default host and port", "host", host, "port", port);
+		}
+		return new ArchiveRestHandler(createPooledHttpClient(), host, port,
+				Logger.getLogger(ArchiveRestHandler.class));
+	}
+
+	/**
+	 * The server can be configured to listen on all interfaces, which is not an
+	 * address a client can connect to.
+	 */
+	/* package private */static String getConnectableHost(String host) {
+		if (host == null || host.trim().isEmpty() || host.equals("0.0.0.0"))
+			return DEFAULT_HOST;
+		else
+			return host.trim();
+	}
+
+	/**
+	 * @return http client that re-uses its connections, with connect and socket
+	 *         timeouts.
+	 */
+	public static HttpClient createPooledHttpClient() {
+		ThreadSafeClientConnManager connectionManager = new ThreadSafeClientConnManager();
+		connectionManager.setMaxTotal(MAX_CONNECTIONS);
+		connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+
+		HttpParams params = new BasicHttpParams();
+		HttpConnectionParams.setConnectionTimeout(params, CONNECT_TIMEOUT_MILLIS);
+		HttpConnectionParams.setSoTimeout(params, SOCKET_TIMEOUT_MILLIS);
+		HttpConnectionParams.setStaleCheckingEnabled(params, true);
+
+		DefaultHttpClient httpClient = new DefaultHttpClient(connectionManager,
+				params);
+		httpClient.setKeepAliveStrategy(new CappedKeepAliveStrategy());
+		return httpClient;
+	}
+
+	/**
+	 * Keeps connections alive as long as the server says, but never longer than
+	 * {@link ArchiveRestHandler#MAX_KEEP_ALIVE_MILLIS}.
+	 */
+	/* package private */static class CappedKeepAliveStrategy implements
+			ConnectionKeepAliveStrategy {
+
+		private final ConnectionKeepAliveStrategy serverStrategy = new DefaultConnectionKeepAliveStrategy();
+
+		@Override
+		public long getKeepAliveDuration(HttpResponse response,
+				HttpContext context) {
+			long serverDuration = serverStrategy.getKeepAliveDuration(response,
+					context);
+			if (serverDuration < 0)
+				return MAX_KEEP_ALIVE_MILLIS;
+			else
+				return Math.min(serverDuration, MAX_KEEP_ALIVE_MILLIS);
+		}
+	}
+
 }
@@ -15,10 +15,16 @@
 
 package com.splunk.shuttl.archiver.archive;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.history.OperationLedger;
+import com.splunk.shuttl.archiver.history.OperationRecord;
+import com.splunk.shuttl.archiver.history.OperationType;
+import com.splunk.shuttl.archiver.history.StageTimer;
 import com.splunk.shuttl.archiver.importexport.BucketExporter;
+import com.splunk.shuttl.archiver.metrics.PipelineStage;
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
@@ -30,6 +36,7 @@ public class BucketArchiver {
 	private final ArchiveBucketTransferer archiveBucketTransferer;
 	private final BucketDeleter bucketDeleter;
 	private final List<BucketFormat> bucketFormats;
+	private final OperationLedger operationLedger;
 
 	/**
 	 * Constructor following dependency injection pattern, makes it easier to
@@ -48,33 +55,122 @@ public class BucketArchiver {
 	public BucketArchiver(BucketExporter exporter,
 			ArchiveBucketTransferer archiveBucketTransferer,
 			BucketDeleter bucketDeleter, List<BucketFormat> bucketFormats) {
+		this(exporter, archiveBucketTransferer, bucketDeleter, bucketFormats, null);
+	}
+
+	/**
+	 * @param operationLedger
+	 *          to record every archived bucket in, or null to not record them.
+	 * @see #BucketArchiver(BucketExporter, ArchiveBucketTransferer,
+	 *      BucketDeleter, List)
+	 */
+	public BucketArchiver(BucketExporter exporter,
+			ArchiveBucketTransferer archiveBucketTransferer,
+			BucketDeleter bucketDeleter, List<BucketFormat> bucketFormats,
+			OperationLedger operationLedger) {
 		this.bucketExporter = exporter;
 		this.archiveBucketTransferer = archiveBucketTransferer;
 		this.bucketDeleter = bucketDeleter;
 		this.bucketFormats = bucketFormats;
+		this.operationLedger = operationLedger;
 	}
 
+	/**
+	 * Archives the bucket in every format, and deletes it when all formats are
+	 * archived. The operation is recorded in the {@link OperationLedger} with
+	 * the archived formats and the duration of each stage.
+	 */
 	public void archiveBucket(Bucket bucket) {
+		StageTimer timer = new StageTimer();
+		List<BucketFormat> archivedFormats = new ArrayList<BucketFormat>();
+		boolean successfullyArchivedAllFormats = false;
+		try {
+			successfullyArchivedAllFormats = archiveFormats(bucket, timer,
+					archivedFormats);
+			if (successfullyArchivedAllFormats) {
+				bucketDeleter.deleteBucket(bucket);
+				timer.endStage("delete");
+			}
+		} finally {
+			recordOperation(bucket, timer, archivedFormats,
+					successfullyArchivedAllFormats);
+		}
+	}
+
+	private boolean archiveFormats(Bucket bucket, StageTimer timer,
+			List<BucketFormat> archivedFormats) {
 		boolean successfullyArchivedAllFormats = true;
-		for (BucketFormat format : bucketFormats)
-			if (!archiveBucketTransferer.isArchived(bucket, format))
-				if (!isSuccessfulArchiving(bucket, format))
+		for (BucketFormat format : bucketFormats) {
+			boolean isArchived = archiveBucketTransferer.isArchived(bucket, format);
+			timer.restart();
+			if (isArchived) {
+				deleteEarlierExport(bucket, format);
+			} else {
+				archivedFormats.add(format);
+				if (!isSuccessfulArchiving(bucket, format, timer))
 					successfullyArchivedAllFormats = false;
+			}
+		}
+		return successfullyArchivedAllFormats;
+	}
 
-		if (successfullyArchivedAllFormats)
-			bucketDeleter.deleteBucket(bucket);
+	/**
+	 * An export that was kept for a retry is no longer needed once its format
+	 * is in the archive, for example when the format was archived by another
+	 * attempt.
+	 */
+	private void deleteEarlierExport(Bucket bucket, BucketFormat format) {
+		Bucket earlierExport = bucketExporter.getEarlierExport(bucket, format);
+		if (earlierExport != null && !bucket.equals(earlierExport))
+			bucketDeleter.deleteBucket(earlierExport);
 	}
 
-	private boolean isSuccessfulArchiving(Bucket bucket, BucketFormat format) {
-		Bucket exportedBucket = bucketExporter.exportBucket(bucket, format);
+	/**
+	 * The exported bucket is only deleted when it was transferred, so that a
+	 * retried archiving can transfer the same export again. It's deleted by
+	 * {@link #deleteEarlierExport(Bucket, BucketFormat)} if the format gets
+	 * archived without it.
+	 */
+	private boolean isSuccessfulArchiving(Bucket bucket, BucketFormat format,
+			StageTimer timer) {
+		Bucket exportedBucket = exportBucket(bucket, format);
+		timer.endStage("export_" + format);
 		try {
 			archiveBucketTransferer.transferBucketToArchive(exportedBucket);
-			return true;
 		} catch (FailedToArchiveBucketException e) {
 			return false;
 		} finally {
-			if (!bucket.equals(exportedBucket))
-				bucketDeleter.deleteBucket(exportedBucket);
+			timer.endStage("transfer_" + format);
+		}
+		if (!bucket.equals(exportedBucket)) {
+			bucketDeleter.deleteBucket(exportedBucket);
+			timer.endStage("delete_export_" + format);
+		}
+		return true;
+	}
+
+	private void recordOperation(Bucket bucket, StageTimer timer,
+			List<BucketFormat> archivedFormats, boolean successful) {
+		if (operationLedger == null)
+			return;
+		StringBuilder formats = new StringBuilder();
+		for (BucketFormat format : archivedFormats)
+			formats.append(formats.length() == 0 ? "" : ",").append(format);
+		operationLedger.record(OperationRecord.create(timer,
+				OperationType.ARCHIVE, bucket.getIndex(), bucket.getName(),
+				formats.length() == 0 ? null : formats.toString(),
+				bucket.getSizeIfKnown(), successful));
+	}
+
+	private Bucket exportBucket(Bucket bucket, BucketFormat format) {
+		long start = System.nanoTime();
+		try {
+			Bucket exportedBucket = bucketExporter.exportBucket(bucket, format);
+			PipelineStage.EXPORT.succeeded(start, null);
+			return exportedBucket;
+		} catch (RuntimeException e) {
+			PipelineStage.EXPORT.failed(start);
+			throw e;
 		}
 	}
 }
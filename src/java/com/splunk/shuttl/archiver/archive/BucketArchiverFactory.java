@@ -14,13 +14,19 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.archive;
 
+import java.util.Map;
+
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.bucketsize.ArchiveBucketSize;
 import com.splunk.shuttl.archiver.bucketsize.BucketSizeIO;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogStore;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
+import com.splunk.shuttl.archiver.history.OperationLedger;
 import com.splunk.shuttl.archiver.importexport.BucketExporter;
+import com.splunk.shuttl.archiver.importexport.csv.CsvExportMode;
 import com.splunk.shuttl.archiver.importexport.csv.CsvExporter;
+import com.splunk.shuttl.archiver.importexport.csv.CsvStreamExporter;
 
 /**
  * Construction code for creating BucketArchivers that archives in different
@@ -66,11 +72,32 @@ public class BucketArchiverFactory {
 		BucketSizeIO bucketSizeIO = new BucketSizeIO(archiveFileSystem,
 				localFileSystemPaths);
 		ArchiveBucketSize archiveBucketSize = new ArchiveBucketSize(pathResolver,
-				bucketSizeIO, archiveFileSystem);
-		return new BucketArchiver(BucketExporter.create(csvExporter),
-				new ArchiveBucketTransferer(archiveFileSystem, pathResolver,
-						archiveBucketSize), BucketDeleter.create(),
-				config.getArchiveFormats());
+				bucketSizeIO);
+		CsvExportMode csvExportMode = getCsvExportMode(config);
+		ArchiveCatalogStore archiveCatalogStore = ArchiveCatalogStore.create(
+				archiveFileSystem, pathResolver, archiveBucketSize,
+				localFileSystemPaths);
+		return new BucketArchiver(BucketExporter.create(csvExporter,
+				csvExportMode), new ArchiveBucketTransferer(archiveFileSystem,
+				pathResolver, getStreamedFormats(csvExporter,
+						csvExportMode), archiveCatalogStore), BucketDeleter.create(),
+				config.getArchiveFormats(), new OperationLedger(
+						localFileSystemPaths.getOperationLedgerDirectory()));
+
+	}
+
+	private static CsvExportMode getCsvExportMode(ArchiveConfiguration config) {
+		CsvExportMode csvExportMode = config.getCsvExportMode();
+		return csvExportMode != null ? csvExportMode : CsvExportMode.FILE;
+	}
 
+	private static Map<BucketFormat, WritesBucketToStream> getStreamedFormats(
+			CsvExporter csvExporter, CsvExportMode csvExportMode) {
+		Map<BucketFormat, WritesBucketToStream> streamedFormats = ArchiveBucketTransferer
+				.getDefaultStreamedFormats();
+		if (!csvExportMode.equals(CsvExportMode.FILE))
+			streamedFormats.put(BucketFormat.CSV, CsvStreamExporter.create(
+					csvExporter, csvExportMode.equals(CsvExportMode.COMPRESSED_STREAM)));
+		return streamedFormats;
 	}
 }
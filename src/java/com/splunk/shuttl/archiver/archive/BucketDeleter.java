@@ -20,6 +20,7 @@ import java.io.IOException;
 
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.metrics.PipelineStage;
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
@@ -38,9 +39,12 @@ public class BucketDeleter {
 	 *          to delete.
 	 */
 	public void deleteBucket(Bucket bucket) {
+		long start = System.nanoTime();
 		try {
 			bucket.deleteBucket();
+			PipelineStage.DELETE.succeeded(start, null);
 		} catch (IOException e) {
+			PipelineStage.DELETE.failed(start);
 			logAndIgnoreDeletionException(bucket, e);
 		}
 	}
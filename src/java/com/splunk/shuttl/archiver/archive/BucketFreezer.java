@@ -24,7 +24,7 @@ import java.util.Arrays;
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.LogFormatter;
-import com.splunk.shuttl.archiver.archive.recovery.FailedBucketsArchiver;
+import com.splunk.shuttl.archiver.archive.recovery.FailedBucketsRetryScheduler;
 import com.splunk.shuttl.archiver.archive.recovery.IndexPreservingBucketMover;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
 import com.splunk.shuttl.archiver.model.Bucket;
@@ -33,8 +33,8 @@ import com.splunk.shuttl.server.mbeans.ShuttlMBeanException;
 
 /**
  * Takes a bucket that froze and archives it. <br/>
- * The {@link BucketFreezer} also recovers any failed archiving attempts by
- * other {@link BucketFreezer}s.
+ * Buckets that fail to archive are left in the safe location, where the Shuttl
+ * server retries them with the {@link FailedBucketsRetryScheduler}.
  */
 public class BucketFreezer {
 
@@ -48,16 +48,13 @@ public class BucketFreezer {
 
 	private final IndexPreservingBucketMover bucketMover;
 	private final BucketLocker bucketLocker;
-	private final FailedBucketsArchiver failedBucketsArchiver;
 	private final ArchiveRestHandler archiveRestHandler;
 
 	public BucketFreezer(IndexPreservingBucketMover bucketMover,
-			BucketLocker bucketLocker, ArchiveRestHandler archiveRestHandler,
-			FailedBucketsArchiver failedBucketsArchiver) {
+			BucketLocker bucketLocker, ArchiveRestHandler archiveRestHandler) {
 		this.bucketMover = bucketMover;
 		this.bucketLocker = bucketLocker;
 		this.archiveRestHandler = archiveRestHandler;
-		this.failedBucketsArchiver = failedBucketsArchiver;
 	}
 
 	/**
@@ -95,8 +92,6 @@ public class BucketFreezer {
 
 		bucketLocker.callBucketHandlerUnderSharedLock(bucket,
 				new MoveAndArchiveBucketUnderLock(bucketMover, archiveRestHandler));
-
-		failedBucketsArchiver.archiveFailedBuckets(archiveRestHandler);
 	}
 
 	/**
@@ -14,13 +14,10 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.archive;
 
-import org.apache.http.impl.client.DefaultHttpClient;
-
 import com.splunk.shuttl.archiver.ArchiverMBeanNotRegisteredException;
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.recovery.ArchiveBucketLocker;
 import com.splunk.shuttl.archiver.archive.recovery.IndexPreservingBucketMover;
-import com.splunk.shuttl.archiver.archive.recovery.FailedBucketsArchiver;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
 
 /**
@@ -42,13 +39,9 @@ public class BucketFreezerProvider {
 		IndexPreservingBucketMover bucketMover = IndexPreservingBucketMover.create(LocalFileSystemPaths.create()
 				.getSafeDirectory());
 		BucketLocker bucketLocker = new ArchiveBucketLocker();
-		FailedBucketsArchiver failedBucketsArchiver = new FailedBucketsArchiver(
-				bucketMover, bucketLocker);
-		ArchiveRestHandler archiveRestHandler = new ArchiveRestHandler(
-				new DefaultHttpClient());
+		ArchiveRestHandler archiveRestHandler = ArchiveRestHandler.create();
 
-		return new BucketFreezer(bucketMover, bucketLocker, archiveRestHandler,
-				failedBucketsArchiver);
+		return new BucketFreezer(bucketMover, bucketLocker, archiveRestHandler);
 	}
 
 }
@@ -138,6 +138,17 @@ public class PathResolver {
 		return new PathResolver(archiveConfiguration);
 	}
 
+	/**
+	 * @return {@link URI} to the directory with the archive catalog of an index.
+	 *         Each cluster and server has its own catalogs, like the archived
+	 *         data.
+	 */
+	public URI getCatalogHome(String index) {
+		return URI.create(configuration.getCatalogRoot().toString() + SEPARATOR
+				+ configuration.getClusterName() + SEPARATOR
+				+ configuration.getServerName() + SEPARATOR + index);
+	}
+
 	/**
 	 * @return {@link URI} to where a bucket's file with local disk size
 	 *         information.
@@ -0,0 +1,42 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Writes a {@link Bucket} in a {@link BucketFormat} as a single file, directly
+ * to a stream on the {@link ArchiveFileSystem}. Used for formats that are
+ * created while they are transferred, instead of being exported to the local
+ * file system first.
+ */
+public interface WritesBucketToStream {
+
+	/**
+	 * @return name of the file that holds the bucket in the archive.
+	 */
+	String getFileName(Bucket bucket);
+
+	/**
+	 * Writes the bucket to the stream. The stream may be closed by the
+	 * implementation, but does not have to be.
+	 */
+	void writeBucket(Bucket bucket, OutputStream out) throws IOException;
+}
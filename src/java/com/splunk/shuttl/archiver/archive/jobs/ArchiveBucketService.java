@@ -0,0 +1,247 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.jobs;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.management.InstanceNotFoundException;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.ArchiverMBeanNotRegisteredException;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.recovery.ArchiveBucketLocker;
+import com.splunk.shuttl.archiver.bucketlock.BucketLock;
+import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
+import com.splunk.shuttl.archiver.metrics.Gauge;
+import com.splunk.shuttl.archiver.metrics.MetricsRegistry;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.server.mbeans.ShuttlArchiver;
+
+/**
+ * Archives buckets in the Shuttl server with a bounded pool of workers. Every
+ * accepted bucket is journaled in the {@link ArchiveJobJournal} before it's
+ * queued, so jobs that were not finished are resumed with
+ * {@link #resumeJournaledJobs()} when the server starts.
+ */
+public class ArchiveBucketService {
+
+	private static final Logger logger = Logger
+			.getLogger(ArchiveBucketService.class);
+
+	static final int DEFAULT_ARCHIVE_WORKERS = 4;
+
+	private static ArchiveBucketService instance;
+
+	private final ArchiveJobJournal journal;
+	private final ExecutorService executor;
+	private final BucketLocker bucketLocker;
+	private final BucketFactory bucketFactory;
+	private final Set<String> queuedPaths;
+
+	/**
+	 * @param journal
+	 *          to store the accepted jobs in.
+	 * @param executor
+	 *          with the workers that run the jobs.
+	 * @param bucketLocker
+	 *          for locking the buckets while they wait for a worker.
+	 * @param bucketFactory
+	 *          for creating the buckets of the jobs.
+	 */
+	public ArchiveBucketService(ArchiveJobJournal journal,
+			ExecutorService executor, BucketLocker bucketLocker,
+			BucketFactory bucketFactory) {
+		this.journal = journal;
+		this.executor = executor;
+		this.bucketLocker = bucketLocker;
+		this.bucketFactory = bucketFactory;
+		this.queuedPaths = Collections
+				.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	}
+
+	/**
+	 * Journals and queues a bucket to be archived. The bucket is locked with a
+	 * shared lock until the job is done.
+	 * 
+	 * @return the queued job.
+	 * @throws IllegalStateException
+	 *           if the bucket could not be locked.
+	 */
+	public ArchiveJob archiveBucket(String index, String path) {
+		Bucket bucket = createBucket(index, path);
+		BucketLock bucketLock = bucketLocker.getLockForBucket(bucket);
+		if (!bucketLock.tryLockShared()) {
+			bucketLock.closeLock();
+			throw new IllegalStateException("We must ensure that the"
+					+ " bucket archiver has a lock to the bucket it will transfer");
+		}
+		ArchiveJob job = journalJobClosingLockOnFailure(index, path, bucketLock);
+		queueJob(job, bucket, bucketLock);
+		return job;
+	}
+
+	private Bucket createBucket(String index, String path) {
+		return bucketFactory.createWithIndexDirectoryAndFormat(index, new File(
+				path), BucketFormat.SPLUNK_BUCKET);
+	}
+
+	private ArchiveJob journalJobClosingLockOnFailure(String index, String path,
+			BucketLock bucketLock) {
+		try {
+			return journal.addJob(index, path);
+		} catch (RuntimeException e) {
+			bucketLock.closeLock();
+			throw e;
+		}
+	}
+
+	private void queueJob(ArchiveJob job, Bucket bucket, BucketLock bucketLock) {
+		logger.info(will("Queue archive job", "job_id", job.getId(), "index",
+				job.getIndex(), "path", job.getPath()));
+		queuedPaths.add(job.getPath());
+		try {
+			executor.execute(new QueuedArchiveJobRunner(job, bucket, bucketLock));
+		} catch (RuntimeException e) {
+			queuedPaths.remove(job.getPath());
+			throw e;
+		}
+	}
+
+	/**
+	 * @return true if a bucket with the path is queued or being archived.
+	 */
+	public boolean isQueued(String path) {
+		return queuedPaths.contains(path);
+	}
+
+	/**
+	 * Forgets the path of the job when it's done, so {@link #isQueued(String)}
+	 * only reflects the jobs that are waiting or running.
+	 */
+	private class QueuedArchiveJobRunner extends ArchiveJobRunner {
+
+		private final String path;
+
+		public QueuedArchiveJobRunner(ArchiveJob job, Bucket bucket,
+				BucketLock bucketLock) {
+			super(job, bucket, bucketLock, journal);
+			this.path = job.getPath();
+		}
+
+		@Override
+		public void run() {
+			try {
+				super.run();
+			} finally {
+				queuedPaths.remove(path);
+			}
+		}
+	}
+
+	/**
+	 * Queues the jobs that are left in the journal. Jobs whose buckets no longer
+	 * exist, or that cannot be locked, are removed from the journal.
+	 */
+	public void resumeJournaledJobs() {
+		for (ArchiveJob job : journal.getJobs())
+			resumeJob(job);
+	}
+
+	private void resumeJob(ArchiveJob job) {
+		if (!new File(job.getPath()).isDirectory()) {
+			logger.info(happened("Removing archive job for bucket that no longer "
+					+ "exists", "job_id", job.getId(), "path", job.getPath()));
+			journal.removeJob(job);
+			return;
+		}
+		Bucket bucket = createBucket(job.getIndex(), job.getPath());
+		BucketLock bucketLock = bucketLocker.getLockForBucket(bucket);
+		if (bucketLock.tryLockShared()) {
+			queueJob(job, bucket, bucketLock);
+		} else {
+			bucketLock.closeLock();
+			logger.warn(warn("Resumed archive job", "Could not lock bucket",
+					"Removing the job from the journal", "job_id", job.getId(),
+					"bucket", bucket));
+			journal.removeJob(job);
+		}
+	}
+
+	/**
+	 * Stops accepting jobs. Jobs that are already queued are still run.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * @return the service shared by the Shuttl server, created with the
+	 *         configured number of archive workers.
+	 */
+	public static synchronized ArchiveBucketService getSharedInstance() {
+		if (instance == null) {
+			instance = create();
+			instance.registerQueueDepthGauge(MetricsRegistry.getSharedInstance());
+		}
+		return instance;
+	}
+
+	/**
+	 * @return number of buckets that are queued or being archived.
+	 */
+	public int getQueuedCount() {
+		return queuedPaths.size();
+	}
+
+	private void registerQueueDepthGauge(MetricsRegistry registry) {
+		registry.registerGauge("queue.archive_jobs", new Gauge() {
+
+			@Override
+			public long getValue() {
+				return getQueuedCount();
+			}
+		});
+	}
+
+	/**
+	 * @return service with the configured number of archive workers.
+	 */
+	public static ArchiveBucketService create() {
+		return new ArchiveBucketService(ArchiveJobJournal.create(),
+				Executors.newFixedThreadPool(getConfiguredArchiveWorkers()),
+				new ArchiveBucketLocker(), new BucketFactory());
+	}
+
+	private static int getConfiguredArchiveWorkers() {
+		try {
+			Integer workers = ShuttlArchiver.getMBeanProxy().getArchiveWorkers();
+			return workers != null && workers > 0 ? workers
+					: DEFAULT_ARCHIVE_WORKERS;
+		} catch (InstanceNotFoundException e) {
+			logger.error(did("Tried getting the MBean for ShuttlArchiver", e,
+					"To get the MBean", "exception", e));
+			throw new ArchiverMBeanNotRegisteredException(e);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.jobs;
+
+/**
+ * A request to archive a bucket, which is journaled by the
+ * {@link ArchiveJobJournal} until the bucket has been archived.
+ */
+public class ArchiveJob {
+
+	private final String id;
+	private final String index;
+	private final String path;
+	private final long created;
+
+	/**
+	 * @param id
+	 *          unique id of the job.
+	 * @param index
+	 *          of the bucket to archive.
+	 * @param path
+	 *          to the bucket to archive.
+	 * @param created
+	 *          time in milliseconds when the job was created.
+	 */
+	public ArchiveJob(String id, String index, String path, long created) {
+		this.id = id;
+		this.index = index;
+		this.path = path;
+		this.created = created;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getIndex() {
+		return index;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	@Override
+	public int hashCode() {
+		return id.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ArchiveJob))
+			return false;
+		return id.equals(((ArchiveJob) obj).id);
+	}
+
+	@Override
+	public String toString() {
+		return "ArchiveJob [id=" + id + ", index=" + index + ", path=" + path
+				+ ", created=" + created + "]";
+	}
+}
@@ -0,0 +1,171 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.jobs;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+
+/**
+ * Durable journal of {@link ArchiveJob}s. Every job is stored as a file in the
+ * journal directory until it's removed, so that jobs that were accepted but not
+ * finished can be resumed when the Shuttl server restarts.
+ */
+public class ArchiveJobJournal {
+
+	private static final Logger logger = Logger
+			.getLogger(ArchiveJobJournal.class);
+
+	static final String JOB_FILE_EXTENSION = ".job";
+	private static final String TMP_FILE_EXTENSION = ".tmp";
+
+	private static final String ID_KEY = "id";
+	private static final String INDEX_KEY = "index";
+	private static final String PATH_KEY = "path";
+	private static final String CREATED_KEY = "created";
+
+	private final File journalDirectory;
+
+	/**
+	 * @param journalDirectory
+	 *          where the job files are stored.
+	 */
+	public ArchiveJobJournal(File journalDirectory) {
+		this.journalDirectory = journalDirectory;
+	}
+
+	/**
+	 * Writes a new job to the journal. The job file is written to a temporary
+	 * file first and then renamed, so a job in the journal is always complete.
+	 * 
+	 * @return the journaled job.
+	 */
+	public ArchiveJob addJob(String index, String path) {
+		ArchiveJob job = new ArchiveJob(UUID.randomUUID().toString(), index, path,
+				System.currentTimeMillis());
+		File tmpFile = new File(journalDirectory, job.getId() + TMP_FILE_EXTENSION);
+		writeJobToFile(job, tmpFile);
+		File jobFile = getJobFile(job);
+		if (!tmpFile.renameTo(jobFile)) {
+			FileUtils.deleteQuietly(tmpFile);
+			logger.error(did("Renamed journal tmp file to job file",
+					"Rename failed", "Job file to exist", "tmp_file", tmpFile,
+					"job_file", jobFile));
+			throw new RuntimeException("Could not journal archive job: " + job);
+		}
+		return job;
+	}
+
+	private void writeJobToFile(ArchiveJob job, File file) {
+		Properties properties = new Properties();
+		properties.setProperty(ID_KEY, job.getId());
+		properties.setProperty(INDEX_KEY, job.getIndex());
+		properties.setProperty(PATH_KEY, job.getPath());
+		properties.setProperty(CREATED_KEY, Long.toString(job.getCreated()));
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(file);
+			properties.store(out, null);
+		} catch (IOException e) {
+			logger.error(did("Wrote archive job to journal", e,
+					"Job to be written", "job", job, "file", file));
+			throw new RuntimeException(e);
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	private File getJobFile(ArchiveJob job) {
+		return new File(journalDirectory, job.getId() + JOB_FILE_EXTENSION);
+	}
+
+	/**
+	 * Removes a job from the journal. Does nothing if the job is not journaled.
+	 */
+	public void removeJob(ArchiveJob job) {
+		File jobFile = getJobFile(job);
+		if (jobFile.exists() && !jobFile.delete())
+			logger.warn(warn("Removed archive job from journal",
+					"Could not delete job file", "Job will be resumed on restart",
+					"job", job, "job_file", jobFile));
+	}
+
+	/**
+	 * @return all journaled jobs, ordered by when they were created.
+	 */
+	public List<ArchiveJob> getJobs() {
+		List<ArchiveJob> jobs = new ArrayList<ArchiveJob>();
+		File[] files = journalDirectory.listFiles();
+		if (files != null)
+			for (File file : files)
+				if (file.getName().endsWith(JOB_FILE_EXTENSION))
+					addJobFromFile(jobs, file);
+		Collections.sort(jobs, new Comparator<ArchiveJob>() {
+			@Override
+			public int compare(ArchiveJob o1, ArchiveJob o2) {
+				return Long.valueOf(o1.getCreated()).compareTo(o2.getCreated());
+			}
+		});
+		return jobs;
+	}
+
+	private void addJobFromFile(List<ArchiveJob> jobs, File file) {
+		try {
+			jobs.add(readJobFromFile(file));
+		} catch (Exception e) {
+			logger.warn(warn("Read archive job from journal", e,
+					"Skipping the corrupt job file", "file", file));
+		}
+	}
+
+	private ArchiveJob readJobFromFile(File file) throws IOException {
+		Properties properties = new Properties();
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			properties.load(in);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		return new ArchiveJob(properties.getProperty(ID_KEY),
+				properties.getProperty(INDEX_KEY), properties.getProperty(PATH_KEY),
+				Long.parseLong(properties.getProperty(CREATED_KEY)));
+	}
+
+	/**
+	 * @return journal stored in the configured archive jobs directory.
+	 */
+	public static ArchiveJobJournal create() {
+		return new ArchiveJobJournal(
+				LocalFileSystemPaths.create().getArchiveJobsDirectory());
+	}
+}
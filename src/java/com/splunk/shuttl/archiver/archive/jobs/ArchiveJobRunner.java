@@ -0,0 +1,85 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.jobs;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.archive.BucketArchiver;
+import com.splunk.shuttl.archiver.archive.BucketArchiverFactory;
+import com.splunk.shuttl.archiver.archive.BucketArchiverRunner;
+import com.splunk.shuttl.archiver.bucketlock.BucketLock;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Runs an {@link ArchiveJob} on a worker thread with a
+ * {@link BucketArchiverRunner}, and removes the job from the
+ * {@link ArchiveJobJournal} when it's done, whether it succeeded or not. Failed
+ * buckets stay in the safe directory, where they are picked up by the failed
+ * bucket recovery.
+ */
+public class ArchiveJobRunner implements Runnable {
+
+	private static final Logger logger = Logger.getLogger(ArchiveJobRunner.class);
+
+	private final ArchiveJob job;
+	private final Bucket bucket;
+	private final BucketLock bucketLock;
+	private final ArchiveJobJournal journal;
+
+	/**
+	 * @param job
+	 *          that is run.
+	 * @param bucket
+	 *          to archive.
+	 * @param bucketLock
+	 *          which is already locked.
+	 * @param journal
+	 *          that the job is removed from when it's done.
+	 */
+	public ArchiveJobRunner(ArchiveJob job, Bucket bucket, BucketLock bucketLock,
+			ArchiveJobJournal journal) {
+		this.job = job;
+		this.bucket = bucket;
+		this.bucketLock = bucketLock;
+		this.journal = journal;
+	}
+
+	@Override
+	public void run() {
+		try {
+			logger.info(will("Run archive job", "job_id", job.getId(), "bucket",
+					bucket));
+			new BucketArchiverRunner(createBucketArchiver(), bucket, bucketLock)
+					.run();
+			logger.info(done("Ran archive job", "job_id", job.getId()));
+		} catch (RuntimeException e) {
+			logger.error(did("Ran archive job", e, "Bucket to be archived",
+					"job_id", job.getId(), "bucket", bucket, "exception", e));
+		} finally {
+			bucketLock.closeLock();
+			journal.removeJob(job);
+		}
+	}
+
+	/**
+	 * Creates the archiver when the job is run, so that configuration changes and
+	 * unreachable archives only affects the jobs that are run.
+	 */
+	protected BucketArchiver createBucketArchiver() {
+		return BucketArchiverFactory.createConfiguredArchiver();
+	}
+}
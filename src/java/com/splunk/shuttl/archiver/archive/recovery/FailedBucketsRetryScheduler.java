@@ -0,0 +1,329 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.recovery;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.jobs.ArchiveBucketService;
+import com.splunk.shuttl.archiver.metrics.Gauge;
+import com.splunk.shuttl.archiver.metrics.MetricsRegistry;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Retries archiving the buckets that are left in the safe location, from the
+ * Shuttl server. A bucket stays in the safe location when its archiving
+ * failed, so every bucket that is found there, and that is not queued in the
+ * {@link ArchiveBucketService}, has failed.<br/>
+ * <br/>
+ * The safe location is swept every {@link #SWEEP_INTERVAL_MILLIS}. A failed
+ * bucket is retried after an exponential backoff, that starts at
+ * {@link #INITIAL_BACKOFF_MILLIS} and is capped at {@link #MAX_BACKOFF_MILLIS}.
+ * Half of every backoff is random, so that buckets that failed together are not
+ * retried together. At most {@link #getMaxConcurrentRetries()} retries are
+ * queued at the same time.
+ */
+public class FailedBucketsRetryScheduler implements Runnable {
+
+	private static final Logger logger = Logger
+			.getLogger(FailedBucketsRetryScheduler.class);
+
+	static final long SWEEP_INTERVAL_MILLIS = 30 * 1000;
+	static final long INITIAL_BACKOFF_MILLIS = 60 * 1000;
+	static final long MAX_BACKOFF_MILLIS = 60 * 60 * 1000;
+	static final int DEFAULT_MAX_CONCURRENT_RETRIES = 2;
+
+	private final IndexPreservingBucketMover safeBucketMover;
+	private final ArchiveBucketService archiveBucketService;
+	private final ScheduledExecutorService executor;
+	private final Random random;
+	private final int maxConcurrentRetries;
+	private final Map<String, RetryHistory> histories;
+
+	/**
+	 * @param safeBucketMover
+	 *          that knows the buckets in the safe location.
+	 * @param archiveBucketService
+	 *          to queue the retries in.
+	 * @param executor
+	 *          that runs the sweeps.
+	 * @param random
+	 *          for the random part of the backoffs.
+	 * @param maxConcurrentRetries
+	 *          maximum number of retries that are queued at the same time.
+	 */
+	public FailedBucketsRetryScheduler(
+			IndexPreservingBucketMover safeBucketMover,
+			ArchiveBucketService archiveBucketService,
+			ScheduledExecutorService executor, Random random,
+			int maxConcurrentRetries) {
+		this.safeBucketMover = safeBucketMover;
+		this.archiveBucketService = archiveBucketService;
+		this.executor = executor;
+		this.random = random;
+		this.maxConcurrentRetries = maxConcurrentRetries;
+		this.histories = new LinkedHashMap<String, RetryHistory>();
+	}
+
+	/**
+	 * Starts sweeping the safe location.
+	 */
+	public void start() {
+		logger.info(will("Schedule retries of failed buckets",
+				"sweep_interval_millis", SWEEP_INTERVAL_MILLIS,
+				"max_concurrent_retries", maxConcurrentRetries));
+		executor.scheduleWithFixedDelay(this, 0, SWEEP_INTERVAL_MILLIS,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops sweeping the safe location.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	@Override
+	public void run() {
+		try {
+			sweep();
+		} catch (RuntimeException e) {
+			logger.error(did("Swept failed buckets", e, "To retry failed buckets"));
+		}
+	}
+
+	/**
+	 * Updates the retry history of every failed bucket, and queues the buckets
+	 * whose backoff has passed, as long as there are less than
+	 * {@link #getMaxConcurrentRetries()} retries queued.
+	 */
+	public synchronized void sweep() {
+		long now = currentTimeMillis();
+		List<Bucket> safeBuckets = safeBucketMover.getMovedBuckets();
+		forgetBucketsThatAreNoLongerSafe(safeBuckets);
+
+		int retrying = countQueuedRetries();
+		for (Bucket bucket : safeBuckets) {
+			String path = bucket.getDirectory().getAbsolutePath();
+			if (archiveBucketService.isQueued(path))
+				continue;
+			RetryHistory history = getFailedHistory(path, now);
+			if (retrying < maxConcurrentRetries && history.isDue(now)) {
+				retry(bucket, history, now);
+				retrying++;
+			}
+		}
+		logger.debug(done("Swept failed buckets", "waiting", histories.size()
+				- retrying, "retrying", retrying));
+	}
+
+	private void forgetBucketsThatAreNoLongerSafe(List<Bucket> safeBuckets) {
+		Set<String> safePaths = new HashSet<String>();
+		for (Bucket bucket : safeBuckets)
+			safePaths.add(bucket.getDirectory().getAbsolutePath());
+		for (Iterator<String> paths = histories.keySet().iterator(); paths
+				.hasNext();)
+			if (!safePaths.contains(paths.next()))
+				paths.remove();
+	}
+
+	private int countQueuedRetries() {
+		int queued = 0;
+		for (Map.Entry<String, RetryHistory> entry : histories.entrySet())
+			if (entry.getValue().isRetrying()
+					&& archiveBucketService.isQueued(entry.getKey()))
+				queued++;
+		return queued;
+	}
+
+	/**
+	 * A bucket that is seen for the first time, or whose retry was done, has
+	 * failed. It's given a backoff before its next retry.
+	 */
+	private RetryHistory getFailedHistory(String path, long now) {
+		RetryHistory history = histories.get(path);
+		if (history == null) {
+			history = new RetryHistory(now);
+			histories.put(path, history);
+			history.failed(now + getBackoff(0));
+		} else if (history.isRetrying()) {
+			history.failed(now + getBackoff(history.getAttempts()));
+		}
+		return history;
+	}
+
+	/**
+	 * @return the backoff before retrying a bucket that has been retried the
+	 *         number of attempts. The backoff is between half and all of the
+	 *         exponential backoff.
+	 */
+	/* package private */long getBackoff(int attempts) {
+		long backoff = MAX_BACKOFF_MILLIS;
+		if (attempts < 30)
+			backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << attempts);
+		long half = backoff / 2;
+		return half + (long) (random.nextDouble() * (backoff - half));
+	}
+
+	private void retry(Bucket bucket, RetryHistory history, long now) {
+		history.retried(now);
+		logger.info(will("Retry archiving failed bucket", "bucket", bucket,
+				"attempt", history.getAttempts(), "failed_since",
+				history.getFirstFailure()));
+		try {
+			archiveBucketService.archiveBucket(bucket.getIndex(), bucket
+					.getDirectory().getAbsolutePath());
+		} catch (RuntimeException e) {
+			logger.warn(warn("Queued failed bucket for retry", e,
+					"Will retry it after the next backoff", "bucket", bucket));
+		}
+	}
+
+	/**
+	 * @return number of failed buckets that are waiting to be retried, or that
+	 *         are being retried.
+	 */
+	public synchronized int getRetryQueueSize() {
+		return histories.size();
+	}
+
+	/**
+	 * @return the retry history of the failed bucket on the path, or null if the
+	 *         bucket has not failed.
+	 */
+	public synchronized RetryHistory getRetryHistory(String path) {
+		return histories.get(path);
+	}
+
+	public int getMaxConcurrentRetries() {
+		return maxConcurrentRetries;
+	}
+
+	/* package private */void registerRetryQueueGauge(MetricsRegistry registry) {
+		registry.registerGauge("queue.retry_buckets", new Gauge() {
+
+			@Override
+			public long getValue() {
+				return getRetryQueueSize();
+			}
+		});
+	}
+
+	/**
+	 * Do NOT call nor override this method outside this class. It's meant to be
+	 * private but is package private for testing purposes.
+	 */
+	/* package private */long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * The retries of a failed bucket.
+	 */
+	public static class RetryHistory {
+
+		private final long firstFailure;
+		private int attempts;
+		private long lastAttempt;
+		private long nextAttempt;
+		private boolean retrying;
+
+		private RetryHistory(long firstFailure) {
+			this.firstFailure = firstFailure;
+		}
+
+		private void failed(long nextAttempt) {
+			this.nextAttempt = nextAttempt;
+			this.retrying = false;
+		}
+
+		private void retried(long now) {
+			this.attempts++;
+			this.lastAttempt = now;
+			this.retrying = true;
+		}
+
+		private boolean isDue(long now) {
+			return !retrying && nextAttempt <= now;
+		}
+
+		/**
+		 * @return time in milliseconds when the bucket was found failed.
+		 */
+		public long getFirstFailure() {
+			return firstFailure;
+		}
+
+		/**
+		 * @return number of times the bucket has been retried.
+		 */
+		public int getAttempts() {
+			return attempts;
+		}
+
+		/**
+		 * @return time in milliseconds of the last retry, or 0 if the bucket has
+		 *         not been retried.
+		 */
+		public long getLastAttempt() {
+			return lastAttempt;
+		}
+
+		/**
+		 * @return time in milliseconds when the bucket will be retried.
+		 */
+		public long getNextAttempt() {
+			return nextAttempt;
+		}
+
+		/**
+		 * @return true if the bucket has been queued for a retry that has not
+		 *         finished yet.
+		 */
+		public boolean isRetrying() {
+			return retrying;
+		}
+	}
+
+	/**
+	 * @return scheduler that retries the failed buckets in the configured safe
+	 *         location with the shared {@link ArchiveBucketService}. The size of
+	 *         its retry queue is the queue.retry_buckets gauge of the shared
+	 *         {@link MetricsRegistry}.
+	 */
+	public static FailedBucketsRetryScheduler create() {
+		IndexPreservingBucketMover safeBucketMover = IndexPreservingBucketMover
+				.create(LocalFileSystemPaths.create().getSafeDirectory());
+		FailedBucketsRetryScheduler scheduler = new FailedBucketsRetryScheduler(
+				safeBucketMover, ArchiveBucketService.getSharedInstance(),
+				Executors.newSingleThreadScheduledExecutor(), new Random(),
+				DEFAULT_MAX_CONCURRENT_RETRIES);
+		scheduler.registerRetryQueueGauge(MetricsRegistry.getSharedInstance());
+		return scheduler;
+	}
+}
@@ -0,0 +1,200 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.spool;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.jobs.ArchiveBucketService;
+import com.splunk.shuttl.archiver.archive.recovery.IndexPreservingBucketMover;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.archiver.model.MovesBuckets;
+
+/**
+ * Picks up the buckets that the freeze script spools, and queues them in the
+ * {@link ArchiveBucketService}. The freeze script renames a frozen bucket to
+ * <code>freeze-spool/[index]/[bucket]</code>, without starting a JVM. Entries
+ * that start with a dot are still being spooled, and are left alone.<br/>
+ * <br/>
+ * The spool directories are polled every {@link #POLL_INTERVAL_MILLIS}. When
+ * their modification times change, or at least every
+ * {@link #SWEEP_INTERVAL_MILLIS}, the spool is swept. A swept bucket is moved
+ * to the safe location before it's queued, so it's only queued once. Buckets
+ * that could not be queued are moved back to the spool and retried on a later
+ * sweep.
+ */
+public class FreezeSpoolWatcher implements Runnable {
+
+	private static final Logger logger = Logger
+			.getLogger(FreezeSpoolWatcher.class);
+
+	static final long POLL_INTERVAL_MILLIS = 1000;
+	static final long SWEEP_INTERVAL_MILLIS = 60000;
+
+	private final File spoolDirectory;
+	private final IndexPreservingBucketMover safeBucketMover;
+	private final ArchiveBucketService archiveBucketService;
+	private final ScheduledExecutorService executor;
+	private Map<File, Long> modificationTimes;
+	private long lastSweep;
+
+	/**
+	 * @param spoolDirectory
+	 *          that the freeze script spools buckets to.
+	 * @param safeBucketMover
+	 *          that moves the buckets to the safe location.
+	 * @param archiveBucketService
+	 *          to queue the buckets in.
+	 * @param executor
+	 *          that runs the polling.
+	 */
+	public FreezeSpoolWatcher(File spoolDirectory,
+			IndexPreservingBucketMover safeBucketMover,
+			ArchiveBucketService archiveBucketService,
+			ScheduledExecutorService executor) {
+		this.spoolDirectory = spoolDirectory;
+		this.safeBucketMover = safeBucketMover;
+		this.archiveBucketService = archiveBucketService;
+		this.executor = executor;
+		this.modificationTimes = new HashMap<File, Long>();
+	}
+
+	/**
+	 * Starts polling the spool. The spool is swept right away, to pick up the
+	 * buckets that were spooled while the server was down.
+	 */
+	public void start() {
+		logger.info(will("Watch freeze spool", "spool_directory", spoolDirectory));
+		executor.scheduleWithFixedDelay(this, 0, POLL_INTERVAL_MILLIS,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops polling the spool.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	@Override
+	public void run() {
+		try {
+			if (isSweepDue() || hasSpoolChanged())
+				sweep();
+		} catch (RuntimeException e) {
+			logger.error(did("Swept freeze spool", e, "To queue spooled buckets",
+					"spool_directory", spoolDirectory));
+		}
+	}
+
+	private boolean isSweepDue() {
+		return System.currentTimeMillis() - lastSweep >= SWEEP_INTERVAL_MILLIS;
+	}
+
+	private boolean hasSpoolChanged() {
+		return !getModificationTimes().equals(modificationTimes);
+	}
+
+	private Map<File, Long> getModificationTimes() {
+		Map<File, Long> times = new HashMap<File, Long>();
+		times.put(spoolDirectory, spoolDirectory.lastModified());
+		for (File indexDirectory : listSpooled(spoolDirectory))
+			times.put(indexDirectory, indexDirectory.lastModified());
+		return times;
+	}
+
+	/**
+	 * Queues every bucket in the spool. The modification times are read after
+	 * the sweep, so the sweep's own moves don't trigger another sweep.
+	 */
+	public void sweep() {
+		for (File indexDirectory : listSpooled(spoolDirectory))
+			for (File bucketDirectory : listSpooled(indexDirectory))
+				queueSpooledBucket(indexDirectory, bucketDirectory);
+		modificationTimes = getModificationTimes();
+		lastSweep = System.currentTimeMillis();
+	}
+
+	private File[] listSpooled(File directory) {
+		File[] files = directory.listFiles();
+		if (files == null)
+			return new File[0];
+		int spooled = 0;
+		for (File file : files)
+			if (file.isDirectory() && !file.getName().startsWith("."))
+				files[spooled++] = file;
+		File[] directories = new File[spooled];
+		System.arraycopy(files, 0, directories, 0, spooled);
+		return directories;
+	}
+
+	private void queueSpooledBucket(File indexDirectory, File bucketDirectory) {
+		String index = indexDirectory.getName();
+		Bucket safeBucket;
+		try {
+			safeBucket = safeBucketMover.moveBucket(BucketFactory
+					.createBucketWithIndexDirectoryAndFormat(index, bucketDirectory,
+							BucketFormat.SPLUNK_BUCKET));
+		} catch (RuntimeException e) {
+			logger.warn(warn("Moved spooled bucket to safe location", e,
+					"Leaving it in the spool", "index", index, "bucket_path",
+					bucketDirectory));
+			return;
+		}
+		try {
+			archiveBucketService.archiveBucket(index, safeBucket.getDirectory()
+					.getAbsolutePath());
+		} catch (RuntimeException e) {
+			logger.warn(warn("Queued spooled bucket", e,
+					"Moving it back to the spool", "index", index, "bucket", safeBucket));
+			moveBackToSpool(safeBucket, indexDirectory);
+		}
+	}
+
+	private void moveBackToSpool(Bucket safeBucket, File indexDirectory) {
+		try {
+			MovesBuckets.moveBucket(safeBucket, indexDirectory);
+		} catch (RuntimeException e) {
+			logger.error(did("Moved bucket back to the spool", e,
+					"To retry it on the next sweep", "bucket", safeBucket,
+					"index_directory", indexDirectory));
+		}
+	}
+
+	/**
+	 * @return watcher of the configured freeze spool, that queues the buckets in
+	 *         the shared {@link ArchiveBucketService}.
+	 */
+	public static FreezeSpoolWatcher create() {
+		LocalFileSystemPaths localFileSystemPaths = LocalFileSystemPaths.create();
+		IndexPreservingBucketMover safeBucketMover = IndexPreservingBucketMover
+				.create(localFileSystemPaths.getSafeDirectory());
+		return new FreezeSpoolWatcher(
+				localFileSystemPaths.getFreezeSpoolDirectory(), safeBucketMover,
+				ArchiveBucketService.getSharedInstance(),
+				Executors.newSingleThreadScheduledExecutor());
+	}
+}
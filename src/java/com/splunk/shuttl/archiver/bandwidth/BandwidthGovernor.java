@@ -0,0 +1,196 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.bandwidth;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.InterruptedIOException;
+import java.util.Calendar;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.management.InstanceNotFoundException;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.server.mbeans.ShuttlArchiver;
+import com.splunk.shuttl.server.mbeans.ShuttlArchiverMBean;
+
+/**
+ * Limits the bandwidth of archiving and thawing, with a separate
+ * {@link TokenBucket} for each {@link Direction}. The limit of a direction is
+ * its default limit, unless its {@link BandwidthSchedule} has a limit for the
+ * current hour.<br/>
+ * <br/>
+ * The limits are read from the {@link ShuttlArchiverMBean} at most every
+ * {@link #REFRESH_INTERVAL_MILLIS}, so they can be changed while the server is
+ * running. Without the MBean, the governor keeps the limits it was configured
+ * with.
+ */
+public class BandwidthGovernor {
+
+	private static final Logger logger = Logger
+			.getLogger(BandwidthGovernor.class);
+
+	/**
+	 * The budgets of the governor. Bytes uploaded to the archive are archived,
+	 * and bytes downloaded from the archive are thawed.
+	 */
+	public enum Direction {
+		ARCHIVE, THAW
+	}
+
+	static final long REFRESH_INTERVAL_MILLIS = 10000;
+
+	private static BandwidthGovernor instance;
+
+	private final Map<Direction, TokenBucket> tokenBuckets;
+	private final Map<Direction, Long> limits;
+	private final Map<Direction, BandwidthSchedule> schedules;
+	private final ShuttlArchiverMBean archiverMBean;
+	private long lastRefresh;
+
+	/**
+	 * @param archiveBucket
+	 *          limiting archiving.
+	 * @param thawBucket
+	 *          limiting thawing.
+	 * @param archiverMBean
+	 *          to read the limits from. Can be null, when the limits are only
+	 *          configured with {@link #configure}.
+	 */
+	public BandwidthGovernor(TokenBucket archiveBucket, TokenBucket thawBucket,
+			ShuttlArchiverMBean archiverMBean) {
+		this.tokenBuckets = new EnumMap<Direction, TokenBucket>(Direction.class);
+		this.limits = new EnumMap<Direction, Long>(Direction.class);
+		this.schedules = new EnumMap<Direction, BandwidthSchedule>(
+				Direction.class);
+		this.archiverMBean = archiverMBean;
+		tokenBuckets.put(Direction.ARCHIVE, archiveBucket);
+		tokenBuckets.put(Direction.THAW, thawBucket);
+		for (Direction direction : Direction.values()) {
+			limits.put(direction, 0L);
+			schedules.put(direction, BandwidthSchedule.empty());
+		}
+	}
+
+	/**
+	 * Waits until the bytes can be transferred within the limit of the
+	 * direction.
+	 * 
+	 * @throws InterruptedIOException
+	 *           if the thread was interrupted while waiting.
+	 */
+	public void acquire(Direction direction, long bytes)
+			throws InterruptedIOException {
+		TokenBucket tokenBucket = tokenBuckets.get(direction);
+		tokenBucket.setBytesPerSecond(getCurrentLimit(direction));
+		tokenBucket.acquire(bytes);
+	}
+
+	/**
+	 * @return bytes per second that the direction is limited to right now. Zero
+	 *         or less means unlimited.
+	 */
+	public synchronized long getCurrentLimit(Direction direction) {
+		refreshIfStale();
+		return schedules.get(direction).getLimit(currentHour(),
+				limits.get(direction));
+	}
+
+	/**
+	 * Configures the limits of a direction.
+	 * 
+	 * @param limit
+	 *          bytes per second when the schedule has no limit. Null, zero or
+	 *          less means unlimited.
+	 * @param schedule
+	 *          limits for hours of the day.
+	 */
+	public synchronized void configure(Direction direction, Long limit,
+			BandwidthSchedule schedule) {
+		limits.put(direction, limit == null ? 0L : limit);
+		schedules.put(direction, schedule);
+	}
+
+	private void refreshIfStale() {
+		if (archiverMBean == null)
+			return;
+		long now = System.currentTimeMillis();
+		if (now - lastRefresh < REFRESH_INTERVAL_MILLIS)
+			return;
+		lastRefresh = now;
+		try {
+			refreshDirection(Direction.ARCHIVE,
+					archiverMBean.getArchiveBandwidthLimit(),
+					archiverMBean.getArchiveBandwidthSchedule());
+			refreshDirection(Direction.THAW, archiverMBean.getThawBandwidthLimit(),
+					archiverMBean.getThawBandwidthSchedule());
+		} catch (RuntimeException e) {
+			logger.warn(warn("Read bandwidth limits from MBean", e,
+					"Keeping the current limits"));
+		}
+	}
+
+	private void refreshDirection(Direction direction, Long limit,
+			String schedule) {
+		try {
+			configure(direction, limit, BandwidthSchedule.parse(schedule));
+		} catch (IllegalArgumentException e) {
+			logger.warn(warn("Parsed bandwidth schedule", e,
+					"Keeping the current schedule", "direction", direction,
+					"schedule", schedule));
+			limits.put(direction, limit == null ? 0L : limit);
+		}
+	}
+
+	/**
+	 * Do NOT call nor override this method outside this class.It's meant to be
+	 * private but is package private for testing purposes. If you want to expose
+	 * this method make it public or protected!
+	 */
+	/* package private */int currentHour() {
+		return Calendar.getInstance().get(Calendar.HOUR_OF_DAY);
+	}
+
+	/**
+	 * @return the governor shared by everything that transfers to and from the
+	 *         archive, with limits from the {@link ShuttlArchiverMBean}.
+	 */
+	public static synchronized BandwidthGovernor getSharedInstance() {
+		if (instance == null)
+			instance = create();
+		return instance;
+	}
+
+	/**
+	 * @return governor with limits from the {@link ShuttlArchiverMBean}, or an
+	 *         unlimited governor if the MBean is not registered.
+	 */
+	public static BandwidthGovernor create() {
+		return new BandwidthGovernor(new TokenBucket(0), new TokenBucket(0),
+				getArchiverMBeanOrNull());
+	}
+
+	private static ShuttlArchiverMBean getArchiverMBeanOrNull() {
+		try {
+			return ShuttlArchiver.getMBeanProxy();
+		} catch (InstanceNotFoundException e) {
+			logger.info(happened("ShuttlArchiver MBean is not registered. "
+					+ "Bandwidth is not limited."));
+			return null;
+		}
+	}
+}
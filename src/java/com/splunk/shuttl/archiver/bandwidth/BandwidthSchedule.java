@@ -0,0 +1,129 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.bandwidth;
+
+import java.util.Arrays;
+
+/**
+ * Bandwidth limits for hours of the day. A schedule is written as comma
+ * separated hour ranges with their limit in bytes per second, for example
+ * <code>8-18=1048576,22-6=10485760</code>. A range includes its first hour but
+ * not its last, and can wrap around midnight, so <code>0-24</code> is the
+ * whole day. Hours without a range use the default limit.
+ */
+public class BandwidthSchedule {
+
+	private static final int HOURS_PER_DAY = 24;
+
+	private final Long[] limitPerHour;
+
+	private BandwidthSchedule(Long[] limitPerHour) {
+		this.limitPerHour = limitPerHour;
+	}
+
+	/**
+	 * @return limit for the hour of the day, or the default limit if the
+	 *         schedule has no limit for that hour.
+	 */
+	public long getLimit(int hourOfDay, long defaultLimit) {
+		Long limit = limitPerHour[hourOfDay];
+		return limit != null ? limit : defaultLimit;
+	}
+
+	/**
+	 * @return schedule without any limits.
+	 */
+	public static BandwidthSchedule empty() {
+		return new BandwidthSchedule(new Long[HOURS_PER_DAY]);
+	}
+
+	/**
+	 * @param schedule
+	 *          on the form <code>from-to=bytesPerSecond,...</code>. Null or
+	 *          blank gives an empty schedule.
+	 * @throws IllegalArgumentException
+	 *           if the schedule is malformed.
+	 */
+	public static BandwidthSchedule parse(String schedule) {
+		Long[] limitPerHour = new Long[HOURS_PER_DAY];
+		if (schedule == null || schedule.trim().length() == 0)
+			return new BandwidthSchedule(limitPerHour);
+		for (String range : schedule.split(","))
+			parseRange(range.trim(), limitPerHour, schedule);
+		return new BandwidthSchedule(limitPerHour);
+	}
+
+	private static void parseRange(String range, Long[] limitPerHour,
+			String schedule) {
+		String[] hoursAndLimit = range.split("=");
+		if (hoursAndLimit.length != 2)
+			throw malformed(schedule);
+		String[] hours = hoursAndLimit[0].trim().split("-");
+		if (hours.length != 2)
+			throw malformed(schedule);
+		int from = parseHour(hours[0], schedule);
+		int to = parseHour(hours[1], schedule);
+		long limit = parseLimit(hoursAndLimit[1], schedule);
+		int hour = from;
+		do {
+			limitPerHour[hour] = limit;
+			hour = (hour + 1) % HOURS_PER_DAY;
+		} while (hour != to);
+	}
+
+	private static int parseHour(String hour, String schedule) {
+		try {
+			int parsed = Integer.parseInt(hour.trim());
+			if (parsed < 0 || parsed > HOURS_PER_DAY)
+				throw malformed(schedule);
+			return parsed % HOURS_PER_DAY;
+		} catch (NumberFormatException e) {
+			throw malformed(schedule);
+		}
+	}
+
+	private static long parseLimit(String limit, String schedule) {
+		try {
+			return Long.parseLong(limit.trim());
+		} catch (NumberFormatException e) {
+			throw malformed(schedule);
+		}
+	}
+
+	private static IllegalArgumentException malformed(String schedule) {
+		return new IllegalArgumentException("Bandwidth schedule must be on the "
+				+ "form from-to=bytesPerSecond,... with hours 0-24, was: "
+				+ schedule);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(limitPerHour);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof BandwidthSchedule))
+			return false;
+		return Arrays.equals(limitPerHour, ((BandwidthSchedule) obj).limitPerHour);
+	}
+
+	@Override
+	public String toString() {
+		return "BandwidthSchedule " + Arrays.toString(limitPerHour);
+	}
+}
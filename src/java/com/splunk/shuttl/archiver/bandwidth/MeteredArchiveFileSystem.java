@@ -0,0 +1,137 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.bandwidth;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.FileUtils;
+
+import com.splunk.shuttl.archiver.bandwidth.BandwidthGovernor.Direction;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.FileOverwriteException;
+import com.splunk.shuttl.archiver.filesystem.WritesToStream;
+
+/**
+ * {@link ArchiveFileSystem} that meters every byte it moves against a
+ * {@link BandwidthGovernor}. Uploads are metered as
+ * {@link Direction#ARCHIVE} and downloads as {@link Direction#THAW}.<br/>
+ * <br/>
+ * Streams are metered while they are read and written. Files are copied by
+ * the wrapped file system in one call, so the bytes of an uploaded file are
+ * acquired before it's copied, and the bytes of a downloaded file after it has
+ * been copied, which delays the transfers that come after it.
+ */
+public class MeteredArchiveFileSystem implements ArchiveFileSystem {
+
+	private final ArchiveFileSystem archiveFileSystem;
+	private final BandwidthGovernor governor;
+
+	/**
+	 * @param archiveFileSystem
+	 *          that moves the bytes.
+	 * @param governor
+	 *          that the bytes are metered against.
+	 */
+	public MeteredArchiveFileSystem(ArchiveFileSystem archiveFileSystem,
+			BandwidthGovernor governor) {
+		this.archiveFileSystem = archiveFileSystem;
+		this.governor = governor;
+	}
+
+	@Override
+	public void putFile(File fileOnLocalFileSystem, URI fileOnArchiveFileSystem)
+			throws FileNotFoundException, FileOverwriteException, IOException {
+		governor.acquire(Direction.ARCHIVE, sizeOf(fileOnLocalFileSystem));
+		archiveFileSystem.putFile(fileOnLocalFileSystem, fileOnArchiveFileSystem);
+	}
+
+	@Override
+	public void putFileAtomically(File fileOnLocalFileSystem,
+			URI fileOnArchiveFileSystem) throws FileNotFoundException,
+			FileOverwriteException, IOException {
+		governor.acquire(Direction.ARCHIVE, sizeOf(fileOnLocalFileSystem));
+		archiveFileSystem.putFileAtomically(fileOnLocalFileSystem,
+				fileOnArchiveFileSystem);
+	}
+
+	@Override
+	public void putStreamAtomically(WritesToStream writer,
+			URI fileOnArchiveFileSystem) throws FileOverwriteException, IOException {
+		archiveFileSystem.putStreamAtomically(metered(writer),
+				fileOnArchiveFileSystem);
+	}
+
+	@Override
+	public void putStreamsAtomically(Map<String, WritesToStream> writers,
+			URI directoryOnArchiveFileSystem) throws FileOverwriteException,
+			IOException {
+		Map<String, WritesToStream> meteredWriters = new LinkedHashMap<String, WritesToStream>();
+		for (Entry<String, WritesToStream> file : writers.entrySet())
+			meteredWriters.put(file.getKey(), metered(file.getValue()));
+		archiveFileSystem.putStreamsAtomically(meteredWriters,
+				directoryOnArchiveFileSystem);
+	}
+
+	private WritesToStream metered(final WritesToStream writer) {
+		return new WritesToStream() {
+
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				writer.writeTo(new MeteredOutputStream(out, governor,
+						Direction.ARCHIVE));
+			}
+		};
+	}
+
+	@Override
+	public void getFile(File fileOnLocalFileSystem, URI fileOnArchiveFileSystem)
+			throws FileNotFoundException, FileOverwriteException, IOException {
+		archiveFileSystem.getFile(fileOnLocalFileSystem, fileOnArchiveFileSystem);
+		governor.acquire(Direction.THAW, sizeOf(fileOnLocalFileSystem));
+	}
+
+	@Override
+	public List<URI> listPath(URI pathToBeListed) throws IOException {
+		return archiveFileSystem.listPath(pathToBeListed);
+	}
+
+	@Override
+	public void deletePath(URI pathOnArchiveFileSystem) throws IOException {
+		archiveFileSystem.deletePath(pathOnArchiveFileSystem);
+	}
+
+	@Override
+	public InputStream openFile(URI fileOnArchiveFileSystem) throws IOException {
+		return new MeteredInputStream(
+				archiveFileSystem.openFile(fileOnArchiveFileSystem), governor,
+				Direction.THAW);
+	}
+
+	private long sizeOf(File file) {
+		if (!file.exists())
+			return 0;
+		return file.isDirectory() ? FileUtils.sizeOfDirectory(file) : file
+				.length();
+	}
+}
@@ -0,0 +1,62 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.bandwidth;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.splunk.shuttl.archiver.bandwidth.BandwidthGovernor.Direction;
+
+/**
+ * {@link InputStream} that meters the bytes it reads against a
+ * {@link BandwidthGovernor}.
+ */
+public class MeteredInputStream extends FilterInputStream {
+
+	private final BandwidthGovernor governor;
+	private final Direction direction;
+
+	public MeteredInputStream(InputStream in, BandwidthGovernor governor,
+			Direction direction) {
+		super(in);
+		this.governor = governor;
+		this.direction = direction;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int read = super.read();
+		if (read != -1)
+			governor.acquire(direction, 1);
+		return read;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int read = super.read(b, off, len);
+		if (read > 0)
+			governor.acquire(direction, read);
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		if (skipped > 0)
+			governor.acquire(direction, skipped);
+		return skipped;
+	}
+}
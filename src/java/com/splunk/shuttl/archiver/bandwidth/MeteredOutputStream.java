@@ -0,0 +1,54 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.bandwidth;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.splunk.shuttl.archiver.bandwidth.BandwidthGovernor.Direction;
+
+/**
+ * {@link OutputStream} that meters the bytes it writes against a
+ * {@link BandwidthGovernor}.
+ */
+public class MeteredOutputStream extends FilterOutputStream {
+
+	private final BandwidthGovernor governor;
+	private final Direction direction;
+
+	public MeteredOutputStream(OutputStream out, BandwidthGovernor governor,
+			Direction direction) {
+		super(out);
+		this.governor = governor;
+		this.direction = direction;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		governor.acquire(direction, 1);
+		out.write(b);
+	}
+
+	/**
+	 * Writes the whole array to the underlying stream, instead of one byte at a
+	 * time like {@link FilterOutputStream} does.
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		governor.acquire(direction, len);
+		out.write(b, off, len);
+	}
+}
@@ -0,0 +1,123 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.bandwidth;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Token bucket that limits how many bytes per second are transferred. The
+ * bucket holds at most one second worth of bytes, so short bursts are allowed
+ * while the average stays at the rate.<br/>
+ * <br/>
+ * Acquiring more bytes than there are tokens puts the bucket in debt, and the
+ * caller sleeps until the debt is paid. Callers that come after wait for the
+ * debt as well, so large and small transfers share the rate.
+ */
+public class TokenBucket {
+
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
+	private long bytesPerSecond;
+	private double tokens;
+	private long lastRefill;
+
+	/**
+	 * @param bytesPerSecond
+	 *          rate of the bucket. Zero or less means unlimited.
+	 */
+	public TokenBucket(long bytesPerSecond) {
+		this.bytesPerSecond = bytesPerSecond;
+		this.tokens = Math.max(0, bytesPerSecond);
+		this.lastRefill = nanoTime();
+	}
+
+	/**
+	 * Takes tokens for the bytes, and sleeps until the bucket is out of debt.
+	 * 
+	 * @throws InterruptedIOException
+	 *           if the thread was interrupted while sleeping.
+	 */
+	public void acquire(long bytes) throws InterruptedIOException {
+		long waitNanos = reserve(bytes);
+		if (waitNanos > 0)
+			sleep(waitNanos);
+	}
+
+	/**
+	 * @return nanoseconds to wait before the reserved bytes can be transferred.
+	 */
+	synchronized long reserve(long bytes) {
+		if (bytesPerSecond <= 0 || bytes <= 0)
+			return 0;
+		refill();
+		tokens -= bytes;
+		if (tokens >= 0)
+			return 0;
+		return (long) (-tokens * NANOS_PER_SECOND / bytesPerSecond);
+	}
+
+	private void refill() {
+		long now = nanoTime();
+		double refilled = (now - lastRefill) * (double) bytesPerSecond
+				/ NANOS_PER_SECOND;
+		tokens = Math.min(bytesPerSecond, tokens + refilled);
+		lastRefill = now;
+	}
+
+	/**
+	 * Changes the rate. Debt from the old rate is kept, and paid at the new
+	 * rate. A bucket that was unlimited starts out full.
+	 */
+	public synchronized void setBytesPerSecond(long bytesPerSecond) {
+		if (this.bytesPerSecond == bytesPerSecond)
+			return;
+		if (this.bytesPerSecond > 0)
+			refill();
+		else
+			tokens = Math.max(0, bytesPerSecond);
+		this.bytesPerSecond = bytesPerSecond;
+		this.lastRefill = nanoTime();
+		if (bytesPerSecond > 0)
+			tokens = Math.min(bytesPerSecond, tokens);
+	}
+
+	public synchronized long getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	/**
+	 * Do NOT call nor override this method outside this class.It's meant to be
+	 * private but is package private for testing purposes. If you want to expose
+	 * this method make it public or protected!
+	 */
+	/* package private */long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Do NOT call nor override this method outside this class.It's meant to be
+	 * private but is package private for testing purposes. If you want to expose
+	 * this method make it public or protected!
+	 */
+	/* package private */void sleep(long nanos) throws InterruptedIOException {
+		try {
+			Thread.sleep(nanos / 1000000, (int) (nanos % 1000000));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while waiting for bandwidth");
+		}
+	}
+}
@@ -14,16 +14,11 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.bucketsize;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.net.URI;
 
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.archive.PathResolver;
-import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
-import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
-import com.splunk.shuttl.archiver.filesystem.FileOverwriteException;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
@@ -31,28 +26,30 @@ import com.splunk.shuttl.archiver.model.Bucket;
  * <br/>
  * This is needed because we want to know how big the {@link Bucket} will be on
  * the local file system and there's no guarantee that the size on the archive
- * file system is the same as on local disk. We therefore need to be able to put
- * and get the local file system size of the bucket, from the archive file
- * system.
+ * file system is the same as on local disk.<br/>
+ * <br/>
+ * Archived buckets' sizes are kept in the {@link ArchiveCatalog} of their
+ * index, and no size files are written anymore. The size files are only read
+ * for buckets that were archived before there was a catalog.
  */
 public class ArchiveBucketSize {
 
 	private final PathResolver pathResolver;
 	private final BucketSizeIO bucketSizeIO;
-	private final ArchiveFileSystem archiveFileSystem;
 
 	/**
 	 * @see ArchiveBucketSize
 	 */
 	public ArchiveBucketSize(PathResolver pathResolver,
-			BucketSizeIO bucketSizeIO, ArchiveFileSystem archiveFileSystem) {
+			BucketSizeIO bucketSizeIO) {
 		this.pathResolver = pathResolver;
 		this.bucketSizeIO = bucketSizeIO;
-		this.archiveFileSystem = archiveFileSystem;
 	}
 
 	/**
 	 * @return size of an archived bucket on the local file system.
+	 * @throws RuntimeException
+	 *           if the bucket has no size file.
 	 */
 	public long getSize(Bucket bucket) {
 		URI fileUriForSizeFile = pathResolver.getBucketSizeFileUriForBucket(bucket);
@@ -60,34 +57,11 @@ public class ArchiveBucketSize {
 	}
 
 	/**
-	 * Put metadata on the {@link ArchiveFileSystem} about a bucket's size.
-	 */
-	public void putSize(Bucket bucket) {
-		File fileWithBucketSize = bucketSizeIO.getFileWithBucketSize(bucket);
-		URI bucketSizeFilePath = pathResolver.getBucketSizeFileUriForBucket(bucket);
-		try {
-			archiveFileSystem.putFileAtomically(fileWithBucketSize,
-					bucketSizeFilePath);
-			// TODO: This is duplication between ArchiveBucketTransferer. There should
-			// exist a ArchiveTransferer?
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-			throw new RuntimeException(e);
-		} catch (FileOverwriteException e) {
-			e.printStackTrace();
-			throw new RuntimeException(e);
-		} catch (IOException e) {
-			e.printStackTrace();
-			throw new RuntimeException(e);
-		}
-	}
-
-	/**
-	 * Instance with path resolver and archive file system.
+	 * Instance with path resolver.
 	 */
 	public static ArchiveBucketSize create(PathResolver pathResolver,
-			ArchiveFileSystem archiveFileSystem, BucketSizeIO bucketSizeIO) {
-		return new ArchiveBucketSize(pathResolver, bucketSizeIO, archiveFileSystem);
+			BucketSizeIO bucketSizeIO) {
+		return new ArchiveBucketSize(pathResolver, bucketSizeIO);
 	}
 
 	/**
@@ -95,7 +69,6 @@ public class ArchiveBucketSize {
 	 */
 	public static ArchiveBucketSize create(ArchiveConfiguration config,
 			BucketSizeIO bucketSizeIO) {
-		return create(new PathResolver(config),
-				ArchiveFileSystemFactory.getWithConfiguration(config), bucketSizeIO);
+		return create(new PathResolver(config), bucketSizeIO);
 	}
 }
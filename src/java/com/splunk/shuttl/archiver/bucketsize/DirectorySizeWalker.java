@@ -0,0 +1,222 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.bucketsize;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Walks a directory to sum the sizes and count the files in it. The directory
+ * is walked one level of sub directories at a time. A level with many entries,
+ * counted across all its directories, is split in to parts that are walked at
+ * the same time, since walking a bucket is mostly waiting for the file system
+ * to stat files. The parts never wait for each other, so the executor can be
+ * bounded.
+ */
+public class DirectorySizeWalker {
+
+	/**
+	 * Levels with fewer entries than this are walked on the calling thread.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+
+	private static DirectorySizeWalker instance;
+
+	private final ExecutorService executor;
+	private final int parts;
+	private final int parallelThreshold;
+
+	/**
+	 * @param executor
+	 *          that walks the parts of large levels.
+	 * @param parts
+	 *          number of parts that a large level is split in to.
+	 * @param parallelThreshold
+	 *          number of entries that makes a level large.
+	 */
+	public DirectorySizeWalker(ExecutorService executor, int parts,
+			int parallelThreshold) {
+		if (parts < 1)
+			throw new IllegalArgumentException("Needs at least one part, was: "
+					+ parts);
+		this.executor = executor;
+		this.parts = parts;
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * @return size and number of files of the directory, including all its
+	 *         sub directories. Symbolic links are not followed.
+	 */
+	public DirectorySize walk(File directory) {
+		File[] children = directory.listFiles();
+		if (children == null)
+			return new DirectorySize(0, 0);
+		DirectorySize total = new DirectorySize(0, 0);
+		List<File> level = Arrays.asList(children);
+		while (!level.isEmpty()) {
+			List<File> nextLevel = new ArrayList<File>();
+			for (WalkedFiles walked : walkLevel(level)) {
+				total = total.plus(walked.size);
+				nextLevel.addAll(walked.subDirectoryEntries);
+			}
+			level = nextLevel;
+		}
+		return total;
+	}
+
+	private List<WalkedFiles> walkLevel(List<File> level) {
+		if (level.size() < parallelThreshold)
+			return Collections.singletonList(walkFiles(level));
+		List<Future<WalkedFiles>> futures = new ArrayList<Future<WalkedFiles>>();
+		int partSize = (level.size() + parts - 1) / parts;
+		for (int from = 0; from < level.size(); from += partSize) {
+			final List<File> part = level.subList(from,
+					Math.min(from + partSize, level.size()));
+			futures.add(executor.submit(new Callable<WalkedFiles>() {
+
+				@Override
+				public WalkedFiles call() {
+					return walkFiles(part);
+				}
+			}));
+		}
+		List<WalkedFiles> walked = new ArrayList<WalkedFiles>();
+		for (Future<WalkedFiles> future : futures)
+			walked.add(getWalkedPart(future));
+		return walked;
+	}
+
+	private WalkedFiles getWalkedPart(Future<WalkedFiles> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Sums the files and lists the entries of the directories, without walking
+	 * in to them.
+	 */
+	private WalkedFiles walkFiles(List<File> files) {
+		long size = 0;
+		long count = 0;
+		List<File> subDirectoryEntries = new ArrayList<File>();
+		for (File file : files) {
+			if (isSymlink(file))
+				continue;
+			if (file.isDirectory()) {
+				File[] children = file.listFiles();
+				if (children != null)
+					subDirectoryEntries.addAll(Arrays.asList(children));
+			} else {
+				size += file.length();
+				count++;
+			}
+		}
+		return new WalkedFiles(new DirectorySize(size, count), subDirectoryEntries);
+	}
+
+	private boolean isSymlink(File file) {
+		try {
+			return FileUtils.isSymlink(file);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return walker with one part per processor, on daemon threads.
+	 */
+	public static synchronized DirectorySizeWalker getSharedInstance() {
+		if (instance == null) {
+			int processors = Runtime.getRuntime().availableProcessors();
+			instance = new DirectorySizeWalker(Executors.newFixedThreadPool(
+					processors, new DaemonThreadFactory()), processors,
+					DEFAULT_PARALLEL_THRESHOLD);
+		}
+		return instance;
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private final ThreadFactory defaultFactory = Executors
+				.defaultThreadFactory();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = defaultFactory.newThread(r);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * Size of the walked files, and the entries of the walked directories.
+	 */
+	private static class WalkedFiles {
+
+		private final DirectorySize size;
+		private final List<File> subDirectoryEntries;
+
+		public WalkedFiles(DirectorySize size, List<File> subDirectoryEntries) {
+			this.size = size;
+			this.subDirectoryEntries = subDirectoryEntries;
+		}
+	}
+
+	/**
+	 * Size in bytes and number of files of a walked directory.
+	 */
+	public static class DirectorySize {
+
+		private final long size;
+		private final long fileCount;
+
+		public DirectorySize(long size, long fileCount) {
+			this.size = size;
+			this.fileCount = fileCount;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public long getFileCount() {
+			return fileCount;
+		}
+
+		private DirectorySize plus(DirectorySize other) {
+			return new DirectorySize(size + other.size, fileCount + other.fileCount);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.catalog;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.IOUtils;
+
+import com.splunk.shuttl.archiver.StructuredLogger;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * All archived buckets of an index, so that buckets can be listed with their
+ * formats and sizes without visiting every bucket in the archive.
+ */
+public class ArchiveCatalog {
+
+	private static final StructuredLogger log = StructuredLogger
+			.getLogger(ArchiveCatalog.class);
+
+	static final String ENCODING = "UTF-8";
+	static final String COMMENT_PREFIX = "#";
+
+	private final String index;
+	private final Map<String, CatalogEntry> entries;
+
+	public ArchiveCatalog(String index) {
+		this.index = index;
+		this.entries = new TreeMap<String, CatalogEntry>();
+	}
+
+	public String getIndex() {
+		return index;
+	}
+
+	/**
+	 * Adds the entry, or merges it with the entry of the same bucket.
+	 */
+	public void add(CatalogEntry entry) {
+		CatalogEntry existing = entries.get(entry.getBucketName());
+		entries.put(entry.getBucketName(),
+				existing != null ? existing.merge(entry) : entry);
+	}
+
+	public void addAll(ArchiveCatalog catalog) {
+		for (CatalogEntry entry : catalog.getEntries())
+			add(entry);
+	}
+
+	/**
+	 * @return entry of the bucket, or null if the bucket is not in the catalog.
+	 */
+	public CatalogEntry getEntry(String bucketName) {
+		return entries.get(bucketName);
+	}
+
+	/**
+	 * @return entries sorted by bucket name.
+	 */
+	public Collection<CatalogEntry> getEntries() {
+		return entries.values();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return true if the {@link Bucket} is in the catalog.
+	 */
+	public boolean contains(Bucket bucket) {
+		return entries.containsKey(bucket.getName());
+	}
+
+	/**
+	 * Writes one line per entry. The stream is flushed but not closed.
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, ENCODING));
+		for (CatalogEntry entry : entries.values()) {
+			writer.write(entry.toLine());
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Reads a catalog written with {@link #writeTo(OutputStream)} and closes the
+	 * stream. Lines that are not entries are logged and skipped.
+	 */
+	public static ArchiveCatalog readFrom(String index, InputStream in)
+			throws IOException {
+		try {
+			return fromLines(index, readLines(in));
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	static List<String> readLines(InputStream in) throws IOException {
+		return new ArrayList<String>(IOUtils.readLines(in, ENCODING));
+	}
+
+	static ArchiveCatalog fromLines(String index, List<String> lines) {
+		ArchiveCatalog catalog = new ArchiveCatalog(index);
+		for (String line : lines)
+			if (line.length() > 0 && !line.startsWith(COMMENT_PREFIX))
+				addLine(catalog, line);
+		return catalog;
+	}
+
+	private static void addLine(ArchiveCatalog catalog, String line) {
+		try {
+			catalog.add(CatalogEntry.fromLine(line));
+		} catch (IllegalArgumentException e) {
+			log.warn().warn("Read archive catalog entry", e, "Skipping the line",
+					"index", catalog.getIndex(), "line", line);
+		}
+	}
+}
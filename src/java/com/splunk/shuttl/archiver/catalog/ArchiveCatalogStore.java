@@ -0,0 +1,429 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.catalog;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.apache.commons.io.IOUtils;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.StructuredLogger;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.PathResolver;
+import com.splunk.shuttl.archiver.bucketsize.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.WritesToStream;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.util.UtilsURI;
+
+/**
+ * Keeps an {@link ArchiveCatalog} per index in the {@link ArchiveFileSystem}
+ * and mirrors it on the local file system.<br/>
+ * <br/>
+ * The catalog is also the ledger of the archived buckets' sizes on local disk.
+ * The archive file system cannot append to files, so each batch of additions
+ * is written as a new segment file in the catalog home of the index. When there are more
+ * than {@link #MAX_SEGMENTS} segments, they're compacted into one. The local
+ * mirror remembers which segments it has read, so reading a catalog is a single
+ * listing of the catalog home plus the segments that are new since last time.<br/>
+ * <br/>
+ * Segments are listed and read under the same lock as they are compacted, so
+ * a catalog is never read from segments that were compacted away. A segment
+ * can still be compacted away by another process sharing the archive, in
+ * which case the catalog home is listed again.
+ */
+public class ArchiveCatalogStore {
+
+	private static final StructuredLogger log = StructuredLogger
+			.getLogger(ArchiveCatalogStore.class);
+
+	public static final String SEGMENT_EXTENSION = ".entries";
+	public static final int MAX_SEGMENTS = 64;
+	public static final int MAX_READ_ATTEMPTS = 3;
+
+	static final String MIRROR_EXTENSION = ".mirror";
+	static final String SEGMENT_PREFIX = ArchiveCatalog.COMMENT_PREFIX
+			+ "segment\t";
+
+	private static final Object lock = new Object();
+	private static final Map<URI, List<PendingEntry>> pendingEntries = new HashMap<URI, List<PendingEntry>>();
+
+	private final ArchiveFileSystem archiveFileSystem;
+	private final PathResolver pathResolver;
+	private final File localCatalogDirectory;
+	private final ArchiveBucketSize archiveBucketSize;
+
+	/**
+	 * @param archiveFileSystem
+	 *          where the catalogs are stored.
+	 * @param pathResolver
+	 *          for resolving the catalog home of an index.
+	 * @param localCatalogDirectory
+	 *          where the catalogs are mirrored.
+	 * @param archiveBucketSize
+	 *          for getting sizes of buckets archived before there was a catalog.
+	 */
+	public ArchiveCatalogStore(ArchiveFileSystem archiveFileSystem,
+			PathResolver pathResolver, File localCatalogDirectory,
+			ArchiveBucketSize archiveBucketSize) {
+		this.archiveFileSystem = archiveFileSystem;
+		this.pathResolver = pathResolver;
+		this.localCatalogDirectory = localCatalogDirectory;
+		this.archiveBucketSize = archiveBucketSize;
+	}
+
+	/**
+	 * Adds an archived bucket, with its size, to the catalog of its index. The
+	 * first time a bucket is added to an index, the catalog is created from the
+	 * buckets that are already archived.<br/>
+	 * <br/>
+	 * Buckets added concurrently while a segment is being written are written
+	 * together in the next segment. Returns when the bucket's segment is in the
+	 * archive.
+	 */
+	public void addBucket(Bucket bucket) throws IOException {
+		addBucket(bucket, null);
+	}
+
+	/**
+	 * Adds the bucket with the checksum of its archived format.
+	 * 
+	 * @param checksum
+	 *          of the archived bucket, or null if it was archived without one.
+	 * @see #addBucket(Bucket)
+	 */
+	public void addBucket(Bucket bucket, String checksum) throws IOException {
+		addEntry(bucket.getIndex(), CatalogEntry.create(bucket, checksum));
+	}
+
+	/**
+	 * Adds an entry to the catalog of an index. An entry for a bucket that is
+	 * already in the catalog is merged with the existing entry.
+	 * 
+	 * @see #addBucket(Bucket)
+	 */
+	public void addEntry(String index, CatalogEntry entry) throws IOException {
+		URI catalogHome = pathResolver.getCatalogHome(index);
+		PendingEntry pendingEntry = new PendingEntry(entry);
+		synchronized (pendingEntries) {
+			getPendingEntries(catalogHome).add(pendingEntry);
+		}
+		synchronized (lock) {
+			if (!pendingEntry.isDone())
+				putPendingEntries(index, catalogHome);
+		}
+		if (pendingEntry.failure != null)
+			throw pendingEntry.failure;
+	}
+
+	private List<PendingEntry> getPendingEntries(URI catalogHome) {
+		List<PendingEntry> entries = pendingEntries.get(catalogHome);
+		if (entries == null)
+			pendingEntries.put(catalogHome, entries = new ArrayList<PendingEntry>());
+		return entries;
+	}
+
+	private void putPendingEntries(String index, URI catalogHome) {
+		List<PendingEntry> batch;
+		synchronized (pendingEntries) {
+			batch = pendingEntries.remove(catalogHome);
+		}
+		if (batch == null)
+			return;
+		IOException failure = null;
+		try {
+			putEntries(index, catalogHome, batch);
+		} catch (IOException e) {
+			failure = e;
+		} catch (RuntimeException e) {
+			failure = new IOException(e);
+		}
+		for (PendingEntry entry : batch)
+			entry.done(failure);
+	}
+
+	private void putEntries(String index, URI catalogHome,
+			List<PendingEntry> batch) throws IOException {
+		List<URI> segments = listSegments(catalogHome);
+		ArchiveCatalog addition = new ArchiveCatalog(index);
+		if (segments.isEmpty())
+			addition.addAll(createCatalogFromArchivedBuckets(index));
+		for (PendingEntry pendingEntry : batch)
+			addition.add(pendingEntry.entry);
+		segments.add(putSegment(catalogHome, addition));
+		if (segments.size() > MAX_SEGMENTS)
+			compact(index, catalogHome, segments);
+	}
+
+	private static class PendingEntry {
+
+		private final CatalogEntry entry;
+		private boolean done;
+		private IOException failure;
+
+		private PendingEntry(CatalogEntry entry) {
+			this.entry = entry;
+		}
+
+		private void done(IOException failure) {
+			this.failure = failure;
+			this.done = true;
+		}
+
+		private boolean isDone() {
+			return done;
+		}
+	}
+
+	/**
+	 * @return version of the catalog of an index, which changes whenever the
+	 *         catalog changes, or null if the index has no catalog. Costs one
+	 *         listing of the catalog home.
+	 */
+	public String getCatalogVersion(String index) throws IOException {
+		List<URI> segments;
+		synchronized (lock) {
+			segments = listSegments(pathResolver.getCatalogHome(index));
+		}
+		if (segments.isEmpty())
+			return null;
+		return getSegmentNames(segments).toString();
+	}
+
+	/**
+	 * @return the catalog of an index, or null if the index has no catalog.
+	 * @throws FileNotFoundException
+	 *           if segments kept being compacted away while reading them, more
+	 *           than {@link #MAX_READ_ATTEMPTS} times.
+	 */
+	public ArchiveCatalog getCatalog(String index) throws IOException {
+		URI catalogHome = pathResolver.getCatalogHome(index);
+		synchronized (lock) {
+			for (int attempt = 1;; attempt++) {
+				List<URI> segments = listSegments(catalogHome);
+				if (segments.isEmpty())
+					return null;
+				try {
+					return readCatalogUpdatingMirror(index, catalogHome, segments);
+				} catch (FileNotFoundException e) {
+					if (attempt >= MAX_READ_ATTEMPTS)
+						throw e;
+					log.debug().did("Read archive catalog segment", e,
+							"To list the catalog home again", "index", index,
+							"catalog_home", catalogHome, "attempt", attempt);
+				}
+			}
+		}
+	}
+
+	private ArchiveCatalog readCatalogUpdatingMirror(String index,
+			URI catalogHome, List<URI> segments) throws IOException {
+		File mirror = getMirrorFile(catalogHome);
+		Set<String> readSegments = new TreeSet<String>();
+		ArchiveCatalog catalog = readMirror(index, mirror, readSegments);
+		boolean hasNewSegments = false;
+		for (URI segment : segments) {
+			String segmentName = getSegmentName(segment);
+			if (!readSegments.contains(segmentName)) {
+				catalog.addAll(readSegment(index, segment));
+				readSegments.add(segmentName);
+				hasNewSegments = true;
+			}
+		}
+		if (hasNewSegments)
+			writeMirror(mirror, catalog, getSegmentNames(segments));
+		return catalog;
+	}
+
+	private ArchiveCatalog readMirror(String index, File mirror,
+			Set<String> readSegments) {
+		if (!mirror.exists())
+			return new ArchiveCatalog(index);
+		try {
+			List<String> lines = ArchiveCatalog.readLines(new FileInputStream(
+					mirror));
+			for (String line : lines)
+				if (line.startsWith(SEGMENT_PREFIX))
+					readSegments.add(line.substring(SEGMENT_PREFIX.length()));
+			return ArchiveCatalog.fromLines(index, lines);
+		} catch (IOException e) {
+			log.warn().warn("Read local catalog mirror", e,
+					"Will read the whole catalog from the archive", "mirror", mirror,
+					"exception", e);
+			readSegments.clear();
+			return new ArchiveCatalog(index);
+		}
+	}
+
+	private void writeMirror(File mirror, ArchiveCatalog catalog,
+			List<String> segmentNames) {
+		File tmpMirror = new File(mirror.getPath() + ".tmp");
+		try {
+			mirror.getParentFile().mkdirs();
+			OutputStream out = new FileOutputStream(tmpMirror);
+			try {
+				Writer writer = new OutputStreamWriter(out, ArchiveCatalog.ENCODING);
+				for (String segmentName : segmentNames)
+					writer.write(SEGMENT_PREFIX + segmentName + "\n");
+				writer.flush();
+				catalog.writeTo(out);
+			} finally {
+				IOUtils.closeQuietly(out);
+			}
+			if (mirror.exists() && !mirror.delete())
+				throw new IOException("Could not replace mirror: " + mirror);
+			if (!tmpMirror.renameTo(mirror))
+				throw new IOException("Could not rename " + tmpMirror + " to "
+						+ mirror);
+		} catch (IOException e) {
+			log.warn().warn("Wrote local catalog mirror", e,
+					"The catalog will be read from the archive next time", "mirror",
+					mirror, "exception", e);
+			tmpMirror.delete();
+			mirror.delete();
+		}
+	}
+
+	private File getMirrorFile(URI catalogHome) {
+		String authority = catalogHome.getAuthority();
+		File authorityDirectory = new File(localCatalogDirectory,
+				authority != null ? authority : "local");
+		return new File(authorityDirectory, catalogHome.getPath()
+				+ MIRROR_EXTENSION);
+	}
+
+	private List<URI> listSegments(URI catalogHome) throws IOException {
+		List<URI> segments = new ArrayList<URI>();
+		for (URI uri : archiveFileSystem.listPath(catalogHome))
+			if (getSegmentName(uri).endsWith(SEGMENT_EXTENSION))
+				segments.add(uri);
+		Collections.sort(segments);
+		return segments;
+	}
+
+	private String getSegmentName(URI segment) {
+		return UtilsURI.getFileNameWithTrimmedEndingFileSeparator(segment);
+	}
+
+	private List<String> getSegmentNames(List<URI> segments) {
+		List<String> names = new ArrayList<String>();
+		for (URI segment : segments)
+			names.add(getSegmentName(segment));
+		return names;
+	}
+
+	private ArchiveCatalog readSegment(String index, URI segment)
+			throws IOException {
+		return ArchiveCatalog.readFrom(index, archiveFileSystem.openFile(segment));
+	}
+
+	private URI putSegment(URI catalogHome, final ArchiveCatalog catalog)
+			throws IOException {
+		URI segment = URI.create(catalogHome.toString() + PathResolver.SEPARATOR
+				+ System.currentTimeMillis() + "-" + UUID.randomUUID()
+				+ SEGMENT_EXTENSION);
+		archiveFileSystem.putStreamAtomically(new WritesToStream() {
+
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				catalog.writeTo(out);
+			}
+		}, segment);
+		return segment;
+	}
+
+	private void compact(String index, URI catalogHome, List<URI> segments)
+			throws IOException {
+		ArchiveCatalog compacted = new ArchiveCatalog(index);
+		for (URI segment : segments)
+			compacted.addAll(readSegment(index, segment));
+		putSegment(catalogHome, compacted);
+		for (URI segment : segments)
+			archiveFileSystem.deletePath(segment);
+		log.info().done("Compacted archive catalog", "index", index,
+				"catalog_home", catalogHome, "segments", segments.size(), "entries",
+				compacted.size());
+	}
+
+	private ArchiveCatalog createCatalogFromArchivedBuckets(String index)
+			throws IOException {
+		log.info().will("Create archive catalog from archived buckets", "index",
+				index);
+		ArchiveCatalog catalog = new ArchiveCatalog(index);
+		for (URI bucketUri : archiveFileSystem.listPath(pathResolver
+				.getBucketsHome(index))) {
+			String bucketName = getSegmentName(bucketUri);
+			for (URI formatUri : archiveFileSystem.listPath(pathResolver
+					.getFormatsHome(index, bucketName)))
+				addArchivedBucket(catalog, index, bucketName,
+						getSegmentName(formatUri));
+		}
+		return catalog;
+	}
+
+	private void addArchivedBucket(ArchiveCatalog catalog, String index,
+			String bucketName, String formatName) throws IOException {
+		try {
+			BucketFormat format = BucketFormat.valueOf(formatName);
+			Bucket bucket = new Bucket(pathResolver.resolveArchivedBucketURI(index,
+					bucketName, format), index, bucketName, format);
+			catalog.add(new CatalogEntry(bucketName, bucket.getEarliest()
+					.getTime(), bucket.getLatest().getTime(), format,
+					getArchivedSize(bucket)));
+		} catch (IllegalArgumentException e) {
+			log.warn().warn("Added archived bucket to catalog", e,
+					"Skipping the bucket", "index", index, "bucket_name", bucketName,
+					"format", formatName);
+		}
+	}
+
+	private Long getArchivedSize(Bucket bucket) {
+		try {
+			return archiveBucketSize.getSize(bucket);
+		} catch (RuntimeException e) {
+			log.debug().did("Got size of archived bucket", e,
+					"To get the size from the archive", "bucket", bucket);
+			return null;
+		}
+	}
+
+	/**
+	 * @return instance mirroring catalogs in the local catalog directory.
+	 */
+	public static ArchiveCatalogStore create(
+			ArchiveFileSystem archiveFileSystem, PathResolver pathResolver,
+			ArchiveBucketSize archiveBucketSize,
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new ArchiveCatalogStore(archiveFileSystem, pathResolver,
+				localFileSystemPaths.getArchiveCatalogDirectory(), archiveBucketSize);
+	}
+}
@@ -0,0 +1,162 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.catalog;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.splunk.shuttl.archiver.StructuredLogger;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.PathResolver;
+import com.splunk.shuttl.archiver.listers.BucketTable;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.thaw.BucketFormatChooser;
+import com.splunk.shuttl.archiver.thaw.BucketIntervalIndex;
+import com.splunk.shuttl.archiver.thaw.BucketIntervalIndexCache;
+
+/**
+ * Lists archived {@link Bucket}s of an index from its {@link ArchiveCatalog}.
+ * The buckets get their formats and sizes from the catalog, instead of asking
+ * the archive file system about each bucket.
+ */
+public class CatalogBucketsLister {
+
+	private static final StructuredLogger log = StructuredLogger
+			.getLogger(CatalogBucketsLister.class);
+	private static final BucketIntervalIndexCache intervalIndexes = new BucketIntervalIndexCache();
+
+	private final ArchiveCatalogStore archiveCatalogStore;
+	private final PathResolver pathResolver;
+	private final BucketFormatChooser bucketFormatChooser;
+
+	/**
+	 * @param archiveCatalogStore
+	 *          to read catalogs from.
+	 * @param pathResolver
+	 *          to resolve the {@link URI}s of the listed buckets.
+	 * @param bucketFormatChooser
+	 *          for choosing one of a bucket's formats.
+	 */
+	public CatalogBucketsLister(ArchiveCatalogStore archiveCatalogStore,
+			PathResolver pathResolver, BucketFormatChooser bucketFormatChooser) {
+		this.archiveCatalogStore = archiveCatalogStore;
+		this.pathResolver = pathResolver;
+		this.bucketFormatChooser = bucketFormatChooser;
+	}
+
+	/**
+	 * @return buckets in the index with format and size set, or null if the
+	 *         index has no catalog.
+	 */
+	public List<Bucket> listBucketsInIndex(String index) {
+		ArchiveCatalog catalog = getCatalogWithErrorHandling(index);
+		if (catalog == null)
+			return null;
+		List<Bucket> buckets = new ArrayList<Bucket>();
+		for (CatalogEntry entry : catalog.getEntries())
+			buckets.add(createBucket(index, entry));
+		return buckets;
+	}
+
+	/**
+	 * The index is built once per version of the catalog and reused until the
+	 * catalog changes, so a time range query on an unchanged catalog costs one
+	 * listing of the catalog home plus O(log n + k).
+	 * 
+	 * @return {@link BucketIntervalIndex} of the buckets in the index, as
+	 *         listed by {@link #listBucketsInIndex(String)}, or null if the index
+	 *         has no catalog.
+	 */
+	public BucketIntervalIndex getBucketIntervalIndex(String index) {
+		String version = getCatalogVersionWithErrorHandling(index);
+		if (version == null)
+			return null;
+		URI catalogHome = pathResolver.getCatalogHome(index);
+		BucketIntervalIndex intervalIndex = intervalIndexes.get(catalogHome,
+				version);
+		if (intervalIndex == null) {
+			List<Bucket> buckets = listBucketsInIndex(index);
+			if (buckets == null)
+				return null;
+			intervalIndex = BucketIntervalIndex.create(buckets);
+			intervalIndexes.put(catalogHome, version, intervalIndex);
+		}
+		return intervalIndex;
+	}
+
+	private String getCatalogVersionWithErrorHandling(String index) {
+		try {
+			return archiveCatalogStore.getCatalogVersion(index);
+		} catch (IOException e) {
+			log.warn().warn("Read archive catalog version", e,
+					"Will list buckets without the catalog", "index", index,
+					"exception", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Lists the buckets in the index into a {@link BucketTable}, without creating
+	 * a {@link Bucket} for each catalog entry.
+	 * 
+	 * @return table with the buckets in the index with format and size set, or
+	 *         null if the index has no catalog.
+	 */
+	public BucketTable listBucketTableInIndex(String index) {
+		ArchiveCatalog catalog = getCatalogWithErrorHandling(index);
+		if (catalog == null)
+			return null;
+		BucketTable table = new BucketTable(pathResolver);
+		for (CatalogEntry entry : catalog.getEntries()) {
+			BucketFormat format = chooseFormat(entry);
+			table.add(index, entry.getBucketName(), format, entry.getSize(format),
+					entry.getChecksum(format));
+		}
+		return table;
+	}
+
+	private ArchiveCatalog getCatalogWithErrorHandling(String index) {
+		try {
+			return archiveCatalogStore.getCatalog(index);
+		} catch (IOException e) {
+			log.warn().warn("Read archive catalog", e,
+					"Will list buckets without the catalog", "index", index,
+					"exception", e);
+			return null;
+		}
+	}
+
+	private BucketFormat chooseFormat(CatalogEntry entry) {
+		return bucketFormatChooser.chooseBucketFormat(new ArrayList<BucketFormat>(
+				entry.getFormats()));
+	}
+
+	private Bucket createBucket(String index, CatalogEntry entry) {
+		BucketFormat format = chooseFormat(entry);
+		URI uri = pathResolver.resolveArchivedBucketURI(index,
+				entry.getBucketName(), format);
+		try {
+			return new Bucket(uri, index, entry.getBucketName(), format,
+					entry.getSize(format), entry.getChecksum(format));
+		} catch (IOException e) {
+			log.debug().did("Created bucket from catalog entry", e,
+					"To create a remote bucket", "entry", entry, "exception", e);
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,288 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.catalog;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * What the {@link ArchiveCatalog} knows about an archived bucket: its name,
+ * time range, the formats it's archived in and its size on local disk in each
+ * format. The checksum of a format identifies the contents of the bucket in
+ * that format, when it was archived with a checksum manifest.
+ */
+public class CatalogEntry {
+
+	private static final String SEPARATOR = "\t";
+	private static final String FORMAT_SEPARATOR = ",";
+	private static final String FORMAT_VALUE_SEPARATOR = "=";
+
+	private final String bucketName;
+	private final long earliest;
+	private final long latest;
+	private final Set<BucketFormat> formats;
+	private final Map<BucketFormat, Long> sizes;
+	private final Map<BucketFormat, String> checksums;
+
+	/**
+	 * Entry for a bucket archived in one format, without checksum.
+	 * 
+	 * @param size
+	 *          on local disk of the bucket in the format. Can be null, when
+	 *          it's unknown.
+	 */
+	public CatalogEntry(String bucketName, long earliest, long latest,
+			BucketFormat format, Long size) {
+		this(bucketName, earliest, latest, EnumSet.of(format), sizeOf(format,
+				size), new EnumMap<BucketFormat, String>(BucketFormat.class));
+	}
+
+	/**
+	 * @param earliest
+	 *          time in milliseconds.
+	 * @param latest
+	 *          time in milliseconds.
+	 * @param sizes
+	 *          on local disk of the formats with a known size.
+	 * @param checksums
+	 *          of the formats that have one.
+	 */
+	public CatalogEntry(String bucketName, long earliest, long latest,
+			Set<BucketFormat> formats, Map<BucketFormat, Long> sizes,
+			Map<BucketFormat, String> checksums) {
+		this.bucketName = bucketName;
+		this.earliest = earliest;
+		this.latest = latest;
+		this.formats = EnumSet.noneOf(BucketFormat.class);
+		this.formats.addAll(formats);
+		this.sizes = new EnumMap<BucketFormat, Long>(BucketFormat.class);
+		this.sizes.putAll(sizes);
+		this.checksums = new EnumMap<BucketFormat, String>(BucketFormat.class);
+		this.checksums.putAll(checksums);
+	}
+
+	private static Map<BucketFormat, Long> sizeOf(BucketFormat format, Long size) {
+		Map<BucketFormat, Long> sizes = new EnumMap<BucketFormat, Long>(
+				BucketFormat.class);
+		if (size != null)
+			sizes.put(format, size);
+		return sizes;
+	}
+
+	public String getBucketName() {
+		return bucketName;
+	}
+
+	public long getEarliest() {
+		return earliest;
+	}
+
+	public long getLatest() {
+		return latest;
+	}
+
+	/**
+	 * @return size on local disk of the bucket in the format, or null if it's
+	 *         unknown.
+	 */
+	public Long getSize(BucketFormat format) {
+		return sizes.get(format);
+	}
+
+	public Set<BucketFormat> getFormats() {
+		return EnumSet.copyOf(formats);
+	}
+
+	/**
+	 * @return checksum of the bucket in the format, or null if it was archived
+	 *         without one.
+	 */
+	public String getChecksum(BucketFormat format) {
+		return checksums.get(format);
+	}
+
+	/**
+	 * @return entry with the formats, sizes and checksums of both entries. The
+	 *         size and checksum of a format in this entry are kept over the
+	 *         ones in the other entry.
+	 */
+	public CatalogEntry merge(CatalogEntry other) {
+		Set<BucketFormat> mergedFormats = getFormats();
+		mergedFormats.addAll(other.formats);
+		Map<BucketFormat, Long> mergedSizes = new EnumMap<BucketFormat, Long>(
+				BucketFormat.class);
+		mergedSizes.putAll(other.sizes);
+		mergedSizes.putAll(sizes);
+		Map<BucketFormat, String> mergedChecksums = new EnumMap<BucketFormat, String>(
+				BucketFormat.class);
+		mergedChecksums.putAll(other.checksums);
+		mergedChecksums.putAll(checksums);
+		return new CatalogEntry(bucketName, earliest, latest, mergedFormats,
+				mergedSizes, mergedChecksums);
+	}
+
+	/**
+	 * @return the entry as a single line, without line separator. The size of
+	 *         an entry with a single format is written as a plain number, and
+	 *         the checksums column is only written when there are checksums, so
+	 *         such entries can be read by older versions.
+	 */
+	public String toLine() {
+		List<String> formatNames = new ArrayList<String>();
+		for (BucketFormat format : formats)
+			formatNames.add(format.name());
+		String line = bucketName + SEPARATOR + earliest + SEPARATOR + latest
+				+ SEPARATOR + sizesColumn() + SEPARATOR
+				+ join(formatNames, FORMAT_SEPARATOR);
+		if (checksums.isEmpty())
+			return line;
+		return line + SEPARATOR + formatValues(checksums);
+	}
+
+	private String sizesColumn() {
+		if (formats.size() == 1 && sizes.keySet().equals(formats))
+			return sizes.values().iterator().next().toString();
+		return formatValues(sizes);
+	}
+
+	private static String formatValues(Map<BucketFormat, ?> values) {
+		List<String> formatValues = new ArrayList<String>();
+		for (Entry<BucketFormat, ?> value : values.entrySet())
+			formatValues.add(value.getKey().name() + FORMAT_VALUE_SEPARATOR
+					+ value.getValue());
+		return join(formatValues, FORMAT_SEPARATOR);
+	}
+
+	private static String join(List<String> strings, String separator) {
+		StringBuilder sb = new StringBuilder();
+		for (String s : strings) {
+			if (sb.length() > 0)
+				sb.append(separator);
+			sb.append(s);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return entry from a line created with {@link #toLine()}. A plain size
+	 *         written by an older version for an entry with more than one format
+	 *         can't be attributed to a format, and is left out.
+	 * @throws IllegalArgumentException
+	 *           if the line is not a catalog entry.
+	 */
+	public static CatalogEntry fromLine(String line) {
+		String[] columns = line.split(SEPARATOR, -1);
+		if (columns.length != 5 && columns.length != 6)
+			throw new IllegalArgumentException("Not a catalog entry: " + line);
+		Set<BucketFormat> formats = EnumSet.noneOf(BucketFormat.class);
+		for (String format : columns[4].split(FORMAT_SEPARATOR))
+			if (format.length() > 0)
+				formats.add(BucketFormat.valueOf(format));
+		Map<BucketFormat, Long> sizes = parseSizes(columns[3], formats, line);
+		Map<BucketFormat, String> checksums = new EnumMap<BucketFormat, String>(
+				BucketFormat.class);
+		if (columns.length == 6)
+			for (String checksum : columns[5].split(FORMAT_SEPARATOR))
+				addFormatValue(checksums, checksum, line);
+		return new CatalogEntry(columns[0], Long.parseLong(columns[1]),
+				Long.parseLong(columns[2]), formats, sizes, checksums);
+	}
+
+	private static Map<BucketFormat, Long> parseSizes(String column,
+			Set<BucketFormat> formats, String line) {
+		Map<BucketFormat, Long> sizes = new EnumMap<BucketFormat, Long>(
+				BucketFormat.class);
+		if (column.indexOf(FORMAT_VALUE_SEPARATOR) < 0) {
+			if (column.length() > 0 && formats.size() == 1)
+				sizes.put(formats.iterator().next(), Long.valueOf(column));
+			return sizes;
+		}
+		Map<BucketFormat, String> formatSizes = new EnumMap<BucketFormat, String>(
+				BucketFormat.class);
+		for (String formatSize : column.split(FORMAT_SEPARATOR))
+			addFormatValue(formatSizes, formatSize, line);
+		for (Entry<BucketFormat, String> formatSize : formatSizes.entrySet())
+			sizes.put(formatSize.getKey(), Long.valueOf(formatSize.getValue()));
+		return sizes;
+	}
+
+	private static void addFormatValue(Map<BucketFormat, String> values,
+			String formatValue, String line) {
+		if (formatValue.length() == 0)
+			return;
+		int separator = formatValue.indexOf(FORMAT_VALUE_SEPARATOR);
+		if (separator < 0)
+			throw new IllegalArgumentException("Not a catalog entry: " + line);
+		values.put(BucketFormat.valueOf(formatValue.substring(0, separator)),
+				formatValue.substring(separator + 1));
+	}
+
+	/**
+	 * @return entry for a bucket that has been transferred to the archive in
+	 *         its format.
+	 */
+	public static CatalogEntry create(Bucket bucket) {
+		return create(bucket, null);
+	}
+
+	/**
+	 * @param checksum
+	 *          of the transferred bucket. Can be null, when the bucket was
+	 *          archived without a checksum.
+	 * @return entry for a bucket that has been transferred to the archive in
+	 *         its format.
+	 */
+	public static CatalogEntry create(Bucket bucket, String checksum) {
+		Map<BucketFormat, String> checksums = new EnumMap<BucketFormat, String>(
+				BucketFormat.class);
+		if (checksum != null)
+			checksums.put(bucket.getFormat(), checksum);
+		return new CatalogEntry(bucket.getName(), bucket.getEarliest().getTime(),
+				bucket.getLatest().getTime(), EnumSet.of(bucket.getFormat()), sizeOf(
+						bucket.getFormat(), bucket.getSize()), checksums);
+	}
+
+	/**
+	 * @param checksum
+	 *          of the bucket in the format. Can be null.
+	 * @return entry for a bucket that is archived in a format, which may not be
+	 *         the format of the bucket. The size is only known when it is.
+	 */
+	public static CatalogEntry create(Bucket bucket, BucketFormat format,
+			String checksum) {
+		Map<BucketFormat, String> checksums = new EnumMap<BucketFormat, String>(
+				BucketFormat.class);
+		if (checksum != null)
+			checksums.put(format, checksum);
+		Long size = format.equals(bucket.getFormat()) ? bucket.getSize() : null;
+		return new CatalogEntry(bucket.getName(), bucket.getEarliest().getTime(),
+				bucket.getLatest().getTime(), EnumSet.of(format), sizeOf(format, size),
+				checksums);
+	}
+
+	@Override
+	public String toString() {
+		return "CatalogEntry [" + toLine() + "]";
+	}
+}
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 /**
  * With this interface code can put, retrieve and list files in any system that
@@ -67,6 +68,49 @@ public interface ArchiveFileSystem {
 	void putFileAtomically(File fileOnLocalFileSystem, URI fileOnArchiveFileSystem)
 			throws FileNotFoundException, FileOverwriteException, IOException;
 
+	/**
+	 * Writes a file on the archiving file system with the content written by
+	 * the {@link WritesToStream}, without staging it on the local file system.
+	 * The content is written to a temporary place and renamed to the correct
+	 * path when all of it has been written, so a failed write leaves nothing at
+	 * the specified path.
+	 * 
+	 * @param writer
+	 *          that writes the content of the file.
+	 * @param fileOnArchiveFileSystem
+	 *          Path pointing for an non exiting file on the archive file system.
+	 * 
+	 * @throws FileOverwriteException
+	 *           If there is already a file on the specified path.
+	 * @throws IOException
+	 *           If the writer or any other part of the operation failed.
+	 */
+	void putStreamAtomically(WritesToStream writer, URI fileOnArchiveFileSystem)
+			throws FileOverwriteException, IOException;
+
+	/**
+	 * Writes a directory on the archiving file system with a file for every
+	 * {@link WritesToStream}, without staging them on the local file system.
+	 * The files are written to a temporary directory, in the iteration order of
+	 * the writers, and the directory is renamed to the correct path when all of
+	 * them have been written, so a failed write leaves nothing at the specified
+	 * path.
+	 * 
+	 * @param writers
+	 *          of the files, by their paths relative to the directory.
+	 * @param directoryOnArchiveFileSystem
+	 *          Path pointing for an non exiting directory on the archive file
+	 *          system.
+	 * 
+	 * @throws FileOverwriteException
+	 *           If there is already a file on the specified path.
+	 * @throws IOException
+	 *           If a writer or any other part of the operation failed.
+	 */
+	void putStreamsAtomically(Map<String, WritesToStream> writers,
+			URI directoryOnArchiveFileSystem) throws FileOverwriteException,
+			IOException;
+
 	/**
 	 * Retrieves the file from specified path on archiving file system and stores
 	 * it to the specified file on local file system.
@@ -99,6 +143,15 @@ public interface ArchiveFileSystem {
 	 */
 	List<URI> listPath(URI pathToBeListed) throws IOException;
 
+	/**
+	 * Deletes the file or directory, with all its content, on the specified
+	 * path. Nothing happens if there is nothing on the path.
+	 * 
+	 * @throws IOException
+	 *           If there was any problem with the operation.
+	 */
+	void deletePath(URI pathOnArchiveFileSystem) throws IOException;
+
 	/**
 	 * @param fileOnArchiveFileSystem
 	 *          A path to an existing file on the archiving file system.
@@ -0,0 +1,89 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+/**
+ * Connection to a hadoop {@link FileSystem}, with the
+ * {@link HadoopFileSystemArchive} that uses it.
+ */
+public class ArchiveFileSystemConnection {
+
+	private static final Logger logger = Logger
+			.getLogger(ArchiveFileSystemConnection.class);
+
+	private final FileSystem hadoopFileSystem;
+	private final ArchiveFileSystem archiveFileSystem;
+
+	/**
+	 * @param hadoopFileSystem
+	 *          that is connected to.
+	 * @param archiveFileSystem
+	 *          that uses the hadoop file system.
+	 */
+	public ArchiveFileSystemConnection(FileSystem hadoopFileSystem,
+			ArchiveFileSystem archiveFileSystem) {
+		this.hadoopFileSystem = hadoopFileSystem;
+		this.archiveFileSystem = archiveFileSystem;
+	}
+
+	public ArchiveFileSystem getArchiveFileSystem() {
+		return archiveFileSystem;
+	}
+
+	/**
+	 * @return true if the file system answers. Checked by asking for the root of
+	 *         the file system.
+	 */
+	public boolean isHealthy() {
+		try {
+			return hadoopFileSystem.exists(new Path("/"));
+		} catch (IOException e) {
+			logger.warn(warn("Checked health of file system", e,
+					"File system is not healthy", "file_system_uri",
+					hadoopFileSystem.getUri()));
+			return false;
+		}
+	}
+
+	/**
+	 * Closes the file system. The file system is not shared with other
+	 * connections, see {@link HadoopFileSystemConnector}.
+	 */
+	public void close() {
+		try {
+			hadoopFileSystem.close();
+		} catch (IOException e) {
+			logger.warn(warn("Closed file system", e, "Ignoring it",
+					"file_system_uri", hadoopFileSystem.getUri()));
+		}
+	}
+
+	/**
+	 * @return connection to a hadoop file system, with tmp directory at the path.
+	 */
+	public static ArchiveFileSystemConnection create(FileSystem hadoopFileSystem,
+			Path tmpDirectory) {
+		return new ArchiveFileSystemConnection(hadoopFileSystem,
+				new HadoopFileSystemArchive(hadoopFileSystem, tmpDirectory));
+	}
+}
@@ -0,0 +1,35 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Connects to the file system of an archive. Used by the
+ * {@link ArchiveFileSystemRegistry} to connect, and to reconnect when a
+ * connection is no longer healthy.
+ */
+public interface ArchiveFileSystemConnector {
+
+	/**
+	 * @param uri
+	 *          to the tmp directory of the archive file system.
+	 * @return a new connection to the file system.
+	 * @throws IOException
+	 *           if the file system could not be connected to.
+	 */
+	ArchiveFileSystemConnection connect(URI uri) throws IOException;
+}
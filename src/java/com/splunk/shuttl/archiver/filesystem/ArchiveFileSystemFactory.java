@@ -14,27 +14,18 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.filesystem;
 
-import static com.splunk.shuttl.archiver.LogFormatter.*;
-
-import java.io.IOException;
 import java.net.URI;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FileSystem;
-import org.apache.hadoop.fs.Path;
-import org.apache.log4j.Logger;
-
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.bandwidth.BandwidthGovernor;
 
 /**
  * Factory for getting an {@link ArchiveFileSystem}
  */
 public class ArchiveFileSystemFactory {
 
-	private static final Logger logger = Logger
-			.getLogger(ArchiveFileSystemFactory.class);
 	private static final Set<String> supportedUriSchemas;
 
 	static {
@@ -73,7 +64,10 @@ public class ArchiveFileSystemFactory {
 	}
 
 	/**
-	 * Creates a {@link ArchiveFileSystem} for a URI to tmp path.</br> Example:
+	 * Gets the {@link ArchiveFileSystem} for a URI to tmp path from the shared
+	 * {@link ArchiveFileSystemRegistry}, so every caller with the same URI shares
+	 * one file system. The bytes it moves are metered against the shared
+	 * {@link BandwidthGovernor}.</br> Example:
 	 * 'file:/tmp' contains the scheme and the path to a tmp directory.</br>
 	 * 'hdfs://localhost:1234/archive-tmp' contains scheme, host, port and path to
 	 * directory.
@@ -91,24 +85,10 @@ public class ArchiveFileSystemFactory {
 	private static ArchiveFileSystem supportedArchiveFileSystem(URI uri) {
 		if (uri.getScheme().equals("file") || uri.getScheme().equals("hdfs")
 				|| uri.getScheme().equals("s3") || uri.getScheme().equals("s3n"))
-			return createHadoopFileSystem(uri);
+			return ArchiveFileSystemRegistry.getSharedInstance()
+					.getArchiveFileSystem(uri);
 
 		throw new IllegalStateException(
 				"Supported URI schemas should return a ArchiveFileSystem.");
 	}
-
-	private static ArchiveFileSystem createHadoopFileSystem(URI uri) {
-		FileSystem hadoopFs = getHadoopFileSystemSafe(uri);
-		return new HadoopFileSystemArchive(hadoopFs, new Path(uri.getPath()));
-	}
-
-	private static FileSystem getHadoopFileSystemSafe(URI uri) {
-		try {
-			return FileSystem.get(uri, new Configuration());
-		} catch (IOException e) {
-			logger.error(did("Tried to create Hadoop FileSystem with uri", e,
-					"To create file system.", "uri", uri));
-			throw new RuntimeException("Could not connect to hadoop", e);
-		}
-	}
 }
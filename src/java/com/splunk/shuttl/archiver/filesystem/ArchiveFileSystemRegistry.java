@@ -0,0 +1,414 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.bandwidth.BandwidthGovernor;
+import com.splunk.shuttl.archiver.bandwidth.MeteredArchiveFileSystem;
+
+/**
+ * Keeps one {@link ArchiveFileSystem} per archive tmp directory URI, shared by
+ * everything that uses the archive, instead of connecting to the file system
+ * for every request.<br/>
+ * <br/>
+ * The connection of a file system is checked at most every
+ * {@link #HEALTH_CHECK_INTERVAL_MILLIS}, and right after an operation on it
+ * failed. An unhealthy connection is replaced by a new one, so the
+ * {@link ArchiveFileSystem}s handed out by the registry stay usable. The
+ * replaced connection is closed once the operations using it are done.
+ */
+public class ArchiveFileSystemRegistry {
+
+	private static final Logger logger = Logger
+			.getLogger(ArchiveFileSystemRegistry.class);
+
+	static final long HEALTH_CHECK_INTERVAL_MILLIS = 30000;
+
+	private static ArchiveFileSystemRegistry instance;
+
+	private final ArchiveFileSystemConnector connector;
+	private final BandwidthGovernor governor;
+	private final Map<URI, RegisteredFileSystem> fileSystems;
+
+	/**
+	 * @param connector
+	 *          that connects to the file systems.
+	 * @param governor
+	 *          that the bytes moved by the file systems are metered against.
+	 */
+	public ArchiveFileSystemRegistry(ArchiveFileSystemConnector connector,
+			BandwidthGovernor governor) {
+		this.connector = connector;
+		this.governor = governor;
+		this.fileSystems = new HashMap<URI, RegisteredFileSystem>();
+	}
+
+	/**
+	 * @param uri
+	 *          to the tmp directory of the archive file system.
+	 * @return the file system registered for the URI. It's connected the first
+	 *         time it's used.
+	 */
+	public synchronized ArchiveFileSystem getArchiveFileSystem(URI uri) {
+		RegisteredFileSystem registered = fileSystems.get(uri);
+		if (registered == null) {
+			registered = new RegisteredFileSystem(uri);
+			fileSystems.put(uri, registered);
+		}
+		return registered.meteredFileSystem;
+	}
+
+	/**
+	 * Checks the health of the file system registered for the URI, and
+	 * reconnects if it's not healthy.
+	 * 
+	 * @return true if the file system is connected and healthy after the check.
+	 */
+	public boolean checkHealth(URI uri) {
+		RegisteredFileSystem registered;
+		synchronized (this) {
+			registered = fileSystems.get(uri);
+		}
+		if (registered == null)
+			return false;
+		try {
+			registered.checkHealthAndReconnect();
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Closes the connections of all file systems and removes them from the
+	 * registry. File systems that were handed out reconnect if they are used
+	 * again.
+	 */
+	public void shutdown() {
+		List<RegisteredFileSystem> registered;
+		synchronized (this) {
+			registered = new ArrayList<RegisteredFileSystem>(fileSystems.values());
+			fileSystems.clear();
+		}
+		for (RegisteredFileSystem fileSystem : registered)
+			fileSystem.close();
+	}
+
+	/**
+	 * @return the registry shared by the Shuttl server.
+	 */
+	public static synchronized ArchiveFileSystemRegistry getSharedInstance() {
+		if (instance == null)
+			instance = create();
+		return instance;
+	}
+
+	/**
+	 * @return registry that connects to hadoop file systems and meters them
+	 *         against the shared {@link BandwidthGovernor}.
+	 */
+	public static ArchiveFileSystemRegistry create() {
+		return new ArchiveFileSystemRegistry(HadoopFileSystemConnector.create(),
+				BandwidthGovernor.getSharedInstance());
+	}
+
+	/**
+	 * The file system of a URI, with its current connection. A connection that
+	 * is replaced or closed while operations are using it is closed when the
+	 * last of them is done.
+	 */
+	private class RegisteredFileSystem {
+
+		private final URI uri;
+		private final ArchiveFileSystem meteredFileSystem;
+		private UsedConnection connection;
+		private long lastHealthCheck;
+		private boolean failed;
+
+		public RegisteredFileSystem(URI uri) {
+			this.uri = uri;
+			this.meteredFileSystem = new MeteredArchiveFileSystem(
+					new ReconnectingArchiveFileSystem(this), governor);
+		}
+
+		/**
+		 * @return healthy connection, which must be released with
+		 *         {@link #release(UsedConnection)} when the operation is done.
+		 */
+		public synchronized UsedConnection acquire() throws IOException {
+			if (connection == null)
+				connect();
+			else if (failed || isTimeForHealthCheck())
+				checkHealthAndReconnect();
+			connection.users++;
+			return connection;
+		}
+
+		public synchronized void release(UsedConnection used) {
+			used.users--;
+			if (used.retired && used.users == 0)
+				used.connection.close();
+		}
+
+		private boolean isTimeForHealthCheck() {
+			return System.currentTimeMillis() - lastHealthCheck
+					> HEALTH_CHECK_INTERVAL_MILLIS;
+		}
+
+		public synchronized void checkHealthAndReconnect() throws IOException {
+			if (connection != null && connection.connection.isHealthy()) {
+				lastHealthCheck = System.currentTimeMillis();
+				failed = false;
+				return;
+			}
+			if (connection != null)
+				logger.warn(warn("Checked health of archive file system",
+						"File system is not healthy", "Reconnecting", "uri", uri));
+			close();
+			connect();
+		}
+
+		private void connect() throws IOException {
+			try {
+				connection = new UsedConnection(connector.connect(uri));
+				lastHealthCheck = System.currentTimeMillis();
+				failed = false;
+				logger.info(done("Connected to archive file system", "uri", uri));
+			} catch (IOException e) {
+				logger.error(did("Connected to archive file system", e,
+						"To connect", "uri", uri));
+				throw e;
+			}
+		}
+
+		public synchronized void markFailed() {
+			failed = true;
+		}
+
+		public synchronized void close() {
+			if (connection != null) {
+				connection.retired = true;
+				if (connection.users == 0)
+					connection.connection.close();
+			}
+			connection = null;
+		}
+	}
+
+	/**
+	 * A connection with the number of operations using it. Guarded by the
+	 * {@link RegisteredFileSystem} it belongs to.
+	 */
+	private static class UsedConnection {
+
+		private final ArchiveFileSystemConnection connection;
+		private int users;
+		private boolean retired;
+
+		public UsedConnection(ArchiveFileSystemConnection connection) {
+			this.connection = connection;
+		}
+
+		public ArchiveFileSystem getArchiveFileSystem() {
+			return connection.getArchiveFileSystem();
+		}
+	}
+
+	/**
+	 * {@link ArchiveFileSystem} that uses the current connection of a
+	 * {@link RegisteredFileSystem}. Operations that fail with anything but a
+	 * missing or an already existing file mark the connection as failed, so its
+	 * health is checked before the next operation.
+	 */
+	private static class ReconnectingArchiveFileSystem implements
+			ArchiveFileSystem {
+
+		private final RegisteredFileSystem registered;
+
+		public ReconnectingArchiveFileSystem(RegisteredFileSystem registered) {
+			this.registered = registered;
+		}
+
+		@Override
+		public void putFile(File fileOnLocalFileSystem,
+				URI fileOnArchiveFileSystem) throws IOException {
+			UsedConnection used = acquire();
+			try {
+				used.getArchiveFileSystem().putFile(fileOnLocalFileSystem,
+						fileOnArchiveFileSystem);
+			} catch (IOException e) {
+				throw failed(e);
+			} finally {
+				registered.release(used);
+			}
+		}
+
+		@Override
+		public void putFileAtomically(File fileOnLocalFileSystem,
+				URI fileOnArchiveFileSystem) throws IOException {
+			UsedConnection used = acquire();
+			try {
+				used.getArchiveFileSystem().putFileAtomically(fileOnLocalFileSystem,
+						fileOnArchiveFileSystem);
+			} catch (IOException e) {
+				throw failed(e);
+			} finally {
+				registered.release(used);
+			}
+		}
+
+		@Override
+		public void putStreamAtomically(WritesToStream writer,
+				URI fileOnArchiveFileSystem) throws IOException {
+			UsedConnection used = acquire();
+			try {
+				used.getArchiveFileSystem().putStreamAtomically(writer,
+						fileOnArchiveFileSystem);
+			} catch (IOException e) {
+				throw failed(e);
+			} finally {
+				registered.release(used);
+			}
+		}
+
+		@Override
+		public void putStreamsAtomically(Map<String, WritesToStream> writers,
+				URI directoryOnArchiveFileSystem) throws IOException {
+			UsedConnection used = acquire();
+			try {
+				used.getArchiveFileSystem().putStreamsAtomically(writers,
+						directoryOnArchiveFileSystem);
+			} catch (IOException e) {
+				throw failed(e);
+			} finally {
+				registered.release(used);
+			}
+		}
+
+		@Override
+		public void getFile(File fileOnLocalFileSystem,
+				URI fileOnArchiveFileSystem) throws IOException {
+			UsedConnection used = acquire();
+			try {
+				used.getArchiveFileSystem().getFile(fileOnLocalFileSystem,
+						fileOnArchiveFileSystem);
+			} catch (IOException e) {
+				throw failed(e);
+			} finally {
+				registered.release(used);
+			}
+		}
+
+		@Override
+		public List<URI> listPath(URI pathToBeListed) throws IOException {
+			UsedConnection used = acquire();
+			try {
+				return used.getArchiveFileSystem().listPath(pathToBeListed);
+			} catch (IOException e) {
+				throw failed(e);
+			} finally {
+				registered.release(used);
+			}
+		}
+
+		@Override
+		public void deletePath(URI pathOnArchiveFileSystem) throws IOException {
+			UsedConnection used = acquire();
+			try {
+				used.getArchiveFileSystem().deletePath(pathOnArchiveFileSystem);
+			} catch (IOException e) {
+				throw failed(e);
+			} finally {
+				registered.release(used);
+			}
+		}
+
+		/**
+		 * The connection is in use until the returned stream is closed.
+		 */
+		@Override
+		public InputStream openFile(URI fileOnArchiveFileSystem)
+				throws IOException {
+			UsedConnection used = acquire();
+			try {
+				return new ReleasingInputStream(used.getArchiveFileSystem()
+						.openFile(fileOnArchiveFileSystem), registered, used);
+			} catch (IOException e) {
+				registered.release(used);
+				throw failed(e);
+			}
+		}
+
+		private UsedConnection acquire() throws IOException {
+			try {
+				return registered.acquire();
+			} catch (IOException e) {
+				throw failed(e);
+			}
+		}
+
+		private IOException failed(IOException e) {
+			if (!(e instanceof FileNotFoundException)
+					&& !(e instanceof FileOverwriteException))
+				registered.markFailed();
+			return e;
+		}
+	}
+
+	/**
+	 * Stream of a file that releases the connection it was opened with when
+	 * it's closed.
+	 */
+	private static class ReleasingInputStream extends FilterInputStream {
+
+		private final RegisteredFileSystem registered;
+		private final UsedConnection used;
+		private boolean released;
+
+		public ReleasingInputStream(InputStream in,
+				RegisteredFileSystem registered, UsedConnection used) {
+			super(in);
+			this.registered = registered;
+			this.used = used;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				synchronized (this) {
+					if (!released)
+						registered.release(used);
+					released = true;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,307 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The CRC32 checksums and lengths of the files of an archived bucket, by their
+ * path relative to the bucket. The checksums are computed while the files are
+ * transferred to the archive, and stored in
+ * <code>archive_meta/checksums</code> of the archived bucket, so that the
+ * bucket can be verified while it's transferred back, without reading it an
+ * extra time.
+ */
+public class ChecksumManifest {
+
+	public static final String ARCHIVE_META_DIRECTORY = "archive_meta";
+	public static final String FILE_NAME = "checksums";
+	public static final String RELATIVE_PATH = ARCHIVE_META_DIRECTORY + "/"
+			+ FILE_NAME;
+
+	private static final String SEPARATOR = "\t";
+
+	private final Map<String, long[]> files;
+
+	public ChecksumManifest() {
+		this.files = new TreeMap<String, long[]>();
+	}
+
+	/**
+	 * Records the checksum of a file.
+	 */
+	public synchronized void add(String relativePath, long length, long checksum) {
+		files.put(relativePath, new long[] { length, checksum });
+	}
+
+	/**
+	 * @return true if the manifest has a checksum for the file.
+	 */
+	public synchronized boolean contains(String relativePath) {
+		return files.containsKey(relativePath);
+	}
+
+	/**
+	 * @return the relative paths of the files in the manifest.
+	 */
+	public synchronized Set<String> getRelativePaths() {
+		return new HashSet<String>(files.keySet());
+	}
+
+	/**
+	 * @return number of files in the manifest.
+	 */
+	public synchronized int size() {
+		return files.size();
+	}
+
+	/**
+	 * @return sum of the lengths of the files in the manifest.
+	 */
+	public synchronized long getTotalLength() {
+		long total = 0;
+		for (long[] file : files.values())
+			total += file[0];
+		return total;
+	}
+
+	/**
+	 * @throws ChecksumMismatchException
+	 *           if the length or checksum of the file is not the recorded one.
+	 */
+	public synchronized void verify(String relativePath, long length,
+			long checksum) throws ChecksumMismatchException {
+		long[] recorded = files.get(relativePath);
+		if (recorded == null)
+			throw new ChecksumMismatchException("No checksum for file: "
+					+ relativePath);
+		if (recorded[0] != length || recorded[1] != checksum)
+			throw new ChecksumMismatchException("Checksum mismatch for file: "
+					+ relativePath + ", expected length=" + recorded[0] + " crc32="
+					+ toHex(recorded[1]) + ", was length=" + length + " crc32="
+					+ toHex(checksum));
+	}
+
+	/**
+	 * @return stream that verifies the file against this manifest when the
+	 *         stream has been read to its end.
+	 */
+	public InputStream verifyingStream(InputStream in, String relativePath) {
+		return new VerifyingInputStream(in, this, relativePath);
+	}
+
+	/**
+	 * @return a checksum of the whole manifest, that identifies the contents of
+	 *         all the files of the bucket.
+	 */
+	public synchronized String getDigest() {
+		CRC32 crc = new CRC32();
+		crc.update(toBytes());
+		return toHex(crc.getValue());
+	}
+
+	/**
+	 * Writes the manifest to the stream, without closing it.
+	 */
+	public synchronized void writeTo(OutputStream out) throws IOException {
+		out.write(toBytes());
+	}
+
+	private byte[] toBytes() {
+		StringBuilder sb = new StringBuilder();
+		for (Entry<String, long[]> file : files.entrySet())
+			sb.append(toHex(file.getValue()[1])).append(SEPARATOR)
+					.append(file.getValue()[0]).append(SEPARATOR).append(file.getKey())
+					.append('\n');
+		try {
+			return sb.toString().getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Reads a manifest from the stream and closes it.
+	 * 
+	 * @throws IOException
+	 *           if the stream is not a manifest.
+	 */
+	public static ChecksumManifest readFrom(InputStream in) throws IOException {
+		ChecksumManifest manifest = new ChecksumManifest();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+				"UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null)
+				manifest.addLine(line);
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+		return manifest;
+	}
+
+	private void addLine(String line) throws IOException {
+		String[] columns = line.split(SEPARATOR, 3);
+		if (columns.length != 3)
+			throw new IOException("Not a checksum manifest line: " + line);
+		try {
+			add(columns[2], Long.parseLong(columns[1]),
+					Long.parseLong(columns[0], 16));
+		} catch (NumberFormatException e) {
+			throw new IOException("Not a checksum manifest line: " + line);
+		}
+	}
+
+	/**
+	 * Creates the manifest of a local directory that has been transferred. The
+	 * checksums that were computed during the transfer are taken from the
+	 * {@link TransferManifest}, and only the files that were transferred by an
+	 * earlier attempt without a checksum are read again.
+	 */
+	public static ChecksumManifest createForDirectory(File directory,
+			TransferManifest transferManifest) throws IOException {
+		ChecksumManifest manifest = new ChecksumManifest();
+		manifest.addDirectory(directory, "", transferManifest);
+		return manifest;
+	}
+
+	private void addDirectory(File directory, String relativePath,
+			TransferManifest transferManifest) throws IOException {
+		File[] children = directory.listFiles();
+		if (children == null)
+			throw new IOException("Could not list files of directory: "
+					+ directory);
+		for (File child : children) {
+			String relativeChildPath = relativePath + child.getName();
+			if (child.isDirectory())
+				addDirectory(child, relativeChildPath + "/", transferManifest);
+			else if (!RELATIVE_PATH.equals(relativeChildPath))
+				addFile(child, relativeChildPath,
+						transferManifest.getChecksum(relativeChildPath));
+		}
+	}
+
+	private void addFile(File file, String relativePath, Long checksum)
+			throws IOException {
+		if (checksum == null)
+			checksum = computeChecksum(file);
+		add(relativePath, file.length(), checksum);
+	}
+
+	private static long computeChecksum(File file) throws IOException {
+		CheckedInputStream in = new CheckedInputStream(new FileInputStream(file),
+				new CRC32());
+		try {
+			byte[] buffer = new byte[8 * 1024];
+			while (in.read(buffer) != -1) {
+				// Reading the stream updates its checksum.
+			}
+			return in.getChecksum().getValue();
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * @return the manifest of an archived bucket, or null if the bucket was
+	 *         archived without one.
+	 */
+	public static ChecksumManifest readFromArchive(
+			ArchiveFileSystem archiveFileSystem, URI archivedBucket)
+			throws IOException {
+		try {
+			return readFrom(archiveFileSystem.openFile(getManifestUri(archivedBucket)));
+		} catch (FileNotFoundException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return {@link URI} of the manifest of an archived bucket.
+	 */
+	public static URI getManifestUri(URI archivedBucket) {
+		String bucket = archivedBucket.toString();
+		return URI.create(bucket + (bucket.endsWith("/") ? "" : "/")
+				+ RELATIVE_PATH);
+	}
+
+	/**
+	 * @return the checksum as eight hexadecimal characters.
+	 */
+	public static String toHex(long checksum) {
+		String hex = Long.toHexString(checksum);
+		return "00000000".substring(hex.length()) + hex;
+	}
+
+	/**
+	 * Computes the checksum of everything read through it, and verifies it when
+	 * the end of the stream is reached.
+	 */
+	private static class VerifyingInputStream extends CheckedInputStream {
+
+		private final ChecksumManifest manifest;
+		private final String relativePath;
+		private long length;
+
+		public VerifyingInputStream(InputStream in, ChecksumManifest manifest,
+				String relativePath) {
+			super(in, new CRC32());
+			this.manifest = manifest;
+			this.relativePath = relativePath;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b == -1)
+				verify();
+			else
+				length++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buf, int off, int len) throws IOException {
+			int read = super.read(buf, off, len);
+			if (read == -1)
+				verify();
+			else
+				length += read;
+			return read;
+		}
+
+		private void verify() throws ChecksumMismatchException {
+			manifest.verify(relativePath, length, getChecksum().getValue());
+		}
+	}
+}
@@ -15,14 +15,22 @@
 
 package com.splunk.shuttl.archiver.filesystem;
 
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -30,17 +38,40 @@ import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.util.UtilsPath;
 
+/**
+ * {@link ArchiveFileSystem} on a hadoop {@link FileSystem}.<br/>
+ * A directory that is put in the archive gets a {@link ChecksumManifest} with
+ * the checksums that were computed while its files were uploaded, and a
+ * directory with a manifest is verified while it is gotten from the archive.
+ */
 public class HadoopFileSystemArchive implements ArchiveFileSystem {
 
+	/**
+	 * Number of files of a directory that are uploaded at the same time.
+	 */
+	public static final int DEFAULT_UPLOAD_STREAMS = 4;
+
 	private final Path atomicPutTmpPath;
 	private final FileSystem hadoopFileSystem;
+	private final ParallelDirectoryUploader directoryUploader;
 
 	private static Logger logger = Logger
 			.getLogger(HadoopFileSystemArchive.class);
 
 	public HadoopFileSystemArchive(FileSystem hadoopFileSystem, Path path) {
+		this(hadoopFileSystem, path, new ParallelDirectoryUploader(
+				hadoopFileSystem, DEFAULT_UPLOAD_STREAMS));
+	}
+
+	/**
+	 * @param directoryUploader
+	 *          used for putting directories on the hadoop file system.
+	 */
+	public HadoopFileSystemArchive(FileSystem hadoopFileSystem, Path path,
+			ParallelDirectoryUploader directoryUploader) {
 		atomicPutTmpPath = path;
 		this.hadoopFileSystem = hadoopFileSystem;
+		this.directoryUploader = directoryUploader;
 	}
 
 	@Override
@@ -49,8 +80,15 @@ public class HadoopFileSystemArchive implements ArchiveFileSystem {
 		throwExceptionIfFileDoNotExist(fileOnLocalFileSystem);
 		Path hadoopPath = createPathFromURI(fileOnArchiveFileSystem);
 		throwExceptionIfRemotePathAlreadyExist(hadoopPath);
-		Path localPath = createPathFromFile(fileOnLocalFileSystem);
-		hadoopFileSystem.copyFromLocalFile(localPath, hadoopPath);
+		if (fileOnLocalFileSystem.isDirectory()) {
+			TransferManifest manifest = TransferManifest.createInMemory();
+			directoryUploader.uploadDirectory(fileOnLocalFileSystem, hadoopPath,
+					manifest);
+			writeChecksumManifest(fileOnLocalFileSystem, hadoopPath, manifest);
+		} else {
+			Path localPath = createPathFromFile(fileOnLocalFileSystem);
+			hadoopFileSystem.copyFromLocalFile(localPath, hadoopPath);
+		}
 	}
 
 	@Override
@@ -59,9 +97,61 @@ public class HadoopFileSystemArchive implements ArchiveFileSystem {
 			FileOverwriteException, IOException {
 		Path hadoopPath = createPathFromURI(fileOnArchiveFileSystem);
 		throwExceptionIfRemotePathAlreadyExist(hadoopPath);
-		Path tmpLocation = putFileToTmpDirectoryOverwirtingOldFilesAppendingPath(
+		Path tmpLocation = putFileToTmpDirectoryAppendingPath(
 				fileOnLocalFileSystem, fileOnArchiveFileSystem);
 		move(tmpLocation, hadoopPath);
+		hadoopFileSystem.delete(TransferManifest.getManifestPath(tmpLocation),
+				false);
+	}
+
+	@Override
+	public void putStreamAtomically(WritesToStream writer,
+			URI fileOnArchiveFileSystem) throws FileOverwriteException, IOException {
+		Path hadoopPath = createPathFromURI(fileOnArchiveFileSystem);
+		throwExceptionIfRemotePathAlreadyExist(hadoopPath);
+		Path tmpLocation = UtilsPath.createPathByAppending(atomicPutTmpPath,
+				hadoopPath);
+		deletePathRecursivly(tmpLocation);
+		writeToTmpLocation(writer, tmpLocation);
+		move(tmpLocation, hadoopPath);
+	}
+
+	@Override
+	public void putStreamsAtomically(Map<String, WritesToStream> writers,
+			URI directoryOnArchiveFileSystem) throws FileOverwriteException,
+			IOException {
+		Path hadoopPath = createPathFromURI(directoryOnArchiveFileSystem);
+		throwExceptionIfRemotePathAlreadyExist(hadoopPath);
+		Path tmpLocation = UtilsPath.createPathByAppending(atomicPutTmpPath,
+				hadoopPath);
+		deletePathRecursivly(tmpLocation);
+		boolean written = false;
+		try {
+			for (Entry<String, WritesToStream> file : writers.entrySet())
+				writeToTmpLocation(file.getValue(),
+						new Path(tmpLocation, file.getKey()));
+			written = true;
+		} finally {
+			if (!written)
+				deletePathRecursivly(tmpLocation);
+		}
+		move(tmpLocation, hadoopPath);
+	}
+
+	private void writeToTmpLocation(WritesToStream writer, Path tmpLocation)
+			throws IOException {
+		OutputStream out = hadoopFileSystem.create(tmpLocation);
+		boolean written = false;
+		try {
+			writer.writeTo(out);
+			out.close();
+			written = true;
+		} finally {
+			if (!written) {
+				IOUtils.closeQuietly(out);
+				deletePathRecursivly(tmpLocation);
+			}
+		}
 	}
 
 	/**
@@ -92,33 +182,147 @@ public class HadoopFileSystemArchive implements ArchiveFileSystem {
 	 * 
 	 * The specified file will be copied from local file system in to the tmp
 	 * directory on hadoop. The tmp directory will be the base and the full path
-	 * of the file on hadoop will contains the specified URI.
+	 * of the file on hadoop will contains the specified URI.<br/>
+	 * If a previous attempt left a {@link TransferManifest} for the tmp path, the
+	 * transfer is resumed and only the files that are not in the manifest are
+	 * copied. Otherwise old files on the tmp path are deleted first.
 	 */
-	/* package private */Path putFileToTmpDirectoryOverwirtingOldFilesAppendingPath(
+	/* package private */Path putFileToTmpDirectoryAppendingPath(
 			File fileOnLocalFileSystem, URI appendPathToTmpDirectory)
 			throws FileNotFoundException, IOException {
-
+		throwExceptionIfFileDoNotExist(fileOnLocalFileSystem);
 		Path hadoopPath = UtilsPath.createPathByAppending(atomicPutTmpPath,
 				createPathFromURI(appendPathToTmpDirectory));
-		deletePathRecursivly(hadoopPath);
-		try {
-			putFile(fileOnLocalFileSystem, hadoopPath.toUri());
+		if (!TransferManifest.exists(hadoopFileSystem, hadoopPath))
+			deletePathRecursivly(hadoopPath);
+		TransferManifest manifest = TransferManifest.load(hadoopFileSystem,
+				hadoopPath);
+		if (manifest.getTransferredCount() > 0)
+			logger.info(happened("Resuming transfer to tmp path", "tmp_path",
+					hadoopPath, "transferred_files", manifest.getTransferredCount()));
+		putFileResumingTransfer(fileOnLocalFileSystem, hadoopPath, manifest);
+		return hadoopPath;
+	}
 
-		} catch (FileOverwriteException e) {
-			throw new IOException(
-					"The old tmp path was not deleted this shouldn't happen!", e);
+	private void putFileResumingTransfer(File fileOnLocalFileSystem,
+			Path hadoopPath, TransferManifest manifest) throws IOException {
+		if (fileOnLocalFileSystem.isDirectory()) {
+			directoryUploader.uploadDirectory(fileOnLocalFileSystem, hadoopPath,
+					manifest);
+			writeChecksumManifest(fileOnLocalFileSystem, hadoopPath, manifest);
+		} else {
+			String name = fileOnLocalFileSystem.getName();
+			long length = fileOnLocalFileSystem.length();
+			if (manifest.isTransferred(name, length)
+					&& hadoopFileSystem.exists(hadoopPath)
+					&& hadoopFileSystem.getFileStatus(hadoopPath).getLen() == length)
+				return;
+			deletePathRecursivly(hadoopPath);
+			hadoopFileSystem.copyFromLocalFile(
+					createPathFromFile(fileOnLocalFileSystem), hadoopPath);
+			manifest.markTransferred(name, length);
+			manifest.flush();
+		}
+	}
+
+	private void writeChecksumManifest(File localDirectory, Path hadoopPath,
+			TransferManifest transferManifest) throws IOException {
+		ChecksumManifest checksums = ChecksumManifest.createForDirectory(
+				localDirectory, transferManifest);
+		OutputStream out = hadoopFileSystem.create(new Path(hadoopPath,
+				ChecksumManifest.RELATIVE_PATH), true);
+		try {
+			checksums.writeTo(out);
+		} finally {
+			out.close();
 		}
-		return hadoopPath;
 	}
 
+	/**
+	 * A directory with a {@link ChecksumManifest} is verified while its files
+	 * are copied, and is removed from the local file system if any file doesn't
+	 * match the manifest.
+	 * 
+	 * @throws ChecksumMismatchException
+	 *           if a file doesn't match the manifest.
+	 */
 	@Override
 	public void getFile(File fileOnLocalFileSystem, URI fileOnArchiveFileSystem)
 			throws FileNotFoundException, FileOverwriteException, IOException {
 		throwExceptionIfFileAlreadyExist(fileOnLocalFileSystem);
 		Path localPath = createPathFromFile(fileOnLocalFileSystem);
 		Path hadoopPath = createPathFromURI(fileOnArchiveFileSystem);
-		// FileNotFoundException is already thrown by copyToLocalFile.
-		hadoopFileSystem.copyToLocalFile(hadoopPath, localPath);
+		ChecksumManifest checksums = readChecksumManifest(hadoopPath);
+		if (checksums == null)
+			// FileNotFoundException is already thrown by copyToLocalFile.
+			hadoopFileSystem.copyToLocalFile(hadoopPath, localPath);
+		else
+			getDirectoryVerifyingChecksums(fileOnLocalFileSystem, hadoopPath,
+					checksums);
+	}
+
+	private ChecksumManifest readChecksumManifest(Path hadoopPath)
+			throws IOException {
+		Path manifestPath = new Path(hadoopPath, ChecksumManifest.RELATIVE_PATH);
+		if (!hadoopFileSystem.exists(manifestPath))
+			return null;
+		return ChecksumManifest.readFrom(hadoopFileSystem.open(manifestPath));
+	}
+
+	private void getDirectoryVerifyingChecksums(File localDirectory,
+			Path hadoopPath, ChecksumManifest checksums) throws IOException {
+		try {
+			copyDirectoryVerifyingChecksums(hadoopPath, localDirectory, "",
+					checksums);
+			for (String relativePath : checksums.getRelativePaths())
+				if (!new File(localDirectory, relativePath).isFile())
+					throw new ChecksumMismatchException("Missing file: "
+							+ relativePath);
+		} catch (IOException e) {
+			logger.error(did("Got directory from archive verifying checksums", e,
+					"Directory to match its checksums", "remote_path", hadoopPath,
+					"local_directory", localDirectory));
+			FileUtils.deleteQuietly(localDirectory);
+			throw e;
+		}
+	}
+
+	private void copyDirectoryVerifyingChecksums(Path hadoopDirectory,
+			File localDirectory, String relativePath, ChecksumManifest checksums)
+			throws IOException {
+		if (!localDirectory.mkdirs())
+			throw new IOException("Could not create directory: " + localDirectory);
+		for (FileStatus child : hadoopFileSystem.listStatus(hadoopDirectory)) {
+			String name = child.getPath().getName();
+			File localChild = new File(localDirectory, name);
+			if (child.isDir())
+				copyDirectoryVerifyingChecksums(child.getPath(), localChild,
+						relativePath + name + "/", checksums);
+			else
+				copyFileVerifyingChecksum(child.getPath(), localChild, relativePath
+						+ name, checksums);
+		}
+	}
+
+	/**
+	 * Files that are not in the manifest, like the other files in archive_meta,
+	 * are copied without being verified.
+	 */
+	private void copyFileVerifyingChecksum(Path hadoopFile, File localFile,
+			String relativePath, ChecksumManifest checksums) throws IOException {
+		InputStream in = hadoopFileSystem.open(hadoopFile);
+		if (checksums.contains(relativePath))
+			in = checksums.verifyingStream(in, relativePath);
+		try {
+			OutputStream out = new FileOutputStream(localFile);
+			try {
+				IOUtils.copy(in, out);
+			} finally {
+				out.close();
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
 	}
 
 	@Override
@@ -131,6 +335,11 @@ public class HadoopFileSystemArchive implements ArchiveFileSystem {
 			return Collections.emptyList();
 	}
 
+	@Override
+	public void deletePath(URI pathOnArchiveFileSystem) throws IOException {
+		deletePathRecursivly(createPathFromURI(pathOnArchiveFileSystem));
+	}
+
 	private Path createPathFromURI(URI uri) {
 		return new Path(uri);
 	}
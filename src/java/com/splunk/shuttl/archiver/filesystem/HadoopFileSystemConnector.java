@@ -0,0 +1,70 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Connects to hadoop file systems. The hadoop {@link Configuration} is created
+ * once and shared by all connections, since creating it parses the hadoop xml
+ * resources.<br/>
+ * <br/>
+ * Every connection gets its own {@link FileSystem} instead of the one hadoop
+ * caches per JVM, so closing a connection doesn't close the file system for
+ * everyone else that uses the same URI.
+ */
+public class HadoopFileSystemConnector implements ArchiveFileSystemConnector {
+
+	private final Configuration configuration;
+
+	public HadoopFileSystemConnector(Configuration configuration) {
+		this.configuration = configuration;
+	}
+
+	@Override
+	public ArchiveFileSystemConnection connect(URI uri) throws IOException {
+		return ArchiveFileSystemConnection.create(
+				FileSystem.get(uri, uncachedConfiguration(uri)),
+				new Path(uri.getPath()));
+	}
+
+	/**
+	 * Hadoop 0.20 has no FileSystem.newInstance(), but skips its cache for a
+	 * scheme when the cache is disabled for it in the configuration.
+	 */
+	private Configuration uncachedConfiguration(URI uri) {
+		Configuration uncached = new Configuration(configuration);
+		String scheme = uri.getScheme() != null ? uri.getScheme() : FileSystem
+				.getDefaultUri(configuration).getScheme();
+		uncached.setBoolean(getDisableCacheKey(scheme), true);
+		return uncached;
+	}
+
+	static String getDisableCacheKey(String scheme) {
+		return "fs." + scheme + ".impl.disable.cache";
+	}
+
+	/**
+	 * @return connector with the default hadoop configuration.
+	 */
+	public static HadoopFileSystemConnector create() {
+		return new HadoopFileSystemConnector(new Configuration());
+	}
+}
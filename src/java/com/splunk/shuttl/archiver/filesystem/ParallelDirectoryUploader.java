@@ -0,0 +1,286 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+/**
+ * Uploads a local directory to a hadoop {@link FileSystem} by copying its files
+ * on a bounded number of concurrent streams, instead of one file after another.
+ * The directory structure is created before any file is copied.<br/>
+ * Every copied file is recorded in a {@link TransferManifest} with the CRC32
+ * checksum that is computed while the file is streamed, and files that the
+ * manifest already has are not copied again.
+ */
+public class ParallelDirectoryUploader {
+
+	private static final Logger logger = Logger
+			.getLogger(ParallelDirectoryUploader.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final FileSystem hadoopFileSystem;
+	private final int streams;
+
+	/**
+	 * @param hadoopFileSystem
+	 *          to upload to.
+	 * @param streams
+	 *          maximum number of files that are copied at the same time.
+	 */
+	public ParallelDirectoryUploader(FileSystem hadoopFileSystem, int streams) {
+		if (streams < 1)
+			throw new IllegalArgumentException("Needs at least one stream, was: "
+					+ streams);
+		this.hadoopFileSystem = hadoopFileSystem;
+		this.streams = streams;
+	}
+
+	/**
+	 * Uploads the contents of a local directory to a remote directory, without
+	 * persisting what has been transferred.
+	 * 
+	 * @see #uploadDirectory(File, Path, TransferManifest)
+	 */
+	public void uploadDirectory(File localDirectory, Path remoteDirectory)
+			throws IOException {
+		uploadDirectory(localDirectory, remoteDirectory,
+				TransferManifest.createInMemory());
+	}
+
+	/**
+	 * Uploads the contents of a local directory to a remote directory. Files that
+	 * are recorded in the manifest, and exist remotely with the same length, are
+	 * not uploaded again. Remote files that don't exist locally are deleted.
+	 * 
+	 * The manifest is flushed when the uploads are done, whether they succeeded
+	 * or not.
+	 * 
+	 * @throws IOException
+	 *           if any of the files could not be uploaded. The files that were
+	 *           uploaded are left on the remote file system and in the manifest.
+	 */
+	public void uploadDirectory(File localDirectory, Path remoteDirectory,
+			TransferManifest manifest) throws IOException {
+		List<FileUpload> uploads = new ArrayList<FileUpload>();
+		createRemoteDirectoriesAndCollectUploads(localDirectory, remoteDirectory,
+				"", manifest, uploads);
+		sortLargestFirst(uploads);
+		if (uploads.isEmpty())
+			return;
+		try {
+			runUploads(uploads);
+		} catch (IOException e) {
+			flushAfterFailedUploads(manifest);
+			throw e;
+		}
+		manifest.flush();
+	}
+
+	/**
+	 * Keeps the files that were uploaded before the failure, without hiding the
+	 * failure if the manifest can't be flushed.
+	 */
+	private void flushAfterFailedUploads(TransferManifest manifest) {
+		try {
+			manifest.flush();
+		} catch (IOException e) {
+			logger.warn(warn("Flushed transfer manifest after failed uploads", e,
+					"Files uploaded before the failure will be uploaded again"));
+		}
+	}
+
+	private void createRemoteDirectoriesAndCollectUploads(File localDirectory,
+			Path remoteDirectory, String relativePath, TransferManifest manifest,
+			List<FileUpload> uploads) throws IOException {
+		hadoopFileSystem.mkdirs(remoteDirectory);
+		File[] children = localDirectory.listFiles();
+		if (children == null)
+			throw new IOException("Could not list files of directory: "
+					+ localDirectory);
+		deleteRemoteChildrenThatAreNotLocal(remoteDirectory, children);
+		for (File child : children) {
+			Path remoteChild = new Path(remoteDirectory, child.getName());
+			String relativeChildPath = relativePath + child.getName();
+			if (child.isDirectory())
+				createRemoteDirectoriesAndCollectUploads(child, remoteChild,
+						relativeChildPath + "/", manifest, uploads);
+			else if (!isAlreadyTransferred(child, remoteChild, relativeChildPath,
+					manifest))
+				uploads.add(new FileUpload(child, remoteChild, relativeChildPath,
+						manifest));
+		}
+	}
+
+	private void deleteRemoteChildrenThatAreNotLocal(Path remoteDirectory,
+			File[] localChildren) throws IOException {
+		FileStatus[] remoteChildren = hadoopFileSystem.listStatus(remoteDirectory);
+		if (remoteChildren == null)
+			return;
+		Set<String> localNames = new HashSet<String>();
+		for (File localChild : localChildren)
+			localNames.add(localChild.getName());
+		for (FileStatus remoteChild : remoteChildren)
+			if (!localNames.contains(remoteChild.getPath().getName()))
+				hadoopFileSystem.delete(remoteChild.getPath(), true);
+	}
+
+	private boolean isAlreadyTransferred(File localFile, Path remotePath,
+			String relativePath, TransferManifest manifest) throws IOException {
+		long length = localFile.length();
+		return manifest.isTransferred(relativePath, length)
+				&& hadoopFileSystem.exists(remotePath)
+				&& hadoopFileSystem.getFileStatus(remotePath).getLen() == length;
+	}
+
+	/**
+	 * Starting with the largest files keeps the streams busy until the end,
+	 * instead of ending with one large file on a single stream.
+	 */
+	private void sortLargestFirst(List<FileUpload> uploads) {
+		Collections.sort(uploads, new Comparator<FileUpload>() {
+			@Override
+			public int compare(FileUpload o1, FileUpload o2) {
+				return Long.valueOf(o2.localFile.length()).compareTo(
+						o1.localFile.length());
+			}
+		});
+	}
+
+	private void runUploads(List<FileUpload> uploads) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(streams,
+				uploads.size()));
+		try {
+			CompletionService<Void> completionService = new ExecutorCompletionService<Void>(
+					executor);
+			for (FileUpload upload : uploads)
+				completionService.submit(upload);
+			for (int i = 0; i < uploads.size(); i++)
+				waitForUpload(completionService);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void waitForUpload(CompletionService<Void> completionService)
+			throws IOException {
+		try {
+			completionService.take().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while uploading files");
+		} catch (ExecutionException e) {
+			throw asIOException(e.getCause());
+		}
+	}
+
+	private IOException asIOException(Throwable cause) {
+		if (cause instanceof IOException)
+			return (IOException) cause;
+		IOException ioException = new IOException("Failed to upload file");
+		ioException.initCause(cause);
+		return ioException;
+	}
+
+	private class FileUpload implements Callable<Void> {
+
+		private final File localFile;
+		private final Path remotePath;
+		private final String relativePath;
+		private final TransferManifest manifest;
+
+		public FileUpload(File localFile, Path remotePath, String relativePath,
+				TransferManifest manifest) {
+			this.localFile = localFile;
+			this.remotePath = remotePath;
+			this.relativePath = relativePath;
+			this.manifest = manifest;
+		}
+
+		@Override
+		public Void call() throws IOException {
+			try {
+				hadoopFileSystem.delete(remotePath, false);
+				CheckedInputStream in = new CheckedInputStream(new FileInputStream(
+						localFile), new CRC32());
+				try {
+					long length = copyToRemotePath(in);
+					manifest.markTransferred(relativePath, length, in.getChecksum()
+							.getValue());
+				} finally {
+					IOUtils.closeQuietly(in);
+				}
+				return null;
+			} catch (IOException e) {
+				logger.error(did("Uploaded file", e, "File to be uploaded",
+						"local_file", localFile, "remote_path", remotePath));
+				throw e;
+			}
+		}
+
+		private long copyToRemotePath(InputStream in) throws IOException {
+			OutputStream out = hadoopFileSystem.create(remotePath, true);
+			boolean copied = false;
+			try {
+				long length = copy(in, out);
+				out.close();
+				copied = true;
+				return length;
+			} finally {
+				if (!copied)
+					IOUtils.closeQuietly(out);
+			}
+		}
+
+		private long copy(InputStream in, OutputStream out) throws IOException {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long length = 0;
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+				length += read;
+			}
+			return length;
+		}
+	}
+}
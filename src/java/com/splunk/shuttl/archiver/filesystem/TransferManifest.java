@@ -0,0 +1,276 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+/**
+ * Records which files of a transfer have been completely copied to the tmp
+ * area of a hadoop {@link FileSystem}, so that a retried transfer only copies
+ * the files that are missing. The manifest is stored on the same file system
+ * as the transfer, next to the transferred path. A manifest without a path is
+ * kept in memory only.<br/>
+ * Transferred files are persisted in batches, every {@link #FLUSH_FILES}
+ * files or {@link #FLUSH_INTERVAL_MILLIS} milliseconds, and when
+ * {@link #flush()} is called at the end of a transfer. The manifest is written
+ * outside of the lock that records files, so that concurrent transfers don't
+ * wait for it.<br/>
+ * The CRC32 checksum of a file is recorded with its length, when it was
+ * computed during the transfer.
+ */
+public class TransferManifest {
+
+	private static final Logger logger = Logger
+			.getLogger(TransferManifest.class);
+
+	/**
+	 * Suffix appended to a transferred path to get the path of its manifest.
+	 */
+	public static final String MANIFEST_SUFFIX = ".transfer-manifest";
+
+	/**
+	 * Number of transferred files that are recorded before the manifest is
+	 * persisted.
+	 */
+	public static final int FLUSH_FILES = 64;
+
+	/**
+	 * Milliseconds after which a transferred file causes the manifest to be
+	 * persisted, even if there are fewer than {@link #FLUSH_FILES} new files.
+	 */
+	public static final long FLUSH_INTERVAL_MILLIS = 5000;
+
+	private static final String SEPARATOR = "\t";
+	private static final String CHECKSUM_SEPARATOR = ":";
+
+	private final FileSystem fileSystem;
+	private final Path manifestPath;
+	private final Map<String, Long> transferredFiles;
+	private final Map<String, Long> checksums;
+	private final Object writeLock;
+
+	private int unflushedFiles;
+	private long lastFlushMillis;
+
+	private TransferManifest(FileSystem fileSystem, Path manifestPath) {
+		this.fileSystem = fileSystem;
+		this.manifestPath = manifestPath;
+		this.transferredFiles = new HashMap<String, Long>();
+		this.checksums = new HashMap<String, Long>();
+		this.writeLock = new Object();
+		this.unflushedFiles = 0;
+		this.lastFlushMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return true if the file with the relative path and length has been
+	 *         completely transferred.
+	 */
+	public synchronized boolean isTransferred(String relativePath, long length) {
+		Long transferredLength = transferredFiles.get(relativePath);
+		return transferredLength != null && transferredLength == length;
+	}
+
+	/**
+	 * Records that the file with relative path and length was completely
+	 * transferred. The manifest is persisted when a batch of files is full.
+	 */
+	public void markTransferred(String relativePath, long length)
+			throws IOException {
+		boolean flush;
+		synchronized (this) {
+			transferredFiles.put(relativePath, length);
+			checksums.remove(relativePath);
+			unflushedFiles++;
+			flush = isTimeToFlush();
+		}
+		if (flush)
+			flush();
+	}
+
+	/**
+	 * Records that the file with relative path, length and CRC32 checksum was
+	 * completely transferred. The manifest is persisted when a batch of files is
+	 * full.
+	 */
+	public void markTransferred(String relativePath, long length,
+			long checksum) throws IOException {
+		boolean flush;
+		synchronized (this) {
+			checksums.put(relativePath, checksum);
+			transferredFiles.put(relativePath, length);
+			unflushedFiles++;
+			flush = isTimeToFlush();
+		}
+		if (flush)
+			flush();
+	}
+
+	private boolean isTimeToFlush() {
+		return manifestPath != null
+				&& (unflushedFiles >= FLUSH_FILES || System.currentTimeMillis()
+						- lastFlushMillis >= FLUSH_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * Persists the files that have been recorded since the manifest was last
+	 * persisted. Does nothing for a manifest that is kept in memory.
+	 */
+	public void flush() throws IOException {
+		if (manifestPath == null)
+			return;
+		synchronized (writeLock) {
+			String contents;
+			synchronized (this) {
+				if (unflushedFiles == 0)
+					return;
+				contents = getContents();
+				unflushedFiles = 0;
+				lastFlushMillis = System.currentTimeMillis();
+			}
+			write(contents);
+		}
+	}
+
+	/**
+	 * @return the CRC32 checksum of a transferred file, or null if it was not
+	 *         computed.
+	 */
+	public synchronized Long getChecksum(String relativePath) {
+		return checksums.get(relativePath);
+	}
+
+	private String getContents() {
+		StringBuilder contents = new StringBuilder();
+		for (Entry<String, Long> entry : transferredFiles.entrySet())
+			contents.append(getLengthColumn(entry.getKey(), entry.getValue()))
+					.append(SEPARATOR).append(entry.getKey()).append('\n');
+		return contents.toString();
+	}
+
+	private void write(String contents) throws IOException {
+		Writer writer = new OutputStreamWriter(fileSystem.create(manifestPath,
+				true), "UTF-8");
+		try {
+			writer.write(contents);
+		} finally {
+			IOUtils.closeQuietly(writer);
+		}
+	}
+
+	private String getLengthColumn(String relativePath, long length) {
+		Long checksum = checksums.get(relativePath);
+		return checksum == null ? Long.toString(length) : length
+				+ CHECKSUM_SEPARATOR + Long.toHexString(checksum);
+	}
+
+	/**
+	 * @return number of files recorded as transferred.
+	 */
+	public synchronized int getTransferredCount() {
+		return transferredFiles.size();
+	}
+
+	/**
+	 * Removes the persisted manifest.
+	 */
+	public void delete() throws IOException {
+		if (manifestPath != null)
+			fileSystem.delete(manifestPath, false);
+	}
+
+	/**
+	 * @return path to the manifest of a transferred path.
+	 */
+	public static Path getManifestPath(Path transferredPath) {
+		return transferredPath.suffix(MANIFEST_SUFFIX);
+	}
+
+	/**
+	 * @return true if there is a persisted manifest for the transferred path.
+	 */
+	public static boolean exists(FileSystem fileSystem, Path transferredPath)
+			throws IOException {
+		return fileSystem.exists(getManifestPath(transferredPath));
+	}
+
+	/**
+	 * Loads the manifest of a transferred path, or creates an empty one if there
+	 * is none. An empty manifest is persisted right away, so that a transfer that
+	 * is interrupted before its first file is done can still be resumed.
+	 */
+	public static TransferManifest load(FileSystem fileSystem,
+			Path transferredPath) throws IOException {
+		Path manifestPath = getManifestPath(transferredPath);
+		TransferManifest manifest = new TransferManifest(fileSystem, manifestPath);
+		manifest.readTransferredFiles();
+		if (manifest.getTransferredCount() == 0)
+			manifest.write("");
+		return manifest;
+	}
+
+	private void readTransferredFiles() throws IOException {
+		if (!fileSystem.exists(manifestPath))
+			return;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				fileSystem.open(manifestPath), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null)
+				addTransferredFile(line);
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+
+	private void addTransferredFile(String line) {
+		int separator = line.indexOf(SEPARATOR);
+		try {
+			String relativePath = line.substring(separator + 1);
+			String[] lengthAndChecksum = line.substring(0, separator).split(
+					CHECKSUM_SEPARATOR);
+			transferredFiles.put(relativePath,
+					Long.parseLong(lengthAndChecksum[0]));
+			if (lengthAndChecksum.length > 1)
+				checksums.put(relativePath,
+						Long.parseLong(lengthAndChecksum[1], 16));
+		} catch (RuntimeException e) {
+			logger.warn(warn("Read line of transfer manifest", e,
+					"Ignoring the line, which causes the file to be transferred again",
+					"line", line, "manifest", manifestPath));
+		}
+	}
+
+	/**
+	 * @return manifest that is kept in memory only.
+	 */
+	public static TransferManifest createInMemory() {
+		return new TransferManifest(null, null);
+	}
+}
@@ -0,0 +1,33 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.filesystem;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes content to an {@link OutputStream} opened by an
+ * {@link ArchiveFileSystem}, so that content can be archived without being
+ * staged on the local file system first.
+ */
+public interface WritesToStream {
+
+	/**
+	 * Writes all content to the stream. The stream may be closed by the
+	 * implementation, but does not have to be.
+	 */
+	void writeTo(OutputStream out) throws IOException;
+}
@@ -20,12 +20,15 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import com.splunk.shuttl.archiver.history.OperationLedger;
+import com.splunk.shuttl.archiver.history.OperationRecord;
+import com.splunk.shuttl.archiver.history.OperationType;
+import com.splunk.shuttl.archiver.history.StageTimer;
 import com.splunk.shuttl.archiver.listers.ArchivedIndexesLister;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.FileNotDirectoryException;
-import com.splunk.shuttl.archiver.model.IllegalBucketNameException;
 import com.splunk.shuttl.archiver.model.IllegalIndexException;
-import com.splunk.shuttl.archiver.thaw.BucketFilter;
+import com.splunk.shuttl.archiver.thaw.BucketIntervalIndex;
 import com.splunk.shuttl.archiver.thaw.SplunkSettings;
 
 /**
@@ -36,6 +39,7 @@ public class Flusher {
 	private final SplunkSettings splunkSettings;
 	private ArrayList<Bucket> flushedBuckets;
 	private ArchivedIndexesLister indexesLister;
+	private final OperationLedger operationLedger;
 
 	/**
 	 * @param splunkSettings
@@ -43,8 +47,18 @@ public class Flusher {
 	 */
 	public Flusher(SplunkSettings splunkSettings,
 			ArchivedIndexesLister indexesLister) {
+		this(splunkSettings, indexesLister, null);
+	}
+
+	/**
+	 * @param operationLedger
+	 *          to record every flushed bucket in, or null to not record them.
+	 */
+	public Flusher(SplunkSettings splunkSettings,
+			ArchivedIndexesLister indexesLister, OperationLedger operationLedger) {
 		this.splunkSettings = splunkSettings;
 		this.indexesLister = indexesLister;
+		this.operationLedger = operationLedger;
 		this.flushedBuckets = new ArrayList<Bucket>();
 	}
 
@@ -75,28 +89,31 @@ public class Flusher {
 	private void doFlush(String index, Date earliest, Date latest)
 			throws FileNotDirectoryException, IOException {
 		File thawLocation = splunkSettings.getThawLocation(index);
-		List<Bucket> buckets = ThawedBuckets.getBucketsFromThawLocation(index,
-				thawLocation);
-		List<Bucket> bucketsToFlush = filterByTimeRange(earliest, latest, buckets);
+		BucketIntervalIndex buckets = ThawedBuckets
+				.getBucketIntervalIndexFromThawLocation(index, thawLocation);
+		List<Bucket> bucketsToFlush = buckets.getBucketsWithinTimeRange(earliest,
+				latest);
 		for (Bucket b : bucketsToFlush) {
-			b.deleteBucket();
+			flushBucket(b);
 			flushedBuckets.add(b);
 		}
 	}
 
-	private List<Bucket> filterByTimeRange(Date earliest, Date latest,
-			List<Bucket> buckets) {
-		List<Bucket> filtered = new ArrayList<Bucket>();
-		for (Bucket b : buckets) {
-			try {
-				if (BucketFilter.isBucketWithinTimeRange(b, earliest, latest)) {
-					filtered.add(b);
-				}
-			} catch (IllegalBucketNameException e) {
-				// Do nothing.
-			}
+	private void flushBucket(Bucket bucket) throws IOException {
+		Long size = operationLedger != null ? bucket.getSize() : null;
+		StageTimer timer = new StageTimer();
+		boolean deleted = false;
+		try {
+			bucket.deleteBucket();
+			deleted = true;
+		} finally {
+			timer.endStage("delete");
+			if (operationLedger != null)
+				operationLedger.record(OperationRecord.create(timer,
+						OperationType.FLUSH, bucket.getIndex(), bucket.getName(),
+						bucket.getFormat() == null ? null : bucket.getFormat().name(),
+						size, deleted));
 		}
-		return filtered;
 	}
 
 	/**
@@ -16,18 +16,26 @@ package com.splunk.shuttl.archiver.flush;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.archiver.thaw.BucketIntervalIndex;
+import com.splunk.shuttl.archiver.thaw.BucketIntervalIndexCache;
 
 public class ThawedBuckets {
 
+	private static final BucketIntervalIndexCache intervalIndexes = new BucketIntervalIndexCache();
+
 	public static List<Bucket> getBucketsFromThawLocation(String index,
 			File thawLocation) {
+		return createBuckets(index, thawLocation.listFiles());
+	}
+
+	private static List<Bucket> createBuckets(String index, File[] files) {
 		List<Bucket> buckets = new ArrayList<Bucket>();
-		File[] files = thawLocation.listFiles();
 		if (files != null)
 			for (File f : files)
 				if (f.isDirectory())
@@ -36,4 +44,32 @@ public class ThawedBuckets {
 		return buckets;
 	}
 
+	/**
+	 * The index is built once per listing of the thaw location, and reused
+	 * until a file is added to or removed from it. Checking that only costs
+	 * listing the file names, without creating any buckets.
+	 * 
+	 * @return {@link BucketIntervalIndex} of the buckets in the thaw location.
+	 */
+	public static BucketIntervalIndex getBucketIntervalIndexFromThawLocation(
+			String index, File thawLocation) {
+		File[] files = thawLocation.listFiles();
+		List<String> version = getSortedNames(files);
+		List<String> key = Arrays.asList(index, thawLocation.getAbsolutePath());
+		BucketIntervalIndex intervalIndex = intervalIndexes.get(key, version);
+		if (intervalIndex == null) {
+			intervalIndex = BucketIntervalIndex.create(createBuckets(index, files));
+			intervalIndexes.put(key, version, intervalIndex);
+		}
+		return intervalIndex;
+	}
+
+	private static List<String> getSortedNames(File[] files) {
+		String[] names = new String[files != null ? files.length : 0];
+		for (int i = 0; i < names.length; i++)
+			names[i] = files[i].getName();
+		Arrays.sort(names);
+		return Arrays.asList(names);
+	}
+
 }
@@ -0,0 +1,140 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.history;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregated {@link OperationRecord}s of one time interval.
+ */
+public class OperationAggregate {
+
+	private static final double BYTES_PER_GIGABYTE = 1024 * 1024 * 1024;
+
+	private final long intervalStart;
+	private final Map<String, Long> stageTotalMillis;
+	private int count;
+	private int failures;
+	private long bytes;
+	private long[] totalMillis;
+	private double[] millisPerGigabyte;
+	private int sizedCount;
+
+	/**
+	 * @param intervalStart
+	 *          in milliseconds since epoch.
+	 */
+	public OperationAggregate(long intervalStart) {
+		this.intervalStart = intervalStart;
+		this.stageTotalMillis = new LinkedHashMap<String, Long>();
+		this.totalMillis = new long[8];
+		this.millisPerGigabyte = new double[8];
+	}
+
+	/**
+	 * Adds a record to the aggregate.
+	 */
+	public void add(OperationRecord record) {
+		if (count == totalMillis.length)
+			totalMillis = Arrays.copyOf(totalMillis, count * 2);
+		long millis = record.getTotalMillis();
+		totalMillis[count++] = millis;
+		if (!record.isSuccessful())
+			failures++;
+		if (record.getBytes() > 0) {
+			bytes += record.getBytes();
+			if (sizedCount == millisPerGigabyte.length)
+				millisPerGigabyte = Arrays.copyOf(millisPerGigabyte, sizedCount * 2);
+			millisPerGigabyte[sizedCount++] = millis
+					/ (record.getBytes() / BYTES_PER_GIGABYTE);
+		}
+		for (Map.Entry<String, Long> stage : record.getStageMillis().entrySet()) {
+			Long total = stageTotalMillis.get(stage.getKey());
+			stageTotalMillis.put(stage.getKey(), total == null ? stage.getValue()
+					: total + stage.getValue());
+		}
+	}
+
+	public long getIntervalStart() {
+		return intervalStart;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return sum of the known bucket sizes.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getMeanMillis() {
+		long sum = 0;
+		for (int i = 0; i < count; i++)
+			sum += totalMillis[i];
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * @param percentile
+	 *          between 0 and 1.
+	 * @return the operation duration that the percentile of the operations took
+	 *         at most.
+	 */
+	public long getPercentileMillis(double percentile) {
+		if (count == 0)
+			return 0;
+		long[] sorted = Arrays.copyOf(totalMillis, count);
+		Arrays.sort(sorted);
+		return sorted[getRank(percentile, count)];
+	}
+
+	/**
+	 * @return the duration per gigabyte that the percentile of the operations on
+	 *         buckets with known sizes took at most.
+	 */
+	public double getPercentileMillisPerGigabyte(double percentile) {
+		if (sizedCount == 0)
+			return 0;
+		double[] sorted = Arrays.copyOf(millisPerGigabyte, sizedCount);
+		Arrays.sort(sorted);
+		return sorted[getRank(percentile, sizedCount)];
+	}
+
+	private static int getRank(double percentile, int size) {
+		int rank = (int) Math.ceil(percentile * size) - 1;
+		return Math.min(size - 1, Math.max(0, rank));
+	}
+
+	/**
+	 * @return mean duration of each stage, over the operations in the
+	 *         aggregate.
+	 */
+	public Map<String, Long> getStageMeanMillis() {
+		Map<String, Long> means = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Long> stage : stageTotalMillis.entrySet())
+			means.put(stage.getKey(), stage.getValue() / count);
+		return means;
+	}
+}
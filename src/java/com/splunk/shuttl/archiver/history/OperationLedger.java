@@ -0,0 +1,213 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.history;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+
+/**
+ * Append-only ledger of archive, thaw and flush operations on the local file
+ * system, with one {@link OperationRecord} per line. The records are appended
+ * to a segment file per day, so that queries only read the days they ask
+ * about.<br/>
+ * <br/>
+ * Failing to record an operation is logged, but doesn't fail the operation.
+ */
+public class OperationLedger {
+
+	private static final Logger logger = Logger.getLogger(OperationLedger.class);
+
+	static final String SEGMENT_EXTENSION = ".ledger";
+	private static final String SEGMENT_DATE_FORMAT = "yyyy-MM-dd";
+	private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+	private static final String ENCODING = "UTF-8";
+
+	private static OperationLedger instance;
+
+	private final File directory;
+
+	/**
+	 * @param directory
+	 *          where the segment files are stored.
+	 */
+	public OperationLedger(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Appends a record to the segment of the day the operation started.
+	 */
+	public synchronized void record(OperationRecord record) {
+		File segment = new File(directory, createDateFormat().format(
+				record.getTime())
+				+ SEGMENT_EXTENSION);
+		Writer writer = null;
+		try {
+			writer = new OutputStreamWriter(new FileOutputStream(segment, true),
+					ENCODING);
+			writer.write(record.toLine() + "\n");
+			writer.flush();
+		} catch (IOException e) {
+			logger.warn(warn("Recorded operation in ledger", e,
+					"The operation will be missing from the history", "record",
+					record, "segment", segment));
+		} finally {
+			IOUtils.closeQuietly(writer);
+		}
+	}
+
+	/**
+	 * Aggregates the records of operations of a type into intervals.
+	 * 
+	 * @param index
+	 *          to aggregate operations of, or null for all indexes.
+	 * @param from
+	 *          earliest start time of the operations, in milliseconds since
+	 *          epoch.
+	 * @param to
+	 *          latest start time of the operations, in milliseconds since epoch.
+	 * @param interval
+	 *          length of the intervals in milliseconds. Intervals start at
+	 *          multiples of the interval since epoch.
+	 * @return aggregates of the intervals with operations, ordered by time.
+	 */
+	public List<OperationAggregate> aggregate(OperationType type, String index,
+			long from, long to, long interval) {
+		if (interval <= 0)
+			throw new IllegalArgumentException("Interval must be positive, was: "
+					+ interval);
+		Map<Long, OperationAggregate> aggregates = new TreeMap<Long, OperationAggregate>();
+		for (File segment : getSegmentsBetween(from, to))
+			aggregateSegment(segment, type, index, from, to, interval, aggregates);
+		return new ArrayList<OperationAggregate>(aggregates.values());
+	}
+
+	private List<File> getSegmentsBetween(long from, long to) {
+		List<File> segments = new ArrayList<File>();
+		File[] files = directory.listFiles();
+		if (files == null)
+			return segments;
+		SimpleDateFormat dateFormat = createDateFormat();
+		for (File file : files) {
+			String name = file.getName();
+			if (!name.endsWith(SEGMENT_EXTENSION))
+				continue;
+			try {
+				long dayStart = dateFormat.parse(
+						name.substring(0, name.length() - SEGMENT_EXTENSION.length()))
+						.getTime();
+				if (dayStart <= to && dayStart + MILLIS_PER_DAY > from)
+					segments.add(file);
+			} catch (ParseException e) {
+				logger.debug(happened("Skipping file that is not a ledger segment",
+						"file", file));
+			}
+		}
+		return segments;
+	}
+
+	private void aggregateSegment(File segment, OperationType type,
+			String index, long from, long to, long interval,
+			Map<Long, OperationAggregate> aggregates) {
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(
+					segment), ENCODING));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				OperationRecord record = parseRecord(segment, line);
+				if (record != null && isQueried(record, type, index, from, to))
+					getAggregate(aggregates, record.getTime(), interval).add(record);
+			}
+		} catch (IOException e) {
+			logger.warn(warn("Read ledger segment", e,
+					"Its operations will be missing from the history", "segment",
+					segment));
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+
+	private OperationRecord parseRecord(File segment, String line) {
+		try {
+			return OperationRecord.parse(line);
+		} catch (RuntimeException e) {
+			logger.warn(warn("Parsed ledger record", e, "Skipping the line",
+					"segment", segment, "line", line));
+			return null;
+		}
+	}
+
+	private static boolean isQueried(OperationRecord record, OperationType type,
+			String index, long from, long to) {
+		return record.getType() == type
+				&& (index == null || index.equals(record.getIndex()))
+				&& record.getTime() >= from && record.getTime() <= to;
+	}
+
+	private static OperationAggregate getAggregate(
+			Map<Long, OperationAggregate> aggregates, long time, long interval) {
+		long intervalStart = time - time % interval;
+		OperationAggregate aggregate = aggregates.get(intervalStart);
+		if (aggregate == null)
+			aggregates.put(intervalStart, aggregate = new OperationAggregate(
+					intervalStart));
+		return aggregate;
+	}
+
+	private static SimpleDateFormat createDateFormat() {
+		SimpleDateFormat dateFormat = new SimpleDateFormat(SEGMENT_DATE_FORMAT);
+		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return dateFormat;
+	}
+
+	/**
+	 * @return ledger in the configured operation ledger directory.
+	 */
+	public static OperationLedger create() {
+		return new OperationLedger(
+				LocalFileSystemPaths.create().getOperationLedgerDirectory());
+	}
+
+	/**
+	 * @return the ledger shared by the Shuttl server.
+	 */
+	public static synchronized OperationLedger getSharedInstance() {
+		if (instance == null)
+			instance = create();
+		return instance;
+	}
+}
@@ -0,0 +1,170 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.history;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of one archive, thaw or flush operation on a bucket, as stored in
+ * the {@link OperationLedger}.
+ */
+public class OperationRecord {
+
+	static final String SEPARATOR = "\t";
+	private static final String NONE = "-";
+	private static final String SUCCESS = "OK";
+	private static final String FAILURE = "FAILED";
+
+	private final long time;
+	private final OperationType type;
+	private final String index;
+	private final String bucketName;
+	private final String format;
+	private final long bytes;
+	private final Map<String, Long> stageMillis;
+	private final boolean successful;
+
+	/**
+	 * @param time
+	 *          when the operation started, in milliseconds since epoch.
+	 * @param format
+	 *          of the bucket, or null if it's unknown.
+	 * @param bytes
+	 *          size of the bucket, or -1 if it's unknown.
+	 * @param stageMillis
+	 *          duration of each stage of the operation in milliseconds.
+	 */
+	public OperationRecord(long time, OperationType type, String index,
+			String bucketName, String format, long bytes,
+			Map<String, Long> stageMillis, boolean successful) {
+		this.time = time;
+		this.type = type;
+		this.index = index;
+		this.bucketName = bucketName;
+		this.format = format;
+		this.bytes = bytes;
+		this.stageMillis = Collections
+				.unmodifiableMap(new LinkedHashMap<String, Long>(stageMillis));
+		this.successful = successful;
+	}
+
+	/**
+	 * Record of an operation timed with a {@link StageTimer}.
+	 * 
+	 * @param bytes
+	 *          size of the bucket, or null if it's unknown.
+	 */
+	public static OperationRecord create(StageTimer timer, OperationType type,
+			String index, String bucketName, String format, Long bytes,
+			boolean successful) {
+		return new OperationRecord(timer.getStartTime(), type, index, bucketName,
+				format, bytes == null ? -1 : bytes, timer.getStageMillis(),
+				successful);
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public OperationType getType() {
+		return type;
+	}
+
+	public String getIndex() {
+		return index;
+	}
+
+	public String getBucketName() {
+		return bucketName;
+	}
+
+	/**
+	 * @return format of the bucket, or null if it's unknown.
+	 */
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return size of the bucket, or -1 if it's unknown.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	public Map<String, Long> getStageMillis() {
+		return stageMillis;
+	}
+
+	/**
+	 * @return sum of the stage durations.
+	 */
+	public long getTotalMillis() {
+		long total = 0;
+		for (long millis : stageMillis.values())
+			total += millis;
+		return total;
+	}
+
+	public boolean isSuccessful() {
+		return successful;
+	}
+
+	/**
+	 * @return the record as one line, without line separator.
+	 */
+	public String toLine() {
+		StringBuilder stages = new StringBuilder();
+		for (Map.Entry<String, Long> stage : stageMillis.entrySet()) {
+			if (stages.length() > 0)
+				stages.append(',');
+			stages.append(stage.getKey()).append('=').append(stage.getValue());
+		}
+		return time + SEPARATOR + type + SEPARATOR + index + SEPARATOR
+				+ bucketName + SEPARATOR + (format == null ? NONE : format)
+				+ SEPARATOR + bytes + SEPARATOR + (successful ? SUCCESS : FAILURE)
+				+ SEPARATOR + (stages.length() == 0 ? NONE : stages);
+	}
+
+	/**
+	 * @return record parsed from a line written by {@link #toLine()}.
+	 * @throws IllegalArgumentException
+	 *           if the line is not a record.
+	 */
+	public static OperationRecord parse(String line) {
+		String[] columns = line.split(SEPARATOR, -1);
+		if (columns.length != 8)
+			throw new IllegalArgumentException("Not an operation record: " + line);
+		Map<String, Long> stageMillis = new LinkedHashMap<String, Long>();
+		if (!columns[7].equals(NONE))
+			for (String stage : columns[7].split(",")) {
+				int equals = stage.lastIndexOf('=');
+				stageMillis.put(stage.substring(0, equals),
+						Long.parseLong(stage.substring(equals + 1)));
+			}
+		return new OperationRecord(Long.parseLong(columns[0]),
+				OperationType.valueOf(columns[1]), columns[2], columns[3],
+				columns[4].equals(NONE) ? null : columns[4],
+				Long.parseLong(columns[5]), stageMillis, columns[6].equals(SUCCESS));
+	}
+
+	@Override
+	public String toString() {
+		return "OperationRecord [" + toLine().replace(SEPARATOR, " ") + "]";
+	}
+}
@@ -0,0 +1,74 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.history;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times the stages of an operation, one after the other, for an
+ * {@link OperationRecord}.
+ */
+public class StageTimer {
+
+	private final long startTime;
+	private final Map<String, Long> stageMillis;
+	private long lapStartNanos;
+
+	public StageTimer() {
+		this.startTime = System.currentTimeMillis();
+		this.stageMillis = new LinkedHashMap<String, Long>();
+		this.lapStartNanos = System.nanoTime();
+	}
+
+	/**
+	 * Ends a stage that started when the previous stage ended, or when the timer
+	 * was created. A stage that is ended more than once gets the sum of its
+	 * durations.
+	 */
+	public synchronized void endStage(String stage) {
+		long now = System.nanoTime();
+		long millis = (now - lapStartNanos) / (1000 * 1000);
+		Long previous = stageMillis.get(stage);
+		stageMillis.put(stage, previous == null ? millis : previous + millis);
+		lapStartNanos = now;
+	}
+
+	/**
+	 * Restarts the timing without ending a stage, for skipping time that is not
+	 * part of any stage.
+	 */
+	public synchronized void restart() {
+		lapStartNanos = System.nanoTime();
+	}
+
+	/**
+	 * @return when the timer was created, in milliseconds since epoch.
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return duration of each ended stage in milliseconds, in the order they
+	 *         were ended.
+	 */
+	public synchronized Map<String, Long> getStageMillis() {
+		return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(
+				stageMillis));
+	}
+}
@@ -24,18 +24,21 @@ import org.apache.log4j.Logger;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.archive.UnknownBucketFormatException;
 import com.splunk.shuttl.archiver.importexport.csv.CsvBucketCreator;
+import com.splunk.shuttl.archiver.importexport.csv.CsvExportMode;
 import com.splunk.shuttl.archiver.importexport.csv.CsvExporter;
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.BucketFactory;
 
 /**
- * For exporting a {@link Bucket} to {@link BucketFormat#CSV}, since it's
- * currently the only other format to export to.
+ * For exporting a {@link Bucket} to {@link BucketFormat#CSV} or
+ * {@link BucketFormat#SPLUNK_BUCKET_COMPRESSED}.
  */
 public class BucketExporter {
 
 	private final static Logger logger = Logger.getLogger(BucketExporter.class);
 	private final CsvExporter csvExporter;
 	private final CsvBucketCreator csvBucketCreator;
+	private final CsvExportMode csvExportMode;
 
 	/**
 	 * @param csvExporter
@@ -45,8 +48,19 @@ public class BucketExporter {
 	 */
 	public BucketExporter(CsvExporter csvExporter,
 			CsvBucketCreator csvBucketCreator) {
+		this(csvExporter, csvBucketCreator, CsvExportMode.FILE);
+	}
+
+	/**
+	 * @param csvExportMode
+	 *          if not {@link CsvExportMode#FILE}, the csv is exported while the
+	 *          bucket is transferred instead.
+	 */
+	public BucketExporter(CsvExporter csvExporter,
+			CsvBucketCreator csvBucketCreator, CsvExportMode csvExportMode) {
 		this.csvExporter = csvExporter;
 		this.csvBucketCreator = csvBucketCreator;
+		this.csvExportMode = csvExportMode;
 	}
 
 	/**
@@ -62,6 +76,26 @@ public class BucketExporter {
 			return bucket;
 	}
 
+	/**
+	 * @return the {@link Bucket} of a finished export to the new format, that an
+	 *         earlier archiving attempt left on the local disk, or null if there
+	 *         is none.
+	 */
+	public Bucket getEarlierExport(Bucket bucket, BucketFormat newFormat) {
+		if (!isCsvExportedToFile(bucket, newFormat))
+			return null;
+		File csvFile = csvExporter.getEarlierExport(bucket);
+		if (csvFile == null)
+			return null;
+		return csvBucketCreator.createBucketWithCsvFile(csvFile, bucket);
+	}
+
+	private boolean isCsvExportedToFile(Bucket bucket, BucketFormat newFormat) {
+		return BucketFormat.SPLUNK_BUCKET.equals(bucket.getFormat())
+				&& BucketFormat.CSV.equals(newFormat)
+				&& csvExportMode.equals(CsvExportMode.FILE);
+	}
+
 	private void logAndThrowUnknownFormatException(Bucket bucket,
 			BucketFormat newFormat) {
 		logger.debug(warn("Attempted to export bucket to newFormat",
@@ -78,21 +112,51 @@ public class BucketExporter {
 		if (bucket.getFormat().equals(BucketFormat.SPLUNK_BUCKET)
 				&& newFormat.equals(BucketFormat.CSV))
 			return getBucketInCsvFormat(bucket);
+		else if (bucket.getFormat().equals(BucketFormat.SPLUNK_BUCKET)
+				&& newFormat.equals(BucketFormat.SPLUNK_BUCKET_COMPRESSED))
+			return getBucketInCompressedFormat(bucket);
 		else
 			throw new UnsupportedOperationException();
 	}
 
 	private Bucket getBucketInCsvFormat(Bucket bucket) {
+		if (!csvExportMode.equals(CsvExportMode.FILE))
+			return getBucketWithStreamedFormat(bucket, BucketFormat.CSV);
 		File csvFile = csvExporter.exportBucketToCsv(bucket);
 		return csvBucketCreator.createBucketWithCsvFile(csvFile, bucket);
 	}
 
+	private Bucket getBucketInCompressedFormat(Bucket bucket) {
+		return getBucketWithStreamedFormat(bucket,
+				BucketFormat.SPLUNK_BUCKET_COMPRESSED);
+	}
+
+	/**
+	 * Streamed formats are created while the bucket is transferred to the
+	 * archive, so the returned bucket is the same directory with the new format.
+	 * Nothing is written to the local disk.
+	 */
+	private Bucket getBucketWithStreamedFormat(Bucket bucket,
+			BucketFormat format) {
+		return BucketFactory.createBucketWithIndexDirectoryAndSize(
+				bucket.getIndex(), bucket.getDirectory(), format, bucket.getSize());
+	}
+
 	/**
 	 * @return an instance of the {@link BucketExporter}
 	 */
 	public static BucketExporter create(CsvExporter csvExporter) {
-		return new BucketExporter(csvExporter,
-				new CsvBucketCreator());
+		return create(csvExporter, CsvExportMode.FILE);
+	}
+
+	/**
+	 * @return an instance of the {@link BucketExporter} exporting csv with the
+	 *         {@link CsvExportMode}.
+	 */
+	public static BucketExporter create(CsvExporter csvExporter,
+			CsvExportMode csvExportMode) {
+		return new BucketExporter(csvExporter, new CsvBucketCreator(),
+				csvExportMode);
 	}
 
 }
@@ -16,7 +16,9 @@ package com.splunk.shuttl.archiver.importexport;
 
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.importexport.csv.CsvImporter;
+import com.splunk.shuttl.archiver.metrics.PipelineStage;
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.BucketFactory;
 
 /**
  * Restores a {@link Bucket} that's in any {@link BucketFormat} to
@@ -40,14 +42,38 @@ public class BucketImporter {
 	 * @return bucket in {@link BucketFormat#SPLUNK_BUCKET}
 	 */
 	public Bucket restoreToSplunkBucketFormat(Bucket bucket) {
+		long start = System.nanoTime();
+		try {
+			Bucket restored = restore(bucket);
+			PipelineStage.IMPORT.succeeded(start, null);
+			return restored;
+		} catch (RuntimeException e) {
+			PipelineStage.IMPORT.failed(start);
+			throw e;
+		}
+	}
+
+	private Bucket restore(Bucket bucket) {
 		if (bucket.getFormat().equals(BucketFormat.SPLUNK_BUCKET))
 			return bucket;
 		else if (bucket.getFormat().equals(BucketFormat.CSV))
 			return csvImporter.importBucketFromCsv(bucket);
+		else if (bucket.getFormat().equals(BucketFormat.SPLUNK_BUCKET_COMPRESSED))
+			return getDecompressedBucket(bucket);
 		else
 			throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * A compressed bucket is decompressed when it's thawed, so it only needs its
+	 * format changed.
+	 */
+	private Bucket getDecompressedBucket(Bucket bucket) {
+		return BucketFactory.createBucketWithIndexDirectoryAndSize(
+				bucket.getIndex(), bucket.getDirectory(), BucketFormat.SPLUNK_BUCKET,
+				bucket.getSize());
+	}
+
 	/**
 	 * Convenience method for creating an instance.
 	 */
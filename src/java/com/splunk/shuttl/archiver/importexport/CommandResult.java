@@ -0,0 +1,44 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exit code and standard out of a command executed with the
+ * {@link ShellExecutor}.
+ */
+public class CommandResult {
+
+	private final int exitCode;
+	private final List<String> stdOut;
+
+	public CommandResult(int exitCode, List<String> stdOut) {
+		this.exitCode = exitCode;
+		this.stdOut = new ArrayList<String>(stdOut);
+	}
+
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * @return the lines the command wrote to standard out.
+	 */
+	public List<String> getStdOut() {
+		return new ArrayList<String>(stdOut);
+	}
+}
@@ -16,7 +16,11 @@ package com.splunk.shuttl.archiver.importexport;
 
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -28,7 +32,10 @@ import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 /**
- * Executes a command and waits for it to finish.
+ * Executes a command and waits for it to finish. The output of the command is
+ * drained asynchronously while waiting, so that a command can't block on a
+ * full pipe. Nothing is kept between executions, so commands can be executed
+ * concurrently with the same executor.
  */
 public class ShellExecutor {
 
@@ -36,8 +43,6 @@ public class ShellExecutor {
 
 	private final Runtime runtime;
 
-	private Process process;
-
 	public ShellExecutor(Runtime runtime) {
 		this.runtime = runtime;
 	}
@@ -48,8 +53,101 @@ public class ShellExecutor {
 	 * @return exit code of the executed command.
 	 */
 	public int executeCommand(Map<String, String> env, List<String> command) {
-		process = runCommand(command, env);
-		return waitForProcessToExit();
+		return execute(env, command).getExitCode();
+	}
+
+	/**
+	 * @param environment
+	 *          variables to run with.
+	 * @return exit code and standard out of the executed command.
+	 */
+	public CommandResult execute(Map<String, String> env, List<String> command) {
+		Process process = runCommand(command, env);
+		ByteArrayOutputStream stdOut = new ByteArrayOutputStream();
+		Thread stdOutDrainer = startDraining(process.getInputStream(), stdOut);
+		Thread stdErrDrainer = startDrainingStdErr(process, command);
+		int exit = waitForProcessToExit(process);
+		joinDrainer(stdOutDrainer);
+		joinDrainer(stdErrDrainer);
+		return new CommandResult(exit, readLines(stdOut));
+	}
+
+	/**
+	 * Executes a command and copies everything it writes to standard out to the
+	 * specified stream while it's running. Standard error is drained
+	 * asynchronously. The specified stream is not closed.
+	 * 
+	 * @param environment
+	 *          variables to run with.
+	 * @param out
+	 *          where the standard out of the command is written.
+	 * @return exit code of the executed command.
+	 * @throws IOException
+	 *           if the standard out could not be written to the stream. The
+	 *           process is destroyed.
+	 */
+	public int executeCommandWritingStdOutTo(Map<String, String> env,
+			List<String> command, OutputStream out) throws IOException {
+		Process process = runCommand(command, env);
+		Thread stdErrDrainer = startDrainingStdErr(process, command);
+		try {
+			IOUtils.copyLarge(process.getInputStream(), out);
+		} catch (IOException e) {
+			logger.error(did("Copied standard out of command to stream", e,
+					"To copy all of the output", "command", command));
+			process.destroy();
+			throw e;
+		}
+		int exit = waitForProcessToExit(process);
+		joinDrainer(stdErrDrainer);
+		return exit;
+	}
+
+	/**
+	 * Executes a command and copies the specified stream to its standard in
+	 * while it's running. Standard in is closed when the stream has been
+	 * copied, and standard out and standard error are drained asynchronously.
+	 * The specified stream is not closed.
+	 *
+	 * @param environment
+	 *          variables to run with.
+	 * @param in
+	 *          what's written to the standard in of the command.
+	 * @return exit code of the executed command.
+	 * @throws IOException
+	 *           if the stream could not be copied to the standard in. The
+	 *           process is destroyed.
+	 */
+	public int executeCommandReadingStdInFrom(Map<String, String> env,
+			List<String> command, InputStream in) throws IOException {
+		return executeReadingStdInFrom(env, command, in).getExitCode();
+	}
+
+	/**
+	 * @return exit code and standard out of the executed command.
+	 * @see #executeCommandReadingStdInFrom(Map, List, InputStream)
+	 */
+	public CommandResult executeReadingStdInFrom(Map<String, String> env,
+			List<String> command, InputStream in) throws IOException {
+		Process process = runCommand(command, env);
+		ByteArrayOutputStream stdOut = new ByteArrayOutputStream();
+		Thread stdOutDrainer = startDraining(process.getInputStream(), stdOut);
+		Thread stdErrDrainer = startDrainingStdErr(process, command);
+		OutputStream stdIn = process.getOutputStream();
+		try {
+			IOUtils.copyLarge(in, stdIn);
+			stdIn.close();
+		} catch (IOException e) {
+			logger.error(did("Copied stream to standard in of command", e,
+					"To copy all of the stream", "command", command));
+			process.destroy();
+			IOUtils.closeQuietly(stdIn);
+			throw e;
+		}
+		int exit = waitForProcessToExit(process);
+		joinDrainer(stdOutDrainer);
+		joinDrainer(stdErrDrainer);
+		return new CommandResult(exit, readLines(stdOut));
 	}
 
 	private Process runCommand(List<String> command, Map<String, String> env) {
@@ -74,7 +172,58 @@ public class ShellExecutor {
 		return kvs;
 	}
 
-	private int waitForProcessToExit() {
+	private Thread startDrainingStdErr(Process process,
+			final List<String> command) {
+		final ByteArrayOutputStream stdErr = new ByteArrayOutputStream();
+		final InputStream errorStream = process.getErrorStream();
+		Thread drainer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				drain(errorStream, stdErr);
+				if (stdErr.size() > 0)
+					logger.debug(happened("Command wrote to standard error",
+							"command", command, "std_err", stdErr.toString().trim()));
+			}
+		}, "shell-executor-stderr");
+		drainer.setDaemon(true);
+		drainer.start();
+		return drainer;
+	}
+
+	private Thread startDraining(final InputStream in, final OutputStream out) {
+		Thread drainer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				drain(in, out);
+			}
+		}, "shell-executor-stdout");
+		drainer.setDaemon(true);
+		drainer.start();
+		return drainer;
+	}
+
+	private void drain(InputStream in, OutputStream out) {
+		try {
+			IOUtils.copy(in, out);
+		} catch (IOException e) {
+			logger.debug(did("Drained output of a command", e,
+					"To read the output until the command exited"));
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	private void joinDrainer(Thread drainer) {
+		try {
+			drainer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private int waitForProcessToExit(Process process) {
 		try {
 			return process.waitFor();
 		} catch (InterruptedException e) {
@@ -91,12 +240,9 @@ public class ShellExecutor {
 		return new ShellExecutor(Runtime.getRuntime());
 	}
 
-	/**
-	 * @return
-	 */
-	public List<String> getStdOut() {
+	private static List<String> readLines(ByteArrayOutputStream out) {
 		try {
-			return IOUtils.readLines(process.getInputStream());
+			return IOUtils.readLines(new ByteArrayInputStream(out.toByteArray()));
 		} catch (IOException e) {
 			return Collections.emptyList();
 		}
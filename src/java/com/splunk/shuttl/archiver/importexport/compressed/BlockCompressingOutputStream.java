@@ -0,0 +1,242 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.importexport.compressed;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Compresses everything written to it in fixed size blocks. Each block is
+ * deflated independently on a thread pool, so that all cores can be used while
+ * the blocks are still written to the underlying stream in order.<br/>
+ * The number of blocks in flight is bounded, which keeps memory usage at about
+ * {@code blockSize * threads * 2}.<br/>
+ * <br/>
+ * Stream layout: {@code MAGIC, VERSION}, followed by frames of
+ * {@code [uncompressed length][crc32][compressed length][bytes]}, terminated by
+ * a frame with uncompressed length 0. Read it with
+ * {@link BlockDecompressingInputStream}.
+ */
+public class BlockCompressingOutputStream extends OutputStream {
+
+	static final int MAGIC = 0x53484c42;
+	static final int VERSION = 1;
+	static final int END_OF_FRAMES = 0;
+
+	public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	private final DataOutputStream out;
+	private final int blockSize;
+	private final int maxBlocksInFlight;
+	private final ExecutorService executor;
+	private final LinkedList<Future<CompressedBlock>> blocksInFlight;
+
+	private byte[] buffer;
+	private int count;
+	private boolean closed;
+
+	/**
+	 * @param out
+	 *          to write the compressed frames to. Is closed when this stream is
+	 *          closed.
+	 * @param blockSize
+	 *          number of uncompressed bytes in each block.
+	 * @param threads
+	 *          number of blocks that are compressed at the same time.
+	 */
+	public BlockCompressingOutputStream(OutputStream out, int blockSize,
+			int threads) throws IOException {
+		if (blockSize < 1 || threads < 1)
+			throw new IllegalArgumentException("Block size and threads must be "
+					+ "positive. Was block size: " + blockSize + ", threads: " + threads);
+		this.out = new DataOutputStream(out);
+		this.blockSize = blockSize;
+		this.maxBlocksInFlight = threads * 2;
+		this.executor = Executors.newFixedThreadPool(threads);
+		this.blocksInFlight = new LinkedList<Future<CompressedBlock>>();
+		this.buffer = new byte[blockSize];
+		this.count = 0;
+		this.closed = false;
+		writeHeader();
+	}
+
+	private void writeHeader() throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		throwExceptionIfClosed();
+		buffer[count++] = (byte) b;
+		if (count == blockSize)
+			submitBlock();
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		throwExceptionIfClosed();
+		while (len > 0) {
+			int n = Math.min(len, blockSize - count);
+			System.arraycopy(b, off, buffer, count, n);
+			count += n;
+			off += n;
+			len -= n;
+			if (count == blockSize)
+				submitBlock();
+		}
+	}
+
+	private void throwExceptionIfClosed() throws IOException {
+		if (closed)
+			throw new IOException("Stream is closed.");
+	}
+
+	private void submitBlock() throws IOException {
+		blocksInFlight.add(executor.submit(new CompressBlock(buffer, count)));
+		buffer = new byte[blockSize];
+		count = 0;
+		while (blocksInFlight.size() > maxBlocksInFlight)
+			writeFrame(blocksInFlight.removeFirst());
+	}
+
+	private void writeFrame(Future<CompressedBlock> future) throws IOException {
+		CompressedBlock block = getCompressedBlock(future);
+		out.writeInt(block.uncompressedLength);
+		out.writeInt(block.crc);
+		out.writeInt(block.data.length);
+		out.write(block.data);
+	}
+
+	private CompressedBlock getCompressedBlock(Future<CompressedBlock> future)
+			throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while compressing block.", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Could not compress block.", e.getCause());
+		}
+	}
+
+	/**
+	 * Only flushes the frames that are already compressed. A partial block is
+	 * not written until it's full or the stream is closed, since small blocks
+	 * compress poorly.
+	 */
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Compresses the remaining bytes, writes the end of the frames and closes
+	 * the underlying stream. Aborts if the frames could not be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		boolean ended = false;
+		try {
+			if (count > 0)
+				submitBlock();
+			while (!blocksInFlight.isEmpty())
+				writeFrame(blocksInFlight.removeFirst());
+			out.writeInt(END_OF_FRAMES);
+			ended = true;
+		} finally {
+			if (!ended)
+				abort();
+		}
+		closed = true;
+		executor.shutdownNow();
+		out.close();
+	}
+
+	/**
+	 * Closes the underlying stream without writing the remaining bytes or the
+	 * end of the frames, for when writing failed. A reader fails on the
+	 * truncated stream, instead of reading it as complete.
+	 */
+	public void abort() {
+		if (closed)
+			return;
+		closed = true;
+		executor.shutdownNow();
+		blocksInFlight.clear();
+		IOUtils.closeQuietly(out);
+	}
+
+	private static class CompressBlock implements Callable<CompressedBlock> {
+
+		private final byte[] block;
+		private final int length;
+
+		public CompressBlock(byte[] block, int length) {
+			this.block = block;
+			this.length = length;
+		}
+
+		@Override
+		public CompressedBlock call() {
+			CRC32 crc = new CRC32();
+			crc.update(block, 0, length);
+			Deflater deflater = new Deflater();
+			try {
+				deflater.setInput(block, 0, length);
+				deflater.finish();
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+						length / 2 + 64);
+				byte[] chunk = new byte[64 * 1024];
+				while (!deflater.finished()) {
+					int n = deflater.deflate(chunk);
+					compressed.write(chunk, 0, n);
+				}
+				return new CompressedBlock(length, (int) crc.getValue(),
+						compressed.toByteArray());
+			} finally {
+				deflater.end();
+			}
+		}
+	}
+
+	private static class CompressedBlock {
+
+		private final int uncompressedLength;
+		private final int crc;
+		private final byte[] data;
+
+		public CompressedBlock(int uncompressedLength, int crc, byte[] data) {
+			this.uncompressedLength = uncompressedLength;
+			this.crc = crc;
+			this.data = data;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.importexport.compressed;
+
+import static com.splunk.shuttl.archiver.importexport.compressed.BlockCompressingOutputStream.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a stream written by {@link BlockCompressingOutputStream}. Frames are
+ * read ahead and inflated on a thread pool, while the bytes are returned in
+ * the order they were written.
+ */
+public class BlockDecompressingInputStream extends InputStream {
+
+	private final DataInputStream in;
+	private final int maxBlocksInFlight;
+	private final ExecutorService executor;
+	private final LinkedList<Future<byte[]>> blocksInFlight;
+
+	private byte[] current;
+	private int position;
+	private boolean endOfFrames;
+	private boolean closed;
+
+	/**
+	 * @param in
+	 *          to read the compressed frames from. Is closed when this stream is
+	 *          closed.
+	 * @param threads
+	 *          number of blocks that are decompressed at the same time.
+	 * @throws IOException
+	 *           if the stream does not start with the expected header.
+	 */
+	public BlockDecompressingInputStream(InputStream in, int threads)
+			throws IOException {
+		if (threads < 1)
+			throw new IllegalArgumentException("Threads must be positive. Was: "
+					+ threads);
+		this.in = new DataInputStream(in);
+		this.maxBlocksInFlight = threads * 2;
+		this.blocksInFlight = new LinkedList<Future<byte[]>>();
+		this.current = new byte[0];
+		this.position = 0;
+		this.endOfFrames = false;
+		this.closed = false;
+		readHeader();
+		this.executor = Executors.newFixedThreadPool(threads);
+	}
+
+	private void readHeader() throws IOException {
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not a block compressed stream.");
+		int version = in.readUnsignedByte();
+		if (version != VERSION)
+			throw new IOException("Unsupported block compression version: "
+					+ version);
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!hasAvailableBytes())
+			return -1;
+		return current[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (!hasAvailableBytes())
+			return -1;
+		int n = Math.min(len, current.length - position);
+		System.arraycopy(current, position, b, off, n);
+		position += n;
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return current.length - position;
+	}
+
+	private boolean hasAvailableBytes() throws IOException {
+		if (closed)
+			throw new IOException("Stream is closed.");
+		while (position == current.length) {
+			readFramesAhead();
+			if (blocksInFlight.isEmpty())
+				return false;
+			current = getDecompressedBlock(blocksInFlight.removeFirst());
+			position = 0;
+		}
+		return true;
+	}
+
+	private void readFramesAhead() throws IOException {
+		while (!endOfFrames && blocksInFlight.size() < maxBlocksInFlight) {
+			int uncompressedLength = in.readInt();
+			if (uncompressedLength == END_OF_FRAMES) {
+				endOfFrames = true;
+			} else {
+				int crc = in.readInt();
+				int compressedLength = in.readInt();
+				if (uncompressedLength < 0 || compressedLength < 0)
+					throw new IOException("Corrupt block frame.");
+				byte[] compressed = new byte[compressedLength];
+				in.readFully(compressed);
+				blocksInFlight.add(executor.submit(new DecompressBlock(compressed,
+						uncompressedLength, crc)));
+			}
+		}
+	}
+
+	private byte[] getDecompressedBlock(Future<byte[]> future)
+			throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while decompressing block.", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Could not decompress block.", e.getCause());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		executor.shutdownNow();
+		in.close();
+	}
+
+	private static class DecompressBlock implements Callable<byte[]> {
+
+		private final byte[] compressed;
+		private final int uncompressedLength;
+		private final int expectedCrc;
+
+		public DecompressBlock(byte[] compressed, int uncompressedLength,
+				int expectedCrc) {
+			this.compressed = compressed;
+			this.uncompressedLength = uncompressedLength;
+			this.expectedCrc = expectedCrc;
+		}
+
+		@Override
+		public byte[] call() throws DataFormatException, IOException {
+			byte[] block = new byte[uncompressedLength];
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(compressed);
+				int n = 0;
+				while (n < uncompressedLength && !inflater.finished()) {
+					int inflated = inflater.inflate(block, n, uncompressedLength - n);
+					if (inflated == 0 && inflater.needsInput())
+						break;
+					n += inflated;
+				}
+				if (n != uncompressedLength)
+					throw new IOException("Block was truncated. Expected "
+							+ uncompressedLength + " bytes but got " + n);
+			} finally {
+				inflater.end();
+			}
+			throwExceptionIfCrcMismatch(block);
+			return block;
+		}
+
+		private void throwExceptionIfCrcMismatch(byte[] block) throws IOException {
+			CRC32 crc = new CRC32();
+			crc.update(block);
+			if ((int) crc.getValue() != expectedCrc)
+				throw new IOException("Block checksum mismatch.");
+		}
+	}
+}
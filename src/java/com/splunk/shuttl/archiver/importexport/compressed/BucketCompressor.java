@@ -0,0 +1,160 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.importexport.compressed;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.WritesBucketToStream;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Streams a {@link Bucket} directory as a single {@link DirectoryContainer}
+ * through block parallel compression, and back. This is the
+ * {@link BucketFormat#SPLUNK_BUCKET_COMPRESSED} format.
+ */
+public class BucketCompressor implements WritesBucketToStream {
+
+	/**
+	 * Extension of the single file that holds a compressed bucket on the
+	 * archive file system.
+	 */
+	public static final String COMPRESSED_BUCKET_EXTENSION = ".bucket.z";
+
+	private final DirectoryContainer directoryContainer;
+	private final int blockSize;
+	private final int threads;
+
+	/**
+	 * @param blockSize
+	 *          number of uncompressed bytes that are compressed together.
+	 * @param threads
+	 *          number of blocks that are compressed or decompressed at the same
+	 *          time.
+	 */
+	public BucketCompressor(DirectoryContainer directoryContainer,
+			int blockSize, int threads) {
+		this.directoryContainer = directoryContainer;
+		this.blockSize = blockSize;
+		this.threads = threads;
+	}
+
+	/**
+	 * Writes the compressed bucket directory to the stream and closes it. If
+	 * writing fails, the stream is closed without the end of the compressed
+	 * frames, so it can't be read as a complete bucket.
+	 */
+	public void compressBucket(File bucketDirectory, OutputStream out)
+			throws IOException {
+		BlockCompressingOutputStream compressed = new BlockCompressingOutputStream(
+				out, blockSize, threads);
+		boolean written = false;
+		try {
+			directoryContainer.writeDirectory(bucketDirectory, compressed);
+			written = true;
+		} finally {
+			if (!written)
+				compressed.abort();
+		}
+		compressed.close();
+	}
+
+	@Override
+	public String getFileName(Bucket bucket) {
+		return getCompressedFileName(bucket.getName());
+	}
+
+	@Override
+	public void writeBucket(Bucket bucket, OutputStream out) throws IOException {
+		compressBucket(bucket.getDirectory(), out);
+	}
+
+	/**
+	 * Decompresses a stream written by {@link #compressBucket} in to the
+	 * specified directory and closes the stream.
+	 */
+	public void decompressBucket(InputStream in, File bucketDirectory)
+			throws IOException {
+		try {
+			BlockDecompressingInputStream decompressed = new BlockDecompressingInputStream(
+					in, threads);
+			try {
+				directoryContainer.extractDirectory(decompressed, bucketDirectory);
+			} finally {
+				IOUtils.closeQuietly(decompressed);
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Decompresses a single block compressed stream, like a compressed csv
+	 * export, to the specified file and closes the stream.
+	 */
+	public void decompressFile(InputStream in, File file) throws IOException {
+		try {
+			BlockDecompressingInputStream decompressed = new BlockDecompressingInputStream(
+					in, threads);
+			OutputStream out = new FileOutputStream(file);
+			try {
+				IOUtils.copyLarge(decompressed, out);
+			} finally {
+				IOUtils.closeQuietly(decompressed);
+				out.close();
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * @return stream decompressing a single block compressed stream, like a
+	 *         compressed csv export. Closing it closes the specified stream.
+	 */
+	public InputStream decompressingStream(InputStream in) throws IOException {
+		return new BlockDecompressingInputStream(in, threads);
+	}
+
+	/**
+	 * @return name of the compressed file for a bucket name.
+	 */
+	public static String getCompressedFileName(String bucketName) {
+		return bucketName + COMPRESSED_BUCKET_EXTENSION;
+	}
+
+	/**
+	 * @return true if the file name is the name of a compressed bucket.
+	 */
+	public static boolean isCompressedFileName(String fileName) {
+		return fileName.endsWith(COMPRESSED_BUCKET_EXTENSION);
+	}
+
+	/**
+	 * @return {@link BucketCompressor} using all available cores.
+	 */
+	public static BucketCompressor create() {
+		return new BucketCompressor(new DirectoryContainer(),
+				BlockCompressingOutputStream.DEFAULT_BLOCK_SIZE, Runtime.getRuntime()
+						.availableProcessors());
+	}
+}
@@ -0,0 +1,148 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.importexport.compressed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Packs a directory tree into a single stream and unpacks it again, like a
+ * minimal tar. Entries are a type byte and a relative path, followed by the
+ * length and content for files. The stream ends with an end marker, so that
+ * truncated streams are detected.
+ */
+public class DirectoryContainer {
+
+	static final int DIRECTORY_ENTRY = 'D';
+	static final int FILE_ENTRY = 'F';
+	static final int END_ENTRY = 'E';
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Writes the contents of the directory to the stream. The stream is not
+	 * closed.
+	 */
+	public void writeDirectory(File directory, OutputStream out)
+			throws IOException {
+		if (!directory.isDirectory())
+			throw new FileNotFoundException(directory + " is not a directory.");
+		DataOutputStream dataOut = new DataOutputStream(out);
+		writeChildren(directory, "", dataOut);
+		dataOut.writeByte(END_ENTRY);
+		dataOut.flush();
+	}
+
+	private void writeChildren(File directory, String relativePath,
+			DataOutputStream out) throws IOException {
+		File[] children = directory.listFiles();
+		if (children == null)
+			throw new IOException("Could not list directory: " + directory);
+		Arrays.sort(children);
+		for (File child : children) {
+			String childPath = relativePath + child.getName();
+			if (child.isDirectory()) {
+				out.writeByte(DIRECTORY_ENTRY);
+				out.writeUTF(childPath);
+				writeChildren(child, childPath + "/", out);
+			} else {
+				writeFile(child, childPath, out);
+			}
+		}
+	}
+
+	private void writeFile(File file, String path, DataOutputStream out)
+			throws IOException {
+		long length = file.length();
+		out.writeByte(FILE_ENTRY);
+		out.writeUTF(path);
+		out.writeLong(length);
+		InputStream in = new FileInputStream(file);
+		try {
+			copyExactly(in, out, length);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Reads a stream written with {@link #writeDirectory} and re-creates the
+	 * directory tree in the specified directory. The stream is not closed.
+	 */
+	public void extractDirectory(InputStream in, File directory)
+			throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Could not create directory: " + directory);
+		DataInputStream dataIn = new DataInputStream(in);
+		int type;
+		while ((type = dataIn.readUnsignedByte()) != END_ENTRY) {
+			File entry = getEntryFile(directory, dataIn.readUTF());
+			if (type == DIRECTORY_ENTRY)
+				createDirectory(entry);
+			else if (type == FILE_ENTRY)
+				extractFile(dataIn, entry);
+			else
+				throw new IOException("Unknown entry type: " + type);
+		}
+	}
+
+	private File getEntryFile(File directory, String path) throws IOException {
+		if (path.length() == 0 || path.startsWith("/")
+				|| Arrays.asList(path.split("/")).contains(".."))
+			throw new IOException("Illegal entry path: " + path);
+		return new File(directory, path);
+	}
+
+	private void createDirectory(File dir) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Could not create directory: " + dir);
+	}
+
+	private void extractFile(DataInputStream in, File file) throws IOException {
+		long length = in.readLong();
+		createDirectory(file.getParentFile());
+		OutputStream out = new FileOutputStream(file);
+		try {
+			copyExactly(in, out, length);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void copyExactly(InputStream in, OutputStream out, long length)
+			throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long remaining = length;
+		while (remaining > 0) {
+			int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+			if (n == -1)
+				throw new EOFException("Expected " + remaining + " more bytes.");
+			out.write(buffer, 0, n);
+			remaining -= n;
+		}
+	}
+}
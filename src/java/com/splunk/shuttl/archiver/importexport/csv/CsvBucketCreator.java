@@ -50,11 +50,24 @@ public class CsvBucketCreator {
 	}
 
 	private Bucket createBucketWithExistingCsvFile(File csvFile, Bucket bucket) {
-		File bucketDir = createBucketDirectory(csvFile);
-		moveCsvFileToBucketDir(csvFile, bucketDir);
+		File bucketDir;
+		if (isInBucketDirectory(csvFile)) {
+			bucketDir = csvFile.getParentFile();
+		} else {
+			bucketDir = createBucketDirectory(csvFile);
+			moveCsvFileToBucketDir(csvFile, bucketDir);
+		}
 		return createBucketObject(csvFile, bucket, bucketDir);
 	}
 
+	/**
+	 * A .csv file that was already moved in to its bucket directory, by an
+	 * earlier call, lives in a directory named as the file without extension.
+	 */
+	private boolean isInBucketDirectory(File csvFile) {
+		return csvFile.getParentFile().getName().equals(removeExtension(csvFile));
+	}
+
 	private File createBucketDirectory(File csvFile) {
 		String csvFileNameWithoutExtension = FilenameUtils.getBaseName(csvFile
 				.getName());
@@ -0,0 +1,47 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.importexport.csv;
+
+/**
+ * How a bucket is exported to csv when it's archived.
+ */
+public enum CsvExportMode {
+
+	/**
+	 * The export tool writes a .csv file to the local csv directory, which is
+	 * then transferred to the archive.
+	 */
+	FILE,
+
+	/**
+	 * The output of the export tool is written directly to the archive, without
+	 * using any local disk.
+	 */
+	STREAM,
+
+	/**
+	 * Same as {@link #STREAM}, but the output is block compressed on its way to
+	 * the archive.
+	 */
+	COMPRESSED_STREAM;
+
+	/**
+	 * @return the mode with the name, or {@link #FILE} if the name is null.
+	 */
+	public static CsvExportMode fromName(String name) {
+		return name == null ? FILE : valueOf(name);
+	}
+}
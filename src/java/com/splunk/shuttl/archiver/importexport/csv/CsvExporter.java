@@ -17,6 +17,8 @@ package com.splunk.shuttl.archiver.importexport.csv;
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +37,12 @@ public class CsvExporter {
 
 	private static final Logger logger = Logger.getLogger(CsvExporter.class);
 
+	/**
+	 * The export tool only writes to files, so streamed exports are written to
+	 * the file of the tool's standard out.
+	 */
+	static final String STANDARD_OUT_PATH = "/dev/stdout";
+
 	private final SplunkExportTool exportTool;
 	private final GetsBucketsCsvExportFile getsBucketsCsvExportFile;
 	private final ShellExecutor shellExecutor;
@@ -48,9 +56,16 @@ public class CsvExporter {
 	}
 
 	/**
-	 * @return Csv file of the {@link Bucket}
+	 * @return Csv file of the {@link Bucket}. A finished export from an earlier
+	 *         archiving attempt is reused instead of exporting the bucket again.
 	 */
 	public File exportBucketToCsv(Bucket bucket) {
+		File exportedCsvFile = getEarlierExport(bucket);
+		if (exportedCsvFile != null) {
+			logger.info(happened("Reusing earlier export of bucket", "bucket",
+					bucket, "csv_file", exportedCsvFile));
+			return exportedCsvFile;
+		}
 		File csvFile = getsBucketsCsvExportFile.getCsvFile(bucket);
 		List<String> command = constructCommand(bucket, csvFile);
 		Map<String, String> env = exportTool.getEnvironment();
@@ -59,11 +74,47 @@ public class CsvExporter {
 		return csvFile;
 	}
 
+	/**
+	 * @return Csv file of a finished export of the {@link Bucket} from an
+	 *         earlier archiving attempt, or null if there is none.
+	 */
+	public File getEarlierExport(Bucket bucket) {
+		File exportedCsvFile = getsBucketsCsvExportFile.getExportedCsvFile(bucket);
+		return exportedCsvFile.exists() ? exportedCsvFile : null;
+	}
+
+	/**
+	 * Exports the {@link Bucket} to csv by letting the export tool write to its
+	 * standard out, which is copied to the stream while the tool is running.
+	 * Nothing is written to the local file system. The stream is not closed.
+	 * 
+	 * @throws IOException
+	 *           if the csv could not be written to the stream.
+	 */
+	public void exportBucketToCsvStream(Bucket bucket, OutputStream out)
+			throws IOException {
+		List<String> command = constructCommand(bucket, STANDARD_OUT_PATH);
+		Map<String, String> env = exportTool.getEnvironment();
+		int exit = shellExecutor.executeCommandWritingStdOutTo(env, command, out);
+		if (exit != 0) {
+			logger.debug(did("Exported a bucket to a csv stream",
+					"Got a non zero exit code from export tool",
+					"Zero exit code from export tool.", "exit_code", exit, "bucket",
+					bucket, "command", command));
+			throw new CsvExportFailedException("Exporttool exited with"
+					+ " non zero exit status: " + exit
+					+ ". Ran exporttool with command: " + command);
+		}
+	}
+
 	private List<String> constructCommand(Bucket bucket, File csvFile) {
+		return constructCommand(bucket, csvFile.getAbsolutePath());
+	}
+
+	private List<String> constructCommand(Bucket bucket, String csvPath) {
 		List<String> executableCommand = exportTool.getExecutableCommand();
 		List<String> arguments = Arrays.asList(new String[] {
-				bucket.getDirectory().getAbsolutePath(), csvFile.getAbsolutePath(),
-				"-csv" });
+				bucket.getDirectory().getAbsolutePath(), csvPath, "-csv" });
 		return UtilsList.join(executableCommand, arguments);
 	}
 
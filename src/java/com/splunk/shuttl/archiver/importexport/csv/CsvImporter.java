@@ -17,6 +17,8 @@ package com.splunk.shuttl.archiver.importexport.csv;
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 
@@ -35,6 +37,11 @@ import com.splunk.shuttl.archiver.util.UtilsList;
  */
 public class CsvImporter {
 
+	/**
+	 * Path the import tool reads the csv from when it's imported from a stream.
+	 */
+	public static final String STANDARD_IN_PATH = "/dev/stdin";
+
 	private final SplunkImportTool splunkImportTool;
 	private final ShellExecutor shellExecutor;
 	private final BucketFactory bucketFactory;
@@ -64,6 +71,32 @@ public class CsvImporter {
 			return getImportedBucketCsvBucket(bucket);
 	}
 
+	/**
+	 * Imports a csv from a stream, without it being written to the local disk
+	 * first. The import tool reads the csv from its standard in and writes the
+	 * bucket to the specified directory. The stream is not closed.
+	 * 
+	 * @return bucket with {@link BucketFormat#SPLUNK_BUCKET} in the specified
+	 *         directory.
+	 * @throws IOException
+	 *           if the csv could not be read from the stream.
+	 * @throws CsvImportFailedException
+	 *           if the import tool exits with a non zero exit code.
+	 */
+	public Bucket importBucketFromCsvStream(String index, File bucketDirectory,
+			InputStream csv) throws IOException {
+		List<String> importCommand = UtilsList.join(
+				splunkImportTool.getExecutableCommand(),
+				Arrays.asList(bucketDirectory.getAbsolutePath(), STANDARD_IN_PATH));
+		int exit = shellExecutor.executeCommandReadingStdInFrom(
+				splunkImportTool.getEnvironment(), importCommand, csv);
+		if (!isSuccessfulImport(exit))
+			throw new CsvImportFailedException("Import tool exited with: " + exit
+					+ ", when importing to: " + bucketDirectory);
+		return bucketFactory.createWithIndexDirectoryAndFormat(index,
+				bucketDirectory, BucketFormat.SPLUNK_BUCKET);
+	}
+
 	private Bucket getImportedBucketCsvBucket(Bucket bucket) {
 		List<String> importCommand = createCommandForImportingBucket(bucket);
 		int exit = executeImportCommand(importCommand);
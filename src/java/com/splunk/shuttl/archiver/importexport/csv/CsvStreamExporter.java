@@ -0,0 +1,94 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.importexport.csv;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.WritesBucketToStream;
+import com.splunk.shuttl.archiver.importexport.compressed.BlockCompressingOutputStream;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Streams the csv export of a {@link Bucket} to the archive, optionally
+ * through block compression, so that {@link BucketFormat#CSV} can be archived
+ * without a local copy of the export.
+ */
+public class CsvStreamExporter implements WritesBucketToStream {
+
+	/**
+	 * Extension of a block compressed csv file in the archive.
+	 */
+	public static final String COMPRESSED_CSV_EXTENSION = ".csv.z";
+
+	private final CsvExporter csvExporter;
+	private final boolean compressed;
+	private final int compressionThreads;
+
+	/**
+	 * @param compressed
+	 *          true if the csv should be compressed.
+	 * @param compressionThreads
+	 *          number of blocks that are compressed at the same time.
+	 */
+	public CsvStreamExporter(CsvExporter csvExporter, boolean compressed,
+			int compressionThreads) {
+		this.csvExporter = csvExporter;
+		this.compressed = compressed;
+		this.compressionThreads = compressionThreads;
+	}
+
+	@Override
+	public String getFileName(Bucket bucket) {
+		return bucket.getName() + (compressed ? COMPRESSED_CSV_EXTENSION : ".csv");
+	}
+
+	@Override
+	public void writeBucket(Bucket bucket, OutputStream out) throws IOException {
+		if (compressed)
+			writeCompressedCsv(bucket, out);
+		else
+			csvExporter.exportBucketToCsvStream(bucket, out);
+	}
+
+	private void writeCompressedCsv(Bucket bucket, OutputStream out)
+			throws IOException {
+		BlockCompressingOutputStream compressing = new BlockCompressingOutputStream(
+				new CloseShieldOutputStream(out),
+				BlockCompressingOutputStream.DEFAULT_BLOCK_SIZE, compressionThreads);
+		boolean exported = false;
+		try {
+			csvExporter.exportBucketToCsvStream(bucket, compressing);
+			exported = true;
+		} finally {
+			if (!exported)
+				compressing.abort();
+		}
+		compressing.close();
+	}
+
+	/**
+	 * @return {@link CsvStreamExporter} compressing on all available cores.
+	 */
+	public static CsvStreamExporter create(CsvExporter csvExporter,
+			boolean compressed) {
+		return new CsvStreamExporter(csvExporter, compressed, Runtime.getRuntime()
+				.availableProcessors());
+	}
+}
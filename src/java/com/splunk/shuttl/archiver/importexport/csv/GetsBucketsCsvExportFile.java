@@ -38,4 +38,14 @@ public class GetsBucketsCsvExportFile {
 			file.delete();
 		return file;
 	}
+
+	/**
+	 * @return .csv file of an earlier export of the {@link Bucket}, that was
+	 *         moved in to a bucket directory by {@link CsvBucketCreator}. The
+	 *         file only exists if the export finished.
+	 */
+	public File getExportedCsvFile(Bucket bucket) {
+		File bucketDirectory = new File(csvDirectory, bucket.getName());
+		return new File(bucketDirectory, bucket.getName() + ".csv");
+	}
 }
@@ -14,8 +14,6 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.listers;
 
-import static com.splunk.shuttl.archiver.LogFormatter.*;
-
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
@@ -23,8 +21,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.io.FilenameUtils;
-import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.StructuredLogger;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.archive.PathResolver;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
@@ -37,7 +35,7 @@ import com.splunk.shuttl.archiver.util.UtilsURI;
  */
 public class ArchiveBucketsLister {
 
-	private final static Logger logger = Logger
+	private final static StructuredLogger log = StructuredLogger
 			.getLogger(ArchiveBucketsLister.class);
 	private final ArchivedIndexesLister indexesLister;
 	private final PathResolver pathResolver;
@@ -59,6 +57,13 @@ public class ArchiveBucketsLister {
 		this.pathResolver = pathResolver;
 	}
 
+	/**
+	 * @return indexes that have archived buckets.
+	 */
+	public List<String> listIndexes() {
+		return indexesLister.listIndexes();
+	}
+
 	/**
 	 * List buckets in an {@link ArchiveFileSystem}.<br/>
 	 * Note: Buckets returned will have {@link BucketFormat} = null;
@@ -67,7 +72,7 @@ public class ArchiveBucketsLister {
 	 */
 	public List<Bucket> listBuckets() {
 		List<Bucket> buckets = new ArrayList<Bucket>();
-		for (String index : indexesLister.listIndexes())
+		for (String index : listIndexes())
 			buckets.addAll(listBucketsInIndex(index));
 		return buckets;
 	}
@@ -86,6 +91,29 @@ public class ArchiveBucketsLister {
 		return buckets;
 	}
 
+	/**
+	 * Lists the buckets of an index into a {@link BucketTable}, without creating
+	 * a {@link Bucket} for each bucket.<br/>
+	 * Note: Buckets in the table will have {@link BucketFormat} = null;
+	 * 
+	 * @return table with the buckets archived for an index.
+	 */
+	public BucketTable listBucketTableInIndex(String index) {
+		BucketTable table = createBucketTable();
+		for (URI uriToBucket : getUriToBucketsWithIndex(index))
+			table.add(pathResolver.resolveIndexFromUriToBucket(uriToBucket),
+					getBucketName(uriToBucket), null, null, null);
+		return table;
+	}
+
+	/**
+	 * @return empty {@link BucketTable} resolving bucket {@link URI}s with this
+	 *         lister's {@link PathResolver}.
+	 */
+	public BucketTable createBucketTable() {
+		return new BucketTable(pathResolver);
+	}
+
 	private List<URI> getUriToBucketsWithIndex(String index) {
 		URI bucketsHome = pathResolver.getBucketsHome(index);
 		List<URI> urisToBuckets = listBucketsHomeInArchive(bucketsHome);
@@ -96,21 +124,25 @@ public class ArchiveBucketsLister {
 		try {
 			return archiveFileSystem.listPath(bucketsHome);
 		} catch (IOException e) {
-			logger.debug(did("Listed buckets at bucketsHome in archive file system",
+			log.debug().did("Listed buckets at bucketsHome in archive file system",
 					"Got IOException", "To list buckets that have been archived",
-					"buckets_home", bucketsHome, "exception", e));
+					"buckets_home", bucketsHome, "exception", e);
 			throw new RuntimeException(e);
 		}
 	}
 
 	private Bucket createBucketFromUriToBucket(URI uriToBucket) {
 		String bucketIndex = pathResolver.resolveIndexFromUriToBucket(uriToBucket);
-		String bucketName = FilenameUtils.getBaseName(UtilsURI
-				.getPathByTrimmingEndingFileSeparator(uriToBucket));
+		String bucketName = getBucketName(uriToBucket);
 		return this.createBucketWithErrorHandling(uriToBucket, bucketIndex,
 				bucketName);
 	}
 
+	private String getBucketName(URI uriToBucket) {
+		return FilenameUtils.getBaseName(UtilsURI
+				.getPathByTrimmingEndingFileSeparator(uriToBucket));
+	}
+
 	private Bucket createBucketWithErrorHandling(URI uriToBucket,
 			String bucketIndex, String bucketName) {
 		Exception exception = null;
@@ -118,24 +150,24 @@ public class ArchiveBucketsLister {
 			return new Bucket(uriToBucket, bucketIndex, bucketName, null);
 		} catch (FileNotFoundException e) {
 			exception = e;
-			logger.debug(did(
+			log.debug().did(
 					"Created bucket with uri, bucket_index, bucket_name, bucket_format",
 					e, "To create the bucket without problems.", "uri", uriToBucket,
 					"bucket_index", bucketIndex, "bucket_name", bucketName, "format",
-					null, "exception", e));
+					null, "exception", e);
 		} catch (FileNotDirectoryException e) {
 			exception = e;
-			logger.debug(did(
+			log.debug().did(
 					"Created bucket with uri, bucket_index, bucket_name, bucket_format",
 					e, "To create the bucket without problems.", "uri", uriToBucket,
 					"bucket_index", bucketIndex, "bucket_name", bucketName, "format",
-					null, "exception", e));
+					null, "exception", e);
 		}
 		if (exception != null)
-			logger.warn(warn("Tried to create bucket with uri, index and name",
+			log.warn().warn("Tried to create bucket with uri, index and name",
 					exception, "Returning null for this bucket", "uri", uriToBucket,
 					"bucket_index", bucketIndex, "bucket_name", bucketName, "exception",
-					exception));
+					exception);
 		return null;
 	}
 }
@@ -14,16 +14,14 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.listers;
 
-import static com.splunk.shuttl.archiver.LogFormatter.*;
-
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.io.FilenameUtils;
-import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.StructuredLogger;
 import com.splunk.shuttl.archiver.archive.PathResolver;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 
@@ -32,7 +30,7 @@ import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
  */
 public class ArchivedIndexesLister {
 
-	private final static Logger logger = Logger
+	private final static StructuredLogger log = StructuredLogger
 			.getLogger(ArchivedIndexesLister.class);
 	private final PathResolver pathResolver;
 	private final ArchiveFileSystem fileSystem;
@@ -66,9 +64,9 @@ public class ArchivedIndexesLister {
 		try {
 			return fileSystem.listPath(indexesHome);
 		} catch (IOException e) {
-			logger.debug(did("Listed indexes at indexesHome", "Got IOException",
+			log.debug().did("Listed indexes at indexesHome", "Got IOException",
 					"To list indexes on the archive filesystem", "indexes_home",
-					indexesHome, "exception", e));
+					indexesHome, "exception", e);
 			throw new RuntimeException(e);
 		}
 	}
@@ -0,0 +1,406 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.listers;
+
+import java.io.FileNotFoundException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.ChecksumManifest;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.BucketName;
+import com.splunk.shuttl.archiver.model.FileNotDirectoryException;
+
+/**
+ * Archived buckets stored column by column, for listing a very large number of
+ * buckets without a {@link Bucket} object per bucket. Times, sizes and
+ * checksums are kept in primitive arrays, indexes and formats as ids and the
+ * bucket names in one shared byte array. {@link Bucket}s are only created for
+ * the rows that are asked for, with the {@link URI} that the
+ * {@link PathResolver} resolves for them.<br/>
+ * <br/>
+ * Rows are appended and never removed. Filtering creates a new table.
+ */
+public class BucketTable {
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final long UNKNOWN = -1;
+	private static final byte NO_FORMAT = -1;
+	private static final BucketFormat[] FORMATS = BucketFormat.values();
+
+	private final PathResolver pathResolver;
+	private final List<String> indexes;
+	private final Map<String, Integer> indexIds;
+
+	private int rows;
+	private long[] earliests;
+	private long[] latests;
+	private long[] sizes;
+	private long[] checksums;
+	private int[] rowIndexIds;
+	private byte[] formats;
+	private int[] nameOffsets;
+	private byte[] names;
+	private final BitSet timed;
+
+	/**
+	 * @param pathResolver
+	 *          for resolving the {@link URI}s of the buckets in the table.
+	 */
+	public BucketTable(PathResolver pathResolver) {
+		this.pathResolver = pathResolver;
+		this.indexes = new ArrayList<String>();
+		this.indexIds = new HashMap<String, Integer>();
+		this.earliests = new long[INITIAL_CAPACITY];
+		this.latests = new long[INITIAL_CAPACITY];
+		this.sizes = new long[INITIAL_CAPACITY];
+		this.checksums = new long[INITIAL_CAPACITY];
+		this.rowIndexIds = new int[INITIAL_CAPACITY];
+		this.formats = new byte[INITIAL_CAPACITY];
+		this.nameOffsets = new int[INITIAL_CAPACITY + 1];
+		this.names = new byte[INITIAL_CAPACITY * 32];
+		this.timed = new BitSet();
+	}
+
+	/**
+	 * Adds a bucket. Buckets without legal bucket names have no time range, and
+	 * are left out when the table is filtered.
+	 * 
+	 * @param format
+	 *          of the bucket, or null if it's not resolved.
+	 * @param size
+	 *          of the bucket, or null if it's unknown.
+	 * @param checksum
+	 *          of the bucket as returned by {@link ChecksumManifest#getDigest()},
+	 *          or null if it's unknown.
+	 */
+	public void add(String index, String bucketName, BucketFormat format,
+			Long size, String checksum) {
+		ensureCapacity(rows + 1);
+		BucketName parsedName = new BucketName(bucketName);
+		try {
+			earliests[rows] = parsedName.getEarliest() * 1000;
+			latests[rows] = parsedName.getLatest() * 1000;
+			timed.set(rows);
+		} catch (RuntimeException e) {
+			earliests[rows] = 0;
+			latests[rows] = 0;
+		}
+		sizes[rows] = size != null ? size : UNKNOWN;
+		checksums[rows] = checksum != null ? Long.parseLong(checksum, 16)
+				: UNKNOWN;
+		rowIndexIds[rows] = getIndexId(index);
+		formats[rows] = format != null ? (byte) format.ordinal() : NO_FORMAT;
+		addName(bucketName);
+		rows++;
+	}
+
+	/**
+	 * Adds the bucket's index, name, format, size and checksum.
+	 */
+	public void add(Bucket bucket) {
+		add(bucket.getIndex(), bucket.getName(), bucket.getFormat(),
+				bucket.getSize(), bucket.getChecksum());
+	}
+
+	private void copyRow(BucketTable from, int row) {
+		ensureCapacity(rows + 1);
+		earliests[rows] = from.earliests[row];
+		latests[rows] = from.latests[row];
+		timed.set(rows, from.timed.get(row));
+		sizes[rows] = from.sizes[row];
+		checksums[rows] = from.checksums[row];
+		rowIndexIds[rows] = getIndexId(from.getIndex(row));
+		formats[rows] = from.formats[row];
+		int start = from.nameOffsets[row];
+		addNameBytes(from.names, start, from.nameOffsets[row + 1] - start);
+		rows++;
+	}
+
+	private int getIndexId(String index) {
+		Integer id = indexIds.get(index);
+		if (id == null) {
+			id = indexes.size();
+			indexes.add(index);
+			indexIds.put(index, id);
+		}
+		return id;
+	}
+
+	private void addName(String name) {
+		byte[] bytes = toBytes(name != null ? name : "");
+		addNameBytes(bytes, 0, bytes.length);
+	}
+
+	private void addNameBytes(byte[] bytes, int offset, int length) {
+		int start = nameOffsets[rows];
+		if (start + length > names.length)
+			names = Arrays.copyOf(names, Math.max(names.length * 2, start + length));
+		System.arraycopy(bytes, offset, names, start, length);
+		nameOffsets[rows + 1] = start + length;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= earliests.length)
+			return;
+		int newCapacity = Math.max(capacity, earliests.length * 2);
+		earliests = Arrays.copyOf(earliests, newCapacity);
+		latests = Arrays.copyOf(latests, newCapacity);
+		sizes = Arrays.copyOf(sizes, newCapacity);
+		checksums = Arrays.copyOf(checksums, newCapacity);
+		rowIndexIds = Arrays.copyOf(rowIndexIds, newCapacity);
+		formats = Arrays.copyOf(formats, newCapacity);
+		nameOffsets = Arrays.copyOf(nameOffsets, newCapacity + 1);
+	}
+
+	/**
+	 * @return number of buckets in the table.
+	 */
+	public int size() {
+		return rows;
+	}
+
+	public String getIndex(int row) {
+		return indexes.get(rowIndexIds[checkRow(row)]);
+	}
+
+	public String getName(int row) {
+		checkRow(row);
+		int start = nameOffsets[row];
+		try {
+			return new String(names, start, nameOffsets[row + 1] - start, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return format of the bucket, or null if it's not resolved.
+	 */
+	public BucketFormat getFormat(int row) {
+		byte format = formats[checkRow(row)];
+		return format != NO_FORMAT ? FORMATS[format] : null;
+	}
+
+	/**
+	 * @return earliest time in milliseconds, or 0 if the bucket name has no time
+	 *         range.
+	 */
+	public long getEarliest(int row) {
+		return earliests[checkRow(row)];
+	}
+
+	/**
+	 * @return latest time in milliseconds, or 0 if the bucket name has no time
+	 *         range.
+	 */
+	public long getLatest(int row) {
+		return latests[checkRow(row)];
+	}
+
+	/**
+	 * @return size of the bucket, or null if it's unknown.
+	 */
+	public Long getSize(int row) {
+		long size = sizes[checkRow(row)];
+		return size != UNKNOWN ? size : null;
+	}
+
+	public void setSize(int row, long size) {
+		sizes[checkRow(row)] = size;
+	}
+
+	/**
+	 * @return checksum of the bucket, or null if it's unknown.
+	 */
+	public String getChecksum(int row) {
+		long checksum = checksums[checkRow(row)];
+		return checksum != UNKNOWN ? ChecksumManifest.toHex(checksum) : null;
+	}
+
+	/**
+	 * @return total size of the buckets with known sizes.
+	 */
+	public long getTotalSize() {
+		long total = 0;
+		for (int row = 0; row < rows; row++)
+			if (sizes[row] != UNKNOWN)
+				total += sizes[row];
+		return total;
+	}
+
+	/**
+	 * @return {@link URI} of the bucket in its format, or of the directory with
+	 *         its formats if the format is not resolved.
+	 */
+	public URI getUri(int row) {
+		BucketFormat format = getFormat(row);
+		if (format == null)
+			return pathResolver.getFormatsHome(getIndex(row), getName(row));
+		return pathResolver.resolveArchivedBucketURI(getIndex(row), getName(row),
+				format);
+	}
+
+	/**
+	 * @return a remote {@link Bucket} for the row.
+	 */
+	public Bucket getBucket(int row) {
+		try {
+			return new Bucket(getUri(row), getIndex(row), getName(row),
+					getFormat(row), getSize(row), getChecksum(row));
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException(e);
+		} catch (FileNotDirectoryException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return {@link Bucket}s of all the rows, in row order.
+	 */
+	public List<Bucket> toBuckets() {
+		List<Bucket> buckets = new ArrayList<Bucket>(rows);
+		for (int row = 0; row < rows; row++)
+			buckets.add(getBucket(row));
+		return buckets;
+	}
+
+	/**
+	 * Adds all the rows of another table.
+	 */
+	public void addAll(BucketTable other) {
+		for (int row = 0; row < other.rows; row++)
+			copyRow(other, row);
+	}
+
+	/**
+	 * @return the rows ordered by earliest time, then index, then bucket name.
+	 */
+	public int[] getRowsInKeyOrder() {
+		int[] all = new int[rows];
+		for (int row = 0; row < rows; row++)
+			all[row] = row;
+		return sort(all, true);
+	}
+
+	/**
+	 * @return table with the buckets that have data within the time range,
+	 *         ordered by earliest time. Empty if earliest is after latest.
+	 */
+	public BucketTable filterByTimeRange(Date earliest, Date latest) {
+		BucketTable filtered = new BucketTable(pathResolver);
+		if (earliest.after(latest))
+			return filtered;
+		long from = earliest.getTime();
+		long to = latest.getTime();
+		int[] matching = new int[rows];
+		int matches = 0;
+		for (int row = 0; row < rows; row++)
+			if (timed.get(row) && latests[row] >= from && earliests[row] <= to)
+				matching[matches++] = row;
+		int[] sorted = sort(Arrays.copyOf(matching, matches), false);
+		for (int row : sorted)
+			filtered.copyRow(this, row);
+		return filtered;
+	}
+
+	/**
+	 * Stable merge sort of rows by earliest time, without boxing the rows.
+	 * 
+	 * @param byKey
+	 *          true to also sort rows with the same earliest time by index and
+	 *          bucket name.
+	 */
+	private int[] sort(int[] rowsToSort, boolean byKey) {
+		int[] buffer = new int[rowsToSort.length];
+		for (int width = 1; width < rowsToSort.length; width *= 2) {
+			for (int from = 0; from < rowsToSort.length; from += 2 * width) {
+				int middle = Math.min(from + width, rowsToSort.length);
+				int to = Math.min(from + 2 * width, rowsToSort.length);
+				merge(rowsToSort, buffer, from, middle, to, byKey);
+			}
+			int[] swap = rowsToSort;
+			rowsToSort = buffer;
+			buffer = swap;
+		}
+		return rowsToSort;
+	}
+
+	private void merge(int[] source, int[] target, int from, int middle,
+			int to, boolean byKey) {
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++)
+			if (left < middle
+					&& (right >= to || compareRows(source[left], source[right],
+							byKey) <= 0))
+				target[i] = source[left++];
+			else
+				target[i] = source[right++];
+	}
+
+	private int compareRows(int left, int right, boolean byKey) {
+		if (earliests[left] != earliests[right])
+			return earliests[left] < earliests[right] ? -1 : 1;
+		if (!byKey)
+			return 0;
+		if (rowIndexIds[left] != rowIndexIds[right])
+			return getIndex(left).compareTo(getIndex(right));
+		return getName(left).compareTo(getName(right));
+	}
+
+	private int checkRow(int row) {
+		if (row < 0 || row >= rows)
+			throw new IndexOutOfBoundsException("Row: " + row + ", size: " + rows);
+		return row;
+	}
+
+	private static byte[] toBytes(String name) {
+		try {
+			return name.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return new table with the buckets, resolving {@link URI}s the same way as
+	 *         this table.
+	 */
+	public BucketTable createTable(List<Bucket> buckets) {
+		return create(buckets, pathResolver);
+	}
+
+	/**
+	 * @return table with the buckets.
+	 */
+	public static BucketTable create(List<Bucket> buckets,
+			PathResolver pathResolver) {
+		BucketTable table = new BucketTable(pathResolver);
+		for (Bucket bucket : buckets)
+			table.add(bucket);
+		return table;
+	}
+}
@@ -14,27 +14,35 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.listers;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
+import com.splunk.shuttl.archiver.catalog.CatalogBucketsLister;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.thaw.BucketFilter;
 import com.splunk.shuttl.archiver.thaw.BucketFormatResolver;
+import com.splunk.shuttl.archiver.thaw.BucketIntervalIndex;
 
 /**
- * Lists buckets in the archive, filtered by time range.
+ * Lists buckets in the archive, filtered by time range. Indexes with an
+ * {@link ArchiveCatalog} are listed from the catalog.
  */
 public class ListsBucketsFiltered {
 
 	private final ArchiveBucketsLister bucketsLister;
 	private final BucketFilter bucketFilter;
 	private final BucketFormatResolver bucketFormatResolver;
+	private final CatalogBucketsLister catalogBucketsLister;
 
 	public ListsBucketsFiltered(ArchiveBucketsLister bucketsLister,
-			BucketFilter bucketFilter, BucketFormatResolver bucketFormatResolver) {
+			BucketFilter bucketFilter, BucketFormatResolver bucketFormatResolver,
+			CatalogBucketsLister catalogBucketsLister) {
 		this.bucketsLister = bucketsLister;
 		this.bucketFilter = bucketFilter;
 		this.bucketFormatResolver = bucketFormatResolver;
+		this.catalogBucketsLister = catalogBucketsLister;
 	}
 
 	/**
@@ -43,11 +51,17 @@ public class ListsBucketsFiltered {
 	 * @see ListsBucketsFiltered#listFilteredBucketsAtIndex(String, Date, Date)
 	 */
 	public List<Bucket> listFilteredBuckets(Date earliestTime, Date latestTime) {
-		List<Bucket> allBuckets = bucketsLister.listBuckets();
-		return filterBucketsAndGiveThemFormats(allBuckets, earliestTime, latestTime);
+		List<Bucket> allBuckets = new ArrayList<Bucket>();
+		for (String index : bucketsLister.listIndexes())
+			allBuckets.addAll(listFilteredBucketsAtIndex(index, earliestTime,
+					latestTime));
+		return allBuckets;
 	}
 
 	/**
+	 * Cataloged indexes are filtered with the {@link BucketIntervalIndex} of
+	 * the catalog, which is reused between listings until the catalog changes.
+	 * 
 	 * @return buckets that are archived in the specified index, filtered by
 	 *         earliest and latest time.
 	 * 
@@ -55,11 +69,52 @@ public class ListsBucketsFiltered {
 	 */
 	public List<Bucket> listFilteredBucketsAtIndex(String index,
 			Date earliestTime, Date latestTime) {
+		BucketIntervalIndex catalogedBuckets = catalogBucketsLister
+				.getBucketIntervalIndex(index);
+		if (catalogedBuckets != null)
+			return bucketFilter.filterBucketsByTimeRange(catalogedBuckets,
+					earliestTime, latestTime);
 		List<Bucket> bucketsInIndex = bucketsLister.listBucketsInIndex(index);
 		return filterBucketsAndGiveThemFormats(bucketsInIndex, earliestTime,
 				latestTime);
 	}
 
+	/**
+	 * Same as {@link #listFilteredBuckets(Date, Date)}, but listed into a
+	 * {@link BucketTable}, for listing many buckets with little memory.
+	 * 
+	 * @return table with all archived buckets filtered by earliest and latest
+	 *         time.
+	 */
+	public BucketTable listFilteredBucketTable(Date earliestTime,
+			Date latestTime) {
+		BucketTable allBuckets = bucketsLister.createBucketTable();
+		for (String index : bucketsLister.listIndexes())
+			allBuckets.addAll(listFilteredBucketTableAtIndex(index, earliestTime,
+					latestTime));
+		return allBuckets;
+	}
+
+	/**
+	 * Same as {@link #listFilteredBucketsAtIndex(String, Date, Date)}, but
+	 * listed into a {@link BucketTable}. Formats are only resolved for the
+	 * buckets within the time range.
+	 * 
+	 * @return table with the buckets that are archived in the specified index,
+	 *         filtered by earliest and latest time.
+	 */
+	public BucketTable listFilteredBucketTableAtIndex(String index,
+			Date earliestTime, Date latestTime) {
+		BucketTable catalogedBuckets = catalogBucketsLister
+				.listBucketTableInIndex(index);
+		if (catalogedBuckets != null)
+			return catalogedBuckets.filterByTimeRange(earliestTime, latestTime);
+		BucketTable filteredBuckets = bucketsLister.listBucketTableInIndex(index)
+				.filterByTimeRange(earliestTime, latestTime);
+		return filteredBuckets.createTable(bucketFormatResolver
+				.resolveBucketsFormats(filteredBuckets.toBuckets()));
+	}
+
 	private List<Bucket> filterBucketsAndGiveThemFormats(
 			List<Bucket> bucketsToFilter, Date earliestTime, Date latestTime) {
 		List<Bucket> filteredBuckets = bucketFilter.filterBucketsByTimeRange(
@@ -14,8 +14,17 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.listers;
 
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.PathResolver;
+import com.splunk.shuttl.archiver.bucketsize.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.bucketsize.BucketSizeIO;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogStore;
+import com.splunk.shuttl.archiver.catalog.CatalogBucketsLister;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.thaw.BucketFilter;
+import com.splunk.shuttl.archiver.thaw.BucketFormatChooser;
 import com.splunk.shuttl.archiver.thaw.BucketFormatResolver;
 import com.splunk.shuttl.archiver.thaw.BucketFormatResolverFactory;
 
@@ -29,13 +38,38 @@ public class ListsBucketsFilteredFactory {
 	 *         config.
 	 */
 	public static ListsBucketsFiltered create(ArchiveConfiguration config) {
+		return create(config, LocalFileSystemPaths.create());
+	}
+
+	/**
+	 * @return instance configured with specified config, mirroring archive
+	 *         catalogs in the local file system paths.
+	 */
+	public static ListsBucketsFiltered create(ArchiveConfiguration config,
+			LocalFileSystemPaths localFileSystemPaths) {
 		ArchiveBucketsLister bucketsLister = ArchiveBucketsListerFactory
 				.create(config);
 		BucketFilter bucketFilter = new BucketFilter();
 		BucketFormatResolver bucketFormatResolver = BucketFormatResolverFactory
 				.create(config);
 		return new ListsBucketsFiltered(bucketsLister, bucketFilter,
-				bucketFormatResolver);
+				bucketFormatResolver, createCatalogBucketsLister(config,
+						localFileSystemPaths));
+	}
+
+	private static CatalogBucketsLister createCatalogBucketsLister(
+			ArchiveConfiguration config, LocalFileSystemPaths localFileSystemPaths) {
+		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
+				.getWithConfiguration(config);
+		PathResolver pathResolver = new PathResolver(config);
+		ArchiveBucketSize archiveBucketSize = ArchiveBucketSize.create(
+				pathResolver, new BucketSizeIO(archiveFileSystem,
+						localFileSystemPaths));
+		ArchiveCatalogStore archiveCatalogStore = ArchiveCatalogStore.create(
+				archiveFileSystem, pathResolver, archiveBucketSize,
+				localFileSystemPaths);
+		return new CatalogBucketsLister(archiveCatalogStore, pathResolver,
+				new BucketFormatChooser(config));
 	}
 
 }
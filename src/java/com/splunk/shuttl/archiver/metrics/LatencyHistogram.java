@@ -0,0 +1,126 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds, with a bucket for each power of two.
+ * Recording is a few atomic additions without locks. Percentiles are
+ * estimated with the upper bound of the bucket they fall in, so they are
+ * within a factor of two of the recorded latencies.
+ */
+public class LatencyHistogram {
+
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets;
+	private final StripedCounter count;
+	private final StripedCounter totalNanos;
+	private final AtomicLong maxNanos;
+
+	public LatencyHistogram() {
+		this.buckets = new AtomicLongArray(BUCKETS);
+		this.count = new StripedCounter();
+		this.totalNanos = new StripedCounter();
+		this.maxNanos = new AtomicLong();
+	}
+
+	/**
+	 * Records a latency. Negative latencies are recorded as 0.
+	 */
+	public void record(long nanos) {
+		long latency = Math.max(0, nanos);
+		buckets.incrementAndGet(getBucket(latency));
+		count.increment();
+		totalNanos.add(latency);
+		updateMax(latency);
+	}
+
+	/**
+	 * Records the latency since a start time from {@link System#nanoTime()}.
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	private static int getBucket(long nanos) {
+		if (nanos == 0)
+			return 0;
+		return BUCKETS - 1 - Long.numberOfLeadingZeros(nanos);
+	}
+
+	private void updateMax(long nanos) {
+		long max;
+		while (nanos > (max = maxNanos.get()))
+			if (maxNanos.compareAndSet(max, nanos))
+				return;
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.get();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/**
+	 * @return mean latency, or 0 if nothing is recorded.
+	 */
+	public long getMeanNanos() {
+		long recorded = getCount();
+		return recorded == 0 ? 0 : getTotalNanos() / recorded;
+	}
+
+	/**
+	 * @param percentile
+	 *          between 0 and 1.
+	 * @return the latency that the percentile of the recorded latencies are
+	 *         less than or equal to, or 0 if nothing is recorded.
+	 */
+	public long getPercentileNanos(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long recorded = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			recorded += counts[i] = buckets.get(i);
+		long rank = (long) Math.ceil(percentile * recorded);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen > 0 && seen >= rank)
+				return Math.min(getUpperBound(i), getMaxNanos());
+		}
+		return 0;
+	}
+
+	private static long getUpperBound(int bucket) {
+		return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << (bucket + 1)) - 1;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			buckets.set(i, 0);
+		count.reset();
+		totalNanos.reset();
+		maxNanos.set(0);
+	}
+}
@@ -0,0 +1,131 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Named counters, latency histograms and gauges of the Shuttl server. Metrics
+ * are created the first time they are asked for, and read together with
+ * {@link #getSnapshot()}.
+ */
+public class MetricsRegistry {
+
+	private static final double NANOS_PER_MILLI = 1000 * 1000;
+
+	private static MetricsRegistry instance;
+
+	private final ConcurrentMap<String, StripedCounter> counters;
+	private final ConcurrentMap<String, LatencyHistogram> histograms;
+	private final ConcurrentMap<String, Gauge> gauges;
+
+	public MetricsRegistry() {
+		this.counters = new ConcurrentHashMap<String, StripedCounter>();
+		this.histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+		this.gauges = new ConcurrentHashMap<String, Gauge>();
+	}
+
+	/**
+	 * @return counter with the name, created if it doesn't exist.
+	 */
+	public StripedCounter getCounter(String name) {
+		StripedCounter counter = counters.get(name);
+		if (counter == null) {
+			StripedCounter created = new StripedCounter();
+			counter = counters.putIfAbsent(name, created);
+			if (counter == null)
+				counter = created;
+		}
+		return counter;
+	}
+
+	/**
+	 * @return histogram with the name, created if it doesn't exist.
+	 */
+	public LatencyHistogram getHistogram(String name) {
+		LatencyHistogram histogram = histograms.get(name);
+		if (histogram == null) {
+			LatencyHistogram created = new LatencyHistogram();
+			histogram = histograms.putIfAbsent(name, created);
+			if (histogram == null)
+				histogram = created;
+		}
+		return histogram;
+	}
+
+	/**
+	 * Registers a gauge, replacing any gauge with the same name.
+	 */
+	public void registerGauge(String name, Gauge gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * @return every metric by name. Histograms are split into count, mean, max
+	 *         and percentiles in milliseconds.
+	 */
+	public SortedMap<String, Number> getSnapshot() {
+		SortedMap<String, Number> snapshot = new TreeMap<String, Number>();
+		for (Map.Entry<String, StripedCounter> counter : counters.entrySet())
+			snapshot.put(counter.getKey(), counter.getValue().get());
+		for (Map.Entry<String, LatencyHistogram> histogram : histograms
+				.entrySet())
+			putHistogram(snapshot, histogram.getKey(), histogram.getValue());
+		for (Map.Entry<String, Gauge> gauge : gauges.entrySet())
+			snapshot.put(gauge.getKey(), gauge.getValue().getValue());
+		return snapshot;
+	}
+
+	private static void putHistogram(Map<String, Number> snapshot, String name,
+			LatencyHistogram histogram) {
+		snapshot.put(name + ".count", histogram.getCount());
+		snapshot.put(name + ".mean_ms", toMillis(histogram.getMeanNanos()));
+		snapshot.put(name + ".p50_ms",
+				toMillis(histogram.getPercentileNanos(0.50)));
+		snapshot.put(name + ".p95_ms",
+				toMillis(histogram.getPercentileNanos(0.95)));
+		snapshot.put(name + ".p99_ms",
+				toMillis(histogram.getPercentileNanos(0.99)));
+		snapshot.put(name + ".max_ms", toMillis(histogram.getMaxNanos()));
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Resets all counters and histograms. Gauges are left as they are.
+	 */
+	public void reset() {
+		for (StripedCounter counter : counters.values())
+			counter.reset();
+		for (LatencyHistogram histogram : histograms.values())
+			histogram.reset();
+	}
+
+	/**
+	 * @return registry shared by the whole Shuttl server.
+	 */
+	public static synchronized MetricsRegistry getSharedInstance() {
+		if (instance == null)
+			instance = new MetricsRegistry();
+		return instance;
+	}
+}
@@ -0,0 +1,92 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.metrics;
+
+/**
+ * Stages of archiving and thawing a bucket, with a latency histogram, a
+ * failure counter, a byte counter and a bytes per second gauge each, in the
+ * shared {@link MetricsRegistry}. Time a stage with:
+ * 
+ * <pre>
+ * long start = System.nanoTime();
+ * try {
+ * 	doStage();
+ * 	PipelineStage.EXPORT.succeeded(start, bytes);
+ * } catch (IOException e) {
+ * 	PipelineStage.EXPORT.failed(start);
+ * 	throw e;
+ * }
+ * </pre>
+ */
+public enum PipelineStage {
+	EXPORT("export"), HDFS_PUT("hdfs_put"), SIZE_PUT("size_put"), DELETE(
+			"delete"), THAW_GET("thaw_get"), IMPORT("import");
+
+	private final String name;
+	private final LatencyHistogram latency;
+	private final StripedCounter failures;
+	private final StripedCounter bytes;
+
+	private PipelineStage(String name) {
+		MetricsRegistry registry = MetricsRegistry.getSharedInstance();
+		this.name = "stage." + name;
+		this.latency = registry.getHistogram(this.name + ".latency");
+		this.failures = registry.getCounter(this.name + ".failures");
+		this.bytes = registry.getCounter(this.name + ".bytes");
+		registry.registerGauge(this.name + ".bytes_per_second", new Gauge() {
+
+			@Override
+			public long getValue() {
+				return getBytesPerSecond();
+			}
+		});
+	}
+
+	/**
+	 * Records a successful run of the stage.
+	 * 
+	 * @param startNanos
+	 *          from {@link System#nanoTime()} when the stage started.
+	 * @param byteCount
+	 *          bytes handled by the stage, or null if it's unknown.
+	 */
+	public void succeeded(long startNanos, Long byteCount) {
+		latency.recordSince(startNanos);
+		if (byteCount != null)
+			bytes.add(byteCount);
+	}
+
+	/**
+	 * Records a failed run of the stage.
+	 */
+	public void failed(long startNanos) {
+		latency.recordSince(startNanos);
+		failures.increment();
+	}
+
+	/**
+	 * @return bytes handled per second of time spent in the stage, or 0 if no
+	 *         time has been spent in it.
+	 */
+	public long getBytesPerSecond() {
+		long nanos = latency.getTotalNanos();
+		return nanos == 0 ? 0 : (long) (bytes.get() * 1e9 / nanos);
+	}
+
+	public String getMetricName() {
+		return name;
+	}
+}
@@ -0,0 +1,78 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter that threads can add to without contending on the same memory.
+ * Each thread adds to one of several cells, picked by its thread id, and the
+ * cells are summed when the counter is read. The cells are spaced a cache line
+ * apart.
+ */
+public class StripedCounter {
+
+	private static final int CELL_SPACING = 8;
+
+	private final AtomicLongArray cells;
+	private final int mask;
+
+	/**
+	 * Counter with a cell per available processor.
+	 */
+	public StripedCounter() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param stripes
+	 *          number of cells to add to. Rounded up to a power of two.
+	 */
+	public StripedCounter(int stripes) {
+		int cellCount = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		this.cells = new AtomicLongArray(cellCount * CELL_SPACING);
+		this.mask = cellCount - 1;
+	}
+
+	public void increment() {
+		add(1);
+	}
+
+	public void add(long value) {
+		cells.addAndGet(getCell(), value);
+	}
+
+	private int getCell() {
+		long id = Thread.currentThread().getId();
+		return ((int) (id ^ (id >>> 16)) & mask) * CELL_SPACING;
+	}
+
+	/**
+	 * @return sum of everything added. Not an atomic snapshot while threads are
+	 *         adding.
+	 */
+	public long get() {
+		long sum = 0;
+		for (int i = 0; i < cells.length(); i += CELL_SPACING)
+			sum += cells.get(i);
+		return sum;
+	}
+
+	public void reset() {
+		for (int i = 0; i < cells.length(); i += CELL_SPACING)
+			cells.set(i, 0);
+	}
+}
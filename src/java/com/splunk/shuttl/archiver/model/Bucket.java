@@ -27,9 +27,11 @@ import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.bucketsize.DirectorySizeWalker;
 
 /**
- * Model representing a Splunk bucket
+ * Model representing a Splunk bucket. The size of a local bucket is walked
+ * lazily, the first time it's needed.
  */
 public class Bucket {
 
@@ -39,7 +41,9 @@ public class Bucket {
 	private final String indexName;
 	private final BucketName bucketName;
 	private final URI uri;
-	private final Long size; // size on file system in bytes
+	private final Long size; // size on file system in bytes, when known
+	private final LazyDirectorySize directorySize; // of local buckets
+	private final String checksum;
 
 	/**
 	 * Bucket with an index and format<br/>
@@ -107,21 +111,66 @@ public class Bucket {
 		this(uri, getFileFromUri(uri), index, bucketName, format, size);
 	}
 
+	/**
+	 * Remote bucket with the checksum that it was archived with.
+	 * 
+	 * @param checksum
+	 *          of the archived bucket. Can be null, when it was archived without
+	 *          one.
+	 */
+	public Bucket(URI uri, String index, String bucketName, BucketFormat format,
+			Long size, String checksum) throws FileNotFoundException,
+			FileNotDirectoryException {
+		this(uri, getFileFromUri(uri), index, bucketName, format, size, checksum);
+	}
+
 	private Bucket(URI uri, File directory, String index, String bucketName,
 			BucketFormat format, Long size) throws FileNotFoundException,
 			FileNotDirectoryException {
+		this(uri, directory, index, bucketName, format, size, null);
+	}
+
+	private Bucket(URI uri, File directory, String index, String bucketName,
+			BucketFormat format, Long size, String checksum)
+			throws FileNotFoundException, FileNotDirectoryException {
+		this(uri, directory, index, bucketName, format, size, checksum,
+				createDirectorySize(directory));
+	}
+
+	private Bucket(URI uri, File directory, String index, String bucketName,
+			BucketFormat format, Long size, String checksum,
+			LazyDirectorySize directorySize) throws FileNotFoundException,
+			FileNotDirectoryException {
 		this.uri = uri;
 		this.directory = directory;
 		this.indexName = index;
 		this.bucketName = new BucketName(bucketName);
 		this.format = format;
+		this.checksum = checksum;
 		verifyDirectoryExists(directory);
-		this.size = size != null ? size : setSizeOnLocalBucket();
+		this.size = size;
+		this.directorySize = directorySize;
 	}
 
-	private Long setSizeOnLocalBucket() {
-		return isUriSet() && !isRemote() ? FileUtils.sizeOfDirectory(directory)
-				: null;
+	private static LazyDirectorySize createDirectorySize(File directory) {
+		return directory != null ? new LazyDirectorySize(directory,
+				DirectorySizeWalker.getSharedInstance()) : null;
+	}
+
+	/**
+	 * Do NOT call nor override this method outside this package. It's meant to
+	 * be used by {@link MovesBuckets} only.
+	 * 
+	 * @return bucket in the directory that this bucket's directory was moved to.
+	 *         The moved bucket shares this bucket's size, so the contents are
+	 *         not walked again.
+	 */
+	/* package private */Bucket movedTo(File newDirectory)
+			throws FileNotFoundException, FileNotDirectoryException {
+		return new Bucket(newDirectory.toURI(), newDirectory, indexName,
+				newDirectory.getName(), format, size, checksum,
+				directorySize != null ? directorySize.movedTo(newDirectory)
+						: createDirectorySize(newDirectory));
 	}
 
 	private static File getFileFromUri(URI uri) {
@@ -180,6 +229,14 @@ public class Bucket {
 		return format;
 	}
 
+	/**
+	 * @return checksum that the bucket was archived with, or null if it's
+	 *         unknown.
+	 */
+	public String getChecksum() {
+		return checksum;
+	}
+
 	/**
 	 * @return {@link URI} of this bucket.
 	 */
@@ -229,7 +286,7 @@ public class Bucket {
 	public String toString() {
 		return "Bucket [format=" + format + ", directory=" + directory
 				+ ", indexName=" + indexName + ", bucketName=" + bucketName
-				+ " bucketSize=" + size + ", uri=" + uri + "]";
+				+ " bucketSize=" + getSizeIfKnown() + ", uri=" + uri + "]";
 	}
 
 	/**
@@ -257,8 +314,34 @@ public class Bucket {
 		return new Date(toMillis(bucketName.getLatest()));
 	}
 
+	/**
+	 * @return size of the bucket on local disk in bytes, or null if it's not
+	 *         known for a remote bucket. The directory of a local bucket is walked
+	 *         the first time this is called.
+	 */
 	public Long getSize() {
-		return size;
+		if (size != null)
+			return size;
+		return directorySize != null ? directorySize.get().getSize() : null;
+	}
+
+	/**
+	 * @return number of files in a local bucket, or null if the bucket is
+	 *         remote. The directory is walked, together with the size, the first
+	 *         time this or {@link #getSize()} is called.
+	 */
+	public Long getFileCount() {
+		return directorySize != null ? directorySize.get().getFileCount() : null;
+	}
+
+	/**
+	 * @return size of the bucket if it's known without walking its directory,
+	 *         otherwise null.
+	 */
+	public Long getSizeIfKnown() {
+		if (size != null)
+			return size;
+		return directorySize != null ? directorySize.getSizeIfWalked() : null;
 	}
 
 }
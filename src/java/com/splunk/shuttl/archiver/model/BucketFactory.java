@@ -14,13 +14,10 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.model;
 
-import static com.splunk.shuttl.archiver.LogFormatter.*;
-
 import java.io.File;
 import java.io.FileNotFoundException;
 
-import org.apache.log4j.Logger;
-
+import com.splunk.shuttl.archiver.StructuredLogger;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 
 /**
@@ -30,7 +27,8 @@ import com.splunk.shuttl.archiver.archive.BucketFormat;
  */
 public class BucketFactory {
 
-	private static final Logger logger = Logger.getLogger(BucketFactory.class);
+	private static final StructuredLogger log = StructuredLogger
+			.getLogger(BucketFactory.class);
 
 	/**
 	 * Instance method for
@@ -63,15 +61,15 @@ public class BucketFactory {
 
 	private static void logFileNotFoundException(File bucketFile,
 			FileNotFoundException e) {
-		logger.debug(did("Created bucket from file", "Got FileNotFoundException",
-				"To create bucket from file", "file", bucketFile, "exception", e));
+		log.debug().did("Created bucket from file", "Got FileNotFoundException",
+				"To create bucket from file", "file", bucketFile, "exception", e);
 	}
 
 	private static void logFileNotDirectoryException(File bucketFile,
 			FileNotDirectoryException e) {
-		logger.debug(did("Created bucket from file",
+		log.debug().did("Created bucket from file",
 				"Got FileNotDirectoryException", "To create bucket from file", "file",
-				bucketFile, "exception", e));
+				bucketFile, "exception", e);
 	}
 
 	/**
@@ -14,28 +14,36 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.model;
 
-import static com.splunk.shuttl.archiver.LogFormatter.*;
-
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.log4j.Logger;
+import com.splunk.shuttl.archiver.StructuredLogger;
 
 /**
- * Bucket name with db-name, earliest time, latest time and bucket index.
+ * Bucket name with db-name, earliest time, latest time and bucket index. The
+ * name is parsed once, when the {@link BucketName} is created.
  */
 public class BucketName {
 
-	private final static Logger logger = Logger.getLogger(BucketName.class);
+	private final static StructuredLogger log = StructuredLogger
+			.getLogger(BucketName.class);
 
 	public static final String LEGAL_NAME_REGEX = "([A-Za-z0-9]+?)_(\\d+?)_(\\d+?)_(.+)";
 
+	private static final Pattern LEGAL_NAME_PATTERN = Pattern
+			.compile(LEGAL_NAME_REGEX);
+
 	private static final int DB_GROUP = 1;
 	private static final int LATEST_GROUP = 2;
 	private static final int EARLIEST_GROUP = 3;
 	private static final int INDEX_GROUP = 4;
 
 	private final String name;
+	private final boolean legal;
+	private final String db;
+	private final long earliest;
+	private final long latest;
+	private final String index;
 
 	/**
 	 * @param name
@@ -43,6 +51,23 @@ public class BucketName {
 	 */
 	public BucketName(String name) {
 		this.name = name;
+		Matcher matcher = name != null ? LEGAL_NAME_PATTERN.matcher(name) : null;
+		this.legal = matcher != null && matcher.matches()
+				&& isLong(matcher.group(EARLIEST_GROUP))
+				&& isLong(matcher.group(LATEST_GROUP));
+		this.db = legal ? matcher.group(DB_GROUP) : null;
+		this.earliest = legal ? Long.parseLong(matcher.group(EARLIEST_GROUP)) : 0;
+		this.latest = legal ? Long.parseLong(matcher.group(LATEST_GROUP)) : 0;
+		this.index = legal ? matcher.group(INDEX_GROUP) : null;
+	}
+
+	private static boolean isLong(String digits) {
+		try {
+			Long.parseLong(digits);
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
 	}
 
 	/**
@@ -51,7 +76,8 @@ public class BucketName {
 	 * @return db value of the {@link Bucket}'s name.
 	 */
 	public String getDB() {
-		return getRegexValue(DB_GROUP);
+		throwExceptionIfNotLegal();
+		return db;
 	}
 
 	/**
@@ -61,7 +87,8 @@ public class BucketName {
 	 * @return earliest time of the {@link Bucket}'s name.
 	 */
 	public long getEarliest() {
-		return Long.parseLong(getRegexValue(EARLIEST_GROUP));
+		throwExceptionIfNotLegal();
+		return earliest;
 	}
 
 	/**
@@ -71,7 +98,8 @@ public class BucketName {
 	 * @return time of the {@link BucketName}
 	 */
 	public long getLatest() {
-		return Long.parseLong(getRegexValue(LATEST_GROUP));
+		throwExceptionIfNotLegal();
+		return latest;
 	}
 
 	/**
@@ -81,28 +109,16 @@ public class BucketName {
 	 * @return index of the {@link Bucket}'s name.
 	 */
 	public String getIndex() {
-		return getRegexValue(INDEX_GROUP);
-	}
-
-	private String getRegexValue(int indexGroup) {
-		throwExceptionIfNotValidRegex();
-		return getRegexGroup(indexGroup);
-	}
-
-	private String getRegexGroup(int groupIndex) {
-		Pattern legalPattern = Pattern.compile(LEGAL_NAME_REGEX);
-		Matcher matcher = legalPattern.matcher(name);
-		matcher.find();
-		String group = matcher.group(groupIndex);
-		return group;
+		throwExceptionIfNotLegal();
+		return index;
 	}
 
-	private void throwExceptionIfNotValidRegex() {
-		if (!Pattern.matches(LEGAL_NAME_REGEX, name)) {
-			logger.debug(did("Verified legal bucket name",
+	private void throwExceptionIfNotLegal() {
+		if (!legal) {
+			log.debug().did("Verified legal bucket name",
 					"Bucket name was not legal. Throwing IllegalBucketNameException",
 					"Bucket name to be legal", "bucket_name", name,
-					"legal_bucket_name_regex", LEGAL_NAME_REGEX));
+					"legal_bucket_name_regex", LEGAL_NAME_REGEX);
 			throw new IllegalBucketNameException();
 		}
 	}
@@ -0,0 +1,63 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.model;
+
+import java.io.File;
+
+import com.splunk.shuttl.archiver.bucketsize.DirectorySizeWalker;
+import com.splunk.shuttl.archiver.bucketsize.DirectorySizeWalker.DirectorySize;
+
+/**
+ * Size and number of files of a local bucket's directory, walked the first
+ * time either is asked for. It's shared by the buckets that have the same
+ * contents, like a bucket and the bucket it was moved to, so the directory is
+ * only walked once.
+ */
+class LazyDirectorySize {
+
+	private final DirectorySizeWalker walker;
+	private File directory;
+	private DirectorySize walked;
+
+	LazyDirectorySize(File directory, DirectorySizeWalker walker) {
+		this.directory = directory;
+		this.walker = walker;
+	}
+
+	synchronized DirectorySize get() {
+		if (walked == null)
+			walked = walker.walk(directory);
+		return walked;
+	}
+
+	/**
+	 * @return the size if the directory has been walked, otherwise null.
+	 */
+	synchronized Long getSizeIfWalked() {
+		return walked != null ? walked.getSize() : null;
+	}
+
+	/**
+	 * The directory's contents have been moved, so a size that's not walked yet
+	 * is walked in the new directory.
+	 * 
+	 * @return this size, to be shared with the moved bucket.
+	 */
+	synchronized LazyDirectorySize movedTo(File newDirectory) {
+		directory = newDirectory;
+		return this;
+	}
+}
@@ -46,8 +46,26 @@ public class MovesBuckets {
 				originDirectory.getName());
 		if (!originDirectory.renameTo(newDirectory))
 			logMoveFailureAndThrowException(bucket, destinationDirectory);
-		return BucketFactory.createBucketWithIndexDirectoryAndFormat(
-				bucket.getIndex(), newDirectory, bucket.getFormat());
+		return createMovedBucket(bucket, newDirectory);
+	}
+
+	private static Bucket createMovedBucket(Bucket bucket, File newDirectory) {
+		try {
+			return bucket.movedTo(newDirectory);
+		} catch (FileNotFoundException e) {
+			logCreateMovedBucketFailure(bucket, newDirectory, e);
+			throw new RuntimeException(e);
+		} catch (FileNotDirectoryException e) {
+			logCreateMovedBucketFailure(bucket, newDirectory, e);
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void logCreateMovedBucketFailure(Bucket bucket,
+			File newDirectory, Exception e) {
+		logger.debug(did("Created moved bucket", e,
+				"To create bucket from moved directory", "bucket", bucket,
+				"directory", newDirectory, "exception", e));
 	}
 
 	private static void verifyValidityOfDestination(File destinationDirectory) {
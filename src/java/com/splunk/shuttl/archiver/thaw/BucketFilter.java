@@ -14,15 +14,12 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.thaw;
 
-import static com.splunk.shuttl.archiver.LogFormatter.*;
-
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
-import org.apache.log4j.Logger;
-
+import com.splunk.shuttl.archiver.StructuredLogger;
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
@@ -30,7 +27,8 @@ import com.splunk.shuttl.archiver.model.Bucket;
  */
 public class BucketFilter {
 
-	private final static Logger logger = Logger.getLogger(BucketFilter.class);
+	private final static StructuredLogger log = StructuredLogger
+			.getLogger(BucketFilter.class);
 
 	/**
 	 * Filters buckets by time range. Returns a list that satisfies the condition
@@ -43,12 +41,31 @@ public class BucketFilter {
 	 * @param latest
 	 *          in the time range.
 	 * @return list of buckets that's within this time range.
+	 * @throws com.splunk.shuttl.archiver.model.IllegalBucketNameException
+	 *           if a bucket doesn't have a legal name.
 	 */
 	public List<Bucket> filterBucketsByTimeRange(List<Bucket> buckets,
 			Date earliest, Date latest) {
 		return BucketFilter.filterBuckets(buckets, earliest, latest);
 	}
 
+	/**
+	 * Filters the buckets of a {@link BucketIntervalIndex} by time range, in
+	 * O(log n + k). Use this when the index is reused between queries, since
+	 * building it costs more than filtering a list once. Buckets without legal
+	 * names are not in the index, so they're never returned.
+	 * 
+	 * @return list of buckets that's within the time range, ordered by earliest
+	 *         time.
+	 */
+	public List<Bucket> filterBucketsByTimeRange(
+			BucketIntervalIndex bucketIntervalIndex, Date earliest, Date latest) {
+		if (earliest.after(latest))
+			return emptyListWithLogWarning(earliest, latest);
+		else
+			return bucketIntervalIndex.getBucketsWithinTimeRange(earliest, latest);
+	}
+
 	public static List<Bucket> filterBuckets(List<Bucket> buckets, Date earliest,
 			Date latest) {
 		if (earliest.after(latest))
@@ -76,9 +93,9 @@ public class BucketFilter {
 	}
 
 	private static List<Bucket> emptyListWithLogWarning(Date earliest, Date latest) {
-		logger.warn(warn("Filtered buckets by time range",
+		log.warn().warn("Filtered buckets by time range",
 				"Earliest time was later than latest time", "Filtered all buckets",
-				"earliest_time", earliest, "latest_time", latest));
+				"earliest_time", earliest, "latest_time", latest);
 		return Collections.emptyList();
 	}
 
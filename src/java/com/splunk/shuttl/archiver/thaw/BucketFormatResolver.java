@@ -14,16 +14,13 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.thaw;
 
-import static com.splunk.shuttl.archiver.LogFormatter.*;
-
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import org.apache.log4j.Logger;
-
+import com.splunk.shuttl.archiver.StructuredLogger;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.archive.PathResolver;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
@@ -37,7 +34,7 @@ import com.splunk.shuttl.archiver.util.UtilsURI;
  */
 public class BucketFormatResolver {
 
-	private final static Logger logger = Logger
+	private final static StructuredLogger log = StructuredLogger
 			.getLogger(BucketFormatResolver.class);
 	private final PathResolver pathResolver;
 	private final ArchiveFileSystem archiveFileSystem;
@@ -94,9 +91,9 @@ public class BucketFormatResolver {
 		try {
 			return archiveFileSystem.listPath(formatsHomeForBucket);
 		} catch (IOException e) {
-			logger.warn(warn("Listed formats home for a bucket", e,
+			log.warn().warn("Listed formats home for a bucket", e,
 					"Will not list any formats for bucket", "formats_home",
-					formatsHomeForBucket, "bucket", bucket, "exception", e));
+					formatsHomeForBucket, "bucket", bucket, "exception", e);
 			return Collections.emptyList();
 		}
 	}
@@ -117,9 +114,9 @@ public class BucketFormatResolver {
 			return new Bucket(uriToBucketWithChosenBucket, bucket.getIndex(),
 					bucket.getName(), chosenFormat);
 		} catch (IOException e) {
-			logger.debug(did("Created bucket with format", e,
+			log.debug().did("Created bucket with format", e,
 					"To create bucket from another bucket, only changing the format.",
-					"bucket", bucket, "bucket_format", chosenFormat, "exception", e));
+					"bucket", bucket, "bucket_format", chosenFormat, "exception", e);
 			throw new RuntimeException(e);
 		}
 	}
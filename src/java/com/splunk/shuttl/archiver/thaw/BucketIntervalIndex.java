@@ -0,0 +1,168 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.thaw;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import com.splunk.shuttl.archiver.StructuredLogger;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.IllegalBucketNameException;
+
+/**
+ * Buckets sorted by earliest time, with the max latest time of every subtree,
+ * for finding the buckets that overlap a time range in O(log n + k). Each
+ * bucket's times are read once, when the index is built.<br/>
+ * <br/>
+ * Buckets without legal bucket names have no time range and are left out.
+ */
+public class BucketIntervalIndex {
+
+	private static final StructuredLogger log = StructuredLogger
+			.getLogger(BucketIntervalIndex.class);
+
+	private final Bucket[] buckets;
+	private final long[] earliests;
+	private final long[] latests;
+	private final long[] maxLatests;
+
+	private BucketIntervalIndex(Bucket[] buckets, long[] earliests,
+			long[] latests) {
+		this.buckets = buckets;
+		this.earliests = earliests;
+		this.latests = latests;
+		this.maxLatests = new long[Math.max(1, 4 * buckets.length)];
+		if (buckets.length > 0)
+			buildMaxLatests(1, 0, buckets.length - 1);
+	}
+
+	private long buildMaxLatests(int node, int from, int to) {
+		if (from == to)
+			return maxLatests[node] = latests[from];
+		int middle = (from + to) >>> 1;
+		return maxLatests[node] = Math.max(buildMaxLatests(2 * node, from, middle),
+				buildMaxLatests(2 * node + 1, middle + 1, to));
+	}
+
+	/**
+	 * @return number of buckets in the index.
+	 */
+	public int size() {
+		return buckets.length;
+	}
+
+	/**
+	 * @return buckets that have data within the time range, ordered by earliest
+	 *         time. Empty if earliest is after latest.
+	 */
+	public List<Bucket> getBucketsWithinTimeRange(Date earliest, Date latest) {
+		if (earliest.after(latest) || buckets.length == 0)
+			return new ArrayList<Bucket>();
+		int end = indexOfFirstEarliestAfter(latest.getTime());
+		List<Bucket> overlapping = new ArrayList<Bucket>();
+		if (end > 0)
+			collectLatestNotBefore(1, 0, buckets.length - 1, end - 1,
+					earliest.getTime(), overlapping);
+		return overlapping;
+	}
+
+	private int indexOfFirstEarliestAfter(long time) {
+		int low = 0;
+		int high = earliests.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (earliests[middle] <= time)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Collects, in order, the buckets in [from, min(to, last)] with latest time
+	 * not before time. Subtrees where no bucket qualifies are skipped.
+	 */
+	private void collectLatestNotBefore(int node, int from, int to, int last,
+			long time, List<Bucket> collected) {
+		if (from > last || maxLatests[node] < time)
+			return;
+		if (from == to) {
+			collected.add(buckets[from]);
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		collectLatestNotBefore(2 * node, from, middle, last, time, collected);
+		collectLatestNotBefore(2 * node + 1, middle + 1, to, last, time,
+				collected);
+	}
+
+	/**
+	 * @return index of the buckets.
+	 */
+	public static BucketIntervalIndex create(List<Bucket> buckets) {
+		List<TimedBucket> timedBuckets = new ArrayList<TimedBucket>(
+				buckets.size());
+		for (Bucket bucket : buckets)
+			addTimedBucket(timedBuckets, bucket);
+		Collections.sort(timedBuckets, new Comparator<TimedBucket>() {
+
+			@Override
+			public int compare(TimedBucket a, TimedBucket b) {
+				return a.earliest < b.earliest ? -1 : a.earliest == b.earliest ? 0 : 1;
+			}
+		});
+
+		int n = timedBuckets.size();
+		Bucket[] sortedBuckets = new Bucket[n];
+		long[] earliests = new long[n];
+		long[] latests = new long[n];
+		for (int i = 0; i < n; i++) {
+			TimedBucket timedBucket = timedBuckets.get(i);
+			sortedBuckets[i] = timedBucket.bucket;
+			earliests[i] = timedBucket.earliest;
+			latests[i] = timedBucket.latest;
+		}
+		return new BucketIntervalIndex(sortedBuckets, earliests, latests);
+	}
+
+	private static void addTimedBucket(List<TimedBucket> timedBuckets,
+			Bucket bucket) {
+		try {
+			timedBuckets.add(new TimedBucket(bucket, bucket.getEarliest().getTime(),
+					bucket.getLatest().getTime()));
+		} catch (IllegalBucketNameException e) {
+			log.debug().did("Got time range of bucket", e,
+					"Bucket to have a legal name", "bucket", bucket);
+		}
+	}
+
+	private static class TimedBucket {
+
+		private final Bucket bucket;
+		private final long earliest;
+		private final long latest;
+
+		private TimedBucket(Bucket bucket, long earliest, long latest) {
+			this.bucket = bucket;
+			this.earliest = earliest;
+			this.latest = latest;
+		}
+	}
+}
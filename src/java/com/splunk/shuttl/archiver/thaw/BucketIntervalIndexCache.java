@@ -0,0 +1,69 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the {@link BucketIntervalIndex} of a listing, so that it's built once
+ * per listing and reused by every time range query until the listing changes.
+ * A listing is identified by a key, like the index it lists, and a version
+ * that changes whenever the listed buckets change. Indexes are softly
+ * referenced, so they're dropped before memory runs out.
+ */
+public class BucketIntervalIndexCache {
+
+	private final Map<Object, CachedIndex> cachedIndexes;
+
+	public BucketIntervalIndexCache() {
+		this.cachedIndexes = new HashMap<Object, CachedIndex>();
+	}
+
+	/**
+	 * @return index of the listing with the key and version, or null if it's
+	 *         not cached.
+	 */
+	public synchronized BucketIntervalIndex get(Object key, Object version) {
+		CachedIndex cached = cachedIndexes.get(key);
+		if (cached == null || !cached.version.equals(version))
+			return null;
+		BucketIntervalIndex index = cached.index.get();
+		if (index == null)
+			cachedIndexes.remove(key);
+		return index;
+	}
+
+	/**
+	 * Caches the index as the listing with the key and version, replacing any
+	 * older version of the listing.
+	 */
+	public synchronized void put(Object key, Object version,
+			BucketIntervalIndex index) {
+		cachedIndexes.put(key, new CachedIndex(version, index));
+	}
+
+	private static class CachedIndex {
+
+		private final Object version;
+		private final SoftReference<BucketIntervalIndex> index;
+
+		private CachedIndex(Object version, BucketIntervalIndex index) {
+			this.version = version;
+			this.index = new SoftReference<BucketIntervalIndex>(index);
+		}
+	}
+}
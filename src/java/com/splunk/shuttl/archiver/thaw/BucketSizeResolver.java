@@ -14,31 +14,52 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.thaw;
 
-import static com.splunk.shuttl.archiver.LogFormatter.*;
-
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
-import org.apache.log4j.Logger;
-
+import com.splunk.shuttl.archiver.StructuredLogger;
 import com.splunk.shuttl.archiver.bucketsize.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogStore;
+import com.splunk.shuttl.archiver.catalog.CatalogEntry;
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
- * Resolves sizes for buckets that has been thawed.
+ * Resolves sizes for buckets that has been thawed. Sizes are read from the
+ * {@link ArchiveCatalog} of the bucket's index when there is one. A bucket
+ * that is missing from the catalog gets the size from its size file, if it was
+ * archived when those were written, and an unknown size otherwise.
  */
 public class BucketSizeResolver {
 
-	private static final Logger logger = Logger
+	private static final StructuredLogger log = StructuredLogger
 			.getLogger(BucketSizeResolver.class);
 
 	private final ArchiveBucketSize archiveBucketSize;
+	private final ArchiveCatalogStore archiveCatalogStore;
+	private final Map<String, ArchiveCatalog> catalogs;
 
 	/**
 	 * @param archiveBucketSize
 	 *          to get the size from the archive.
 	 */
 	public BucketSizeResolver(ArchiveBucketSize archiveBucketSize) {
+		this(archiveBucketSize, null);
+	}
+
+	/**
+	 * @param archiveBucketSize
+	 *          to get the size from the archive, when it's not in the catalog.
+	 * @param archiveCatalogStore
+	 *          to get the size from the catalog. Each catalog is read once per
+	 *          resolver.
+	 */
+	public BucketSizeResolver(ArchiveBucketSize archiveBucketSize,
+			ArchiveCatalogStore archiveCatalogStore) {
 		this.archiveBucketSize = archiveBucketSize;
+		this.archiveCatalogStore = archiveCatalogStore;
+		this.catalogs = new HashMap<String, ArchiveCatalog>();
 	}
 
 	/**
@@ -50,11 +71,50 @@ public class BucketSizeResolver {
 	}
 
 	private Bucket createBucketWithSize(Bucket bucket) {
-		long size = archiveBucketSize.getSize(bucket);
+		Long size = getCatalogedSize(bucket);
+		if (size == null)
+			size = getSizeFromSizeFile(bucket);
 		return createBucketWithErrorHandling(bucket, size);
 	}
 
-	private Bucket createBucketWithErrorHandling(Bucket bucket, long size) {
+	private Long getSizeFromSizeFile(Bucket bucket) {
+		try {
+			return archiveBucketSize.getSize(bucket);
+		} catch (RuntimeException e) {
+			log.debug().did("Got size of bucket from its size file", e,
+					"To get the size from the archive", "bucket", bucket);
+			return null;
+		}
+	}
+
+	private Long getCatalogedSize(Bucket bucket) {
+		ArchiveCatalog catalog = getCatalog(bucket.getIndex());
+		if (catalog == null)
+			return null;
+		CatalogEntry entry = catalog.getEntry(bucket.getName());
+		return entry != null ? entry.getSize(bucket.getFormat()) : null;
+	}
+
+	private synchronized ArchiveCatalog getCatalog(String index) {
+		if (archiveCatalogStore == null)
+			return null;
+		if (!catalogs.containsKey(index))
+			catalogs.put(index, readCatalogWithErrorHandling(index));
+		return catalogs.get(index);
+	}
+
+	private ArchiveCatalog readCatalogWithErrorHandling(String index) {
+		try {
+			return archiveCatalogStore.getCatalog(index);
+		} catch (IOException e) {
+			log.warn().warn("Read archive catalog", e,
+					"Will get bucket sizes from the archive", "index", index,
+					"exception", e);
+			return null;
+		}
+	}
+
+	private Bucket createBucketWithErrorHandling(Bucket bucket, Long size) {
 		try {
 			return new Bucket(bucket.getURI(), bucket.getIndex(), bucket.getName(),
 					bucket.getFormat(), size);
@@ -64,9 +124,9 @@ public class BucketSizeResolver {
 		}
 	}
 
-	private void logIOException(Bucket bucket, long size, IOException e) {
-		logger.error(did("Tried creating " + "bucket with size", e,
+	private void logIOException(Bucket bucket, Long size, IOException e) {
+		log.error().did("Tried creating " + "bucket with size", e,
 				"To create a bucket from " + "an existing bucket object"
-						+ " keeping everything but size.", "bucket", bucket, "size", size));
+						+ " keeping everything but size.", "bucket", bucket, "size", size);
 	}
 }
@@ -19,24 +19,39 @@ import static com.splunk.shuttl.archiver.LogFormatter.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.bucketlock.BucketLock;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
-import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFiltered;
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.thaw.ThawProgress.BucketState;
 
 /**
  * Interacts with the archive to thaw buckets within the users needs, which is
- * currently only a time range.
+ * currently only a time range.<br/>
+ * <br/>
+ * Buckets are thawed in a pipeline. Transfer workers get buckets from the
+ * archive and hand them to import workers, so that transferring a bucket
+ * overlaps with importing the previous one. At most as many buckets as there
+ * are workers can be transferred but not yet imported, which bounds the disk
+ * used by transfers.
  */
 public class BucketThawer {
 
 	private static final Logger logger = Logger.getLogger(BucketThawer.class);
 
+	public static final int DEFAULT_TRANSFER_WORKERS = 2;
+	public static final int DEFAULT_IMPORT_WORKERS = 2;
+
 	private final ListsBucketsFiltered listsBucketsFiltered;
 	private final GetsBucketsFromArchive getsBucketsFromArchive;
 	private final ThawLocationProvider thawLocationProvider;
@@ -44,6 +59,10 @@ public class BucketThawer {
 	private final List<Bucket> skippedBuckets;
 	private final List<FailedBucket> failedBuckets;
 	private final BucketLocker thawBucketLocker;
+	private final int transferWorkers;
+	private final int importWorkers;
+	private final ThawProgress progress;
+	private volatile boolean cancelled;
 
 	public static class FailedBucket {
 
@@ -57,6 +76,17 @@ public class BucketThawer {
 
 	}
 
+	/**
+	 * @see #BucketThawer(ListsBucketsFiltered, GetsBucketsFromArchive,
+	 *      ThawLocationProvider, BucketLocker, int, int)
+	 */
+	public BucketThawer(ListsBucketsFiltered listsBucketsFiltered,
+			GetsBucketsFromArchive getsBucketsFromArchive,
+			ThawLocationProvider thawLocationProvider, BucketLocker thawBucketLocker) {
+		this(listsBucketsFiltered, getsBucketsFromArchive, thawLocationProvider,
+				thawBucketLocker, DEFAULT_TRANSFER_WORKERS, DEFAULT_IMPORT_WORKERS);
+	}
+
 	/**
 	 * @param listsBucketsFiltered
 	 *          for listing buckets in the archive.
@@ -66,22 +96,33 @@ public class BucketThawer {
 	 *          for getting the location on local disk for the thawed bucket.
 	 * @param thawBucketLocker
 	 *          to handle parallel thawing synchronization.
+	 * @param transferWorkers
+	 *          number of threads transferring buckets from the archive.
+	 * @param importWorkers
+	 *          number of threads importing transferred buckets.
 	 */
 	public BucketThawer(ListsBucketsFiltered listsBucketsFiltered,
 			GetsBucketsFromArchive getsBucketsFromArchive,
-			ThawLocationProvider thawLocationProvider, BucketLocker thawBucketLocker) {
+			ThawLocationProvider thawLocationProvider,
+			BucketLocker thawBucketLocker, int transferWorkers, int importWorkers) {
 		this.listsBucketsFiltered = listsBucketsFiltered;
 		this.getsBucketsFromArchive = getsBucketsFromArchive;
 		this.thawLocationProvider = thawLocationProvider;
 		this.thawBucketLocker = thawBucketLocker;
+		this.transferWorkers = Math.max(1, transferWorkers);
+		this.importWorkers = Math.max(1, importWorkers);
 
-		this.successfulThawedBuckets = new ArrayList<Bucket>();
-		this.skippedBuckets = new ArrayList<Bucket>();
-		this.failedBuckets = new ArrayList<FailedBucket>();
+		this.successfulThawedBuckets = Collections
+				.synchronizedList(new ArrayList<Bucket>());
+		this.skippedBuckets = Collections.synchronizedList(new ArrayList<Bucket>());
+		this.failedBuckets = Collections
+				.synchronizedList(new ArrayList<FailedBucket>());
+		this.progress = new ThawProgress();
 	}
 
 	/**
-	 * Thaws buckets within a time range from one or all indexes.
+	 * Thaws buckets within a time range from one or all indexes. Returns when
+	 * all buckets are thawed, skipped or failed.
 	 * 
 	 * @param index
 	 *          to thaw buckets from. if {@code null}, thaw from all indexes.
@@ -93,18 +134,62 @@ public class BucketThawer {
 	public void thawBuckets(String index, Date earliestTime, Date latestTime) {
 		List<Bucket> bucketsToThaw = getFilteredBuckets(index, earliestTime,
 				latestTime);
-		for (Bucket bucket : bucketsToThaw)
-			try {
-				if (!isBucketAlreadyThawed(bucket)) {
-					thawBucketLocker.callBucketHandlerUnderSharedLock(bucket,
-							new ThawBucketFromArchive());
-				} else {
-					skippedBuckets.add(bucket);
-				}
-			} catch (IOException e) {
-				logIOExceptionFromCheckingIfBucketWasThawed(bucket, e);
-				failedBuckets.add(new FailedBucket(bucket, e));
-			}
+		progress.start(bucketsToThaw);
+		try {
+			if (!bucketsToThaw.isEmpty())
+				thawInPipeline(index, bucketsToThaw);
+		} finally {
+			progress.finish();
+		}
+	}
+
+	private void thawInPipeline(String index, List<Bucket> bucketsToThaw) {
+		ExecutorService transferExecutor = Executors
+				.newFixedThreadPool(transferWorkers);
+		ExecutorService importExecutor = Executors
+				.newFixedThreadPool(importWorkers);
+		Semaphore transferredSlots = new Semaphore(transferWorkers + importWorkers);
+		try {
+			for (Bucket bucket : bucketsToThaw)
+				transferExecutor.execute(new TransferBucket(bucket, importExecutor,
+						transferredSlots));
+			awaitTermination(transferExecutor);
+			awaitTermination(importExecutor);
+		} catch (InterruptedException e) {
+			logger.warn(warn("Waited for buckets to thaw", e,
+					"Stopping the thawing", "index", index));
+			Thread.currentThread().interrupt();
+		} finally {
+			transferExecutor.shutdownNow();
+			importExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Cancels the thawing. Buckets that are being transferred or imported are
+	 * finished, while the buckets that have not started are
+	 * {@link ThawProgress.BucketState#CANCELLED}.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return progress of the thawing, which can be read while it's thawing.
+	 */
+	public ThawProgress getProgress() {
+		return progress;
+	}
+
+	private void awaitTermination(ExecutorService executor)
+			throws InterruptedException {
+		executor.shutdown();
+		while (!executor.awaitTermination(1, TimeUnit.MINUTES))
+			logger.debug(will("Keep waiting for thawing workers"));
 	}
 
 	private List<Bucket> getFilteredBuckets(String index, Date earliestTime,
@@ -128,33 +213,131 @@ public class BucketThawer {
 				+ "was already thawed.", "bucket", bucket, "exception", e));
 	}
 
+	private void skip(Bucket bucket) {
+		skippedBuckets.add(bucket);
+		progress.setState(bucket, BucketState.SKIPPED);
+	}
+
+	private void fail(Bucket bucket, Exception e) {
+		failedBuckets.add(new FailedBucket(bucket, e));
+		progress.setState(bucket, BucketState.FAILED);
+	}
+
 	/**
-	 * Class to call from the {@link BucketLocker}. Thaws bucket from archive
-	 * during bucket lock. It simply calls a method in this class. It is all
-	 * synchronous and not asynchronous as it might seem.
+	 * @return true if the bucket's lock was taken exclusively and then converted
+	 *         to shared, the same way as
+	 *         {@link BucketLocker#callBucketHandlerUnderSharedLock}.
 	 */
-	private class ThawBucketFromArchive implements SharedLockBucketHandler {
+	private boolean tryLockShared(BucketLock bucketLock) {
+		return bucketLock.tryLockExclusive()
+				&& bucketLock.tryConvertExclusiveToSharedLock();
+	}
 
-		@Override
-		public void handleSharedLockedBucket(Bucket bucket) {
-			BucketThawer.this.thawBucketFromArchive(bucket);
+	/**
+	 * First stage of the pipeline. Transfers a bucket under its shared lock and
+	 * hands it, still locked, to the import stage.
+	 */
+	private class TransferBucket implements Runnable {
+
+		private final Bucket bucket;
+		private final ExecutorService importExecutor;
+		private final Semaphore transferredSlots;
+
+		public TransferBucket(Bucket bucket, ExecutorService importExecutor,
+				Semaphore transferredSlots) {
+			this.bucket = bucket;
+			this.importExecutor = importExecutor;
+			this.transferredSlots = transferredSlots;
 		}
 
 		@Override
-		public void bucketWasLocked(Bucket bucket) {
-			BucketThawer.this.skippedBuckets.add(bucket);
+		public void run() {
+			try {
+				if (cancelled)
+					progress.setState(bucket, BucketState.CANCELLED);
+				else if (isBucketAlreadyThawed(bucket))
+					skip(bucket);
+				else
+					transferUnderLock();
+			} catch (IOException e) {
+				logIOExceptionFromCheckingIfBucketWasThawed(bucket, e);
+				fail(bucket, e);
+			} catch (InterruptedException e) {
+				fail(bucket, e);
+				Thread.currentThread().interrupt();
+			}
 		}
 
+		private void transferUnderLock() throws InterruptedException {
+			BucketLock bucketLock = thawBucketLocker.getLockForBucket(bucket);
+			boolean handedToImport = false;
+			try {
+				if (!tryLockShared(bucketLock)) {
+					skip(bucket);
+					return;
+				}
+				transferredSlots.acquire();
+				try {
+					if (cancelled) {
+						progress.setState(bucket, BucketState.CANCELLED);
+						return;
+					}
+					progress.setState(bucket, BucketState.TRANSFERRING);
+					TransferredBucket transferredBucket = getsBucketsFromArchive
+							.transferBucketFromArchive(bucket);
+					progress.setState(bucket, BucketState.IMPORTING);
+					importExecutor.execute(new ImportBucket(bucket, transferredBucket,
+							bucketLock, transferredSlots));
+					handedToImport = true;
+				} catch (ThawTransferFailException e) {
+					fail(bucket, e);
+				} catch (RuntimeException e) {
+					fail(bucket, e);
+				} finally {
+					if (!handedToImport)
+						transferredSlots.release();
+				}
+			} finally {
+				if (!handedToImport)
+					bucketLock.closeLock();
+			}
+		}
 	}
 
-	private void thawBucketFromArchive(Bucket bucket) {
-		try {
-			Bucket thawedBucket = getsBucketsFromArchive.getBucketFromArchive(bucket);
-			successfulThawedBuckets.add(thawedBucket);
-		} catch (ThawTransferFailException e) {
-			failedBuckets.add(new FailedBucket(bucket, e));
-		} catch (ImportThawedBucketFailException e) {
-			failedBuckets.add(new FailedBucket(bucket, e));
+	/**
+	 * Second stage of the pipeline. Imports a transferred bucket and releases
+	 * its lock.
+	 */
+	private class ImportBucket implements Runnable {
+
+		private final Bucket bucket;
+		private final TransferredBucket transferredBucket;
+		private final BucketLock bucketLock;
+		private final Semaphore transferredSlots;
+
+		public ImportBucket(Bucket bucket, TransferredBucket transferredBucket,
+				BucketLock bucketLock, Semaphore transferredSlots) {
+			this.bucket = bucket;
+			this.transferredBucket = transferredBucket;
+			this.bucketLock = bucketLock;
+			this.transferredSlots = transferredSlots;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Bucket thawedBucket = getsBucketsFromArchive
+						.importTransferredBucket(transferredBucket);
+				successfulThawedBuckets.add(thawedBucket);
+				progress.thawed(bucket, thawedBucket);
+			} catch (ImportThawedBucketFailException e) {
+				fail(bucket, e);
+			} catch (RuntimeException e) {
+				fail(bucket, e);
+			} finally {
+				bucketLock.closeLock();
+				transferredSlots.release();
+			}
 		}
 	}
 
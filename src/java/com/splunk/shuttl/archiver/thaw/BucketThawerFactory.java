@@ -14,16 +14,30 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.thaw;
 
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import javax.management.InstanceNotFoundException;
+
+import org.apache.log4j.Logger;
+
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.PathResolver;
 import com.splunk.shuttl.archiver.bucketsize.ArchiveBucketSize;
 import com.splunk.shuttl.archiver.bucketsize.BucketSizeIO;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogStore;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
+import com.splunk.shuttl.archiver.history.OperationLedger;
 import com.splunk.shuttl.archiver.importexport.BucketImporter;
+import com.splunk.shuttl.archiver.importexport.compressed.BucketCompressor;
+import com.splunk.shuttl.archiver.importexport.csv.CsvExportMode;
+import com.splunk.shuttl.archiver.importexport.csv.CsvImporter;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFiltered;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFilteredFactory;
 import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.server.mbeans.ShuttlArchiver;
+import com.splunk.shuttl.server.mbeans.ShuttlArchiverMBean;
 
 /**
  * Factory for getting {@link BucketThawer}
@@ -36,8 +50,28 @@ public class BucketThawerFactory {
 	public static BucketThawer createDefaultThawer() {
 		SplunkSettings splunkSettings = SplunkSettingsFactory.create();
 		ArchiveConfiguration config = ArchiveConfiguration.getSharedInstance();
+		ShuttlArchiverMBean archiverMBean = getArchiverMBean();
 		return createWithConfigAndSplunkSettingsAndLocalFileSystemPaths(config,
-				splunkSettings, LocalFileSystemPaths.create());
+				splunkSettings, LocalFileSystemPaths.create(), workersOrDefault(
+						archiverMBean.getThawTransferWorkers(),
+						BucketThawer.DEFAULT_TRANSFER_WORKERS), workersOrDefault(
+						archiverMBean.getThawImportWorkers(),
+						BucketThawer.DEFAULT_IMPORT_WORKERS));
+	}
+
+	private static ShuttlArchiverMBean getArchiverMBean() {
+		try {
+			return ShuttlArchiver.getMBeanProxy();
+		} catch (InstanceNotFoundException e) {
+			Logger.getLogger(BucketThawerFactory.class).error(
+					did("Tried getting the MBean for ShuttlArchiver", e,
+							"To get the MBean", "exception", e));
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static int workersOrDefault(Integer workers, int defaultWorkers) {
+		return workers != null && workers > 0 ? workers : defaultWorkers;
 	}
 
 	/**
@@ -46,30 +80,62 @@ public class BucketThawerFactory {
 	public static BucketThawer createWithConfigAndSplunkSettingsAndLocalFileSystemPaths(
 			ArchiveConfiguration configuration, SplunkSettings splunkSettings,
 			LocalFileSystemPaths localFileSystemPaths) {
+		return createWithConfigAndSplunkSettingsAndLocalFileSystemPaths(
+				configuration, splunkSettings, localFileSystemPaths,
+				BucketThawer.DEFAULT_TRANSFER_WORKERS,
+				BucketThawer.DEFAULT_IMPORT_WORKERS);
+	}
+
+	/**
+	 * @param transferWorkers
+	 *          number of threads transferring buckets from the archive.
+	 * @param importWorkers
+	 *          number of threads importing transferred buckets.
+	 */
+	public static BucketThawer createWithConfigAndSplunkSettingsAndLocalFileSystemPaths(
+			ArchiveConfiguration configuration, SplunkSettings splunkSettings,
+			LocalFileSystemPaths localFileSystemPaths, int transferWorkers,
+			int importWorkers) {
 		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
 				.getWithConfiguration(configuration);
 		ThawLocationProvider thawLocationProvider = new ThawLocationProvider(splunkSettings, localFileSystemPaths.getThawTransfersDirectory());
 
 		ThawBucketTransferer thawBucketTransferer = getThawBucketTransferer(
-				archiveFileSystem, thawLocationProvider);
+				archiveFileSystem, thawLocationProvider,
+				configuration.getCsvExportMode());
 		ListsBucketsFiltered listsBucketsFiltered = ListsBucketsFilteredFactory
-				.create(configuration);
+				.create(configuration, localFileSystemPaths);
 		BucketSizeIO bucketSizeIO = new BucketSizeIO(archiveFileSystem,
 				localFileSystemPaths);
+		ArchiveBucketSize archiveBucketSize = ArchiveBucketSize.create(
+				configuration, bucketSizeIO);
 		BucketSizeResolver bucketSizeResolver = new BucketSizeResolver(
-				ArchiveBucketSize.create(configuration, bucketSizeIO));
+				archiveBucketSize, ArchiveCatalogStore.create(archiveFileSystem,
+						new PathResolver(configuration), archiveBucketSize,
+						localFileSystemPaths));
 		GetsBucketsFromArchive getsBucketsFromArchive = new GetsBucketsFromArchive(
-				thawBucketTransferer, BucketImporter.create(), bucketSizeResolver);
+				thawBucketTransferer, BucketImporter.create(), bucketSizeResolver,
+				new OperationLedger(localFileSystemPaths.getOperationLedgerDirectory()));
 		return new BucketThawer(listsBucketsFiltered, getsBucketsFromArchive,
 				thawLocationProvider, new ThawBucketLocker(
-						localFileSystemPaths.getThawLocksDirectory()));
+						localFileSystemPaths.getThawLocksDirectory()), transferWorkers,
+				importWorkers);
 	}
 
+	/**
+	 * Csv buckets are imported while they're streamed from the archive when
+	 * they're also exported with a stream, so that neither archiving or thawing
+	 * lands the csv on the local disk.
+	 */
 	private static ThawBucketTransferer getThawBucketTransferer(
 			ArchiveFileSystem archiveFileSystem,
-			ThawLocationProvider thawLocationProvider) {
+			ThawLocationProvider thawLocationProvider, CsvExportMode csvExportMode) {
+		CsvImporter csvImporter = null;
+		if (csvExportMode != null && !CsvExportMode.FILE.equals(csvExportMode))
+			csvImporter = CsvImporter.create();
 		ThawBucketTransferer thawBucketTransferer = new ThawBucketTransferer(
-				thawLocationProvider, archiveFileSystem, new BucketFactory());
+				thawLocationProvider, archiveFileSystem, new BucketFactory(),
+				BucketCompressor.create(), csvImporter);
 		return thawBucketTransferer;
 	}
 }
@@ -18,6 +18,11 @@ import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.history.OperationLedger;
+import com.splunk.shuttl.archiver.history.OperationRecord;
+import com.splunk.shuttl.archiver.history.OperationType;
+import com.splunk.shuttl.archiver.history.StageTimer;
 import com.splunk.shuttl.archiver.importexport.BucketImporter;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.BucketFactory;
@@ -33,6 +38,7 @@ public class GetsBucketsFromArchive {
 	private final ThawBucketTransferer thawBucketTransferer;
 	private final BucketImporter bucketImporter;
 	private final BucketSizeResolver bucketSizeResolver;
+	private final OperationLedger operationLedger;
 
 	/**
 	 * @param thawBucketTransferer
@@ -41,9 +47,20 @@ public class GetsBucketsFromArchive {
 	 */
 	public GetsBucketsFromArchive(ThawBucketTransferer thawBucketTransferer,
 			BucketImporter bucketImporter, BucketSizeResolver bucketSizeResolver) {
+		this(thawBucketTransferer, bucketImporter, bucketSizeResolver, null);
+	}
+
+	/**
+	 * @param operationLedger
+	 *          to record every thawed bucket in, or null to not record them.
+	 */
+	public GetsBucketsFromArchive(ThawBucketTransferer thawBucketTransferer,
+			BucketImporter bucketImporter, BucketSizeResolver bucketSizeResolver,
+			OperationLedger operationLedger) {
 		this.thawBucketTransferer = thawBucketTransferer;
 		this.bucketImporter = bucketImporter;
 		this.bucketSizeResolver = bucketSizeResolver;
+		this.operationLedger = operationLedger;
 	}
 
 	/**
@@ -55,16 +72,86 @@ public class GetsBucketsFromArchive {
 	 */
 	public Bucket getBucketFromArchive(Bucket bucket)
 			throws ThawTransferFailException, ImportThawedBucketFailException {
+		return importTransferredBucket(transferBucketFromArchive(bucket));
+	}
+
+	/**
+	 * First half of {@link #getBucketFromArchive(Bucket)}, transferring the
+	 * bucket to the thaw transfers location.
+	 * 
+	 * @return transferred bucket, to pass to
+	 *         {@link #importTransferredBucket(TransferredBucket)}.
+	 * @throws ThawTransferFailException
+	 *           if the thawing fails.
+	 */
+	public TransferredBucket transferBucketFromArchive(Bucket bucket)
+			throws ThawTransferFailException {
 		logger.info(will("Attempting to thaw bucket", "bucket", bucket));
-		Bucket thawedBucket = getTransferedBucket(bucket);
-		Bucket importedBucket = importThawedBucket(thawedBucket);
-		Bucket bucketWithSize = bucketSizeResolver.resolveBucketSize(thawedBucket);
+		StageTimer timer = new StageTimer();
+		Bucket transferredBucket = null;
+		try {
+			transferredBucket = getTransferedBucket(bucket);
+		} finally {
+			timer.endStage("transfer");
+			if (transferredBucket == null)
+				recordOperation(bucket, timer, false);
+		}
+		return new TransferredBucket(bucket, transferredBucket, timer);
+	}
+
+	/**
+	 * Second half of {@link #getBucketFromArchive(Bucket)}, importing a
+	 * transferred bucket into thaw.
+	 * 
+	 * @return thawed bucket.
+	 * @throws ImportThawedBucketFailException
+	 *           if the import of the thawed bucket fails.
+	 */
+	public Bucket importTransferredBucket(TransferredBucket transferred)
+			throws ImportThawedBucketFailException {
+		StageTimer timer = transferred.getTimer();
+		timer.restart();
+		boolean imported = false;
+		try {
+			Bucket thawed = importAndResolveSize(transferred);
+			imported = true;
+			return thawed;
+		} finally {
+			timer.endStage("import");
+			recordOperation(transferred.getArchivedBucket(), timer, imported);
+		}
+	}
+
+	private Bucket importAndResolveSize(TransferredBucket transferred)
+			throws ImportThawedBucketFailException {
+		Bucket importedBucket = importThawedBucket(transferred.getBucket());
+		Bucket bucketWithSize = bucketSizeResolver
+				.resolveBucketSize(getBucketToResolveSizeWith(transferred));
 		logger.info(done("Thawed bucket", "bucket", importedBucket));
 		return BucketFactory.createBucketWithIndexDirectoryAndSize(
 				importedBucket.getIndex(), importedBucket.getDirectory(),
 				importedBucket.getFormat(), bucketWithSize.getSize());
 	}
 
+	/**
+	 * A csv bucket that was imported while it was transferred is no longer in
+	 * the format it was archived in, so its size is resolved with the archived
+	 * bucket instead.
+	 */
+	private Bucket getBucketToResolveSizeWith(TransferredBucket transferred) {
+		Bucket thawedBucket = transferred.getBucket();
+		if (thawedBucket != null
+				&& !isSameFormat(transferred.getArchivedBucket(), thawedBucket))
+			return transferred.getArchivedBucket();
+		return thawedBucket;
+	}
+
+	private boolean isSameFormat(Bucket bucket, Bucket otherBucket) {
+		BucketFormat format = bucket.getFormat();
+		return format == null ? otherBucket.getFormat() == null : format
+				.equals(otherBucket.getFormat());
+	}
+
 	private Bucket getTransferedBucket(Bucket bucket)
 			throws ThawTransferFailException {
 		try {
@@ -76,6 +163,16 @@ public class GetsBucketsFromArchive {
 		}
 	}
 
+	private void recordOperation(Bucket bucket, StageTimer timer,
+			boolean successful) {
+		if (operationLedger == null)
+			return;
+		BucketFormat format = bucket.getFormat();
+		operationLedger.record(OperationRecord.create(timer, OperationType.THAW,
+				bucket.getIndex(), bucket.getName(),
+				format == null ? null : format.name(), bucket.getSize(), successful));
+	}
+
 	private Bucket importThawedBucket(Bucket thawedBucket)
 			throws ImportThawedBucketFailException {
 		try {
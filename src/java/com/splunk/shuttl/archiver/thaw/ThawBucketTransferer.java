@@ -17,9 +17,23 @@ package com.splunk.shuttl.archiver.thaw;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.ChecksumManifest;
 import com.splunk.shuttl.archiver.filesystem.FileOverwriteException;
+import com.splunk.shuttl.archiver.importexport.compressed.BucketCompressor;
+import com.splunk.shuttl.archiver.importexport.csv.CsvImporter;
+import com.splunk.shuttl.archiver.importexport.csv.CsvStreamExporter;
+import com.splunk.shuttl.archiver.metrics.PipelineStage;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.BucketFactory;
 
@@ -31,35 +45,246 @@ public class ThawBucketTransferer {
 	private final ThawLocationProvider thawLocationProvider;
 	private final ArchiveFileSystem archiveFileSystem;
 	private final BucketFactory bucketFactory;
+	private final BucketCompressor bucketCompressor;
+	private final CsvImporter csvImporter;
 
 	public ThawBucketTransferer(ThawLocationProvider thawLocationProvider,
 			ArchiveFileSystem archiveFileSystem, BucketFactory bucketFactory) {
+		this(thawLocationProvider, archiveFileSystem, bucketFactory,
+				BucketCompressor.create());
+	}
+
+	/**
+	 * @param bucketCompressor
+	 *          for decompressing buckets in
+	 *          {@link BucketFormat#SPLUNK_BUCKET_COMPRESSED}.
+	 */
+	public ThawBucketTransferer(ThawLocationProvider thawLocationProvider,
+			ArchiveFileSystem archiveFileSystem, BucketFactory bucketFactory,
+			BucketCompressor bucketCompressor) {
+		this(thawLocationProvider, archiveFileSystem, bucketFactory,
+				bucketCompressor, null);
+	}
+
+	/**
+	 * @param csvImporter
+	 *          for importing {@link BucketFormat#CSV} buckets while their csv is
+	 *          streamed from the archive, or null to transfer the csv to the
+	 *          local disk first.
+	 */
+	public ThawBucketTransferer(ThawLocationProvider thawLocationProvider,
+			ArchiveFileSystem archiveFileSystem, BucketFactory bucketFactory,
+			BucketCompressor bucketCompressor, CsvImporter csvImporter) {
 		this.thawLocationProvider = thawLocationProvider;
 		this.archiveFileSystem = archiveFileSystem;
 		this.bucketFactory = bucketFactory;
+		this.bucketCompressor = bucketCompressor;
+		this.csvImporter = csvImporter;
 	}
 
 	/**
 	 * Transfers an archived bucket in the thaw directory of the bucket's index.
+	 * A bucket in {@link BucketFormat#SPLUNK_BUCKET_COMPRESSED} is decompressed
+	 * while it's transferred, but keeps its format so that its archived
+	 * metadata can still be found. A {@link BucketFormat#CSV} bucket that was
+	 * archived compressed is decompressed to its .csv file. When there's a
+	 * {@link CsvImporter} the csv is instead streamed straight in to the import
+	 * tool, and the transferred bucket is in {@link BucketFormat#SPLUNK_BUCKET}.
+	 * <br/>
+	 * The archived files are verified against the bucket's
+	 * {@link ChecksumManifest} while they are streamed, when the bucket was
+	 * archived with one.
 	 * 
 	 * @return the transferred bucket.
 	 */
 	public Bucket transferBucketToThaw(Bucket bucket) throws IOException {
-		File thawTransferLocation = thawBucketToTransferLocation(bucket);
+		File thawTransferLocation = timedThawBucketToTransferLocation(bucket);
 		File bucketsThawLocation = moveTransferedBucketToThawLocation(bucket,
 				thawTransferLocation);
 		return bucketFactory.createWithIndexDirectoryAndSize(bucket.getIndex(),
-				bucketsThawLocation, bucket.getFormat(), bucket.getSize());
+				bucketsThawLocation, getTransferredFormat(bucket), bucket.getSize());
+	}
+
+	private BucketFormat getTransferredFormat(Bucket bucket) {
+		return isImportingCsvStream(bucket) ? BucketFormat.SPLUNK_BUCKET : bucket
+				.getFormat();
+	}
+
+	private boolean isImportingCsvStream(Bucket bucket) {
+		return csvImporter != null && BucketFormat.CSV.equals(bucket.getFormat());
+	}
+
+	private File timedThawBucketToTransferLocation(Bucket bucket)
+			throws IOException {
+		long start = System.nanoTime();
+		File thawTransferLocation = null;
+		try {
+			thawTransferLocation = thawBucketToTransferLocation(bucket);
+			PipelineStage.THAW_GET.succeeded(start, bucket.getSize());
+			return thawTransferLocation;
+		} finally {
+			if (thawTransferLocation == null)
+				PipelineStage.THAW_GET.failed(start);
+		}
 	}
 
 	private File thawBucketToTransferLocation(Bucket bucket)
 			throws FileNotFoundException, FileOverwriteException, IOException {
 		File thawTransferLocation = thawLocationProvider
 				.getThawTransferLocation(bucket);
-		archiveFileSystem.getFile(thawTransferLocation, bucket.getURI());
+		if (isCompressed(bucket))
+			decompressBucketToTransferLocation(bucket, thawTransferLocation);
+		else if (isImportingCsvStream(bucket))
+			importCsvStreamToTransferLocation(bucket, thawTransferLocation);
+		else
+			getFilesToTransferLocation(bucket, thawTransferLocation);
 		return thawTransferLocation;
 	}
 
+	private void getFilesToTransferLocation(Bucket bucket,
+			File thawTransferLocation) throws IOException {
+		URI compressedCsvFile = getCompressedCsvFile(bucket);
+		if (compressedCsvFile != null)
+			decompressCsvToTransferLocation(bucket, compressedCsvFile,
+					thawTransferLocation);
+		else
+			archiveFileSystem.getFile(thawTransferLocation, bucket.getURI());
+	}
+
+	private boolean isCompressed(Bucket bucket) {
+		return BucketFormat.SPLUNK_BUCKET_COMPRESSED.equals(bucket.getFormat());
+	}
+
+	private void decompressBucketToTransferLocation(Bucket bucket,
+			File thawTransferLocation) throws IOException {
+		if (thawTransferLocation.exists())
+			throw new FileOverwriteException(thawTransferLocation
+					+ " already exist.");
+		URI compressedFile = getCompressedFile(bucket);
+		InputStream in = openVerifiedFile(bucket, compressedFile);
+		try {
+			bucketCompressor.decompressBucket(new CloseShieldInputStream(in),
+					thawTransferLocation);
+			readToEnd(in);
+		} catch (IOException e) {
+			FileUtils.deleteQuietly(thawTransferLocation);
+			throw e;
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * @return the compressed csv file of a {@link BucketFormat#CSV} bucket that
+	 *         was archived with a compressed stream, or null.
+	 */
+	private URI getCompressedCsvFile(Bucket bucket) throws IOException {
+		if (BucketFormat.CSV.equals(bucket.getFormat()))
+			for (URI uri : archiveFileSystem.listPath(bucket.getURI()))
+				if (isCompressedCsv(uri))
+					return uri;
+		return null;
+	}
+
+	private void decompressCsvToTransferLocation(Bucket bucket,
+			URI compressedCsvFile, File thawTransferLocation) throws IOException {
+		if (thawTransferLocation.exists())
+			throw new FileOverwriteException(thawTransferLocation
+					+ " already exist.");
+		if (!thawTransferLocation.mkdirs())
+			throw new IOException("Could not create directory: "
+					+ thawTransferLocation);
+		InputStream in = openVerifiedFile(bucket, compressedCsvFile);
+		try {
+			bucketCompressor.decompressFile(new CloseShieldInputStream(in),
+					new File(thawTransferLocation, bucket.getName() + ".csv"));
+			readToEnd(in);
+		} catch (IOException e) {
+			FileUtils.deleteQuietly(thawTransferLocation);
+			throw e;
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Streams the archived csv, decompressed if it was archived compressed, to
+	 * the import tool which writes the bucket to the transfer location. The csv
+	 * is never written to the local disk.
+	 */
+	private void importCsvStreamToTransferLocation(Bucket bucket,
+			File thawTransferLocation) throws IOException {
+		if (thawTransferLocation.exists())
+			throw new FileOverwriteException(thawTransferLocation
+					+ " already exist.");
+		URI csvFile = getArchivedCsvFile(bucket);
+		if (!thawTransferLocation.mkdirs())
+			throw new IOException("Could not create directory: "
+					+ thawTransferLocation);
+		boolean imported = false;
+		InputStream in = openVerifiedFile(bucket, csvFile);
+		try {
+			InputStream csv = new CloseShieldInputStream(in);
+			if (isCompressedCsv(csvFile))
+				csv = bucketCompressor.decompressingStream(csv);
+			try {
+				csvImporter.importBucketFromCsvStream(bucket.getIndex(),
+						thawTransferLocation, csv);
+			} finally {
+				IOUtils.closeQuietly(csv);
+			}
+			readToEnd(in);
+			imported = true;
+		} finally {
+			IOUtils.closeQuietly(in);
+			if (!imported)
+				FileUtils.deleteQuietly(thawTransferLocation);
+		}
+	}
+
+	private URI getArchivedCsvFile(Bucket bucket) throws IOException {
+		for (URI uri : archiveFileSystem.listPath(bucket.getURI()))
+			if (isCompressedCsv(uri) || uri.getPath().endsWith(".csv"))
+				return uri;
+		throw new FileNotFoundException("No csv file in " + bucket.getURI());
+	}
+
+	private boolean isCompressedCsv(URI file) {
+		return file.getPath().endsWith(CsvStreamExporter.COMPRESSED_CSV_EXTENSION);
+	}
+
+	/**
+	 * @return stream of a file directly in the archived bucket, that throws
+	 *         {@link com.splunk.shuttl.archiver.filesystem.ChecksumMismatchException}
+	 *         at its end if it doesn't match the bucket's checksum manifest.
+	 */
+	private InputStream openVerifiedFile(Bucket bucket, URI file)
+			throws IOException {
+		ChecksumManifest checksums = ChecksumManifest.readFromArchive(
+				archiveFileSystem, bucket.getURI());
+		InputStream in = archiveFileSystem.openFile(file);
+		if (checksums == null)
+			return in;
+		return checksums.verifyingStream(in,
+				FilenameUtils.getName(file.getPath()));
+	}
+
+	/**
+	 * The decompression stops at the end of the compressed data, so the
+	 * checksum is verified by reading what is left of the stream.
+	 */
+	private void readToEnd(InputStream in) throws IOException {
+		IOUtils.copy(in, new NullOutputStream());
+	}
+
+	private URI getCompressedFile(Bucket bucket) throws IOException {
+		for (URI uri : archiveFileSystem.listPath(bucket.getURI()))
+			if (BucketCompressor.isCompressedFileName(uri.getPath()))
+				return uri;
+		throw new FileNotFoundException("No compressed bucket file in "
+				+ bucket.getURI());
+	}
+
 	private File moveTransferedBucketToThawLocation(Bucket bucket,
 			File thawTransferLocation) throws IOException {
 		File bucketsThawLocation = thawLocationProvider
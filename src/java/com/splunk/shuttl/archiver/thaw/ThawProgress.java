@@ -0,0 +1,145 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Progress of a {@link BucketThawer}: the state of every bucket it thaws, and
+ * how many bytes it has thawed.<br/>
+ * <br/>
+ * The total bytes are the sizes of the listed buckets that have known sizes.
+ * When a bucket without a known size is thawed, its thawed size is added to the
+ * total as well.
+ */
+public class ThawProgress {
+
+	public enum BucketState {
+		QUEUED, TRANSFERRING, IMPORTING, THAWED, SKIPPED, FAILED, CANCELLED;
+
+		/**
+		 * @return true if the bucket will not change state any more.
+		 */
+		public boolean isDone() {
+			return this != QUEUED && this != TRANSFERRING && this != IMPORTING;
+		}
+	}
+
+	private final List<Bucket> buckets;
+	private final Map<Bucket, BucketState> states;
+	private final Map<Bucket, Long> listedSizes;
+	private long bytesTotal;
+	private long bytesDone;
+	private long started;
+	private long finished;
+
+	public ThawProgress() {
+		this.buckets = new ArrayList<Bucket>();
+		this.states = new IdentityHashMap<Bucket, BucketState>();
+		this.listedSizes = new IdentityHashMap<Bucket, Long>();
+	}
+
+	/**
+	 * Starts the progress with every bucket {@link BucketState#QUEUED}.
+	 */
+	public synchronized void start(List<Bucket> bucketsToThaw) {
+		started = System.currentTimeMillis();
+		for (Bucket bucket : bucketsToThaw) {
+			buckets.add(bucket);
+			states.put(bucket, BucketState.QUEUED);
+			Long size = bucket.getSize();
+			listedSizes.put(bucket, size);
+			if (size != null)
+				bytesTotal += size;
+		}
+	}
+
+	public synchronized void setState(Bucket bucket, BucketState state) {
+		states.put(bucket, state);
+	}
+
+	/**
+	 * Marks the bucket {@link BucketState#THAWED} and counts its bytes as done.
+	 */
+	public synchronized void thawed(Bucket bucket, Bucket thawedBucket) {
+		states.put(bucket, BucketState.THAWED);
+		Long listedSize = listedSizes.get(bucket);
+		Long thawedSize = thawedBucket != null ? thawedBucket.getSize() : null;
+		if (listedSize != null)
+			bytesDone += listedSize;
+		else if (thawedSize != null) {
+			bytesDone += thawedSize;
+			bytesTotal += thawedSize;
+		}
+	}
+
+	public synchronized void finish() {
+		finished = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return true when the thawing has finished.
+	 */
+	public synchronized boolean isFinished() {
+		return finished > 0;
+	}
+
+	/**
+	 * @return state of every bucket, in the order they were listed.
+	 */
+	public synchronized Map<Bucket, BucketState> getBucketStates() {
+		Map<Bucket, BucketState> orderedStates = new LinkedHashMap<Bucket, BucketState>();
+		for (Bucket bucket : buckets)
+			orderedStates.put(bucket, states.get(bucket));
+		return orderedStates;
+	}
+
+	/**
+	 * @return number of buckets in a state.
+	 */
+	public synchronized int countBuckets(BucketState state) {
+		int count = 0;
+		for (BucketState bucketState : states.values())
+			if (bucketState == state)
+				count++;
+		return count;
+	}
+
+	public synchronized long getBytesTotal() {
+		return bytesTotal;
+	}
+
+	public synchronized long getBytesDone() {
+		return bytesDone;
+	}
+
+	/**
+	 * @return bytes thawed per second, since the thawing started until now or
+	 *         until it finished.
+	 */
+	public synchronized double getBytesPerSecond() {
+		if (started == 0)
+			return 0;
+		long end = finished > 0 ? finished : System.currentTimeMillis();
+		long elapsed = Math.max(1, end - started);
+		return bytesDone * 1000.0 / elapsed;
+	}
+}
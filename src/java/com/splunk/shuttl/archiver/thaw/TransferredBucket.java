@@ -0,0 +1,62 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import com.splunk.shuttl.archiver.history.StageTimer;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * A bucket that has been transferred from the archive by
+ * {@link GetsBucketsFromArchive#transferBucketFromArchive(Bucket)}, and that
+ * is waiting to be imported with
+ * {@link GetsBucketsFromArchive#importTransferredBucket(TransferredBucket)}.
+ * It carries the archived bucket and the timer of the transfer to the import.
+ */
+public class TransferredBucket {
+
+	private final Bucket archivedBucket;
+	private final Bucket bucket;
+	private final StageTimer timer;
+
+	/**
+	 * @param archivedBucket
+	 *          that was transferred.
+	 * @param bucket
+	 *          on the local disk, that the archived bucket was transferred to.
+	 * @param timer
+	 *          that timed the transfer.
+	 */
+	public TransferredBucket(Bucket archivedBucket, Bucket bucket,
+			StageTimer timer) {
+		this.archivedBucket = archivedBucket;
+		this.bucket = bucket;
+		this.timer = timer;
+	}
+
+	public Bucket getArchivedBucket() {
+		return archivedBucket;
+	}
+
+	/**
+	 * @return the transferred bucket on the local disk.
+	 */
+	public Bucket getBucket() {
+		return bucket;
+	}
+
+	StageTimer getTimer() {
+		return timer;
+	}
+}
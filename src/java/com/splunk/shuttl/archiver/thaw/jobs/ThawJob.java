@@ -0,0 +1,160 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw.jobs;
+
+import java.util.Date;
+
+import com.splunk.shuttl.archiver.thaw.BucketThawer;
+import com.splunk.shuttl.archiver.thaw.ThawProgress;
+
+/**
+ * A request to thaw the buckets of an index in a time range, which is run by
+ * the {@link ThawJobService}. The progress of the job is read from its
+ * {@link BucketThawer} while it's running.
+ */
+public class ThawJob {
+
+	public enum State {
+		QUEUED, RUNNING, DONE, CANCELLED
+	}
+
+	private final String id;
+	private final String index;
+	private final Date from;
+	private final Date to;
+	private final BucketThawer bucketThawer;
+	private final long created;
+	private State state;
+
+	/**
+	 * @param id
+	 *          unique id of the job.
+	 * @param index
+	 *          to thaw buckets in. Null means all indexes.
+	 * @param from
+	 *          earliest time of the buckets to thaw.
+	 * @param to
+	 *          latest time of the buckets to thaw.
+	 * @param bucketThawer
+	 *          that thaws the buckets.
+	 * @param created
+	 *          time in milliseconds when the job was created.
+	 */
+	public ThawJob(String id, String index, Date from, Date to,
+			BucketThawer bucketThawer, long created) {
+		this.id = id;
+		this.index = index;
+		this.from = from;
+		this.to = to;
+		this.bucketThawer = bucketThawer;
+		this.created = created;
+		this.state = State.QUEUED;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getIndex() {
+		return index;
+	}
+
+	public Date getFrom() {
+		return from;
+	}
+
+	public Date getTo() {
+		return to;
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	public BucketThawer getBucketThawer() {
+		return bucketThawer;
+	}
+
+	public ThawProgress getProgress() {
+		return bucketThawer.getProgress();
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * @return true if the job will not change state any more.
+	 */
+	public synchronized boolean isDone() {
+		return state == State.DONE || state == State.CANCELLED;
+	}
+
+	/**
+	 * Cancels the job. A queued job will never run, and a running job stops
+	 * thawing the buckets it has not started on.
+	 */
+	public synchronized void cancel() {
+		if (isDone())
+			return;
+		bucketThawer.cancel();
+		if (state == State.QUEUED)
+			state = State.CANCELLED;
+	}
+
+	/**
+	 * Runs the job, unless it was cancelled while it was queued.
+	 */
+	void run() {
+		if (!markRunning())
+			return;
+		try {
+			bucketThawer.thawBuckets(index, from, to);
+		} finally {
+			markDone();
+		}
+	}
+
+	private synchronized boolean markRunning() {
+		if (state != State.QUEUED)
+			return false;
+		state = State.RUNNING;
+		return true;
+	}
+
+	private synchronized void markDone() {
+		state = bucketThawer.isCancelled() ? State.CANCELLED : State.DONE;
+	}
+
+	@Override
+	public int hashCode() {
+		return id.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ThawJob))
+			return false;
+		return id.equals(((ThawJob) obj).id);
+	}
+
+	@Override
+	public String toString() {
+		return "ThawJob [id=" + id + ", index=" + index + ", from=" + from
+				+ ", to=" + to + ", created=" + created + "]";
+	}
+}
@@ -0,0 +1,195 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw.jobs;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.metrics.Gauge;
+import com.splunk.shuttl.archiver.metrics.MetricsRegistry;
+import com.splunk.shuttl.archiver.thaw.BucketThawer;
+
+/**
+ * Runs {@link ThawJob}s in the Shuttl server, at most
+ * {@link #DEFAULT_MAX_CONCURRENT_THAW_JOBS} at a time. Jobs that are submitted
+ * when the limit is reached are queued. The service keeps the last
+ * {@link #MAX_FINISHED_JOBS} finished jobs, so their status can be read after
+ * they are done.
+ */
+public class ThawJobService {
+
+	private static final Logger logger = Logger.getLogger(ThawJobService.class);
+
+	static final int DEFAULT_MAX_CONCURRENT_THAW_JOBS = 2;
+	static final int MAX_FINISHED_JOBS = 100;
+
+	private static ThawJobService instance;
+
+	private final ExecutorService executor;
+	private final Map<String, ThawJob> jobs;
+
+	/**
+	 * @param executor
+	 *          with the workers that run the jobs. The number of workers limits
+	 *          how many jobs run at the same time.
+	 */
+	public ThawJobService(ExecutorService executor) {
+		this.executor = executor;
+		this.jobs = new LinkedHashMap<String, ThawJob>();
+	}
+
+	/**
+	 * Queues a job that thaws buckets with a thawer.
+	 * 
+	 * @return the queued job.
+	 */
+	public ThawJob submit(String index, Date from, Date to,
+			BucketThawer bucketThawer) {
+		ThawJob job = new ThawJob(UUID.randomUUID().toString(), index, from, to,
+				bucketThawer, System.currentTimeMillis());
+		synchronized (jobs) {
+			removeOldFinishedJobs();
+			jobs.put(job.getId(), job);
+		}
+		logger.info(will("Queue thaw job", "job_id", job.getId(), "index", index,
+				"from", from, "to", to));
+		executor.execute(new ThawJobRunner(job));
+		return job;
+	}
+
+	private void removeOldFinishedJobs() {
+		List<ThawJob> finishedJobs = new ArrayList<ThawJob>();
+		for (ThawJob job : jobs.values())
+			if (job.isDone())
+				finishedJobs.add(job);
+		Iterator<ThawJob> oldestFirst = finishedJobs.iterator();
+		for (int i = finishedJobs.size(); i >= MAX_FINISHED_JOBS; i--)
+			jobs.remove(oldestFirst.next().getId());
+	}
+
+	/**
+	 * @return job with the id, or null if there is no such job.
+	 */
+	public ThawJob getJob(String id) {
+		synchronized (jobs) {
+			return jobs.get(id);
+		}
+	}
+
+	/**
+	 * @return all the jobs, in the order they were submitted.
+	 */
+	public List<ThawJob> getJobs() {
+		synchronized (jobs) {
+			return new ArrayList<ThawJob>(jobs.values());
+		}
+	}
+
+	/**
+	 * Cancels a job.
+	 * 
+	 * @return the cancelled job, or null if there is no such job.
+	 */
+	public ThawJob cancel(String id) {
+		ThawJob job = getJob(id);
+		if (job != null) {
+			logger.info(will("Cancel thaw job", "job_id", id, "state",
+					job.getState()));
+			job.cancel();
+		}
+		return job;
+	}
+
+	/**
+	 * Stops accepting jobs. Jobs that are already queued are still run.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * @return the service shared by the Shuttl server.
+	 */
+	public static synchronized ThawJobService getSharedInstance() {
+		if (instance == null) {
+			instance = create();
+			instance.registerQueueDepthGauge(MetricsRegistry.getSharedInstance());
+		}
+		return instance;
+	}
+
+	/**
+	 * @return number of jobs that are queued or running.
+	 */
+	public int getUnfinishedJobCount() {
+		int unfinished = 0;
+		for (ThawJob job : getJobs())
+			if (!job.isDone())
+				unfinished++;
+		return unfinished;
+	}
+
+	private void registerQueueDepthGauge(MetricsRegistry registry) {
+		registry.registerGauge("queue.thaw_jobs", new Gauge() {
+
+			@Override
+			public long getValue() {
+				return getUnfinishedJobCount();
+			}
+		});
+	}
+
+	/**
+	 * @return service that runs {@link #DEFAULT_MAX_CONCURRENT_THAW_JOBS} jobs
+	 *         at a time.
+	 */
+	public static ThawJobService create() {
+		return new ThawJobService(
+				Executors.newFixedThreadPool(DEFAULT_MAX_CONCURRENT_THAW_JOBS));
+	}
+
+	private static class ThawJobRunner implements Runnable {
+
+		private final ThawJob job;
+
+		public ThawJobRunner(ThawJob job) {
+			this.job = job;
+		}
+
+		@Override
+		public void run() {
+			try {
+				logger.info(will("Run thaw job", "job_id", job.getId()));
+				job.run();
+				logger.info(done("Ran thaw job", "job_id", job.getId(), "state",
+						job.getState()));
+			} catch (RuntimeException e) {
+				logger.error(did("Ran thaw job", e, "To thaw buckets", "job_id",
+						job.getId()));
+			}
+		}
+	}
+}
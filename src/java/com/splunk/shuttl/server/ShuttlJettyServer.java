@@ -23,6 +23,10 @@ import org.eclipse.jetty.webapp.WebAppContext;
 import org.eclipse.jetty.xml.XmlConfiguration;
 
 import com.splunk.shuttl.archiver.StartUpCleaner;
+import com.splunk.shuttl.archiver.archive.jobs.ArchiveBucketService;
+import com.splunk.shuttl.archiver.archive.recovery.FailedBucketsRetryScheduler;
+import com.splunk.shuttl.archiver.archive.spool.FreezeSpoolWatcher;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemRegistry;
 import com.splunk.shuttl.server.mbeans.ShuttlServer;
 
 /**
@@ -57,9 +61,22 @@ public class ShuttlJettyServer {
 			}
 			StartUpCleaner.create().clean();
 			server.start();
+			closeArchiveFileSystemsOnShutdown();
+			ArchiveBucketService.getSharedInstance().resumeJournaledJobs();
+			FreezeSpoolWatcher.create().start();
+			FailedBucketsRetryScheduler.create().start();
 		} catch (Exception e) {
 			logger.error("Error during startup", e);
 			System.exit(1);
 		}
 	}
+
+	private static void closeArchiveFileSystemsOnShutdown() {
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				ArchiveFileSystemRegistry.getSharedInstance().shutdown();
+			}
+		});
+	}
 }
@@ -111,6 +111,86 @@ public class ShuttlArchiver extends MBeanBase<ArchiverConf> implements
 		conf.setArchiverRootURI(uri);
 	}
 
+	@Override
+	public Integer getArchiveWorkers() {
+		return conf.getArchiveWorkers();
+	}
+
+	@Override
+	public void setArchiveWorkers(Integer archiveWorkers) {
+		conf.setArchiveWorkers(archiveWorkers);
+	}
+
+	@Override
+	public String getCsvExportMode() {
+		return conf.getCsvExportMode();
+	}
+
+	@Override
+	public void setCsvExportMode(String csvExportMode) {
+		conf.setCsvExportMode(csvExportMode);
+	}
+
+	@Override
+	public Integer getThawTransferWorkers() {
+		return conf.getThawTransferWorkers();
+	}
+
+	@Override
+	public void setThawTransferWorkers(Integer thawTransferWorkers) {
+		conf.setThawTransferWorkers(thawTransferWorkers);
+	}
+
+	@Override
+	public Integer getThawImportWorkers() {
+		return conf.getThawImportWorkers();
+	}
+
+	@Override
+	public void setThawImportWorkers(Integer thawImportWorkers) {
+		conf.setThawImportWorkers(thawImportWorkers);
+	}
+
+	@Override
+	public Long getArchiveBandwidthLimit() {
+		return conf.getArchiveBandwidthLimit();
+	}
+
+	@Override
+	public void setArchiveBandwidthLimit(Long archiveBandwidthLimit) {
+		conf.setArchiveBandwidthLimit(archiveBandwidthLimit);
+	}
+
+	@Override
+	public String getArchiveBandwidthSchedule() {
+		return conf.getArchiveBandwidthSchedule();
+	}
+
+	@Override
+	public void setArchiveBandwidthSchedule(String archiveBandwidthSchedule) {
+		conf.setArchiveBandwidthSchedule(archiveBandwidthSchedule);
+	}
+
+	@Override
+	public Long getThawBandwidthLimit() {
+		return conf.getThawBandwidthLimit();
+	}
+
+	@Override
+	public void setThawBandwidthLimit(Long thawBandwidthLimit) {
+		conf.setThawBandwidthLimit(thawBandwidthLimit);
+	}
+
+	@Override
+	public String getThawBandwidthSchedule() {
+		return conf.getThawBandwidthSchedule();
+	}
+
+	@Override
+	public void setThawBandwidthSchedule(String thawBandwidthSchedule) {
+		conf.setThawBandwidthSchedule(thawBandwidthSchedule);
+	}
+
 	@Override
 	protected ArchiverConf getConfObject() {
 		return this.conf;
@@ -48,4 +48,71 @@ public interface ShuttlArchiverMBean {
 
 	public void setArchiverRootURI(String URI);
 
+	/**
+	 * @return number of threads archiving buckets in the Shuttl server. Can be
+	 *         null, when it's not configured.
+	 */
+	public Integer getArchiveWorkers();
+
+	public void setArchiveWorkers(Integer archiveWorkers);
+
+	/**
+	 * @return how buckets are exported to CSV. One of FILE, STREAM or
+	 *         COMPRESSED_STREAM. Can be null, when it's not configured.
+	 */
+	public String getCsvExportMode();
+
+	public void setCsvExportMode(String csvExportMode);
+
+	/**
+	 * @return number of threads transferring buckets from the archive when
+	 *         thawing. Can be null, when it's not configured.
+	 */
+	public Integer getThawTransferWorkers();
+
+	public void setThawTransferWorkers(Integer thawTransferWorkers);
+
+	/**
+	 * @return number of threads importing transferred buckets when thawing. Can
+	 *         be null, when it's not configured.
+	 */
+	public Integer getThawImportWorkers();
+
+	public void setThawImportWorkers(Integer thawImportWorkers);
+
+	/**
+	 * @return bytes per second that archiving is limited to, when the archive
+	 *         bandwidth schedule has no limit for the hour. Zero or null means
+	 *         unlimited.
+	 */
+	public Long getArchiveBandwidthLimit();
+
+	public void setArchiveBandwidthLimit(Long archiveBandwidthLimit);
+
+	/**
+	 * @return limits of archiving for hours of the day, on the form
+	 *         from-to=bytesPerSecond,... for example 8-18=1048576. Can be null,
+	 *         when it's not configured.
+	 */
+	public String getArchiveBandwidthSchedule();
+
+	public void setArchiveBandwidthSchedule(String archiveBandwidthSchedule);
+
+	/**
+	 * @return bytes per second that thawing is limited to, when the thaw
+	 *         bandwidth schedule has no limit for the hour. Zero or null means
+	 *         unlimited.
+	 */
+	public Long getThawBandwidthLimit();
+
+	public void setThawBandwidthLimit(Long thawBandwidthLimit);
+
+	/**
+	 * @return limits of thawing for hours of the day, on the same form as the
+	 *         archive bandwidth schedule. Can be null, when it's not configured.
+	 */
+	public String getThawBandwidthSchedule();
+
+	public void setThawBandwidthSchedule(String thawBandwidthSchedule);
+
 }
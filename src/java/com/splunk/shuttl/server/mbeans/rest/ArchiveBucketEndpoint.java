@@ -17,25 +17,24 @@ package com.splunk.shuttl.server.mbeans.rest;
 import static com.splunk.shuttl.ShuttlConstants.*;
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
-import java.io.File;
-
 import javax.ws.rs.FormParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 
 import org.apache.log4j.Logger;
 
-import com.splunk.shuttl.archiver.archive.BucketArchiver;
-import com.splunk.shuttl.archiver.archive.BucketArchiverFactory;
-import com.splunk.shuttl.archiver.archive.BucketArchiverRunner;
-import com.splunk.shuttl.archiver.archive.BucketFormat;
-import com.splunk.shuttl.archiver.archive.recovery.ArchiveBucketLock;
-import com.splunk.shuttl.archiver.bucketlock.BucketLock;
-import com.splunk.shuttl.archiver.model.Bucket;
-import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.archiver.archive.jobs.ArchiveBucketService;
+import com.splunk.shuttl.archiver.archive.jobs.ArchiveJob;
 
+/**
+ * Accepts buckets to archive and queues them in the
+ * {@link ArchiveBucketService}. Responds with 202 Accepted and the id of the
+ * archive job, without waiting for the bucket to be archived.
+ */
 @Path(ENDPOINT_ARCHIVER + ENDPOINT_BUCKET_ARCHIVER)
 public class ArchiveBucketEndpoint {
 
@@ -44,11 +43,12 @@ public class ArchiveBucketEndpoint {
 
 	@POST
 	@Produces(MediaType.TEXT_PLAIN)
-	public void archiveBucket(@FormParam("path") String path,
+	public Response archiveBucket(@FormParam("path") String path,
 			@FormParam("index") String index) {
 		verifyValidArguments(path, index);
 		logArchiveEndpoint(path, index);
-		archiveBucketOnAnotherThread(index, path);
+		ArchiveJob job = queueBucketForArchiving(index, path);
+		return Response.status(Status.ACCEPTED).entity(job.getId()).build();
 	}
 
 	private void verifyValidArguments(String path, String index) {
@@ -74,29 +74,16 @@ public class ArchiveBucketEndpoint {
 				" Metrics - group=REST series=%s%s%s call=1", ENDPOINT_CONTEXT,
 				ENDPOINT_ARCHIVER, endpoint);
 		logger.info(logMessage);
+		RestUtil.countCall(ENDPOINT_CONTEXT + ENDPOINT_ARCHIVER + endpoint);
 	}
 
-	private void archiveBucketOnAnotherThread(String index, String path) {
-
-		logger.info(will("Attempting to archive bucket", "index", index, "path",
-				path));
-		Runnable r = createBucketArchiverRunner(index, path);
-		new Thread(r).run();
-	}
-
-	private Runnable createBucketArchiverRunner(String index, String path) {
-		BucketArchiver bucketArchiver = BucketArchiverFactory
-				.createConfiguredArchiver();
-		Bucket bucket = BucketFactory.createBucketWithIndexDirectoryAndFormat(
-				index, new File(path), BucketFormat.SPLUNK_BUCKET);
-		BucketLock bucketLock = new ArchiveBucketLock(bucket);
-		throwExceptionIfSharedLockCannotBeAcquired(bucketLock);
-		return new BucketArchiverRunner(bucketArchiver, bucket, bucketLock);
-	}
-
-	private void throwExceptionIfSharedLockCannotBeAcquired(BucketLock bucketLock) {
-		if (!bucketLock.tryLockShared())
-			throw new IllegalStateException("We must ensure that the"
-					+ " bucket archiver has a " + "lock to the bucket it will transfer");
+	private ArchiveJob queueBucketForArchiving(String index, String path) {
+		logger.info(will("Attempting to queue bucket for archiving", "index",
+				index, "path", path));
+		ArchiveJob job = ArchiveBucketService.getSharedInstance().archiveBucket(
+				index, path);
+		logger.info(done("Queued bucket for archiving", "job_id", job.getId(),
+				"index", index, "path", path));
+		return job;
 	}
 }
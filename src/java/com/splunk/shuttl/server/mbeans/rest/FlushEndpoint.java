@@ -31,6 +31,7 @@ import javax.ws.rs.core.MediaType;
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.flush.Flusher;
+import com.splunk.shuttl.archiver.history.OperationLedger;
 import com.splunk.shuttl.archiver.listers.ArchivedIndexesListerFactory;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.IllegalIndexException;
@@ -58,7 +59,8 @@ public class FlushEndpoint {
 
 		List<Exception> errors = new ArrayList<Exception>();
 		Flusher flusher = new Flusher(SplunkSettingsFactory.create(),
-				ArchivedIndexesListerFactory.create());
+				ArchivedIndexesListerFactory.create(),
+				OperationLedger.getSharedInstance());
 
 		List<String> indexes;
 		if (index == null)
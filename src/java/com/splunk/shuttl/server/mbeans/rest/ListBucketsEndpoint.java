@@ -16,31 +16,31 @@
 package com.splunk.shuttl.server.mbeans.rest;
 
 import static com.splunk.shuttl.ShuttlConstants.*;
-import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.util.Date;
-import java.util.List;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
-import org.apache.log4j.Logger;
 import org.eclipse.jetty.util.ajax.JSON;
 
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.StructuredLogger;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.archive.PathResolver;
 import com.splunk.shuttl.archiver.bucketsize.ArchiveBucketSize;
 import com.splunk.shuttl.archiver.bucketsize.BucketSizeIO;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogStore;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.listers.ArchivedIndexesLister;
+import com.splunk.shuttl.archiver.listers.BucketTable;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFiltered;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFilteredFactory;
-import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.thaw.BucketSizeResolver;
 
 /**
@@ -48,7 +48,7 @@ import com.splunk.shuttl.archiver.thaw.BucketSizeResolver;
  */
 @Path(ENDPOINT_ARCHIVER)
 public class ListBucketsEndpoint {
-	private static final org.apache.log4j.Logger logger = Logger
+	private static final StructuredLogger log = StructuredLogger
 			.getLogger(ListBucketsEndpoint.class);
 
 	@GET
@@ -56,8 +56,8 @@ public class ListBucketsEndpoint {
 	@Path(ENDPOINT_LIST_INDEXES)
 	public String listAllIndexes() {
 
-		logger.info(happened("Received REST request to list indexes", "endpoint",
-				ENDPOINT_LIST_INDEXES));
+		log.info().happened("Received REST request to list indexes", "endpoint",
+				ENDPOINT_LIST_INDEXES);
 
 		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
 				.getConfiguredArchiveFileSystem();
@@ -73,33 +73,32 @@ public class ListBucketsEndpoint {
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
 	@Path(ENDPOINT_LIST_BUCKETS)
-	public String listBucketsForIndex(@QueryParam("index") String index,
-			@QueryParam("from") String from, @QueryParam("to") String to) {
-		logger.info(happened("Received REST request to list buckets", "endpoint",
-				ENDPOINT_LIST_BUCKETS, "index", index, "from", from, "to", to));
+	public StreamingOutput listBucketsForIndex(@QueryParam("index") String index,
+			@QueryParam("from") String from, @QueryParam("to") String to,
+			@QueryParam("limit") String limit, @QueryParam("after") String after) {
+		log.info().happened("Received REST request to list buckets", "endpoint",
+				ENDPOINT_LIST_BUCKETS, "index", index, "from", from, "to", to,
+				"limit", limit, "after", after);
 
 		Date fromDate = RestUtil.getValidFromDate(from);
 		Date toDate = RestUtil.getValidToDate(to);
+		int validLimit = StreamingBucketsOutput.getValidLimit(limit);
 
-		List<Bucket> filteredBucketsAtIndex = getFilteredBucketsAtIndex(index,
-				fromDate, toDate);
+		BucketTable filteredBuckets = getFilteredBucketsAtIndex(index, fromDate,
+				toDate);
 
-		List<Bucket> buckets = filteredBucketsAtIndex;
-		List<Bucket> bucketsWithSize = new java.util.ArrayList<Bucket>();
-		for (Bucket b : buckets)
-			bucketsWithSize.add(getBucketWithSize(b));
-
-		return RestUtil.respondWithBuckets(bucketsWithSize);
+		return StreamingBucketsOutput.create(filteredBuckets, after, validLimit,
+				getBucketSizeResolver());
 	}
 
-	private List<Bucket> getFilteredBucketsAtIndex(String index, Date fromDate,
+	private BucketTable getFilteredBucketsAtIndex(String index, Date fromDate,
 			Date toDate) {
 		ListsBucketsFiltered listsBucketsFiltered = getListsBucketsFiltered();
 		if (index == null)
-			return listsBucketsFiltered.listFilteredBuckets(fromDate, toDate);
+			return listsBucketsFiltered.listFilteredBucketTable(fromDate, toDate);
 		else
-			return listsBucketsFiltered.listFilteredBucketsAtIndex(index, fromDate,
-					toDate);
+			return listsBucketsFiltered.listFilteredBucketTableAtIndex(index,
+					fromDate, toDate);
 	}
 
 	private ListsBucketsFiltered getListsBucketsFiltered() {
@@ -107,19 +106,18 @@ public class ListBucketsEndpoint {
 				.getSharedInstance());
 	}
 
-	private static Bucket getBucketWithSize(Bucket bucket) {
-		BucketSizeResolver bucketSizeResolver = getBucketSizeResolver();
-		return bucketSizeResolver.resolveBucketSize(bucket);
-	}
-
 	private static BucketSizeResolver getBucketSizeResolver() {
 		ArchiveConfiguration config = ArchiveConfiguration.getSharedInstance();
 		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
 				.getWithConfiguration(config);
+		LocalFileSystemPaths localFileSystemPaths = LocalFileSystemPaths.create();
 		BucketSizeIO bucketSizeIO = new BucketSizeIO(archiveFileSystem,
-				LocalFileSystemPaths.create());
-		return new BucketSizeResolver(
-				ArchiveBucketSize.create(config, bucketSizeIO));
+				localFileSystemPaths);
+		ArchiveBucketSize archiveBucketSize = ArchiveBucketSize.create(config,
+				bucketSizeIO);
+		return new BucketSizeResolver(archiveBucketSize,
+				ArchiveCatalogStore.create(archiveFileSystem, new PathResolver(
+						config), archiveBucketSize, localFileSystemPaths));
 	}
 
 }
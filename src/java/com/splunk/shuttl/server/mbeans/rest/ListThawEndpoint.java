@@ -25,6 +25,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import com.splunk.shuttl.archiver.flush.ThawedBuckets;
 import com.splunk.shuttl.archiver.listers.ArchivedIndexesListerFactory;
@@ -39,11 +40,13 @@ public class ListThawEndpoint {
 
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
-	public String listThawedBuckets(@QueryParam("index") String index,
-			@QueryParam("from") String from, @QueryParam("to") String to) {
+	public Response listThawedBuckets(@QueryParam("index") String index,
+			@QueryParam("from") String from, @QueryParam("to") String to,
+			@QueryParam("limit") String limit, @QueryParam("after") String after) {
 
 		Date earliest = RestUtil.getValidFromDate(from);
 		Date latest = RestUtil.getValidToDate(to);
+		int validLimit = StreamingBucketsOutput.getValidLimit(limit);
 		List<String> indexes;
 		if (index == null)
 			indexes = ArchivedIndexesListerFactory.create().listIndexes();
@@ -53,9 +56,11 @@ public class ListThawEndpoint {
 		try {
 			List<Bucket> filteredBuckets = filteredBucketsInThaw(indexes, earliest,
 					latest);
-			return RestUtil.respondWithBuckets(filteredBuckets);
+			return Response.ok(
+					StreamingBucketsOutput.create(filteredBuckets, after, validLimit))
+					.build();
 		} catch (IllegalIndexException e) {
-			return RestUtil.respondWithIndexError(index);
+			return Response.ok(RestUtil.respondWithIndexError(index)).build();
 		}
 	}
 
@@ -0,0 +1,43 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.ShuttlConstants.*;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.splunk.shuttl.archiver.metrics.MetricsRegistry;
+
+/**
+ * Endpoint for reading the metrics of the {@link MetricsRegistry}.
+ */
+@Path(ENDPOINT_ARCHIVER + ENDPOINT_METRICS)
+public class MetricsEndpoint {
+
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public String getMetrics() {
+		Map<String, Object> metrics = new TreeMap<String, Object>(
+				MetricsRegistry.getSharedInstance().getSnapshot());
+		return RestUtil.writeMapAsJson(metrics);
+	}
+}
@@ -0,0 +1,140 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.ShuttlConstants.*;
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.history.OperationAggregate;
+import com.splunk.shuttl.archiver.history.OperationLedger;
+import com.splunk.shuttl.archiver.history.OperationType;
+
+/**
+ * Endpoint for aggregating the recorded archive, thaw and flush operations of
+ * the {@link OperationLedger} into time intervals.
+ */
+@Path(ENDPOINT_ARCHIVER + ENDPOINT_HISTORY)
+public class OperationHistoryEndpoint {
+
+	private static final Logger logger = Logger
+			.getLogger(OperationHistoryEndpoint.class);
+
+	private static final Map<String, Long> INTERVALS = new HashMap<String, Long>();
+	static {
+		INTERVALS.put("hour", 60L * 60 * 1000);
+		INTERVALS.put("day", 24L * 60 * 60 * 1000);
+		INTERVALS.put("week", 7L * 24 * 60 * 60 * 1000);
+	}
+
+	/**
+	 * @param type
+	 *          of the operations: archive, thaw or flush. Defaults to archive.
+	 * @param index
+	 *          of the operations. Defaults to all indexes.
+	 * @param from
+	 *          earliest day of the operations (on the form yyyy-MM-dd).
+	 * @param to
+	 *          latest day of the operations (on the form yyyy-MM-dd).
+	 * @param interval
+	 *          hour, day or week. Defaults to day.
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public String getHistory(@QueryParam("type") String type,
+			@QueryParam("index") String index, @QueryParam("from") String from,
+			@QueryParam("to") String to, @QueryParam("interval") String interval) {
+		logger.info(happened("Received REST request for operation history",
+				"endpoint", ENDPOINT_HISTORY, "type", type, "index", index, "from",
+				from, "to", to, "interval", interval));
+
+		OperationType operationType = getValidType(type);
+		String intervalName = interval == null ? "day" : interval;
+		long intervalMillis = getValidInterval(intervalName);
+		Date fromDate = RestUtil.getValidFromDate(from);
+		Date toDate = RestUtil.getValidToDate(to);
+
+		List<OperationAggregate> aggregates = OperationLedger.getSharedInstance()
+				.aggregate(operationType, index, fromDate.getTime(),
+						toDate.getTime(), intervalMillis);
+
+		Map<String, Object> response = new LinkedHashMap<String, Object>();
+		response.put("type", operationType.name());
+		response.put("index", index);
+		response.put("interval", intervalName);
+		response.put("aggregates", toMaps(aggregates));
+		return RestUtil.writeMapAsJson(response);
+	}
+
+	private static OperationType getValidType(String type) {
+		if (type == null)
+			return OperationType.ARCHIVE;
+		try {
+			return OperationType.valueOf(type.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw badRequest("type must be archive, thaw or flush, was: " + type);
+		}
+	}
+
+	private static long getValidInterval(String interval) {
+		Long millis = INTERVALS.get(interval);
+		if (millis == null)
+			throw badRequest("interval must be hour, day or week, was: "
+					+ interval);
+		return millis;
+	}
+
+	private static WebApplicationException badRequest(String message) {
+		return new WebApplicationException(Response.status(Status.BAD_REQUEST)
+				.entity(message).type(MediaType.TEXT_PLAIN).build());
+	}
+
+	private static List<Map<String, Object>> toMaps(
+			List<OperationAggregate> aggregates) {
+		List<Map<String, Object>> maps = new ArrayList<Map<String, Object>>();
+		for (OperationAggregate aggregate : aggregates) {
+			Map<String, Object> map = new LinkedHashMap<String, Object>();
+			map.put("start", aggregate.getIntervalStart());
+			map.put("count", aggregate.getCount());
+			map.put("failures", aggregate.getFailures());
+			map.put("bytes", aggregate.getBytes());
+			map.put("mean_ms", aggregate.getMeanMillis());
+			map.put("p50_ms", aggregate.getPercentileMillis(0.50));
+			map.put("p95_ms", aggregate.getPercentileMillis(0.95));
+			map.put("p95_ms_per_gb", aggregate.getPercentileMillisPerGigabyte(0.95));
+			map.put("stage_mean_ms", aggregate.getStageMeanMillis());
+			maps.add(map);
+		}
+		return maps;
+	}
+}
@@ -26,6 +26,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.codehaus.jackson.map.ObjectMapper;
 
+import com.splunk.shuttl.archiver.metrics.MetricsRegistry;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.thaw.StringDateConverter;
 import com.splunk.shuttl.server.model.BucketBean;
@@ -95,7 +96,18 @@ public class RestUtil {
 		return RestUtil.writeMapAsJson(response);
 	}
 
-	private static String writeMapAsJson(Map<String, Object> ret) {
+	/**
+	 * Counts a call to a REST endpoint in the shared {@link MetricsRegistry}.
+	 * 
+	 * @param series
+	 *          path of the called endpoint.
+	 */
+	public static void countCall(String series) {
+		MetricsRegistry.getSharedInstance()
+				.getCounter("rest." + series + ".calls").increment();
+	}
+
+	public static String writeMapAsJson(Map<String, Object> ret) {
 		try {
 			return new ObjectMapper().writeValueAsString(ret);
 		} catch (Exception e) {
@@ -49,6 +49,8 @@ public class ShuttlServerRest {
 				" Metrics - group=REST series=%s%s%s call=1", ENDPOINT_CONTEXT,
 				ENDPOINT_SERVER, ENDPOINT_SHUTTL_HOST);
 		logger.info(logMessage);
+		RestUtil.countCall(ENDPOINT_CONTEXT + ENDPOINT_SERVER
+				+ ENDPOINT_SHUTTL_HOST);
 
 		try {
 			return (getProxy().getHttpHost());
@@ -67,6 +69,8 @@ public class ShuttlServerRest {
 				" Metrics - group=REST series=%s%s%s call=1", ENDPOINT_CONTEXT,
 				ENDPOINT_SERVER, ENDPOINT_SHUTTL_HOST);
 		logger.info(logMessage);
+		RestUtil.countCall(ENDPOINT_CONTEXT + ENDPOINT_SERVER
+				+ ENDPOINT_SHUTTL_HOST);
 
 		try {
 			return "<html> " + "<title>" + "Shuttl Rest Endpoint" + "</title>"
@@ -86,6 +90,8 @@ public class ShuttlServerRest {
 				" Metrics - group=REST series=%s%s%s call=1", ENDPOINT_CONTEXT,
 				ENDPOINT_SERVER, ENDPOINT_SHUTTL_PORT);
 		logger.info(logMessage);
+		RestUtil.countCall(ENDPOINT_CONTEXT + ENDPOINT_SERVER
+				+ ENDPOINT_SHUTTL_PORT);
 
 		try {
 			return (Integer.toString(getProxy().getHttpPort()));
@@ -104,6 +110,8 @@ public class ShuttlServerRest {
 				" Metrics - group=REST series=%s%s%s call=1", ENDPOINT_CONTEXT,
 				ENDPOINT_SERVER, ENDPOINT_SHUTTL_PORT);
 		logger.info(logMessage);
+		RestUtil.countCall(ENDPOINT_CONTEXT + ENDPOINT_SERVER
+				+ ENDPOINT_SHUTTL_PORT);
 
 		try {
 			return "<html> " + "<title>" + "Shuttl Rest Endpoint" + "</title>"
@@ -0,0 +1,331 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.server.mbeans.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.splunk.shuttl.archiver.listers.BucketTable;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.BucketName;
+import com.splunk.shuttl.archiver.thaw.BucketSizeResolver;
+import com.splunk.shuttl.server.model.BucketBean;
+
+/**
+ * Writes a page of buckets as JSON to the response while the buckets are
+ * resolved, instead of building the whole response in memory first.<br/>
+ * <br/>
+ * The response has the buckets, the cursor to pass as <code>after</code> to
+ * get the next page, or null if it's the last page, and lastly the total size
+ * of the buckets in the page, since it's only known when all buckets have been
+ * written.<br/>
+ * <br/>
+ * Buckets are ordered by earliest time, then index, then bucket name, which is
+ * also what a cursor is compared by. A page starts after the cursor's place in
+ * that order, so paging continues even if the cursor's bucket is gone.
+ */
+public abstract class StreamingBucketsOutput implements StreamingOutput {
+
+	public static final String BUCKETS = "buckets";
+	public static final String NEXT = "next";
+	public static final String TOTAL_SIZE = "buckets_TOTAL_SIZE";
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory(
+			new ObjectMapper());
+
+	private final int from;
+	private final int to;
+	private final String next;
+
+	private StreamingBucketsOutput(int from, int to, String next) {
+		this.from = from;
+		this.to = to;
+		this.next = next;
+	}
+
+	@Override
+	public void write(OutputStream output) throws IOException,
+			WebApplicationException {
+		JsonGenerator json = JSON_FACTORY.createJsonGenerator(output,
+				JsonEncoding.UTF8);
+		json.writeStartObject();
+		json.writeArrayFieldStart(BUCKETS);
+		long totalSize = 0;
+		for (int i = from; i < to; i++)
+			totalSize += writeBucket(json, i);
+		json.writeEndArray();
+		json.writeStringField(NEXT, next);
+		json.writeStringField(TOTAL_SIZE,
+				FileUtils.byteCountToDisplaySize(totalSize));
+		json.writeEndObject();
+		json.flush();
+	}
+
+	/**
+	 * @return size of the written bucket, or 0 if it's unknown.
+	 */
+	protected abstract long writeBucket(JsonGenerator json, int i)
+			throws IOException;
+
+	/**
+	 * @return cursor of the bucket, for continuing a listing after it.
+	 */
+	public static String getCursor(String index, String bucketName) {
+		return index + "/" + bucketName;
+	}
+
+	/**
+	 * @return the limit, or {@link Integer#MAX_VALUE} if there is no limit.
+	 * @throws WebApplicationException
+	 *           with status 400 if the limit is not a positive number.
+	 */
+	public static int getValidLimit(String limit) {
+		if (limit == null)
+			return Integer.MAX_VALUE;
+		try {
+			int parsed = Integer.parseInt(limit);
+			if (parsed > 0)
+				return parsed;
+		} catch (NumberFormatException e) {
+			// Responds with bad request below.
+		}
+		throw badRequest("limit must be a positive number, was: " + limit);
+	}
+
+	private static WebApplicationException badRequest(String message) {
+		return new WebApplicationException(Response.status(Status.BAD_REQUEST)
+				.entity(message).type(MediaType.TEXT_PLAIN).build());
+	}
+
+	private static int getPageEnd(int from, int limit, int count) {
+		return (int) Math.min((long) from + limit, count);
+	}
+
+	/**
+	 * @return position of the first key that is after the cursor.
+	 */
+	private static int getPageStart(List<Key> keys, String after) {
+		if (after == null)
+			return 0;
+		int position = Collections.binarySearch(keys, Key.fromCursor(after));
+		return position >= 0 ? position + 1 : -position - 1;
+	}
+
+	/**
+	 * Buckets in a {@link BucketTable}. Buckets without a size get it resolved
+	 * when they are written.
+	 * 
+	 * @param after
+	 *          cursor to list buckets after, or null to list from the first
+	 *          bucket.
+	 * @param limit
+	 *          maximum number of buckets to write.
+	 * @param bucketSizeResolver
+	 *          for resolving sizes of buckets without a size.
+	 * @throws WebApplicationException
+	 *           with status 400 if the cursor is not a cursor.
+	 */
+	public static StreamingBucketsOutput create(final BucketTable table,
+			String after, int limit, BucketSizeResolver bucketSizeResolver) {
+		final int[] rows = table.getRowsInKeyOrder();
+		int from = getPageStart(new AbstractList<Key>() {
+
+			@Override
+			public Key get(int i) {
+				return new Key(table.getEarliest(rows[i]), table.getIndex(rows[i]),
+						table.getName(rows[i]));
+			}
+
+			@Override
+			public int size() {
+				return rows.length;
+			}
+		}, after);
+		int to = getPageEnd(from, limit, rows.length);
+		String next = to < rows.length ? getCursor(table.getIndex(rows[to - 1]),
+				table.getName(rows[to - 1])) : null;
+		return new BucketTableOutput(table, rows, from, to, next,
+				bucketSizeResolver);
+	}
+
+	/**
+	 * {@link Bucket}s in a list.
+	 * 
+	 * @see #create(BucketTable, String, int, BucketSizeResolver)
+	 */
+	public static StreamingBucketsOutput create(List<Bucket> buckets,
+			String after, int limit) {
+		final List<Bucket> sorted = new ArrayList<Bucket>(buckets);
+		Collections.sort(sorted, new Comparator<Bucket>() {
+
+			@Override
+			public int compare(Bucket left, Bucket right) {
+				return Key.of(left).compareTo(Key.of(right));
+			}
+		});
+		int from = getPageStart(new AbstractList<Key>() {
+
+			@Override
+			public Key get(int i) {
+				return Key.of(sorted.get(i));
+			}
+
+			@Override
+			public int size() {
+				return sorted.size();
+			}
+		}, after);
+		int to = getPageEnd(from, limit, sorted.size());
+		String next = to < sorted.size() ? getCursor(sorted.get(to - 1)) : null;
+		return new BucketListOutput(sorted, from, to, next);
+	}
+
+	private static String getCursor(Bucket bucket) {
+		return getCursor(bucket.getIndex(), bucket.getName());
+	}
+
+	/**
+	 * Key that orders every bucket, and that a cursor is parsed to. Buckets
+	 * without a time range have 0 as earliest time, like in {@link BucketTable}.
+	 */
+	private static class Key implements Comparable<Key> {
+
+		private final long earliest;
+		private final String index;
+		private final String bucketName;
+
+		private Key(long earliest, String index, String bucketName) {
+			this.earliest = earliest;
+			this.index = index;
+			this.bucketName = bucketName;
+		}
+
+		@Override
+		public int compareTo(Key other) {
+			if (earliest != other.earliest)
+				return earliest < other.earliest ? -1 : 1;
+			int byIndex = index.compareTo(other.index);
+			return byIndex != 0 ? byIndex : bucketName.compareTo(other.bucketName);
+		}
+
+		private static Key of(String index, String bucketName) {
+			long earliest;
+			try {
+				earliest = new BucketName(bucketName).getEarliest() * 1000;
+			} catch (RuntimeException e) {
+				earliest = 0;
+			}
+			return new Key(earliest, index, bucketName);
+		}
+
+		private static Key of(Bucket bucket) {
+			return of(bucket.getIndex(), bucket.getName());
+		}
+
+		private static Key fromCursor(String cursor) {
+			int separator = cursor.indexOf('/');
+			if (separator < 0)
+				throw badRequest("after must be the next cursor of a page, was: "
+						+ cursor);
+			return of(cursor.substring(0, separator),
+					cursor.substring(separator + 1));
+		}
+	}
+
+	private static class BucketTableOutput extends StreamingBucketsOutput {
+
+		private final BucketTable table;
+		private final int[] rows;
+		private final BucketSizeResolver bucketSizeResolver;
+		private final SimpleDateFormat dateFormat;
+
+		private BucketTableOutput(BucketTable table, int[] rows, int from,
+				int to, String next, BucketSizeResolver bucketSizeResolver) {
+			super(from, to, next);
+			this.table = table;
+			this.rows = rows;
+			this.bucketSizeResolver = bucketSizeResolver;
+			this.dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+		}
+
+		@Override
+		protected long writeBucket(JsonGenerator json, int i) throws IOException {
+			int row = rows[i];
+			long size = getSize(row);
+			json.writeStartObject();
+			json.writeStringField("format", table.getFormat(row).name());
+			json.writeStringField("indexName", table.getIndex(row));
+			json.writeStringField("bucketName", table.getName(row));
+			json.writeStringField("uri", table.getUri(row).toString());
+			json.writeStringField("fromDate",
+					dateFormat.format(new Date(table.getEarliest(row))));
+			json.writeStringField("toDate",
+					dateFormat.format(new Date(table.getLatest(row))));
+			json.writeStringField("size", FileUtils.byteCountToDisplaySize(size));
+			json.writeStringField("checksum", table.getChecksum(row));
+			json.writeEndObject();
+			return size;
+		}
+
+		private long getSize(int row) {
+			Long size = table.getSize(row);
+			if (size == null && bucketSizeResolver != null) {
+				size = bucketSizeResolver.resolveBucketSize(table.getBucket(row))
+						.getSize();
+				if (size != null)
+					table.setSize(row, size);
+			}
+			return size == null ? 0 : size;
+		}
+	}
+
+	private static class BucketListOutput extends StreamingBucketsOutput {
+
+		private final List<Bucket> buckets;
+
+		private BucketListOutput(List<Bucket> buckets, int from, int to,
+				String next) {
+			super(from, to, next);
+			this.buckets = buckets;
+		}
+
+		@Override
+		protected long writeBucket(JsonGenerator json, int i) throws IOException {
+			Bucket bucket = buckets.get(i);
+			json.writeObject(BucketBean.createBeanFromBucket(bucket));
+			return bucket.getSize() == null ? 0 : bucket.getSize();
+		}
+	}
+}
@@ -100,6 +100,7 @@ public class ThawBucketsEndpoint {
 				" Metrics - group=REST series=%s%s%s call=1", ENDPOINT_CONTEXT,
 				ENDPOINT_ARCHIVER, endpoint);
 		logger.info(logMessage);
+		RestUtil.countCall(ENDPOINT_CONTEXT + ENDPOINT_ARCHIVER + endpoint);
 	}
 
 	/**
@@ -0,0 +1,164 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.ShuttlConstants.*;
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.FormParam;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.thaw.BucketThawerFactory;
+import com.splunk.shuttl.archiver.thaw.ThawProgress;
+import com.splunk.shuttl.archiver.thaw.ThawProgress.BucketState;
+import com.splunk.shuttl.archiver.thaw.jobs.ThawJob;
+import com.splunk.shuttl.archiver.thaw.jobs.ThawJobService;
+import com.splunk.shuttl.server.model.BucketBean;
+
+/**
+ * Endpoint for thawing buckets as jobs in the {@link ThawJobService}. A job is
+ * submitted with a POST, which responds with 202 Accepted and the id of the
+ * job without waiting for the buckets to be thawed. The status of the job is
+ * read with a GET, and the job is cancelled with a DELETE.
+ */
+@Path(ENDPOINT_ARCHIVER + ENDPOINT_BUCKET_THAW_JOBS)
+public class ThawJobsEndpoint {
+
+	private static final Logger logger = Logger.getLogger(ThawJobsEndpoint.class);
+
+	/**
+	 * Submits a job that thaws a range of buckets in either a specific index or
+	 * all indexes on the archiving fs.
+	 * 
+	 * @param index
+	 *          Any index that exists in both the archiving filesystem and splunk.
+	 *          Defaults to all indexes in the archiving fs.
+	 * @param from
+	 *          Start date of thawing interval (on the form yyyy-MM-dd). Defaults
+	 *          to 0001-01-01.
+	 * @param to
+	 *          End date of thawing interval (on the form yyyy-MM-dd). Defaults to
+	 *          9999-12-31.
+	 * @return 202 Accepted with the id of the job.
+	 */
+	@POST
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response submitThawJob(@FormParam("index") String index,
+			@FormParam("from") String from, @FormParam("to") String to) {
+		logger.info(happened("Received REST request to submit thaw job",
+				"endpoint", ENDPOINT_BUCKET_THAW_JOBS, "index", index, "from", from,
+				"to", to));
+		logMetricsAtEndpoint(ENDPOINT_BUCKET_THAW_JOBS);
+
+		Date fromDate = RestUtil.getValidFromDate(from);
+		Date toDate = RestUtil.getValidToDate(to);
+		if (fromDate == null || toDate == null) {
+			logger.error(happened("Invalid time interval provided."));
+			throw new IllegalArgumentException(
+					"From and to date must be provided on the form yyyy-DD-mm");
+		}
+
+		ThawJob job = ThawJobService.getSharedInstance().submit(index, fromDate,
+				toDate, BucketThawerFactory.createDefaultThawer());
+		return Response.status(Status.ACCEPTED).entity(job.getId()).build();
+	}
+
+	/**
+	 * @return status of the job, with the state of every bucket and the bytes
+	 *         that have been thawed. 404 Not Found if there is no such job.
+	 */
+	@GET
+	@Path("{id}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getThawJob(@PathParam("id") String id) {
+		ThawJob job = ThawJobService.getSharedInstance().getJob(id);
+		if (job == null)
+			return Response.status(Status.NOT_FOUND).build();
+		return Response.ok(convertThawJobToJSON(job)).build();
+	}
+
+	/**
+	 * Cancels the job. Buckets that are being thawed are finished, but no more
+	 * buckets are started.
+	 * 
+	 * @return status of the cancelled job. 404 Not Found if there is no such
+	 *         job.
+	 */
+	@DELETE
+	@Path("{id}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response cancelThawJob(@PathParam("id") String id) {
+		logger.info(happened("Received REST request to cancel thaw job",
+				"endpoint", ENDPOINT_BUCKET_THAW_JOBS, "job_id", id));
+		ThawJob job = ThawJobService.getSharedInstance().cancel(id);
+		if (job == null)
+			return Response.status(Status.NOT_FOUND).build();
+		return Response.ok(convertThawJobToJSON(job)).build();
+	}
+
+	private void logMetricsAtEndpoint(String endpoint) {
+		String logMessage = String.format(
+				" Metrics - group=REST series=%s%s%s call=1", ENDPOINT_CONTEXT,
+				ENDPOINT_ARCHIVER, endpoint);
+		logger.info(logMessage);
+		RestUtil.countCall(ENDPOINT_CONTEXT + ENDPOINT_ARCHIVER + endpoint);
+	}
+
+	private String convertThawJobToJSON(ThawJob job) {
+		ThawProgress progress = job.getProgress();
+		List<Map<String, Object>> buckets = new ArrayList<Map<String, Object>>();
+		for (Entry<Bucket, BucketState> bucketState : progress.getBucketStates()
+				.entrySet()) {
+			Map<String, Object> bucket = new HashMap<String, Object>();
+			bucket.put("bucket",
+					BucketBean.createBeanFromBucket(bucketState.getKey()));
+			bucket.put("state", bucketState.getValue().name());
+			buckets.add(bucket);
+		}
+
+		Map<String, Object> response = new HashMap<String, Object>();
+		response.put("id", job.getId());
+		response.put("index", job.getIndex());
+		response.put("state", job.getState().name());
+		response.put("created", job.getCreated());
+		response.put("buckets", buckets);
+		response.put("thawed", progress.countBuckets(BucketState.THAWED));
+		response.put("skipped", progress.countBuckets(BucketState.SKIPPED));
+		response.put("failed", progress.countBuckets(BucketState.FAILED));
+		response.put("cancelled", progress.countBuckets(BucketState.CANCELLED));
+		response.put("bytes_done", progress.getBytesDone());
+		response.put("bytes_total", progress.getBytesTotal());
+		response.put("bytes_per_second", progress.getBytesPerSecond());
+		return RestUtil.writeMapAsJson(response);
+	}
+}
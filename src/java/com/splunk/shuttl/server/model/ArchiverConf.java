@@ -29,7 +29,10 @@ import javax.xml.bind.annotation.XmlType;
  */
 @XmlRootElement(namespace = "com.splunk.shuttl.server.model")
 @XmlType(propOrder = { "localArchiverDir", "archiveFormats", "clusterName",
-		"serverName", "archiverRootURI", "bucketFormatPriority" })
+		"serverName", "archiverRootURI", "bucketFormatPriority", "archiveWorkers",
+		"csvExportMode", "thawTransferWorkers", "thawImportWorkers",
+		"archiveBandwidthLimit", "archiveBandwidthSchedule", "thawBandwidthLimit",
+		"thawBandwidthSchedule" })
 public class ArchiverConf {
 	private String localArchiverDir;
 	private List<String> archiveFormats;
@@ -37,6 +40,14 @@ public class ArchiverConf {
 	private String serverName;
 	private String archiverRootURI;
 	private List<String> bucketFormatPriority;
+	private Integer archiveWorkers;
+	private String csvExportMode;
+	private Integer thawTransferWorkers;
+	private Integer thawImportWorkers;
+	private Long archiveBandwidthLimit;
+	private String archiveBandwidthSchedule;
+	private Long thawBandwidthLimit;
+	private String thawBandwidthSchedule;
 
 	public String getLocalArchiverDir() {
 		return localArchiverDir;
@@ -88,4 +99,68 @@ public class ArchiverConf {
 		return archiverRootURI;
 	}
 
+	public Integer getArchiveWorkers() {
+		return archiveWorkers;
+	}
+
+	public void setArchiveWorkers(Integer archiveWorkers) {
+		this.archiveWorkers = archiveWorkers;
+	}
+
+	public String getCsvExportMode() {
+		return csvExportMode;
+	}
+
+	public void setCsvExportMode(String csvExportMode) {
+		this.csvExportMode = csvExportMode;
+	}
+
+	public Integer getThawTransferWorkers() {
+		return thawTransferWorkers;
+	}
+
+	public void setThawTransferWorkers(Integer thawTransferWorkers) {
+		this.thawTransferWorkers = thawTransferWorkers;
+	}
+
+	public Integer getThawImportWorkers() {
+		return thawImportWorkers;
+	}
+
+	public void setThawImportWorkers(Integer thawImportWorkers) {
+		this.thawImportWorkers = thawImportWorkers;
+	}
+
+	public Long getArchiveBandwidthLimit() {
+		return archiveBandwidthLimit;
+	}
+
+	public void setArchiveBandwidthLimit(Long archiveBandwidthLimit) {
+		this.archiveBandwidthLimit = archiveBandwidthLimit;
+	}
+
+	public String getArchiveBandwidthSchedule() {
+		return archiveBandwidthSchedule;
+	}
+
+	public void setArchiveBandwidthSchedule(String archiveBandwidthSchedule) {
+		this.archiveBandwidthSchedule = archiveBandwidthSchedule;
+	}
+
+	public Long getThawBandwidthLimit() {
+		return thawBandwidthLimit;
+	}
+
+	public void setThawBandwidthLimit(Long thawBandwidthLimit) {
+		this.thawBandwidthLimit = thawBandwidthLimit;
+	}
+
+	public String getThawBandwidthSchedule() {
+		return thawBandwidthSchedule;
+	}
+
+	public void setThawBandwidthSchedule(String thawBandwidthSchedule) {
+		this.thawBandwidthSchedule = thawBandwidthSchedule;
+	}
+
 }
@@ -36,6 +36,7 @@ public class BucketBean {
 	private String from;
 	private String to;
 	private String size;
+	private String checksum;
 
 	/**
 	 * Needed for JAX-RS
@@ -138,6 +139,18 @@ public class BucketBean {
 		return size;
 	}
 
+	/**
+	 * @return checksum that the bucket was archived with, or null if it's
+	 *         unknown.
+	 */
+	public String getChecksum() {
+		return checksum;
+	}
+
+	public void setChecksum(String checksum) {
+		this.checksum = checksum;
+	}
+
 	/**
 	 * @param bucket
 	 *          to create bean from.
@@ -145,10 +158,12 @@ public class BucketBean {
 	public static BucketBean createBeanFromBucket(Bucket bucket) {
 		String size = FileUtils.byteCountToDisplaySize(bucket.getSize() == null ? 0
 				: bucket.getSize());
-		return new BucketBean(bucket.getFormat().name(), bucket.getIndex(),
-				bucket.getName(), bucket.getURI().toString(),
+		BucketBean bean = new BucketBean(bucket.getFormat().name(),
+				bucket.getIndex(), bucket.getName(), bucket.getURI().toString(),
 				stringFromDate(bucket.getEarliest()),
 				stringFromDate(bucket.getLatest()), size);
+		bean.setChecksum(bucket.getChecksum());
+		return bean;
 	}
 
 	public static String stringFromDate(Date date) {
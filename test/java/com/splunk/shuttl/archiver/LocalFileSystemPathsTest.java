@@ -120,6 +120,26 @@ public class LocalFileSystemPathsTest {
 				.getMetadataDirectory());
 	}
 
+	public void getArchiveJobsDirectory_setUp_dirExistsInsideArchiverDirectory() {
+		assertExistsInsideArchiverDirectory(localFileSystemPaths
+				.getArchiveJobsDirectory());
+	}
+
+	public void getArchiveCatalogDirectory_setUp_dirExistsInsideArchiverDirectory() {
+		assertExistsInsideArchiverDirectory(localFileSystemPaths
+				.getArchiveCatalogDirectory());
+	}
+
+	public void getFreezeSpoolDirectory_setUp_dirExistsInsideArchiverDirectory() {
+		assertExistsInsideArchiverDirectory(localFileSystemPaths
+				.getFreezeSpoolDirectory());
+	}
+
+	public void getOperationLedgerDirectory_setUp_dirExistsInsideArchiverDirectory() {
+		assertExistsInsideArchiverDirectory(localFileSystemPaths
+				.getOperationLedgerDirectory());
+	}
+
 	@Test(expectedExceptions = { ArchiverMBeanNotRegisteredException.class })
 	public void create_withNoArchiverMBeanRegistration_throwsRuntimeException() {
 		LocalFileSystemPaths.create();
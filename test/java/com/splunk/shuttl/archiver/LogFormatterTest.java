@@ -224,4 +224,39 @@ public class LogFormatterTest {
 		warnWithKeyValues(keyWithoutRespectiveValue);
 	}
 
+	public void happened_jsonOutput_writesKeyValuesAsJsonObject() {
+		setOutput(Output.JSON);
+		try {
+			String result = happened("happenedStuff", "btw", 200, "nothing", null);
+			assertEquals(
+					"{\"happened\":\"happenedStuff\",\"btw\":\"200\",\"nothing\":null}",
+					result);
+		} finally {
+			setOutput(Output.KEY_VALUE);
+		}
+	}
+
+	public void will_jsonOutputWithQuotesAndNewlines_escapesThem() {
+		setOutput(Output.JSON);
+		try {
+			String result = will("say \"hi\"\n", "path", "c:\\dir");
+			assertEquals(
+					"{\"will\":\"say \\\"hi\\\"\\n\",\"path\":\"c:\\\\dir\"}",
+					result);
+		} finally {
+			setOutput(Output.KEY_VALUE);
+		}
+	}
+
+	public void done_valueThatFormatsWhenConvertedToString_formatsBoth() {
+		Object formattingValue = new Object() {
+			@Override
+			public String toString() {
+				return happened("inner");
+			}
+		};
+		String result = done("doneStuff", "value", formattingValue, "btw", "200");
+		assertEquals("done=\"doneStuff\" value=\"happened=\"inner\"\" btw=\"200\"",
+				result);
+	}
 }
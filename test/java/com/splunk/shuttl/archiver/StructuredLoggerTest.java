@@ -0,0 +1,100 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.*;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.Priority;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class StructuredLoggerTest {
+
+	private Logger logger;
+	private StructuredLogger log;
+
+	@BeforeMethod
+	public void setUp() {
+		logger = mock(Logger.class);
+		log = new StructuredLogger(logger);
+	}
+
+	private static class CountsToString {
+
+		int calls;
+
+		@Override
+		public String toString() {
+			calls++;
+			return "value";
+		}
+	}
+
+	public void debug_debugDisabled_doesNotFormatValues() {
+		when(logger.isDebugEnabled()).thenReturn(false);
+		CountsToString value = new CountsToString();
+
+		log.debug().will("Do something", "key", value);
+
+		assertEquals(0, value.calls);
+		verify(logger, never()).log(anyString(), any(Priority.class), any(),
+				any(Throwable.class));
+		assertFalse(log.debug().isEnabled());
+	}
+
+	public void debug_debugEnabled_logsFormattedMessageAtDebug() {
+		when(logger.isDebugEnabled()).thenReturn(true);
+
+		log.debug().will("Do something", "key", "value");
+
+		verify(logger).log(anyString(), eq(Level.DEBUG),
+				eq(LogFormatter.will("Do something", "key", "value")),
+				any(Throwable.class));
+	}
+
+	public void info_infoEnabled_logsFormattedMessageAtInfo() {
+		when(logger.isInfoEnabled()).thenReturn(true);
+
+		log.info().done("Did something", "key", "value");
+
+		verify(logger).log(anyString(), eq(Level.INFO),
+				eq(LogFormatter.done("Did something", "key", "value")),
+				any(Throwable.class));
+	}
+
+	public void error_errorEnabled_logsDidMessageAtError() {
+		when(logger.isEnabledFor(Level.ERROR)).thenReturn(true);
+
+		log.error().did("Did", "happened", "expected", "key", "value");
+
+		verify(logger).log(anyString(), eq(Level.ERROR),
+				eq(LogFormatter.did("Did", "happened", "expected", "key", "value")),
+				any(Throwable.class));
+	}
+
+	public void warn_warnDisabled_doesNotLog() {
+		when(logger.isEnabledFor(Level.WARN)).thenReturn(false);
+
+		log.warn().warn("Did", "happened", "result");
+
+		verify(logger, never()).log(anyString(), any(Priority.class), any(),
+				any(Throwable.class));
+	}
+}
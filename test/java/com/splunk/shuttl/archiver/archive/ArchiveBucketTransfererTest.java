@@ -20,18 +20,31 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import com.splunk.shuttl.archiver.bucketsize.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogStore;
+import com.splunk.shuttl.archiver.catalog.CatalogEntry;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.ChecksumManifest;
 import com.splunk.shuttl.archiver.filesystem.FileOverwriteException;
+import com.splunk.shuttl.archiver.filesystem.WritesToStream;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -41,15 +54,23 @@ public class ArchiveBucketTransfererTest {
 	private ArchiveFileSystem archive;
 	private PathResolver pathResolver;
 	private ArchiveBucketTransferer archiveBucketTransferer;
-	private ArchiveBucketSize archiveBucketSize;
+	private WritesBucketToStream bucketStreamer;
+	private ArchiveCatalogStore archiveCatalogStore;
 
 	@BeforeMethod
-	public void setUp() {
+	public void setUp() throws IOException {
 		archive = mock(ArchiveFileSystem.class);
+		when(archive.openFile(any(URI.class))).thenThrow(
+				new FileNotFoundException());
 		pathResolver = mock(PathResolver.class);
-		archiveBucketSize = mock(ArchiveBucketSize.class);
+		when(pathResolver.resolveArchivePath(any(Bucket.class))).thenReturn(
+				URI.create("file:/archived/bucket"));
+		bucketStreamer = mock(WritesBucketToStream.class);
+		archiveCatalogStore = mock(ArchiveCatalogStore.class);
+		Map<BucketFormat, WritesBucketToStream> streamedFormats = new HashMap<BucketFormat, WritesBucketToStream>();
+		streamedFormats.put(BucketFormat.SPLUNK_BUCKET_COMPRESSED, bucketStreamer);
 		archiveBucketTransferer = new ArchiveBucketTransferer(archive,
-				pathResolver, archiveBucketSize);
+				pathResolver, streamedFormats, archiveCatalogStore);
 	}
 
 	@Test(groups = { "fast-unit" })
@@ -62,21 +83,47 @@ public class ArchiveBucketTransfererTest {
 		verify(archive).putFileAtomically(bucket.getDirectory(), destination);
 	}
 
-	public void transferBucketToArchive_givenSuccessfulBucketTransfer_putBucketSizeInArchive() {
+	public void transferBucketToArchive_givenSuccessfulBucketTransfer_addsBucketToCatalog()
+			throws IOException {
 		Bucket bucket = mock(Bucket.class);
 		archiveBucketTransferer.transferBucketToArchive(bucket);
-		verify(archiveBucketSize).putSize(bucket);
+		verify(archiveCatalogStore).addBucket(bucket, null);
 	}
 
-	public void transferBucketToArchive_whenBucketTransferIsUnsuccessful_dontPutBucketSizeInArchive()
-			throws FileNotFoundException, FileOverwriteException, IOException {
-		doThrow(Exception.class).when(archive).putFileAtomically(any(File.class),
-				any(URI.class));
+	public void transferBucketToArchive_archivedBucketHasChecksumManifest_addsBucketWithChecksumToCatalog()
+			throws IOException {
+		Bucket bucket = mock(Bucket.class);
+		URI destination = URI.create("file:/some/path");
+		when(pathResolver.resolveArchivePath(bucket)).thenReturn(destination);
+		ChecksumManifest checksums = new ChecksumManifest();
+		checksums.add("rawdata/journal.gz", 10, 0xcafebabeL);
+		ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+		checksums.writeTo(manifestBytes);
+		doReturn(new ByteArrayInputStream(manifestBytes.toByteArray())).when(
+				archive).openFile(ChecksumManifest.getManifestUri(destination));
+
+		archiveBucketTransferer.transferBucketToArchive(bucket);
+
+		verify(archiveCatalogStore).addBucket(bucket, checksums.getDigest());
+	}
+
+	public void transferBucketToArchive_whenBucketTransferIsUnsuccessful_dontAddBucketToCatalog()
+			throws IOException {
+		doThrow(IOException.class).when(archive).putFileAtomically(
+				any(File.class), any(URI.class));
 		try {
 			archiveBucketTransferer.transferBucketToArchive(mock(Bucket.class));
-		} catch (Exception e) {
+		} catch (FailedToArchiveBucketException e) {
 		}
-		verifyZeroInteractions(archiveBucketSize);
+		verifyZeroInteractions(archiveCatalogStore);
+	}
+
+	@Test(expectedExceptions = { FailedToArchiveBucketException.class })
+	public void _catalogThrowsIOException_throwFailedToArchiveBucketException()
+			throws IOException {
+		doThrow(IOException.class).when(archiveCatalogStore).addBucket(
+				any(Bucket.class), anyString());
+		archiveBucketTransferer.transferBucketToArchive(mock(Bucket.class));
 	}
 
 	@Test(expectedExceptions = { FailedToArchiveBucketException.class })
@@ -126,4 +173,89 @@ public class ArchiveBucketTransfererTest {
 				asList(URI.create("valid:/uri")));
 		assertTrue(archiveBucketTransferer.isArchived(bucket, bucket.getFormat()));
 	}
+
+	public void isArchived_catalogFailedOnTransferAndArchivingIsRetried_addsBucketToCatalog()
+			throws IOException {
+		Bucket bucket = TUtilsBucket.createBucket();
+		URI bucketUri = URI.create("valid:/bucket/uri");
+		when(
+				pathResolver.resolveArchivedBucketURI(bucket.getIndex(),
+						bucket.getName(), bucket.getFormat())).thenReturn(bucketUri);
+		doThrow(IOException.class).when(archiveCatalogStore).addBucket(
+				any(Bucket.class), anyString());
+		try {
+			archiveBucketTransferer.transferBucketToArchive(bucket);
+			fail();
+		} catch (FailedToArchiveBucketException e) {
+		}
+		when(archive.listPath(bucketUri)).thenReturn(
+				asList(URI.create("valid:/uri")));
+		when(archiveCatalogStore.getCatalog(bucket.getIndex())).thenReturn(
+				new ArchiveCatalog(bucket.getIndex()));
+
+		assertTrue(archiveBucketTransferer.isArchived(bucket, bucket.getFormat()));
+
+		ArgumentCaptor<CatalogEntry> entry = ArgumentCaptor
+				.forClass(CatalogEntry.class);
+		verify(archiveCatalogStore).addEntry(eq(bucket.getIndex()),
+				entry.capture());
+		assertEquals(entry.getValue().getBucketName(), bucket.getName());
+		assertTrue(entry.getValue().getFormats().contains(bucket.getFormat()));
+	}
+
+	public void isArchived_archivedBucketIsInCatalog_doesNotAddItAgain()
+			throws IOException {
+		Bucket bucket = TUtilsBucket.createBucket();
+		URI bucketUri = URI.create("valid:/bucket/uri");
+		when(
+				pathResolver.resolveArchivedBucketURI(bucket.getIndex(),
+						bucket.getName(), bucket.getFormat())).thenReturn(bucketUri);
+		when(archive.listPath(bucketUri)).thenReturn(
+				asList(URI.create("valid:/uri")));
+		ArchiveCatalog catalog = new ArchiveCatalog(bucket.getIndex());
+		catalog.add(CatalogEntry.create(bucket));
+		when(archiveCatalogStore.getCatalog(bucket.getIndex())).thenReturn(
+				catalog);
+
+		assertTrue(archiveBucketTransferer.isArchived(bucket, bucket.getFormat()));
+		verify(archiveCatalogStore, never()).addEntry(anyString(),
+				any(CatalogEntry.class));
+	}
+
+	public void transferBucketToArchive_bucketInStreamedFormat_streamsBucketToFileInDestination()
+			throws IOException {
+		Bucket bucket = TUtilsBucket.createBucket();
+		Bucket compressedBucket = new Bucket(bucket.getIndex(),
+				bucket.getDirectory(), BucketFormat.SPLUNK_BUCKET_COMPRESSED);
+		URI destination = URI.create("file:/some/path");
+		when(pathResolver.resolveArchivePath(compressedBucket)).thenReturn(
+				destination);
+		when(bucketStreamer.getFileName(compressedBucket)).thenReturn("file.z");
+		final List<String> writtenFiles = new ArrayList<String>();
+		doAnswer(new Answer<Void>() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				Map<String, WritesToStream> writers = (Map<String, WritesToStream>) invocation
+						.getArguments()[0];
+				for (Map.Entry<String, WritesToStream> file : writers.entrySet()) {
+					file.getValue().writeTo(new ByteArrayOutputStream());
+					writtenFiles.add(file.getKey());
+				}
+				return null;
+			}
+		}).when(archive).putStreamsAtomically(anyMap(), eq(destination));
+
+		archiveBucketTransferer.transferBucketToArchive(compressedBucket);
+
+		assertEquals(writtenFiles,
+				asList("file.z", ChecksumManifest.RELATIVE_PATH));
+		verify(archive, never()).putStreamAtomically(any(WritesToStream.class),
+				any(URI.class));
+		verify(bucketStreamer).writeBucket(eq(compressedBucket),
+				any(OutputStream.class));
+		verify(archive, never()).putFileAtomically(any(File.class),
+				any(URI.class));
+		verify(archiveCatalogStore).addBucket(eq(compressedBucket), anyString());
+	}
 }
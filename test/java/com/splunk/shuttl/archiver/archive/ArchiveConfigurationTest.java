@@ -27,6 +27,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.importexport.csv.CsvExportMode;
 import com.splunk.shuttl.server.mbeans.ShuttlArchiverMBean;
 
 @Test(groups = { "fast-unit" })
@@ -72,6 +73,24 @@ public class ArchiveConfigurationTest {
 		assertEquals(expectedUri, actualUri);
 	}
 
+	public void getCatalogRoot_givenUriInMBean_siblingToArchivingRoot() {
+		when(mBean.getArchiverRootURI()).thenReturn("valid:/uri");
+		ArchiveConfiguration configuration = createConfiguration();
+		assertEquals(configuration.getArchivingRoot().resolve("archive_catalog"),
+				configuration.getCatalogRoot());
+	}
+
+	public void getCsvExportMode_givenNull_file() {
+		when(mBean.getCsvExportMode()).thenReturn(null);
+		assertEquals(CsvExportMode.FILE, createConfiguration().getCsvExportMode());
+	}
+
+	public void getCsvExportMode_givenModeNameInMBean_mode() {
+		when(mBean.getCsvExportMode()).thenReturn("COMPRESSED_STREAM");
+		assertEquals(CsvExportMode.COMPRESSED_STREAM, createConfiguration()
+				.getCsvExportMode());
+	}
+
 	public void getClusterName_stubbedMBeanClusterName_sameAsInMBean() {
 		String expected = "clusterName";
 		when(mBean.getClusterName()).thenReturn(expected);
@@ -24,12 +24,14 @@ import java.util.List;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.ShuttlConstants;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -47,6 +49,7 @@ public class ArchiveRestHandlerTest {
 	public void setUp() {
 		httpClient = mock(HttpClient.class, Mockito.RETURNS_MOCKS);
 		logger = mock(Logger.class);
+		when(logger.isEnabledFor(Level.ERROR)).thenReturn(true);
 		archiveRestHandler = new ArchiveRestHandler(httpClient, logger);
 	}
 
@@ -71,11 +74,12 @@ public class ArchiveRestHandlerTest {
 	}
 
 	private void verifyClassWasOnlyErrorLogged(Class<?> clazz) {
-		ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-		verify(logger).error(captor.capture());
-		List<String> allErrorLogs = captor.getAllValues();
+		ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+		verify(logger).log(anyString(), eq(Level.ERROR), captor.capture(),
+				(Throwable) isNull());
+		List<Object> allErrorLogs = captor.getAllValues();
 		assertEquals(1, allErrorLogs.size());
-		assertTrue(allErrorLogs.get(0).contains(clazz.getSimpleName()));
+		assertTrue(allErrorLogs.get(0).toString().contains(clazz.getSimpleName()));
 	}
 
 	@SuppressWarnings("unchecked")
@@ -88,4 +92,28 @@ public class ArchiveRestHandlerTest {
 
 		verifyClassWasOnlyErrorLogged(IOException.class);
 	}
+
+	public void callRestToArchiveBucket_givenHostAndPort_requestsArchiveEndpointOnHostAndPort()
+			throws ClientProtocolException, IOException {
+		archiveRestHandler = new ArchiveRestHandler(httpClient, "somehost", 1234,
+				logger);
+		archiveRestHandler.callRestToArchiveBucket(TUtilsBucket.createBucket());
+
+		ArgumentCaptor<HttpUriRequest> request = ArgumentCaptor
+				.forClass(HttpUriRequest.class);
+		verify(httpClient).execute(request.capture());
+		assertEquals("http://somehost:1234/" + ShuttlConstants.ENDPOINT_CONTEXT
+				+ ShuttlConstants.ENDPOINT_ARCHIVER
+				+ ShuttlConstants.ENDPOINT_BUCKET_ARCHIVER, request.getValue()
+				.getURI().toString());
+	}
+
+	public void getConnectableHost_serverListensOnAllInterfaces_localhost() {
+		assertEquals(ArchiveRestHandler.DEFAULT_HOST,
+				ArchiveRestHandler.getConnectableHost("0.0.0.0"));
+	}
+
+	public void getConnectableHost_givenHostName_sameHostName() {
+		assertEquals("somehost", ArchiveRestHandler.getConnectableHost("somehost"));
+	}
 }
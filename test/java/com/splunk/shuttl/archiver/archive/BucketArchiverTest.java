@@ -18,12 +18,17 @@ package com.splunk.shuttl.archiver.archive;
 import static java.util.Arrays.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.*;
 
 import java.util.List;
 
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.history.OperationLedger;
+import com.splunk.shuttl.archiver.history.OperationRecord;
+import com.splunk.shuttl.archiver.history.OperationType;
 import com.splunk.shuttl.archiver.importexport.BucketExporter;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
@@ -72,7 +77,7 @@ public class BucketArchiverTest {
 		verify(deletesBuckets).deleteBucket(exportedBucket);
 	}
 
-	public void archiveBucket_whenExceptionIsThrown_deleteExportedBucketButNotOriginalBucket() {
+	public void archiveBucket_whenExceptionIsThrown_keepsBothExportedAndOriginalBucket() {
 		Bucket exportedBucket = getMockedBucketReturnFromExporter();
 		doThrow(new RuntimeException()).when(archiveBucketTransferer)
 				.transferBucketToArchive(exportedBucket);
@@ -81,8 +86,15 @@ public class BucketArchiverTest {
 		} catch (Throwable e) {
 			// Do nothing.
 		}
-		verify(deletesBuckets).deleteBucket(exportedBucket);
-		verifyNoMoreInteractions(deletesBuckets);
+		verifyZeroInteractions(deletesBuckets);
+	}
+
+	public void archiveBucket_whenTransferFails_keepsExportedBucketForRetry() {
+		Bucket exportedBucket = getMockedBucketReturnFromExporter();
+		doThrow(new FailedToArchiveBucketException(new RuntimeException())).when(
+				archiveBucketTransferer).transferBucketToArchive(exportedBucket);
+		bucketArchiver.archiveBucket(bucket);
+		verifyZeroInteractions(deletesBuckets);
 	}
 
 	public void archiveBucket_whenExportBucketIsSameAsOriginalBucket_deleteBucketOnce() {
@@ -99,4 +111,39 @@ public class BucketArchiverTest {
 		verify(exporter, never()).exportBucket(bucket, format);
 	}
 
+	public void archiveBucket_withOperationLedger_recordsArchivedFormatsAndStages() {
+		OperationLedger operationLedger = mock(OperationLedger.class);
+		bucketArchiver = new BucketArchiver(exporter, archiveBucketTransferer,
+				deletesBuckets, bucketFormats, operationLedger);
+		getMockedBucketReturnFromExporter();
+
+		bucketArchiver.archiveBucket(bucket);
+
+		ArgumentCaptor<OperationRecord> record = ArgumentCaptor
+				.forClass(OperationRecord.class);
+		verify(operationLedger).record(record.capture());
+		assertEquals(OperationType.ARCHIVE, record.getValue().getType());
+		assertEquals(bucket.getName(), record.getValue().getBucketName());
+		assertEquals("SPLUNK_BUCKET", record.getValue().getFormat());
+		assertTrue(record.getValue().isSuccessful());
+		assertTrue(record.getValue().getStageMillis()
+				.containsKey("transfer_SPLUNK_BUCKET"));
+		assertTrue(record.getValue().getStageMillis().containsKey("delete"));
+	}
+
+	public void archiveBucket_transferFailsWithOperationLedger_recordsFailure() {
+		OperationLedger operationLedger = mock(OperationLedger.class);
+		bucketArchiver = new BucketArchiver(exporter, archiveBucketTransferer,
+				deletesBuckets, bucketFormats, operationLedger);
+		Bucket exportedBucket = getMockedBucketReturnFromExporter();
+		doThrow(new FailedToArchiveBucketException(new RuntimeException())).when(
+				archiveBucketTransferer).transferBucketToArchive(exportedBucket);
+
+		bucketArchiver.archiveBucket(bucket);
+
+		ArgumentCaptor<OperationRecord> record = ArgumentCaptor
+				.forClass(OperationRecord.class);
+		verify(operationLedger).record(record.capture());
+		assertFalse(record.getValue().isSuccessful());
+	}
 }
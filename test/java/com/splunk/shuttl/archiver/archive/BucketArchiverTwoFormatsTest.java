@@ -78,17 +78,30 @@ public class BucketArchiverTwoFormatsTest {
 		verify(archiveBucketTransferer).transferBucketToArchive(exportedBucket2);
 	}
 
-	public void archiveBucket_firstFormatFailsSecondSucceeds_deletesBothExportsButNotOriginalBucket() {
+	public void archiveBucket_firstFormatFailsSecondSucceeds_keepsFailedExportAndDeletesTransferredExportButNotOriginalBucket() {
 		setUpTwoFormatsAndTwoExportedBuckets();
 		doThrow(new FailedToArchiveBucketException()).when(archiveBucketTransferer)
 				.transferBucketToArchive(exportedBucket1);
 
 		bucketArchiver.archiveBucket(bucket);
-		verify(bucketDeleter).deleteBucket(exportedBucket1);
+		verify(bucketDeleter, never()).deleteBucket(exportedBucket1);
 		verify(bucketDeleter).deleteBucket(exportedBucket2);
 		verify(bucketDeleter, never()).deleteBucket(bucket);
 	}
 
+	public void archiveBucket_retryFindsFailedFormatArchived_deletesExportLeftByFailedAttempt() {
+		setUpTwoFormatsAndTwoExportedBuckets();
+		when(archiveBucketTransferer.isArchived(bucket, formats.get(0)))
+				.thenReturn(true);
+		when(exporter.getEarlierExport(bucket, formats.get(0))).thenReturn(
+				exportedBucket1);
+
+		bucketArchiver.archiveBucket(bucket);
+		verify(bucketDeleter).deleteBucket(exportedBucket1);
+		verify(exporter, never()).exportBucket(bucket, formats.get(0));
+		verify(bucketDeleter).deleteBucket(bucket);
+	}
+
 	public void archiveBucket_firstFormatIsTheSameAsOriginalBucket_dontDeleteFirstBucketAfterArchiving() {
 		when(exporter.exportBucket(bucket, formats.get(0))).thenReturn(bucket);
 		when(exporter.exportBucket(bucket, formats.get(1))).thenReturn(
@@ -15,7 +15,6 @@
 package com.splunk.shuttl.archiver.archive;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
-import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
@@ -25,14 +24,11 @@ import java.io.IOException;
 import org.apache.commons.io.FileUtils;
 import org.apache.http.client.ClientProtocolException;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InOrder;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.archive.recovery.IndexPreservingBucketMover;
-import com.splunk.shuttl.archiver.archive.recovery.FailedBucketsArchiver;
-import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
 import com.splunk.shuttl.archiver.bucketlock.BucketLockerInTestDir;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
@@ -48,16 +44,13 @@ public class BucketFreezerSuccessfulArchivingTest {
 	File tempTestDirectory;
 	BucketFreezer bucketFreezer;
 	ArchiveRestHandler archiveRestHandler;
-	FailedBucketsArchiver failedBucketsArchiver;
 
 	@BeforeMethod
 	public void setUp() throws ClientProtocolException, IOException {
 		tempTestDirectory = createDirectory();
 		archiveRestHandler = mock(ArchiveRestHandler.class);
-		failedBucketsArchiver = mock(FailedBucketsArchiver.class);
 		bucketFreezer = new BucketFreezer(IndexPreservingBucketMover.create(tempTestDirectory),
-				new BucketLockerInTestDir(tempTestDirectory), archiveRestHandler,
-				failedBucketsArchiver);
+				new BucketLockerInTestDir(tempTestDirectory), archiveRestHandler);
 	}
 
 	@AfterMethod
@@ -114,23 +107,4 @@ public class BucketFreezerSuccessfulArchivingTest {
 
 		TUtilsTestNG.assertBucketsGotSameIndexFormatAndName(bucket, capturedBucket);
 	}
-
-	public void freezeBucket_givenBucket_callItToRecoverBuckets() {
-		Bucket bucket = TUtilsBucket.createBucket();
-		bucketFreezer.freezeBucket(bucket.getIndex(), bucket.getDirectory()
-				.getAbsolutePath());
-		verify(failedBucketsArchiver).archiveFailedBuckets(archiveRestHandler);
-	}
-
-	public void freezeBucket_givenBucket_triesToRestoreBucketsAFTERCallingRest() {
-		Bucket bucket = TUtilsBucket.createBucket();
-		bucketFreezer.freezeBucket(bucket.getIndex(), bucket.getDirectory()
-				.getAbsolutePath());
-		InOrder inOrder = inOrder(archiveRestHandler, failedBucketsArchiver);
-		inOrder.verify(archiveRestHandler, times(1)).callRestToArchiveBucket(
-				any(Bucket.class));
-		inOrder.verify(failedBucketsArchiver).archiveFailedBuckets(
-				any(SharedLockBucketHandler.class));
-		inOrder.verifyNoMoreInteractions();
-	}
 }
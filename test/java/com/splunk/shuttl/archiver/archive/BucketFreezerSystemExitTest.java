@@ -27,7 +27,6 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import com.splunk.shuttl.archiver.archive.recovery.FailedBucketsArchiver;
 import com.splunk.shuttl.archiver.archive.recovery.IndexPreservingBucketMover;
 import com.splunk.shuttl.archiver.bucketlock.BucketLockerInTestDir;
 import com.splunk.shuttl.testutil.TUtilsFile;
@@ -49,8 +48,7 @@ public class BucketFreezerSystemExitTest {
 		testDir = createDirectory();
 		bucketFreezer = new BucketFreezer(
 				IndexPreservingBucketMover.create(testDir), new BucketLockerInTestDir(
-						testDir), mock(ArchiveRestHandler.class),
-				mock(FailedBucketsArchiver.class));
+						testDir), mock(ArchiveRestHandler.class));
 		bucketFreezerProvider = mock(BucketFreezerProvider.class);
 		stub(bucketFreezerProvider.getConfiguredBucketFreezer()).toReturn(
 				bucketFreezer);
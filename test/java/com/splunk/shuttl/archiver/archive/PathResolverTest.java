@@ -96,6 +96,13 @@ public class PathResolverTest {
 		assertEquals(expected, actual);
 	}
 
+	public void getCatalogHome_givenIndex_uriUnderCatalogRootWithClusterServerAndIndex() {
+		URI catalogRoot = URI.create(ROOT_URI + "/archive_catalog");
+		when(configuration.getCatalogRoot()).thenReturn(catalogRoot);
+		assertEquals(pathResolver.getCatalogHome(bucketIndex).toString(),
+				catalogRoot + "/" + clusterName + "/" + serverName + "/" + bucketIndex);
+	}
+
 	public void getBucketsHome_givenNothing_startsWithWritablePath() {
 		assertTrue(pathResolver.getBucketsHome(null).toString()
 				.startsWith(archiveRoot.toString()));
@@ -0,0 +1,172 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.jobs;
+
+import static java.util.Arrays.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.bucketlock.BucketLock;
+import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.testutil.TUtilsFile;
+
+@Test(groups = { "fast-unit" })
+public class ArchiveBucketServiceTest {
+
+	ArchiveBucketService archiveBucketService;
+	ArchiveJobJournal journal;
+	ExecutorService executor;
+	BucketLocker bucketLocker;
+	BucketFactory bucketFactory;
+	BucketLock bucketLock;
+	Bucket bucket;
+	File bucketDirectory;
+
+	@BeforeMethod
+	public void setUp() {
+		journal = mock(ArchiveJobJournal.class);
+		executor = mock(ExecutorService.class);
+		bucketLocker = mock(BucketLocker.class);
+		bucketFactory = mock(BucketFactory.class);
+		bucketLock = mock(BucketLock.class);
+		bucket = mock(Bucket.class);
+		bucketDirectory = TUtilsFile.createDirectory();
+		when(
+				bucketFactory.createWithIndexDirectoryAndFormat(anyString(),
+						any(File.class), eq(BucketFormat.SPLUNK_BUCKET))).thenReturn(
+				bucket);
+		when(bucketLocker.getLockForBucket(bucket)).thenReturn(bucketLock);
+		archiveBucketService = new ArchiveBucketService(journal, executor,
+				bucketLocker, bucketFactory);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		FileUtils.deleteQuietly(bucketDirectory);
+	}
+
+	public void archiveBucket_bucketIsLocked_journalsJobThenQueuesIt() {
+		when(bucketLock.tryLockShared()).thenReturn(true);
+		ArchiveJob job = new ArchiveJob("id", "index", "/path", 0);
+		when(journal.addJob("index", "/path")).thenReturn(job);
+
+		assertEquals(archiveBucketService.archiveBucket("index", "/path"), job);
+
+		verify(journal).addJob("index", "/path");
+		verify(executor).execute(any(ArchiveJobRunner.class));
+		verify(bucketLock, never()).closeLock();
+	}
+
+	public void archiveBucket_bucketCannotBeLocked_throwsAndClosesLock() {
+		when(bucketLock.tryLockShared()).thenReturn(false);
+		try {
+			archiveBucketService.archiveBucket("index", "/path");
+			fail();
+		} catch (IllegalStateException e) {
+			// Expected.
+		}
+		verify(bucketLock).closeLock();
+		verifyZeroInteractions(journal, executor);
+	}
+
+	public void archiveBucket_journalingFails_closesLockAndDoesNotQueueJob() {
+		when(bucketLock.tryLockShared()).thenReturn(true);
+		when(journal.addJob(anyString(), anyString())).thenThrow(
+				new RuntimeException());
+		try {
+			archiveBucketService.archiveBucket("index", "/path");
+			fail();
+		} catch (RuntimeException e) {
+			// Expected.
+		}
+		verify(bucketLock).closeLock();
+		verifyZeroInteractions(executor);
+	}
+
+	public void isQueued_jobIsQueuedAndNotRun_true() {
+		when(bucketLock.tryLockShared()).thenReturn(true);
+		when(journal.addJob("index", "/path")).thenReturn(
+				new ArchiveJob("id", "index", "/path", 0));
+
+		archiveBucketService.archiveBucket("index", "/path");
+
+		assertTrue(archiveBucketService.isQueued("/path"));
+		assertFalse(archiveBucketService.isQueued("/other/path"));
+	}
+
+	public void isQueued_executorRejectsJob_false() {
+		when(bucketLock.tryLockShared()).thenReturn(true);
+		when(journal.addJob("index", "/path")).thenReturn(
+				new ArchiveJob("id", "index", "/path", 0));
+		doThrow(new RejectedExecutionException()).when(executor).execute(
+				any(Runnable.class));
+		try {
+			archiveBucketService.archiveBucket("index", "/path");
+			fail();
+		} catch (RejectedExecutionException e) {
+			// Expected.
+		}
+		assertFalse(archiveBucketService.isQueued("/path"));
+	}
+
+	public void resumeJournaledJobs_bucketExistsAndIsLocked_queuesJob() {
+		ArchiveJob job = new ArchiveJob("id", "index",
+				bucketDirectory.getAbsolutePath(), 0);
+		when(journal.getJobs()).thenReturn(asList(job));
+		when(bucketLock.tryLockShared()).thenReturn(true);
+
+		archiveBucketService.resumeJournaledJobs();
+
+		verify(executor).execute(any(ArchiveJobRunner.class));
+		verify(journal, never()).removeJob(job);
+	}
+
+	public void resumeJournaledJobs_bucketDoesNotExist_removesJob() {
+		ArchiveJob job = new ArchiveJob("id", "index", TUtilsFile
+				.createFilePath().getAbsolutePath(), 0);
+		when(journal.getJobs()).thenReturn(asList(job));
+
+		archiveBucketService.resumeJournaledJobs();
+
+		verify(journal).removeJob(job);
+		verifyZeroInteractions(executor);
+	}
+
+	public void resumeJournaledJobs_bucketCannotBeLocked_removesJobAndClosesLock() {
+		ArchiveJob job = new ArchiveJob("id", "index",
+				bucketDirectory.getAbsolutePath(), 0);
+		when(journal.getJobs()).thenReturn(asList(job));
+		when(bucketLock.tryLockShared()).thenReturn(false);
+
+		archiveBucketService.resumeJournaledJobs();
+
+		verify(journal).removeJob(job);
+		verify(bucketLock).closeLock();
+		verifyZeroInteractions(executor);
+	}
+}
@@ -0,0 +1,93 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.jobs;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class ArchiveJobJournalTest {
+
+	ArchiveJobJournal journal;
+	File journalDirectory;
+
+	@BeforeMethod
+	public void setUp() {
+		journalDirectory = createDirectory();
+		journal = new ArchiveJobJournal(journalDirectory);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		FileUtils.deleteQuietly(journalDirectory);
+	}
+
+	public void getJobs_emptyJournal_noJobs() {
+		assertTrue(journal.getJobs().isEmpty());
+	}
+
+	public void addJob_indexAndPath_jobIsReadFromJournal() {
+		ArchiveJob job = journal.addJob("index", "/path/to/bucket");
+		List<ArchiveJob> jobs = journal.getJobs();
+		assertEquals(jobs.size(), 1);
+		ArchiveJob journaled = jobs.get(0);
+		assertEquals(journaled, job);
+		assertEquals(journaled.getIndex(), "index");
+		assertEquals(journaled.getPath(), "/path/to/bucket");
+		assertEquals(journaled.getCreated(), job.getCreated());
+	}
+
+	public void addJob_twoJobs_jobsHaveDifferentIds() {
+		ArchiveJob job1 = journal.addJob("index", "/a");
+		ArchiveJob job2 = journal.addJob("index", "/b");
+		assertNotEquals(job1.getId(), job2.getId());
+	}
+
+	public void addJob_givenJob_onlyJobFileIsLeftInJournalDirectory() {
+		ArchiveJob job = journal.addJob("index", "/path");
+		File[] files = journalDirectory.listFiles();
+		assertEquals(files.length, 1);
+		assertEquals(files[0].getName(), job.getId()
+				+ ArchiveJobJournal.JOB_FILE_EXTENSION);
+	}
+
+	public void removeJob_addedJob_jobIsNoLongerInJournal() {
+		ArchiveJob job = journal.addJob("index", "/path");
+		journal.removeJob(job);
+		assertTrue(journal.getJobs().isEmpty());
+	}
+
+	public void removeJob_jobNotInJournal_doesNothing() {
+		journal.removeJob(new ArchiveJob("id", "index", "/path", 0));
+		assertTrue(journal.getJobs().isEmpty());
+	}
+
+	public void getJobs_corruptJobFile_isSkipped() throws Exception {
+		ArchiveJob job = journal.addJob("index", "/path");
+		FileUtils.writeStringToFile(new File(journalDirectory, "corrupt"
+				+ ArchiveJobJournal.JOB_FILE_EXTENSION), "not a job");
+		List<ArchiveJob> jobs = journal.getJobs();
+		assertEquals(jobs.size(), 1);
+		assertEquals(jobs.get(0), job);
+	}
+}
@@ -0,0 +1,187 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.recovery;
+
+import static com.splunk.shuttl.archiver.archive.recovery.FailedBucketsRetryScheduler.*;
+import static java.util.Arrays.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.jobs.ArchiveBucketService;
+import com.splunk.shuttl.archiver.metrics.MetricsRegistry;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class FailedBucketsRetrySchedulerTest {
+
+	FailedBucketsRetryScheduler scheduler;
+	IndexPreservingBucketMover safeBucketMover;
+	ArchiveBucketService archiveBucketService;
+	Random random;
+	long now;
+	Bucket bucket;
+	String path;
+
+	@BeforeMethod
+	public void setUp() {
+		safeBucketMover = mock(IndexPreservingBucketMover.class);
+		archiveBucketService = mock(ArchiveBucketService.class);
+		random = mock(Random.class);
+		now = 1000;
+		scheduler = new FailedBucketsRetryScheduler(safeBucketMover,
+				archiveBucketService, mock(ScheduledExecutorService.class), random, 1) {
+			@Override
+			long currentTimeMillis() {
+				return now;
+			}
+		};
+		bucket = TUtilsBucket.createBucket();
+		path = bucket.getDirectory().getAbsolutePath();
+	}
+
+	private void stubSafeBuckets(Bucket... buckets) {
+		when(safeBucketMover.getMovedBuckets()).thenReturn(
+				new ArrayList<Bucket>(asList(buckets)));
+	}
+
+	public void sweep_bucketSeenForTheFirstTime_waitsForBackoffBeforeRetrying() {
+		stubSafeBuckets(bucket);
+
+		scheduler.sweep();
+
+		verify(archiveBucketService, never()).archiveBucket(anyString(),
+				anyString());
+		assertEquals(scheduler.getRetryQueueSize(), 1);
+		assertEquals(scheduler.getRetryHistory(path).getNextAttempt(),
+				now + INITIAL_BACKOFF_MILLIS / 2);
+	}
+
+	public void sweep_backoffHasPassed_retriesBucket() {
+		stubSafeBuckets(bucket);
+		scheduler.sweep();
+
+		now += INITIAL_BACKOFF_MILLIS;
+		scheduler.sweep();
+
+		verify(archiveBucketService).archiveBucket(bucket.getIndex(), path);
+		assertEquals(scheduler.getRetryHistory(path).getAttempts(), 1);
+		assertTrue(scheduler.getRetryHistory(path).isRetrying());
+	}
+
+	public void sweep_bucketIsQueued_neverRetriesIt() {
+		stubSafeBuckets(bucket);
+		when(archiveBucketService.isQueued(path)).thenReturn(true);
+
+		scheduler.sweep();
+		now += MAX_BACKOFF_MILLIS;
+		scheduler.sweep();
+
+		verify(archiveBucketService, never()).archiveBucket(anyString(),
+				anyString());
+		assertEquals(scheduler.getRetryQueueSize(), 0);
+	}
+
+	public void sweep_retryFailed_backsOffTwiceAsLong() {
+		stubSafeBuckets(bucket);
+		scheduler.sweep();
+		now += INITIAL_BACKOFF_MILLIS;
+		scheduler.sweep();
+
+		now += 1;
+		scheduler.sweep();
+
+		assertFalse(scheduler.getRetryHistory(path).isRetrying());
+		assertEquals(scheduler.getRetryHistory(path).getNextAttempt(),
+				now + INITIAL_BACKOFF_MILLIS);
+	}
+
+	public void sweep_bucketIsNoLongerSafe_forgetsIt() {
+		stubSafeBuckets(bucket);
+		scheduler.sweep();
+
+		when(safeBucketMover.getMovedBuckets()).thenReturn(
+				Collections.<Bucket> emptyList());
+		scheduler.sweep();
+
+		assertEquals(scheduler.getRetryQueueSize(), 0);
+		assertNull(scheduler.getRetryHistory(path));
+	}
+
+	public void sweep_maxConcurrentRetriesAreQueued_doesNotRetryMoreBuckets() {
+		Bucket otherBucket = TUtilsBucket.createBucket();
+		String otherPath = otherBucket.getDirectory().getAbsolutePath();
+		stubSafeBuckets(bucket, otherBucket);
+		scheduler.sweep();
+		now += INITIAL_BACKOFF_MILLIS;
+
+		scheduler.sweep();
+		when(archiveBucketService.isQueued(path)).thenReturn(true);
+		scheduler.sweep();
+
+		verify(archiveBucketService).archiveBucket(bucket.getIndex(), path);
+		verify(archiveBucketService, never()).archiveBucket(
+				otherBucket.getIndex(), otherPath);
+	}
+
+	public void sweep_queueingRetryThrows_backsOffAgain() {
+		stubSafeBuckets(bucket);
+		when(archiveBucketService.archiveBucket(anyString(), anyString()))
+				.thenThrow(new IllegalStateException());
+		scheduler.sweep();
+		now += INITIAL_BACKOFF_MILLIS;
+		scheduler.sweep();
+
+		scheduler.sweep();
+
+		assertEquals(scheduler.getRetryHistory(path).getAttempts(), 1);
+		assertTrue(scheduler.getRetryHistory(path).getNextAttempt() > now);
+	}
+
+	public void getBackoff_manyAttempts_cappedAtMaxBackoff() {
+		when(random.nextDouble()).thenReturn(1.0);
+		assertEquals(scheduler.getBackoff(100), MAX_BACKOFF_MILLIS);
+	}
+
+	public void getBackoff_randomIsZero_halfOfExponentialBackoff() {
+		when(random.nextDouble()).thenReturn(0.0);
+		assertEquals(scheduler.getBackoff(2), INITIAL_BACKOFF_MILLIS * 4 / 2);
+	}
+
+	public void sweep_listOfSafeBucketsIsEmpty_doesNothing() {
+		when(safeBucketMover.getMovedBuckets()).thenReturn(new ArrayList<Bucket>());
+		scheduler.sweep();
+		verifyZeroInteractions(archiveBucketService);
+	}
+
+	public void registerRetryQueueGauge_failedBucketsSwept_gaugeIsRetryQueueSize() {
+		MetricsRegistry registry = new MetricsRegistry();
+		scheduler.registerRetryQueueGauge(registry);
+		stubSafeBuckets(bucket, TUtilsBucket.createBucket());
+
+		scheduler.sweep();
+
+		assertEquals(registry.getSnapshot().get("queue.retry_buckets"), 2L);
+	}
+}
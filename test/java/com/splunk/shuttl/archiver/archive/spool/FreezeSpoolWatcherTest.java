@@ -0,0 +1,120 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.spool;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.jobs.ArchiveBucketService;
+import com.splunk.shuttl.archiver.archive.recovery.IndexPreservingBucketMover;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+import com.splunk.shuttl.testutil.TUtilsFile;
+
+@Test(groups = { "fast-unit" })
+public class FreezeSpoolWatcherTest {
+
+	FreezeSpoolWatcher watcher;
+	ArchiveBucketService archiveBucketService;
+	File spoolDirectory;
+	File safeDirectory;
+	File indexDirectory;
+
+	@BeforeMethod
+	public void setUp() {
+		spoolDirectory = TUtilsFile.createDirectory();
+		safeDirectory = TUtilsFile.createDirectory();
+		indexDirectory = TUtilsFile.createDirectoryInParent(spoolDirectory,
+				"index");
+		archiveBucketService = mock(ArchiveBucketService.class);
+		watcher = new FreezeSpoolWatcher(spoolDirectory,
+				IndexPreservingBucketMover.create(safeDirectory),
+				archiveBucketService, mock(ScheduledExecutorService.class));
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		FileUtils.deleteQuietly(spoolDirectory);
+		FileUtils.deleteQuietly(safeDirectory);
+	}
+
+	public void sweep_spooledBucket_movesBucketToSafeLocationAndQueuesIt() {
+		Bucket spooled = TUtilsBucket.createBucketInDirectoryWithIndex(
+				indexDirectory, "index");
+		String bucketName = spooled.getDirectory().getName();
+
+		watcher.sweep();
+
+		File safeBucket = new File(new File(safeDirectory, "index"), bucketName);
+		assertTrue(safeBucket.isDirectory());
+		assertFalse(spooled.getDirectory().exists());
+		verify(archiveBucketService).archiveBucket("index",
+				safeBucket.getAbsolutePath());
+	}
+
+	public void sweep_bucketIsStillBeingSpooled_leavesIt() {
+		File spooling = TUtilsFile.createDirectoryInParent(indexDirectory,
+				".db_1_0_1");
+
+		watcher.sweep();
+
+		assertTrue(spooling.isDirectory());
+		verifyZeroInteractions(archiveBucketService);
+	}
+
+	public void sweep_queueingFails_movesBucketBackToSpool() {
+		Bucket spooled = TUtilsBucket.createBucketInDirectoryWithIndex(
+				indexDirectory, "index");
+		when(archiveBucketService.archiveBucket(anyString(), anyString()))
+				.thenThrow(new IllegalStateException());
+
+		watcher.sweep();
+
+		assertTrue(spooled.getDirectory().isDirectory());
+	}
+
+	public void run_onlyTheSweepChangedTheSpool_doesNotSweepAgain() {
+		TUtilsBucket.createBucketInDirectoryWithIndex(indexDirectory, "index");
+		when(archiveBucketService.archiveBucket(anyString(), anyString()))
+				.thenThrow(new IllegalStateException());
+		watcher.sweep();
+
+		watcher.run();
+
+		verify(archiveBucketService, times(1)).archiveBucket(anyString(),
+				anyString());
+	}
+
+	public void run_bucketSpooledAfterSweep_sweepsAgain() {
+		watcher.sweep();
+		Bucket spooled = TUtilsBucket.createBucketInDirectoryWithIndex(
+				indexDirectory, "index");
+		indexDirectory.setLastModified(indexDirectory.lastModified() + 2000);
+
+		watcher.run();
+
+		assertFalse(spooled.getDirectory().exists());
+		verify(archiveBucketService).archiveBucket(eq("index"), anyString());
+	}
+}
@@ -0,0 +1,115 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.bandwidth;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.bandwidth.BandwidthGovernor.Direction;
+import com.splunk.shuttl.server.mbeans.ShuttlArchiverMBean;
+
+@Test(groups = { "fast-unit" })
+public class BandwidthGovernorTest {
+
+	BandwidthGovernor governor;
+	TokenBucket archiveBucket;
+	TokenBucket thawBucket;
+	ShuttlArchiverMBean archiverMBean;
+	int hour;
+
+	@BeforeMethod
+	public void setUp() {
+		archiveBucket = mock(TokenBucket.class);
+		thawBucket = mock(TokenBucket.class);
+		archiverMBean = mock(ShuttlArchiverMBean.class);
+		hour = 12;
+		governor = createGovernor(archiverMBean);
+	}
+
+	private BandwidthGovernor createGovernor(ShuttlArchiverMBean mBean) {
+		return new BandwidthGovernor(archiveBucket, thawBucket, mBean) {
+			@Override
+			int currentHour() {
+				return hour;
+			}
+		};
+	}
+
+	public void acquire_archiveDirection_acquiresFromArchiveBucketWithConfiguredLimit()
+			throws Exception {
+		when(archiverMBean.getArchiveBandwidthLimit()).thenReturn(100L);
+
+		governor.acquire(Direction.ARCHIVE, 10);
+
+		verify(archiveBucket).setBytesPerSecond(100);
+		verify(archiveBucket).acquire(10);
+		verifyZeroInteractions(thawBucket);
+	}
+
+	public void acquire_thawDirection_acquiresFromThawBucketWithConfiguredLimit()
+			throws Exception {
+		when(archiverMBean.getThawBandwidthLimit()).thenReturn(200L);
+
+		governor.acquire(Direction.THAW, 10);
+
+		verify(thawBucket).setBytesPerSecond(200);
+		verify(thawBucket).acquire(10);
+		verifyZeroInteractions(archiveBucket);
+	}
+
+	public void getCurrentLimit_scheduleHasLimitForTheHour_limitOfSchedule() {
+		when(archiverMBean.getArchiveBandwidthLimit()).thenReturn(100L);
+		when(archiverMBean.getArchiveBandwidthSchedule()).thenReturn("8-18=50");
+
+		assertEquals(governor.getCurrentLimit(Direction.ARCHIVE), 50);
+		hour = 20;
+		assertEquals(governor.getCurrentLimit(Direction.ARCHIVE), 100);
+	}
+
+	public void getCurrentLimit_notConfigured_unlimited() {
+		assertEquals(governor.getCurrentLimit(Direction.ARCHIVE), 0);
+		assertEquals(governor.getCurrentLimit(Direction.THAW), 0);
+	}
+
+	public void getCurrentLimit_calledTwiceWithinRefreshInterval_readsMBeanOnce() {
+		governor.getCurrentLimit(Direction.ARCHIVE);
+		governor.getCurrentLimit(Direction.THAW);
+		verify(archiverMBean).getArchiveBandwidthLimit();
+	}
+
+	public void getCurrentLimit_malformedSchedule_keepsTheLimitAndEmptySchedule() {
+		when(archiverMBean.getThawBandwidthLimit()).thenReturn(100L);
+		when(archiverMBean.getThawBandwidthSchedule()).thenReturn("8-18");
+
+		assertEquals(governor.getCurrentLimit(Direction.THAW), 100);
+	}
+
+	public void getCurrentLimit_mBeanThrows_keepsConfiguredLimits() {
+		governor.configure(Direction.ARCHIVE, 300L, BandwidthSchedule.empty());
+		when(archiverMBean.getArchiveBandwidthLimit()).thenThrow(
+				new RuntimeException());
+
+		assertEquals(governor.getCurrentLimit(Direction.ARCHIVE), 300);
+	}
+
+	public void configure_withoutMBean_usesConfiguredLimits() {
+		governor = createGovernor(null);
+		governor.configure(Direction.THAW, 10L, BandwidthSchedule.parse("0-24=5"));
+		assertEquals(governor.getCurrentLimit(Direction.THAW), 5);
+	}
+}
@@ -0,0 +1,70 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.bandwidth;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class BandwidthScheduleTest {
+
+	public void parse_nullSchedule_emptySchedule() {
+		assertEquals(BandwidthSchedule.parse(null), BandwidthSchedule.empty());
+		assertEquals(BandwidthSchedule.parse(" "), BandwidthSchedule.empty());
+	}
+
+	public void getLimit_hourInRange_limitOfRange() {
+		BandwidthSchedule schedule = BandwidthSchedule.parse("8-18=1024");
+		assertEquals(schedule.getLimit(8, 5), 1024);
+		assertEquals(schedule.getLimit(17, 5), 1024);
+	}
+
+	public void getLimit_hourOutsideRanges_defaultLimit() {
+		BandwidthSchedule schedule = BandwidthSchedule.parse("8-18=1024");
+		assertEquals(schedule.getLimit(18, 5), 5);
+		assertEquals(schedule.getLimit(7, 5), 5);
+	}
+
+	public void getLimit_rangeWrapsAroundMidnight_limitBeforeAndAfterMidnight() {
+		BandwidthSchedule schedule = BandwidthSchedule.parse("22-6=10, 8-9=20");
+		assertEquals(schedule.getLimit(23, 5), 10);
+		assertEquals(schedule.getLimit(0, 5), 10);
+		assertEquals(schedule.getLimit(5, 5), 10);
+		assertEquals(schedule.getLimit(6, 5), 5);
+		assertEquals(schedule.getLimit(8, 5), 20);
+	}
+
+	public void getLimit_wholeDayRange_limitForEveryHour() {
+		BandwidthSchedule schedule = BandwidthSchedule.parse("0-24=10");
+		for (int hour = 0; hour < 24; hour++)
+			assertEquals(schedule.getLimit(hour, 5), 10);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void parse_rangeWithoutLimit_throws() {
+		BandwidthSchedule.parse("8-18");
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void parse_hourOutOfBounds_throws() {
+		BandwidthSchedule.parse("8-25=10");
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void parse_limitIsNotANumber_throws() {
+		BandwidthSchedule.parse("8-18=fast");
+	}
+}
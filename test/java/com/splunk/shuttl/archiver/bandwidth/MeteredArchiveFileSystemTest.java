@@ -0,0 +1,161 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.bandwidth;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.bandwidth.BandwidthGovernor.Direction;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.WritesToStream;
+import com.splunk.shuttl.testutil.TUtilsFile;
+
+@Test(groups = { "fast-unit" })
+public class MeteredArchiveFileSystemTest {
+
+	MeteredArchiveFileSystem meteredArchiveFileSystem;
+	ArchiveFileSystem archiveFileSystem;
+	BandwidthGovernor governor;
+	URI remoteUri;
+	File directory;
+
+	@BeforeMethod
+	public void setUp() {
+		archiveFileSystem = mock(ArchiveFileSystem.class);
+		governor = mock(BandwidthGovernor.class);
+		meteredArchiveFileSystem = new MeteredArchiveFileSystem(
+				archiveFileSystem, governor);
+		remoteUri = URI.create("remote:/path");
+		directory = TUtilsFile.createDirectory();
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	public void putFileAtomically_directory_acquiresSizeOfDirectoryForArchiving()
+			throws Exception {
+		File file = TUtilsFile.createFileInParent(directory, "file");
+		FileUtils.writeStringToFile(file, "12345");
+
+		meteredArchiveFileSystem.putFileAtomically(directory, remoteUri);
+
+		verify(governor).acquire(Direction.ARCHIVE, 5);
+		verify(archiveFileSystem).putFileAtomically(directory, remoteUri);
+	}
+
+	public void getFile_fileIsDownloaded_acquiresSizeOfFileForThawing()
+			throws Exception {
+		final File file = new File(directory, "file");
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				FileUtils.writeStringToFile(file, "123");
+				return null;
+			}
+		}).when(archiveFileSystem).getFile(file, remoteUri);
+
+		meteredArchiveFileSystem.getFile(file, remoteUri);
+
+		verify(governor).acquire(Direction.THAW, 3);
+	}
+
+	public void openFile_readingStream_acquiresReadBytesForThawing()
+			throws Exception {
+		when(archiveFileSystem.openFile(remoteUri)).thenReturn(
+				new ByteArrayInputStream(new byte[10]));
+
+		InputStream in = meteredArchiveFileSystem.openFile(remoteUri);
+		assertEquals(IOUtils.toByteArray(in).length, 10);
+
+		verify(governor).acquire(Direction.THAW, 10);
+	}
+
+	public void putStreamAtomically_writerWrites_acquiresWrittenBytesForArchiving()
+			throws Exception {
+		final ByteArrayOutputStream written = new ByteArrayOutputStream();
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				((WritesToStream) invocation.getArguments()[0]).writeTo(written);
+				return null;
+			}
+		}).when(archiveFileSystem).putStreamAtomically(any(WritesToStream.class),
+				eq(remoteUri));
+
+		meteredArchiveFileSystem.putStreamAtomically(new WritesToStream() {
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				out.write(new byte[7]);
+			}
+		}, remoteUri);
+
+		verify(governor).acquire(Direction.ARCHIVE, 7);
+		assertEquals(written.size(), 7);
+	}
+
+	@SuppressWarnings("unchecked")
+	public void putStreamsAtomically_writerWrites_acquiresWrittenBytesForArchiving()
+			throws Exception {
+		final ByteArrayOutputStream written = new ByteArrayOutputStream();
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				Map<String, WritesToStream> writers = (Map<String, WritesToStream>) invocation
+						.getArguments()[0];
+				writers.get("file").writeTo(written);
+				return null;
+			}
+		}).when(archiveFileSystem).putStreamsAtomically(anyMap(), eq(remoteUri));
+
+		meteredArchiveFileSystem.putStreamsAtomically(
+				Collections.<String, WritesToStream> singletonMap("file",
+						new WritesToStream() {
+							@Override
+							public void writeTo(OutputStream out) throws IOException {
+								out.write(new byte[5]);
+							}
+						}), remoteUri);
+
+		verify(governor).acquire(Direction.ARCHIVE, 5);
+		assertEquals(written.size(), 5);
+	}
+
+	public void listPath_givenPath_isNotMetered() throws Exception {
+		meteredArchiveFileSystem.listPath(remoteUri);
+		verify(archiveFileSystem).listPath(remoteUri);
+		verifyZeroInteractions(governor);
+	}
+}
@@ -0,0 +1,102 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.bandwidth;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class TokenBucketTest {
+
+	static final long SECOND = 1000000000L;
+
+	TokenBucket tokenBucket;
+	long now;
+	long slept;
+
+	@BeforeMethod
+	public void setUp() {
+		now = 0;
+		slept = 0;
+		tokenBucket = createTokenBucket(100);
+	}
+
+	private TokenBucket createTokenBucket(long bytesPerSecond) {
+		return new TokenBucket(bytesPerSecond) {
+			@Override
+			long nanoTime() {
+				return now;
+			}
+
+			@Override
+			void sleep(long nanos) {
+				slept += nanos;
+			}
+		};
+	}
+
+	public void acquire_bytesWithinOneSecondOfRate_doesNotWait()
+			throws Exception {
+		tokenBucket.acquire(100);
+		assertEquals(slept, 0);
+	}
+
+	public void acquire_bytesMoreThanTokens_waitsForTheDebt() throws Exception {
+		tokenBucket.acquire(300);
+		assertEquals(slept, 2 * SECOND);
+	}
+
+	public void acquire_afterAnotherCallersDebt_waitsForBothDebts()
+			throws Exception {
+		tokenBucket.acquire(200);
+		slept = 0;
+		tokenBucket.acquire(50);
+		assertEquals(slept, SECOND + SECOND / 2);
+	}
+
+	public void acquire_timePassed_tokensAreRefilledUpToOneSecond()
+			throws Exception {
+		tokenBucket.acquire(100);
+		now += 10 * SECOND;
+		tokenBucket.acquire(100);
+		assertEquals(slept, 0);
+		tokenBucket.acquire(50);
+		assertEquals(slept, SECOND / 2);
+	}
+
+	public void acquire_unlimitedRate_neverWaits() throws Exception {
+		tokenBucket = createTokenBucket(0);
+		tokenBucket.acquire(Long.MAX_VALUE);
+		assertEquals(slept, 0);
+	}
+
+	public void setBytesPerSecond_inDebt_debtIsPaidAtNewRate() throws Exception {
+		tokenBucket.acquire(200);
+		slept = 0;
+		tokenBucket.setBytesPerSecond(200);
+		tokenBucket.acquire(100);
+		assertEquals(slept, SECOND);
+	}
+
+	public void setBytesPerSecond_fromUnlimited_startsWithFullBucket()
+			throws Exception {
+		tokenBucket = createTokenBucket(0);
+		tokenBucket.setBytesPerSecond(100);
+		tokenBucket.acquire(100);
+		assertEquals(slept, 0);
+	}
+}
@@ -14,20 +14,16 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.bucketsize;
 
-import static com.splunk.shuttl.testutil.TUtilsFile.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
-import java.io.File;
-import java.io.IOException;
 import java.net.URI;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.archive.PathResolver;
-import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -36,42 +32,13 @@ public class ArchiveBucketSizeTest {
 
 	private ArchiveBucketSize archiveBucketSize;
 	private PathResolver pathResolver;
-	private ArchiveFileSystem archiveFileSystem;
 	private BucketSizeIO bucketSizeIO;
 
 	@BeforeMethod
 	public void setUp() {
 		pathResolver = mock(PathResolver.class);
-		archiveFileSystem = mock(ArchiveFileSystem.class);
 		bucketSizeIO = mock(BucketSizeIO.class);
-		archiveBucketSize = new ArchiveBucketSize(pathResolver, bucketSizeIO,
-				archiveFileSystem);
-	}
-
-	public void putSize_givenBucketSizeFile_getsFileWithBucketSize() {
-		Bucket bucket = mock(Bucket.class);
-		archiveBucketSize.putSize(bucket);
-		verify(bucketSizeIO).getFileWithBucketSize(bucket);
-	}
-
-	public void putSize_givenPathResolver_getsMetadataFolderForBucket() {
-		Bucket bucket = mock(Bucket.class);
-		archiveBucketSize.putSize(bucket);
-		verify(pathResolver).getBucketSizeFileUriForBucket(bucket);
-	}
-
-	public void putSize_givenFileWithBucketSizeAndPathOnArchiveFileSystem_transfersFileWithSizeToArchiveFileSystem()
-			throws IOException {
-		Bucket bucket = mock(Bucket.class);
-		File fileWithBucketsSize = createFile();
-		when(bucketSizeIO.getFileWithBucketSize(bucket)).thenReturn(
-				fileWithBucketsSize);
-		URI pathOnArchiveFileSystem = URI.create("path:/on/archive/file/system");
-		when(pathResolver.getBucketSizeFileUriForBucket(bucket)).thenReturn(
-				pathOnArchiveFileSystem);
-		archiveBucketSize.putSize(bucket);
-		verify(archiveFileSystem).putFileAtomically(fileWithBucketsSize,
-				pathOnArchiveFileSystem);
+		archiveBucketSize = new ArchiveBucketSize(pathResolver, bucketSizeIO);
 	}
 
 	public void getSize_givenUriToFileWithBucketSize_passesUriToBucketSizeFileForReading() {
@@ -18,6 +18,7 @@ import static com.splunk.shuttl.testutil.TUtilsFile.*;
 import static org.testng.AssertJUnit.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
@@ -43,6 +44,9 @@ public class ArchiveBucketsSizeFunctionalTest {
 
 	private ArchiveConfiguration config;
 	private ArchiveBucketSize archiveBucketSize;
+	private ArchiveFileSystem archiveFileSystem;
+	private PathResolver pathResolver;
+	private BucketSizeIO bucketSizeIO;
 	private ListsBucketsFiltered listsBucketsFiltered;
 	private File archiverData;
 	private BucketArchiver bucketArchiver;
@@ -50,15 +54,13 @@ public class ArchiveBucketsSizeFunctionalTest {
 	@BeforeMethod
 	public void setUp() {
 		config = TUtilsFunctional.getLocalFileSystemConfiguration();
-		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
-				.getWithConfiguration(config);
+		archiveFileSystem = ArchiveFileSystemFactory.getWithConfiguration(config);
 		archiverData = createDirectory();
 		LocalFileSystemPaths localFileSystemPaths = new LocalFileSystemPaths(
 				archiverData.getAbsolutePath());
-		PathResolver pathResolver = new PathResolver(config);
-		archiveBucketSize = ArchiveBucketSize.create(pathResolver,
-				archiveFileSystem, new BucketSizeIO(archiveFileSystem,
-						localFileSystemPaths));
+		pathResolver = new PathResolver(config);
+		bucketSizeIO = new BucketSizeIO(archiveFileSystem, localFileSystemPaths);
+		archiveBucketSize = ArchiveBucketSize.create(pathResolver, bucketSizeIO);
 		listsBucketsFiltered = ListsBucketsFilteredFactory.create(config);
 		bucketArchiver = BucketArchiverFactory
 				.createWithConfFileSystemAndCsvDirectory(config, archiveFileSystem,
@@ -71,7 +73,12 @@ public class ArchiveBucketsSizeFunctionalTest {
 		FileUtils.deleteQuietly(archiverData);
 	}
 
-	public void _givenArchivedBucket_putSizeOfBucketThenListRemoteBucketAndGetSize() {
+	/**
+	 * Size files are no longer written when a bucket is archived, so the size
+	 * file of a bucket archived before the catalog is put by the test.
+	 */
+	public void _givenArchivedBucketWithSizeFile_listRemoteBucketAndGetSize()
+			throws IOException {
 		Bucket realBucket = TUtilsBucket.createRealBucket();
 		long realBucketSize = realBucket.getSize();
 		TUtilsFunctional.archiveBucket(realBucket, bucketArchiver);
@@ -82,6 +89,9 @@ public class ArchiveBucketsSizeFunctionalTest {
 		assertEquals(1, buckets.size());
 		Bucket remoteBucket = buckets.get(0);
 		assertRealAndRemoteBucketsAreEqual(realBucket, remoteBucket);
+		archiveFileSystem.putFileAtomically(
+				bucketSizeIO.getFileWithBucketSize(realBucket),
+				pathResolver.getBucketSizeFileUriForBucket(remoteBucket));
 
 		long remoteBucketSize = archiveBucketSize.getSize(remoteBucket);
 		assertEquals(realBucketSize, remoteBucketSize);
@@ -0,0 +1,116 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.bucketsize;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.bucketsize.DirectorySizeWalker.DirectorySize;
+import com.splunk.shuttl.testutil.TUtilsFile;
+
+@Test(groups = { "fast-unit" })
+public class DirectorySizeWalkerTest {
+
+	ExecutorService executor;
+	File directory;
+
+	@BeforeMethod
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+		directory = TUtilsFile.createDirectory();
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		executor.shutdownNow();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	private void populateDirectory() {
+		for (int i = 0; i < 10; i++)
+			TUtilsFile.populateFileWithRandomContent(TUtilsFile.createFileInParent(
+					directory, "file" + i));
+		File child = TUtilsFile.createDirectoryInParent(directory, "child");
+		TUtilsFile.populateFileWithRandomContent(TUtilsFile.createFileInParent(
+				child, "file"));
+	}
+
+	public void walk_smallDirectory_sameSizeAsSizeOfDirectory() {
+		populateDirectory();
+		DirectorySize walked = new DirectorySizeWalker(executor, 2, 100)
+				.walk(directory);
+		assertEquals(walked.getSize(), FileUtils.sizeOfDirectory(directory));
+		assertEquals(walked.getFileCount(), 11);
+	}
+
+	public void walk_directoryLargerThanThreshold_sameSizeAsWalkedOnOneThread() {
+		populateDirectory();
+		DirectorySize walked = new DirectorySizeWalker(executor, 3, 2)
+				.walk(directory);
+		assertEquals(walked.getSize(), FileUtils.sizeOfDirectory(directory));
+		assertEquals(walked.getFileCount(), 11);
+	}
+
+	public void walk_nestedDirectoriesWithManyFilesInTotal_walksTheirFilesInParallel() {
+		for (int i = 0; i < 4; i++) {
+			File child = TUtilsFile.createDirectoryInParent(directory, "child" + i);
+			for (int j = 0; j < 50; j++)
+				TUtilsFile.populateFileWithRandomContent(TUtilsFile
+						.createFileInParent(child, "file" + j));
+		}
+		final AtomicInteger walkedParts = new AtomicInteger();
+		executor.shutdownNow();
+		executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>()) {
+			@Override
+			protected void beforeExecute(Thread thread, Runnable part) {
+				walkedParts.incrementAndGet();
+			}
+		};
+
+		DirectorySize walked = new DirectorySizeWalker(executor, 2, 100)
+				.walk(directory);
+
+		assertEquals(walked.getSize(), FileUtils.sizeOfDirectory(directory));
+		assertEquals(walked.getFileCount(), 200);
+		assertEquals(walkedParts.get(), 2);
+	}
+
+	public void walk_emptyDirectory_zero() {
+		DirectorySize walked = new DirectorySizeWalker(executor, 2, 1)
+				.walk(directory);
+		assertEquals(walked.getSize(), 0);
+		assertEquals(walked.getFileCount(), 0);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void constructor_zeroParts_throws() {
+		new DirectorySizeWalker(executor, 0, 1);
+	}
+}
@@ -0,0 +1,280 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.catalog;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.PathResolver;
+import com.splunk.shuttl.archiver.bucketsize.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.WritesToStream;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+import com.splunk.shuttl.testutil.TUtilsFile;
+
+@Test(groups = { "fast-unit" })
+public class ArchiveCatalogStoreTest {
+
+	private static final URI CATALOG_HOME = URI
+			.create("remote://host/catalog/index");
+
+	private ArchiveFileSystem archiveFileSystem;
+	private PathResolver pathResolver;
+	private ArchiveBucketSize archiveBucketSize;
+	private File localCatalogDirectory;
+	private ArchiveCatalogStore store;
+	private Map<URI, byte[]> archivedFiles;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		archivedFiles = new TreeMap<URI, byte[]>();
+		archiveFileSystem = mock(ArchiveFileSystem.class);
+		pathResolver = mock(PathResolver.class);
+		archiveBucketSize = mock(ArchiveBucketSize.class);
+		localCatalogDirectory = TUtilsFile.createDirectory();
+		when(pathResolver.getCatalogHome("index")).thenReturn(CATALOG_HOME);
+		stubArchiveFileSystemWithArchivedFiles();
+		store = new ArchiveCatalogStore(archiveFileSystem, pathResolver,
+				localCatalogDirectory, archiveBucketSize);
+	}
+
+	private void stubArchiveFileSystemWithArchivedFiles() throws IOException {
+		when(archiveFileSystem.listPath(any(URI.class))).thenAnswer(
+				new Answer<List<URI>>() {
+					@Override
+					public List<URI> answer(InvocationOnMock invocation) {
+						String home = invocation.getArguments()[0] + "/";
+						Set<URI> children = new LinkedHashSet<URI>();
+						for (URI file : archivedFiles.keySet())
+							if (file.toString().startsWith(home))
+								children.add(URI.create(home
+										+ file.toString().substring(home.length()).split("/")[0]));
+						return new ArrayList<URI>(children);
+					}
+				});
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws IOException {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				((WritesToStream) invocation.getArguments()[0]).writeTo(out);
+				archivedFiles.put((URI) invocation.getArguments()[1],
+						out.toByteArray());
+				return null;
+			}
+		}).when(archiveFileSystem).putStreamAtomically(any(WritesToStream.class),
+				any(URI.class));
+		when(archiveFileSystem.openFile(any(URI.class))).thenAnswer(
+				new Answer<ByteArrayInputStream>() {
+					@Override
+					public ByteArrayInputStream answer(InvocationOnMock invocation) {
+						return new ByteArrayInputStream(archivedFiles.get(invocation
+								.getArguments()[0]));
+					}
+				});
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				archivedFiles.remove(invocation.getArguments()[0]);
+				return null;
+			}
+		}).when(archiveFileSystem).deletePath(any(URI.class));
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		FileUtils.deleteQuietly(localCatalogDirectory);
+	}
+
+	private Bucket createBucket(String name, BucketFormat format)
+			throws IOException {
+		return new Bucket(URI.create("remote:/" + name), "index", name, format, 10L);
+	}
+
+	public void getCatalog_noCatalogInArchive_null() throws IOException {
+		assertNull(store.getCatalog("index"));
+	}
+
+	public void getCatalog_afterAddingBuckets_hasEntriesOfTheBuckets()
+			throws IOException {
+		store.addBucket(createBucket("db_2_1_0", BucketFormat.SPLUNK_BUCKET));
+		store.addBucket(createBucket("db_2_1_0", BucketFormat.CSV));
+		store.addBucket(createBucket("db_4_3_1", BucketFormat.SPLUNK_BUCKET));
+
+		ArchiveCatalog catalog = store.getCatalog("index");
+		assertEquals(catalog.size(), 2);
+		assertEquals(catalog.getEntry("db_2_1_0").getFormats(),
+				EnumSet.of(BucketFormat.CSV, BucketFormat.SPLUNK_BUCKET));
+		assertEquals(catalog.getEntry("db_4_3_1").getSize(
+				BucketFormat.SPLUNK_BUCKET), (Long) 10L);
+	}
+
+	public void getCatalog_secondTime_readsOnlyNewSegmentsFromArchive()
+			throws IOException {
+		store.addBucket(createBucket("db_2_1_0", BucketFormat.SPLUNK_BUCKET));
+		store.getCatalog("index");
+		store.addBucket(createBucket("db_4_3_1", BucketFormat.SPLUNK_BUCKET));
+		reset(archiveFileSystem);
+		stubArchiveFileSystemWithArchivedFiles();
+
+		ArchiveCatalog catalog = store.getCatalog("index");
+		assertEquals(catalog.size(), 2);
+		verify(archiveFileSystem, times(1)).openFile(any(URI.class));
+	}
+
+	public void addBucket_moreSegmentsThanMax_compactsToOneSegment()
+			throws IOException {
+		for (int i = 0; i <= ArchiveCatalogStore.MAX_SEGMENTS; i++)
+			store.addBucket(createBucket("db_2_1_" + i, BucketFormat.SPLUNK_BUCKET));
+
+		assertEquals(archivedFiles.size(), 1);
+		assertEquals(store.getCatalog("index").size(),
+				ArchiveCatalogStore.MAX_SEGMENTS + 1);
+	}
+
+	public void getCatalog_segmentCompactedAwayAfterListing_listsAgainAndReadsCatalog()
+			throws IOException {
+		store.addBucket(createBucket("db_2_1_0", BucketFormat.SPLUNK_BUCKET));
+		store.addBucket(createBucket("db_4_3_1", BucketFormat.SPLUNK_BUCKET));
+		doAnswer(new Answer<ByteArrayInputStream>() {
+			@Override
+			public ByteArrayInputStream answer(InvocationOnMock invocation)
+					throws IOException {
+				URI segment = (URI) invocation.getArguments()[0];
+				archivedFiles.put(URI.create(CATALOG_HOME + "/compacted"
+						+ ArchiveCatalogStore.SEGMENT_EXTENSION), archivedFiles
+						.remove(segment));
+				throw new FileNotFoundException(segment.toString());
+			}
+		}).doAnswer(new Answer<ByteArrayInputStream>() {
+			@Override
+			public ByteArrayInputStream answer(InvocationOnMock invocation) {
+				return new ByteArrayInputStream(archivedFiles.get(invocation
+						.getArguments()[0]));
+			}
+		}).when(archiveFileSystem).openFile(any(URI.class));
+
+		ArchiveCatalog catalog = store.getCatalog("index");
+		assertEquals(catalog.size(), 2);
+	}
+
+	public void getCatalog_segmentsKeepBeingCompactedAway_throwsFileNotFoundException()
+			throws IOException {
+		store.addBucket(createBucket("db_2_1_0", BucketFormat.SPLUNK_BUCKET));
+		doThrow(FileNotFoundException.class).when(archiveFileSystem).openFile(
+				any(URI.class));
+		try {
+			store.getCatalog("index");
+			fail("Expected FileNotFoundException");
+		} catch (FileNotFoundException e) {
+		}
+		verify(archiveFileSystem, times(ArchiveCatalogStore.MAX_READ_ATTEMPTS))
+				.openFile(any(URI.class));
+	}
+
+	public void addBucket_firstBucketOfIndexWithArchivedBuckets_catalogsArchivedBuckets()
+			throws IOException {
+		URI bucketsHome = URI.create("remote://host/archive/index");
+		URI formatsHome = URI.create("remote://host/archive/index/db_2_1_0");
+		when(pathResolver.getBucketsHome("index")).thenReturn(bucketsHome);
+		when(pathResolver.getFormatsHome("index", "db_2_1_0")).thenReturn(
+				formatsHome);
+		when(pathResolver.resolveArchivedBucketURI(anyString(), anyString(),
+				any(BucketFormat.class))).thenReturn(URI.create("remote:/bucket"));
+		when(archiveBucketSize.getSize(any(Bucket.class))).thenReturn(7L);
+		archivedFiles.put(URI.create(formatsHome + "/SPLUNK_BUCKET"), new byte[0]);
+
+		store.addBucket(createBucket("db_4_3_1", BucketFormat.SPLUNK_BUCKET));
+
+		ArchiveCatalog catalog = store.getCatalog("index");
+		assertEquals(catalog.size(), 2);
+		assertEquals(catalog.getEntry("db_2_1_0").getSize(
+				BucketFormat.SPLUNK_BUCKET), (Long) 7L);
+		assertEquals(catalog.getEntry("db_2_1_0").getFormats(),
+				Collections.singleton(BucketFormat.SPLUNK_BUCKET));
+	}
+
+	public void getCatalog_bucketAdded_usesBucketTimeRange() throws IOException {
+		Bucket bucket = TUtilsBucket.createBucketWithIndexAndName("index",
+				"db_1336330530_1336330500_0");
+		store.addBucket(bucket);
+		CatalogEntry entry = store.getCatalog("index").getEntry(bucket.getName());
+		assertEquals(entry.getEarliest(), bucket.getEarliest().getTime());
+		assertEquals(entry.getLatest(), bucket.getLatest().getTime());
+	}
+
+	public void addBucket_concurrently_allBucketsInCatalog() throws Exception {
+		List<Thread> threads = new ArrayList<Thread>();
+		final List<Exception> failures = Collections
+				.synchronizedList(new ArrayList<Exception>());
+		for (int i = 0; i < 8; i++) {
+			final Bucket bucket = createBucket("db_2_1_" + i,
+					BucketFormat.SPLUNK_BUCKET);
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						store.addBucket(bucket);
+					} catch (Exception e) {
+						failures.add(e);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+
+		assertTrue(failures.isEmpty());
+		assertEquals(store.getCatalog("index").size(), 8);
+	}
+
+	public void addBucket_archiveFileSystemFails_throwsIOException()
+			throws IOException {
+		doThrow(IOException.class).when(archiveFileSystem).putStreamAtomically(
+				any(WritesToStream.class), any(URI.class));
+		try {
+			store.addBucket(createBucket("db_2_1_0", BucketFormat.SPLUNK_BUCKET));
+			fail("Expected IOException");
+		} catch (IOException e) {
+		}
+	}
+}
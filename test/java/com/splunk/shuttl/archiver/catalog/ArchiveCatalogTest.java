@@ -0,0 +1,168 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.catalog;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+
+@Test(groups = { "fast-unit" })
+public class ArchiveCatalogTest {
+
+	private CatalogEntry entry(String name, Long size, BucketFormat format) {
+		return new CatalogEntry(name, 1000, 2000, format, size);
+	}
+
+	private Map<BucketFormat, Long> sizes(long csvSize, long splunkBucketSize) {
+		Map<BucketFormat, Long> sizes = new EnumMap<BucketFormat, Long>(
+				BucketFormat.class);
+		sizes.put(BucketFormat.CSV, csvSize);
+		sizes.put(BucketFormat.SPLUNK_BUCKET, splunkBucketSize);
+		return sizes;
+	}
+
+	private Map<BucketFormat, Long> noSizes() {
+		return new EnumMap<BucketFormat, Long>(BucketFormat.class);
+	}
+
+	private Map<BucketFormat, String> noChecksums() {
+		return new EnumMap<BucketFormat, String>(BucketFormat.class);
+	}
+
+	public void fromLine_givenLineOfEntry_equalToEntry() {
+		CatalogEntry entry = new CatalogEntry("db_2_1_0", 1000, 2000, EnumSet.of(
+				BucketFormat.CSV, BucketFormat.SPLUNK_BUCKET), sizes(17L, 40L),
+				noChecksums());
+		CatalogEntry actual = CatalogEntry.fromLine(entry.toLine());
+		assertEquals(actual.getBucketName(), "db_2_1_0");
+		assertEquals(actual.getEarliest(), 1000);
+		assertEquals(actual.getLatest(), 2000);
+		assertEquals(actual.getSize(BucketFormat.CSV), (Long) 17L);
+		assertEquals(actual.getSize(BucketFormat.SPLUNK_BUCKET), (Long) 40L);
+		assertEquals(actual.getFormats(),
+				EnumSet.of(BucketFormat.CSV, BucketFormat.SPLUNK_BUCKET));
+	}
+
+	public void fromLine_entryWithUnknownSize_nullSize() {
+		CatalogEntry entry = entry("db_2_1_0", null, BucketFormat.CSV);
+		assertNull(CatalogEntry.fromLine(entry.toLine()).getSize(BucketFormat.CSV));
+	}
+
+	public void fromLine_entryWithOneFormat_sizeWrittenAsPlainNumber() {
+		String line = entry("db_2_1_0", 17L, BucketFormat.CSV).toLine();
+		assertEquals(line.split("\t", -1)[3], "17");
+		assertEquals(CatalogEntry.fromLine(line).getSize(BucketFormat.CSV),
+				(Long) 17L);
+	}
+
+	public void fromLine_plainSizeOfEntryWithSeveralFormats_sizeUnknown() {
+		CatalogEntry actual = CatalogEntry
+				.fromLine("db_2_1_0\t1000\t2000\t17\tCSV,SPLUNK_BUCKET");
+		assertNull(actual.getSize(BucketFormat.CSV));
+		assertNull(actual.getSize(BucketFormat.SPLUNK_BUCKET));
+	}
+
+	public void fromLine_entryWithChecksums_sameChecksums() {
+		Map<BucketFormat, String> checksums = new EnumMap<BucketFormat, String>(
+				BucketFormat.class);
+		checksums.put(BucketFormat.CSV, "cafebabe");
+		CatalogEntry entry = new CatalogEntry("db_2_1_0", 1000, 2000, EnumSet.of(
+				BucketFormat.CSV, BucketFormat.SPLUNK_BUCKET), sizes(17L, 40L),
+				checksums);
+		CatalogEntry actual = CatalogEntry.fromLine(entry.toLine());
+		assertEquals(actual.getChecksum(BucketFormat.CSV), "cafebabe");
+		assertNull(actual.getChecksum(BucketFormat.SPLUNK_BUCKET));
+	}
+
+	public void toLine_entryWithoutChecksums_hasNoChecksumColumn() {
+		String line = entry("db_2_1_0", 17L, BucketFormat.CSV).toLine();
+		assertEquals(line.split("\t", -1).length, 5);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void fromLine_givenGarbage_throwsIllegalArgumentException() {
+		CatalogEntry.fromLine("not an entry");
+	}
+
+	public void add_sameBucketTwice_mergesFormats() {
+		ArchiveCatalog catalog = new ArchiveCatalog("index");
+		catalog.add(entry("db_2_1_0", 17L, BucketFormat.SPLUNK_BUCKET));
+		catalog.add(entry("db_2_1_0", null, BucketFormat.CSV));
+		assertEquals(catalog.size(), 1);
+		CatalogEntry merged = catalog.getEntry("db_2_1_0");
+		assertEquals(merged.getFormats(),
+				EnumSet.of(BucketFormat.CSV, BucketFormat.SPLUNK_BUCKET));
+		assertEquals(merged.getSize(BucketFormat.SPLUNK_BUCKET), (Long) 17L);
+		assertNull(merged.getSize(BucketFormat.CSV));
+	}
+
+	public void add_sameBucketWithSizesOfDifferentFormats_keepsSizeOfEachFormat() {
+		ArchiveCatalog catalog = new ArchiveCatalog("index");
+		catalog.add(entry("db_2_1_0", 40L, BucketFormat.CSV));
+		catalog.add(entry("db_2_1_0", 17L, BucketFormat.SPLUNK_BUCKET));
+		CatalogEntry merged = catalog.getEntry("db_2_1_0");
+		assertEquals(merged.getSize(BucketFormat.CSV), (Long) 40L);
+		assertEquals(merged.getSize(BucketFormat.SPLUNK_BUCKET), (Long) 17L);
+	}
+
+	public void add_sameBucketWithChecksumsOfDifferentFormats_keepsBothChecksums() {
+		ArchiveCatalog catalog = new ArchiveCatalog("index");
+		Map<BucketFormat, String> splunkBucketChecksum = new EnumMap<BucketFormat, String>(
+				BucketFormat.class);
+		splunkBucketChecksum.put(BucketFormat.SPLUNK_BUCKET, "00000001");
+		catalog.add(new CatalogEntry("db_2_1_0", 1000, 2000, EnumSet
+				.of(BucketFormat.SPLUNK_BUCKET), noSizes(), splunkBucketChecksum));
+		Map<BucketFormat, String> csvChecksum = new EnumMap<BucketFormat, String>(
+				BucketFormat.class);
+		csvChecksum.put(BucketFormat.CSV, "00000002");
+		catalog.add(new CatalogEntry("db_2_1_0", 1000, 2000, EnumSet
+				.of(BucketFormat.CSV), noSizes(), csvChecksum));
+		CatalogEntry merged = catalog.getEntry("db_2_1_0");
+		assertEquals(merged.getChecksum(BucketFormat.SPLUNK_BUCKET), "00000001");
+		assertEquals(merged.getChecksum(BucketFormat.CSV), "00000002");
+	}
+
+	public void readFrom_writtenCatalog_sameEntries() throws IOException {
+		ArchiveCatalog catalog = new ArchiveCatalog("index");
+		catalog.add(entry("db_2_1_0", 17L, BucketFormat.SPLUNK_BUCKET));
+		catalog.add(entry("db_4_3_1", 18L, BucketFormat.CSV));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		catalog.writeTo(out);
+
+		ArchiveCatalog read = ArchiveCatalog.readFrom("index",
+				new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(read.size(), 2);
+		assertEquals(read.getEntry("db_4_3_1").getSize(BucketFormat.CSV),
+				(Long) 18L);
+	}
+
+	public void readFrom_corruptLine_skipsTheLine() throws IOException {
+		String lines = entry("db_2_1_0", 17L, BucketFormat.CSV).toLine()
+				+ "\ngarbage\n";
+		ArchiveCatalog read = ArchiveCatalog.readFrom("index",
+				new ByteArrayInputStream(lines.getBytes("UTF-8")));
+		assertEquals(read.size(), 1);
+	}
+}
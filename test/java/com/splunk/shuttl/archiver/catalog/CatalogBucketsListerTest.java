@@ -0,0 +1,145 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.catalog;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.PathResolver;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.thaw.BucketFormatChooser;
+import com.splunk.shuttl.archiver.thaw.BucketIntervalIndex;
+
+@Test(groups = { "fast-unit" })
+public class CatalogBucketsListerTest {
+
+	private ArchiveCatalogStore archiveCatalogStore;
+	private PathResolver pathResolver;
+	private BucketFormatChooser bucketFormatChooser;
+	private CatalogBucketsLister catalogBucketsLister;
+
+	@BeforeMethod
+	public void setUp() {
+		archiveCatalogStore = mock(ArchiveCatalogStore.class);
+		pathResolver = mock(PathResolver.class);
+		bucketFormatChooser = mock(BucketFormatChooser.class);
+		catalogBucketsLister = new CatalogBucketsLister(archiveCatalogStore,
+				pathResolver, bucketFormatChooser);
+	}
+
+	public void listBucketsInIndex_noCatalog_null() {
+		assertNull(catalogBucketsLister.listBucketsInIndex("index"));
+	}
+
+	public void listBucketsInIndex_catalogThrowsIOException_null()
+			throws IOException {
+		when(archiveCatalogStore.getCatalog("index")).thenThrow(
+				new IOException());
+		assertNull(catalogBucketsLister.listBucketsInIndex("index"));
+	}
+
+	@SuppressWarnings("unchecked")
+	public void listBucketsInIndex_givenCatalog_bucketsWithChosenFormatAndSize()
+			throws IOException {
+		ArchiveCatalog catalog = new ArchiveCatalog("index");
+		Map<BucketFormat, Long> sizes = new EnumMap<BucketFormat, Long>(
+				BucketFormat.class);
+		sizes.put(BucketFormat.CSV, 17L);
+		sizes.put(BucketFormat.SPLUNK_BUCKET, 40L);
+		catalog.add(new CatalogEntry("db_2_1_0", 1000, 2000, EnumSet.of(
+				BucketFormat.CSV, BucketFormat.SPLUNK_BUCKET), sizes,
+				new EnumMap<BucketFormat, String>(BucketFormat.class)));
+		when(archiveCatalogStore.getCatalog("index")).thenReturn(catalog);
+		when(bucketFormatChooser.chooseBucketFormat(anyList())).thenReturn(
+				BucketFormat.CSV);
+		URI uri = URI.create("remote:/index/db_2_1_0/CSV");
+		when(
+				pathResolver.resolveArchivedBucketURI("index", "db_2_1_0",
+						BucketFormat.CSV)).thenReturn(uri);
+
+		List<Bucket> buckets = catalogBucketsLister.listBucketsInIndex("index");
+		assertEquals(buckets.size(), 1);
+		Bucket bucket = buckets.get(0);
+		assertEquals(bucket.getName(), "db_2_1_0");
+		assertEquals(bucket.getFormat(), BucketFormat.CSV);
+		assertEquals(bucket.getURI(), uri);
+		assertEquals(bucket.getSize(), (Long) 17L);
+	}
+
+	private void stubCatalog(String catalogHome, ArchiveCatalog catalog)
+			throws IOException {
+		when(pathResolver.getCatalogHome("index")).thenReturn(
+				URI.create(catalogHome));
+		when(archiveCatalogStore.getCatalog("index")).thenReturn(catalog);
+		when(
+				pathResolver.resolveArchivedBucketURI(anyString(), anyString(),
+						any(BucketFormat.class))).thenReturn(
+				URI.create("remote:/index/bucket"));
+	}
+
+	private ArchiveCatalog catalogWithBucket(String name) {
+		ArchiveCatalog catalog = new ArchiveCatalog("index");
+		catalog.add(new CatalogEntry(name, 1000, 2000,
+				BucketFormat.SPLUNK_BUCKET, 17L));
+		return catalog;
+	}
+
+	public void getBucketIntervalIndex_noCatalog_null() {
+		assertNull(catalogBucketsLister.getBucketIntervalIndex("index"));
+	}
+
+	public void getBucketIntervalIndex_unchangedCatalogVersion_readsCatalogOnce()
+			throws IOException {
+		stubCatalog("remote:/catalogs/unchanged", catalogWithBucket("db_2_1_0"));
+		when(archiveCatalogStore.getCatalogVersion("index")).thenReturn("[1]");
+
+		BucketIntervalIndex first = catalogBucketsLister
+				.getBucketIntervalIndex("index");
+		BucketIntervalIndex second = catalogBucketsLister
+				.getBucketIntervalIndex("index");
+
+		assertSame(first, second);
+		assertEquals(first.size(), 1);
+		verify(archiveCatalogStore, times(1)).getCatalog("index");
+	}
+
+	public void getBucketIntervalIndex_changedCatalogVersion_rebuildsIndex()
+			throws IOException {
+		stubCatalog("remote:/catalogs/changed", catalogWithBucket("db_2_1_0"));
+		when(archiveCatalogStore.getCatalogVersion("index")).thenReturn("[1]",
+				"[1, 2]");
+		catalogBucketsLister.getBucketIntervalIndex("index");
+		ArchiveCatalog changed = catalogWithBucket("db_2_1_0");
+		changed.add(new CatalogEntry("db_4_3_1", 3000, 4000,
+				BucketFormat.SPLUNK_BUCKET, 17L));
+		when(archiveCatalogStore.getCatalog("index")).thenReturn(changed);
+
+		assertEquals(catalogBucketsLister.getBucketIntervalIndex("index").size(),
+				2);
+	}
+}
@@ -15,7 +15,6 @@
 package com.splunk.shuttl.archiver.endtoend;
 
 import static com.splunk.shuttl.testutil.TUtilsFunctional.*;
-import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
 import java.io.File;
@@ -47,8 +46,10 @@ import com.splunk.shuttl.testutil.TUtilsTestNG;
 
 public class ArchiveRecoveryEndToEndTest {
 
-	BucketFreezer failingBucketFreezerWithoutRecovery;
-	BucketFreezer successfulBucketFreezerWithRecovery;
+	BucketFreezer failingBucketFreezer;
+	BucketFreezer successfulBucketFreezer;
+	FailedBucketsArchiver failedBucketsArchiver;
+	ArchiveRestHandler successfulRealRestHandler;
 	FileSystem hadoopFileSystem;
 	ArchiveConfiguration config;
 	PathResolver pathResolver;
@@ -91,18 +92,16 @@ public class ArchiveRecoveryEndToEndTest {
 		BucketLocker bucketLocker = new ArchiveBucketLocker();
 		ArchiveRestHandler internalErrorRestHandler = new ArchiveRestHandler(
 				TUtilsMockito.createInternalServerErrorHttpClientMock());
-		ArchiveRestHandler successfulRealRestHandler = new ArchiveRestHandler(
-				new DefaultHttpClient());
+		successfulRealRestHandler = new ArchiveRestHandler(new DefaultHttpClient());
 
-		FailedBucketsArchiver noOpFailedBucketsArchiver = mock(FailedBucketsArchiver.class);
-		FailedBucketsArchiver realFailedBucketsArchiver = new FailedBucketsArchiver(
-				bucketMover, bucketLocker);
+		failedBucketsArchiver = new FailedBucketsArchiver(bucketMover,
+				bucketLocker);
 
-		failingBucketFreezerWithoutRecovery = new BucketFreezer(bucketMover,
-				bucketLocker, internalErrorRestHandler, noOpFailedBucketsArchiver);
+		failingBucketFreezer = new BucketFreezer(bucketMover, bucketLocker,
+				internalErrorRestHandler);
 
-		successfulBucketFreezerWithRecovery = new BucketFreezer(bucketMover,
-				bucketLocker, successfulRealRestHandler, realFailedBucketsArchiver);
+		successfulBucketFreezer = new BucketFreezer(bucketMover, bucketLocker,
+				successfulRealRestHandler);
 	}
 
 	private void tearDown() {
@@ -127,10 +126,10 @@ public class ArchiveRecoveryEndToEndTest {
 		Bucket successfulBucket = TUtilsBucket.createBucket();
 
 		// Test
-		failingBucketFreezerWithoutRecovery.freezeBucket(firstFailingBucket
-				.getIndex(), firstFailingBucket.getDirectory().getAbsolutePath());
-		failingBucketFreezerWithoutRecovery.freezeBucket(secondFailingBucket
-				.getIndex(), secondFailingBucket.getDirectory().getAbsolutePath());
+		failingBucketFreezer.freezeBucket(firstFailingBucket.getIndex(),
+				firstFailingBucket.getDirectory().getAbsolutePath());
+		failingBucketFreezer.freezeBucket(secondFailingBucket.getIndex(),
+				secondFailingBucket.getDirectory().getAbsolutePath());
 
 		// Verify bucket archiving failed.
 		URI firstBucketURI = pathResolver.resolveArchivePath(firstFailingBucket);
@@ -138,8 +137,9 @@ public class ArchiveRecoveryEndToEndTest {
 		assertFalse(hadoopFileSystem.exists(new Path(firstBucketURI)));
 		assertFalse(hadoopFileSystem.exists(new Path(secondBucketURI)));
 
-		successfulBucketFreezerWithRecovery.freezeBucket(successfulBucket
-				.getIndex(), successfulBucket.getDirectory().getAbsolutePath());
+		successfulBucketFreezer.freezeBucket(successfulBucket.getIndex(),
+				successfulBucket.getDirectory().getAbsolutePath());
+		failedBucketsArchiver.archiveFailedBuckets(successfulRealRestHandler);
 		TUtilsFunctional.waitForAsyncArchiving();
 
 		// Verification
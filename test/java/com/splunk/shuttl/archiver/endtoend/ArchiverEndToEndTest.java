@@ -17,7 +17,6 @@ package com.splunk.shuttl.archiver.endtoend;
 import static com.splunk.shuttl.ShuttlConstants.*;
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
 import static java.util.Arrays.*;
-import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
 import java.io.File;
@@ -45,7 +44,6 @@ import com.splunk.Service;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.archive.ArchiveRestHandler;
 import com.splunk.shuttl.archiver.archive.BucketFreezer;
-import com.splunk.shuttl.archiver.archive.recovery.FailedBucketsArchiver;
 import com.splunk.shuttl.archiver.archive.recovery.IndexPreservingBucketMover;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
 import com.splunk.shuttl.archiver.bucketlock.BucketLockerInTestDir;
@@ -140,8 +138,7 @@ public class ArchiverEndToEndTest {
 		ArchiveRestHandler archiveRestHandler = new ArchiveRestHandler(
 				new DefaultHttpClient());
 
-		return new BucketFreezer(bucketMover, bucketLocker, archiveRestHandler,
-				mock(FailedBucketsArchiver.class));
+		return new BucketFreezer(bucketMover, bucketLocker, archiveRestHandler);
 	}
 
 	private void archiveBucketAndThawItBack_assertThawedBucketHasSameNameAsFrozenBucket()
@@ -0,0 +1,184 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.bandwidth.BandwidthGovernor;
+
+@Test(groups = { "fast-unit" })
+public class ArchiveFileSystemRegistryTest {
+
+	ArchiveFileSystemRegistry registry;
+	ArchiveFileSystemConnector connector;
+	ArchiveFileSystemConnection connection;
+	ArchiveFileSystem connectedFileSystem;
+	URI uri;
+	URI path;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		connector = mock(ArchiveFileSystemConnector.class);
+		connection = mock(ArchiveFileSystemConnection.class);
+		connectedFileSystem = mock(ArchiveFileSystem.class);
+		registry = new ArchiveFileSystemRegistry(connector,
+				mock(BandwidthGovernor.class));
+		uri = URI.create("hdfs://host:1234/tmp");
+		path = URI.create("hdfs://host:1234/archive/path");
+		when(connector.connect(uri)).thenReturn(connection);
+		when(connection.getArchiveFileSystem()).thenReturn(connectedFileSystem);
+		when(connection.isHealthy()).thenReturn(true);
+	}
+
+	public void getArchiveFileSystem_sameUriTwice_sameFileSystem() {
+		assertSame(registry.getArchiveFileSystem(uri),
+				registry.getArchiveFileSystem(uri));
+	}
+
+	public void getArchiveFileSystem_differentUris_differentFileSystems() {
+		assertNotSame(registry.getArchiveFileSystem(uri),
+				registry.getArchiveFileSystem(URI.create("file:/tmp")));
+	}
+
+	public void getArchiveFileSystem_notUsed_doesNotConnect() throws IOException {
+		registry.getArchiveFileSystem(uri);
+		verifyZeroInteractions(connector);
+	}
+
+	public void getArchiveFileSystem_usedTwice_connectsOnceAndDelegates()
+			throws IOException {
+		ArchiveFileSystem fileSystem = registry.getArchiveFileSystem(uri);
+		fileSystem.listPath(path);
+		fileSystem.deletePath(path);
+
+		verify(connector, times(1)).connect(uri);
+		verify(connectedFileSystem).listPath(path);
+		verify(connectedFileSystem).deletePath(path);
+	}
+
+	public void operation_failedAndConnectionIsUnhealthy_reconnectsBeforeNextOperation()
+			throws IOException {
+		ArchiveFileSystem fileSystem = registry.getArchiveFileSystem(uri);
+		when(connectedFileSystem.listPath(path)).thenThrow(new IOException());
+		try {
+			fileSystem.listPath(path);
+			fail();
+		} catch (IOException e) {
+		}
+		when(connection.isHealthy()).thenReturn(false);
+
+		fileSystem.deletePath(path);
+
+		verify(connection).close();
+		verify(connector, times(2)).connect(uri);
+	}
+
+	public void operation_failedWithFileNotFound_doesNotCheckHealth()
+			throws IOException {
+		ArchiveFileSystem fileSystem = registry.getArchiveFileSystem(uri);
+		when(connectedFileSystem.listPath(path)).thenThrow(
+				new FileNotFoundException());
+		try {
+			fileSystem.listPath(path);
+			fail();
+		} catch (FileNotFoundException e) {
+		}
+
+		fileSystem.deletePath(path);
+
+		verify(connection, never()).isHealthy();
+	}
+
+	public void operation_connectingFails_connectsAgainOnNextOperation()
+			throws IOException {
+		when(connector.connect(uri)).thenThrow(new IOException()).thenReturn(
+				connection);
+		ArchiveFileSystem fileSystem = registry.getArchiveFileSystem(uri);
+		try {
+			fileSystem.listPath(path);
+			fail();
+		} catch (IOException e) {
+		}
+
+		fileSystem.listPath(path);
+
+		verify(connectedFileSystem).listPath(path);
+	}
+
+	public void checkHealth_connectionIsHealthy_true() throws IOException {
+		registry.getArchiveFileSystem(uri).listPath(path);
+		assertTrue(registry.checkHealth(uri));
+		verify(connector, times(1)).connect(uri);
+	}
+
+	public void checkHealth_unknownUri_false() {
+		assertFalse(registry.checkHealth(uri));
+	}
+
+	public void checkHealth_cannotReconnect_false() throws IOException {
+		registry.getArchiveFileSystem(uri);
+		when(connector.connect(uri)).thenThrow(new IOException());
+		assertFalse(registry.checkHealth(uri));
+	}
+
+	public void shutdown_connectedFileSystem_closesConnection()
+			throws IOException {
+		registry.getArchiveFileSystem(uri).listPath(path);
+		registry.shutdown();
+		verify(connection).close();
+	}
+
+	public void checkHealth_reconnectsWhileFileIsOpen_closesOldConnectionWhenFileIsClosed()
+			throws IOException {
+		ArchiveFileSystemConnection newConnection = mock(
+				ArchiveFileSystemConnection.class);
+		when(connector.connect(uri)).thenReturn(connection, newConnection);
+		when(connectedFileSystem.openFile(path)).thenReturn(
+				new ByteArrayInputStream(new byte[0]));
+		InputStream file = registry.getArchiveFileSystem(uri).openFile(path);
+		when(connection.isHealthy()).thenReturn(false);
+
+		registry.checkHealth(uri);
+		verify(connection, never()).close();
+		file.close();
+
+		verify(connection).close();
+		verify(newConnection, never()).close();
+	}
+
+	public void shutdown_whileFileIsOpen_closesConnectionWhenFileIsClosed()
+			throws IOException {
+		when(connectedFileSystem.openFile(path)).thenReturn(
+				new ByteArrayInputStream(new byte[0]));
+		InputStream file = registry.getArchiveFileSystem(uri).openFile(path);
+
+		registry.shutdown();
+		verify(connection, never()).close();
+		file.close();
+		file.close();
+
+		verify(connection, times(1)).close();
+	}
+}
@@ -0,0 +1,120 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.filesystem;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.testutil.TUtilsFile;
+
+@Test(groups = { "fast-unit" })
+public class ChecksumManifestTest {
+
+	ChecksumManifest checksums;
+	byte[] bytes;
+	long checksum;
+
+	@BeforeMethod
+	public void setUp() {
+		checksums = new ChecksumManifest();
+		bytes = "some bytes".getBytes();
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		checksum = crc.getValue();
+	}
+
+	public void verifyingStream_matchingBytes_readsToTheEnd() throws IOException {
+		checksums.add("file", bytes.length, checksum);
+		InputStream in = checksums.verifyingStream(new ByteArrayInputStream(bytes),
+				"file");
+		assertEquals(IOUtils.toByteArray(in), bytes);
+	}
+
+	@Test(expectedExceptions = { ChecksumMismatchException.class })
+	public void verifyingStream_differentBytes_throwsAtTheEnd()
+			throws IOException {
+		checksums.add("file", bytes.length, checksum);
+		IOUtils.toByteArray(checksums.verifyingStream(new ByteArrayInputStream(
+				"other bytes".getBytes()), "file"));
+	}
+
+	@Test(expectedExceptions = { ChecksumMismatchException.class })
+	public void verify_fileNotInManifest_throws() throws IOException {
+		checksums.verify("file", bytes.length, checksum);
+	}
+
+	public void readFrom_writtenManifest_sameChecksumsAndDigest()
+			throws IOException {
+		checksums.add("dir/file", bytes.length, checksum);
+		checksums.add("other", 0, 0);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		checksums.writeTo(out);
+
+		ChecksumManifest read = ChecksumManifest.readFrom(new ByteArrayInputStream(
+				out.toByteArray()));
+
+		assertEquals(read.size(), 2);
+		read.verify("dir/file", bytes.length, checksum);
+		assertEquals(read.getDigest(), checksums.getDigest());
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void readFrom_garbage_throwsIOException() throws IOException {
+		ChecksumManifest.readFrom(new ByteArrayInputStream("garbage".getBytes()));
+	}
+
+	public void createForDirectory_fileWithoutTransferredChecksum_checksumIsComputed()
+			throws IOException {
+		File directory = TUtilsFile.createDirectory();
+		File file = TUtilsFile.createFileInParent(directory, "file");
+		FileUtils.writeByteArrayToFile(file, bytes);
+
+		ChecksumManifest created = ChecksumManifest.createForDirectory(directory,
+				TransferManifest.createInMemory());
+
+		created.verify("file", bytes.length, checksum);
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void createForDirectory_existingManifestInDirectory_isNotInManifest()
+			throws IOException {
+		File directory = TUtilsFile.createDirectory();
+		File archiveMeta = TUtilsFile.createDirectoryInParent(directory,
+				ChecksumManifest.ARCHIVE_META_DIRECTORY);
+		TUtilsFile.createFileInParent(archiveMeta, ChecksumManifest.FILE_NAME);
+
+		ChecksumManifest created = ChecksumManifest.createForDirectory(directory,
+				TransferManifest.createInMemory());
+
+		assertEquals(created.size(), 0);
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void toHex_smallChecksum_paddedToEightCharacters() {
+		assertEquals(ChecksumManifest.toHex(0xabL), "000000ab");
+	}
+}
@@ -23,9 +23,12 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -36,6 +39,7 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.util.UtilsPath;
 import com.splunk.shuttl.testutil.HadoopFileSystemPutter;
 import com.splunk.shuttl.testutil.TUtilsFile;
 import com.splunk.shuttl.testutil.TUtilsFileSystem;
@@ -451,7 +455,7 @@ public class HadoopFileSystemArchiveTest {
 
 		// Test
 		Path pathWhereTestFilePut = hadoopFileSystemArchive
-				.putFileToTmpDirectoryOverwirtingOldFilesAppendingPath(testFile,
+				.putFileToTmpDirectoryAppendingPath(testFile,
 						testFilePath.toUri());
 
 		// Verify
@@ -460,6 +464,128 @@ public class HadoopFileSystemArchiveTest {
 		assertFalse(fileSystem.exists(testFilePath));
 	}
 
+	public void putFileToTmpDirectoryAppendingPath_oldFilesWithoutManifest_oldFilesAreDeleted()
+			throws IOException {
+		File directory = TUtilsFile.createDirectory();
+		Path testPath = new Path("/just/a/random/dir");
+		Path tmpLocation = new Path(tmpPath.toUri().getPath()
+				+ testPath.toUri().getPath());
+		Path oldFile = new Path(tmpLocation, "old");
+		fileSystem.create(oldFile).close();
+
+		hadoopFileSystemArchive.putFileToTmpDirectoryAppendingPath(directory,
+				testPath.toUri());
+
+		assertFalse(fileSystem.exists(oldFile));
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void putFileToTmpDirectoryAppendingPath_interruptedTransferWithManifest_resumesWithoutCopyingTransferredFiles()
+			throws IOException {
+		File directory = TUtilsFile.createDirectory();
+		File transferred = TUtilsFile.createFileInParent(directory, "transferred");
+		TUtilsFile.populateFileWithRandomContent(transferred);
+		Path testPath = new Path("/just/a/random/dir");
+		Path tmpLocation = new Path(tmpPath.toUri().getPath()
+				+ testPath.toUri().getPath());
+		fileSystem.copyFromLocalFile(new Path(transferred.toURI()), new Path(
+				tmpLocation, "transferred"));
+		TransferManifest manifest = TransferManifest.load(fileSystem, tmpLocation);
+		manifest.markTransferred("transferred", transferred.length());
+		manifest.flush();
+		File missing = TUtilsFile.createFileInParent(directory, "missing");
+		TUtilsFile.populateFileWithRandomContent(missing);
+		long transferredModificationTime = fileSystem.getFileStatus(
+				new Path(tmpLocation, "transferred")).getModificationTime();
+
+		hadoopFileSystemArchive.putFileToTmpDirectoryAppendingPath(directory,
+				testPath.toUri());
+
+		assertEquals(transferredModificationTime,
+				fileSystem.getFileStatus(new Path(tmpLocation, "transferred"))
+						.getModificationTime());
+		assertTrue(fileSystem.exists(new Path(tmpLocation, "missing")));
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void putFileAtomically_givenDirectory_manifestIsRemovedAfterMove()
+			throws IOException {
+		File directory = TUtilsFile.createDirectory();
+		TUtilsFile.createFileInParent(directory, "file");
+		Path hadoopPath = new Path(TUtilsPath.getSafeDirectory(fileSystem),
+				"atomic");
+
+		hadoopFileSystemArchive.putFileAtomically(directory, hadoopPath.toUri());
+
+		Path tmpLocation = new Path(tmpPath.toUri().getPath()
+				+ hadoopPath.toUri().getPath());
+		assertFalse(TransferManifest.exists(fileSystem, tmpLocation));
+		assertTrue(fileSystem.exists(new Path(hadoopPath, "file")));
+		fileSystem.delete(hadoopPath, true);
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void putFileAtomically_givenDirectory_checksumManifestIsWrittenInDirectory()
+			throws IOException {
+		File directory = TUtilsFile.createDirectory();
+		File file = TUtilsFile.createFileInParent(directory, "file");
+		TUtilsFile.populateFileWithRandomContent(file);
+		Path hadoopPath = new Path(TUtilsPath.getSafeDirectory(fileSystem),
+				"atomic");
+
+		hadoopFileSystemArchive.putFileAtomically(directory, hadoopPath.toUri());
+
+		ChecksumManifest checksums = ChecksumManifest.readFrom(fileSystem
+				.open(new Path(hadoopPath, ChecksumManifest.RELATIVE_PATH)));
+		assertEquals(1, checksums.size());
+		checksums.verify("file", file.length(), FileUtils.checksumCRC32(file));
+		fileSystem.delete(hadoopPath, true);
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void getFile_directoryMatchingChecksumManifest_directoryIsRetrieved()
+			throws IOException {
+		File directory = TUtilsFile.createDirectory();
+		File file = TUtilsFile.createFileInParent(directory, "file");
+		TUtilsFile.populateFileWithRandomContent(file);
+		Path hadoopPath = new Path(TUtilsPath.getSafeDirectory(fileSystem),
+				"checksummed");
+		hadoopFileSystemArchive.putFile(directory, hadoopPath.toUri());
+		File retrieved = TUtilsFile.createFilePath();
+
+		hadoopFileSystemArchive.getFile(retrieved, hadoopPath.toUri());
+
+		TUtilsTestNG.assertFileContentsEqual(file, new File(retrieved, "file"));
+		fileSystem.delete(hadoopPath, true);
+		FileUtils.deleteDirectory(directory);
+		FileUtils.deleteDirectory(retrieved);
+	}
+
+	public void getFile_directoryNotMatchingChecksumManifest_throwsAndRemovesLocalDirectory()
+			throws IOException {
+		File directory = TUtilsFile.createDirectory();
+		TUtilsFile.populateFileWithRandomContent(TUtilsFile.createFileInParent(
+				directory, "file"));
+		Path hadoopPath = new Path(TUtilsPath.getSafeDirectory(fileSystem),
+				"corrupted");
+		hadoopFileSystemArchive.putFile(directory, hadoopPath.toUri());
+		Path remoteFile = new Path(hadoopPath, "file");
+		fileSystem.delete(remoteFile, false);
+		OutputStream corrupted = fileSystem.create(remoteFile);
+		corrupted.write("corrupted".getBytes());
+		corrupted.close();
+		File retrieved = TUtilsFile.createFilePath();
+
+		try {
+			hadoopFileSystemArchive.getFile(retrieved, hadoopPath.toUri());
+			fail();
+		} catch (ChecksumMismatchException e) {
+			assertFalse(retrieved.exists());
+		}
+		fileSystem.delete(hadoopPath, true);
+		FileUtils.deleteDirectory(directory);
+	}
+
 	public void move_existingFileOnHadoop_fileIsMoved() throws IOException {
 		File testFile = TUtilsFile.createFileWithRandomContent();
 		hadoopFileSystemPutter.putFile(testFile);
@@ -480,6 +606,54 @@ public class HadoopFileSystemArchiveTest {
 
 	}
 
+	public void putStreamsAtomically_twoWriters_directoryWithBothFilesIsPut()
+			throws IOException {
+		Path hadoopPath = TUtilsPath.getSafeDirectory(fileSystem);
+		Map<String, WritesToStream> writers = new LinkedHashMap<String, WritesToStream>();
+		writers.put("data", writerOf("abc"));
+		writers.put("meta/manifest", writerOf("de"));
+
+		hadoopFileSystemArchive.putStreamsAtomically(writers, hadoopPath.toUri());
+
+		assertEquals(3, fileSystem.getFileStatus(new Path(hadoopPath, "data"))
+				.getLen());
+		assertEquals(2,
+				fileSystem.getFileStatus(new Path(hadoopPath, "meta/manifest"))
+						.getLen());
+	}
+
+	public void putStreamsAtomically_secondWriterFails_nothingIsPut()
+			throws IOException {
+		Path hadoopPath = TUtilsPath.getSafeDirectory(fileSystem);
+		Map<String, WritesToStream> writers = new LinkedHashMap<String, WritesToStream>();
+		writers.put("data", writerOf("abc"));
+		writers.put("meta/manifest", new WritesToStream() {
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				throw new IOException();
+			}
+		});
+
+		try {
+			hadoopFileSystemArchive.putStreamsAtomically(writers,
+					hadoopPath.toUri());
+			fail();
+		} catch (IOException e) {
+		}
+		assertFalse(fileSystem.exists(hadoopPath));
+		assertFalse(fileSystem.exists(UtilsPath.createPathByAppending(tmpPath,
+				hadoopPath)));
+	}
+
+	private WritesToStream writerOf(final String content) {
+		return new WritesToStream() {
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				out.write(content.getBytes());
+			}
+		};
+	}
+
 	public void openFile_existingFileOnHadoop_inputStreamToFile()
 			throws FileNotFoundException, IOException {
 		File fileWithRandomContent = createFileWithRandomContent();
@@ -0,0 +1,39 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class HadoopFileSystemConnectorTest {
+
+	public void connect_connectionClosed_cachedFileSystemIsNotClosed()
+			throws IOException {
+		Configuration configuration = new Configuration();
+		URI uri = URI.create("file:///tmp");
+		FileSystem cached = FileSystem.get(uri, configuration);
+
+		new HadoopFileSystemConnector(configuration).connect(uri).close();
+
+		assertSame(FileSystem.get(uri, configuration), cached);
+	}
+}
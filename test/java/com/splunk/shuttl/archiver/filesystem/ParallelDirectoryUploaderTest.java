@@ -0,0 +1,164 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.testutil.TUtilsFile;
+import com.splunk.shuttl.testutil.TUtilsFileSystem;
+import com.splunk.shuttl.testutil.TUtilsPath;
+import com.splunk.shuttl.testutil.TUtilsTestNG;
+
+@Test(groups = { "fast-unit" })
+public class ParallelDirectoryUploaderTest {
+
+	ParallelDirectoryUploader parallelDirectoryUploader;
+	FileSystem fileSystem;
+	File localDirectory;
+	Path remoteDirectory;
+
+	@BeforeMethod
+	public void setUp() {
+		fileSystem = TUtilsFileSystem.getLocalFileSystem();
+		parallelDirectoryUploader = new ParallelDirectoryUploader(fileSystem, 3);
+		localDirectory = TUtilsFile.createDirectory();
+		remoteDirectory = new Path(TUtilsPath.getSafeDirectory(fileSystem),
+				"uploaded");
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(localDirectory);
+		fileSystem.delete(remoteDirectory, true);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void constructor_zeroStreams_throws() {
+		new ParallelDirectoryUploader(fileSystem, 0);
+	}
+
+	public void uploadDirectory_emptyDirectory_createsRemoteDirectory()
+			throws IOException {
+		parallelDirectoryUploader.uploadDirectory(localDirectory, remoteDirectory);
+		assertTrue(fileSystem.getFileStatus(remoteDirectory).isDir());
+	}
+
+	public void uploadDirectory_moreFilesThanStreams_allFilesAreUploaded()
+			throws IOException {
+		for (int i = 0; i < 10; i++)
+			TUtilsFile.populateFileWithRandomContent(TUtilsFile.createFileInParent(
+					localDirectory, "file" + i));
+
+		parallelDirectoryUploader.uploadDirectory(localDirectory, remoteDirectory);
+
+		for (int i = 0; i < 10; i++)
+			assertUploaded(new File(localDirectory, "file" + i), new Path(
+					remoteDirectory, "file" + i));
+	}
+
+	private void assertUploaded(File localFile, Path remotePath) {
+		File retrieved = TUtilsFileSystem.getFileFromFileSystem(fileSystem,
+				remotePath);
+		TUtilsTestNG.assertFileContentsEqual(localFile, retrieved);
+	}
+
+	public void uploadDirectory_nestedDirectories_structureIsPreserved()
+			throws IOException {
+		File child = TUtilsFile.createDirectoryInParent(localDirectory, "child");
+		TUtilsFile.createDirectoryInParent(child, "emptyGrandChild");
+		File file = TUtilsFile.createFileInParent(child, "file");
+		TUtilsFile.populateFileWithRandomContent(file);
+
+		parallelDirectoryUploader.uploadDirectory(localDirectory, remoteDirectory);
+
+		Path remoteChild = new Path(remoteDirectory, "child");
+		assertTrue(fileSystem.exists(new Path(remoteChild, "emptyGrandChild")));
+		assertUploaded(file, new Path(remoteChild, "file"));
+	}
+
+	public void uploadDirectory_fileInManifestExistsRemotely_fileIsNotCopiedAgain()
+			throws IOException {
+		File file = TUtilsFile.createFileInParent(localDirectory, "file");
+		TUtilsFile.populateFileWithRandomContent(file);
+		TransferManifest manifest = TransferManifest.createInMemory();
+		parallelDirectoryUploader.uploadDirectory(localDirectory, remoteDirectory,
+				manifest);
+		assertTrue(manifest.isTransferred("file", file.length()));
+
+		FileSystem spiedFileSystem = spy(fileSystem);
+		new ParallelDirectoryUploader(spiedFileSystem, 2).uploadDirectory(
+				localDirectory, remoteDirectory, manifest);
+
+		verify(spiedFileSystem, never()).create(any(Path.class), anyBoolean());
+	}
+
+	public void uploadDirectory_remoteFileThatIsNotLocal_isDeleted()
+			throws IOException {
+		Path staleFile = new Path(remoteDirectory, "stale");
+		fileSystem.create(staleFile).close();
+
+		parallelDirectoryUploader.uploadDirectory(localDirectory, remoteDirectory);
+
+		assertFalse(fileSystem.exists(staleFile));
+	}
+
+	public void uploadDirectory_nestedFile_isRecordedWithRelativePath()
+			throws IOException {
+		File child = TUtilsFile.createDirectoryInParent(localDirectory, "child");
+		File file = TUtilsFile.createFileInParent(child, "file");
+		TransferManifest manifest = TransferManifest.createInMemory();
+
+		parallelDirectoryUploader.uploadDirectory(localDirectory, remoteDirectory,
+				manifest);
+
+		assertTrue(manifest.isTransferred("child/file", file.length()));
+	}
+
+	public void uploadDirectory_file_isRecordedWithChecksumOfItsContents()
+			throws IOException {
+		File file = TUtilsFile.createFileInParent(localDirectory, "file");
+		TUtilsFile.populateFileWithRandomContent(file);
+		TransferManifest manifest = TransferManifest.createInMemory();
+
+		parallelDirectoryUploader.uploadDirectory(localDirectory, remoteDirectory,
+				manifest);
+
+		assertEquals(manifest.getChecksum("file"),
+				(Long) FileUtils.checksumCRC32(file));
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void uploadDirectory_copyFails_throwsIOException() throws IOException {
+		TUtilsFile.createFileInParent(localDirectory, "file");
+		FileSystem failingFileSystem = mock(FileSystem.class);
+		when(failingFileSystem.create(any(Path.class), anyBoolean())).thenThrow(
+				new IOException());
+
+		new ParallelDirectoryUploader(failingFileSystem, 2).uploadDirectory(
+				localDirectory, remoteDirectory);
+	}
+}
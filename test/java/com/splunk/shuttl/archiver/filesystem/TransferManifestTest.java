@@ -0,0 +1,147 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.testutil.TUtilsFileSystem;
+import com.splunk.shuttl.testutil.TUtilsPath;
+
+@Test(groups = { "fast-unit" })
+public class TransferManifestTest {
+
+	FileSystem fileSystem;
+	Path transferredPath;
+
+	@BeforeMethod
+	public void setUp() {
+		fileSystem = TUtilsFileSystem.getLocalFileSystem();
+		transferredPath = new Path(TUtilsPath.getSafeDirectory(fileSystem),
+				"transferred");
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		fileSystem.delete(TransferManifest.getManifestPath(transferredPath), false);
+	}
+
+	public void load_noManifest_createsEmptyPersistedManifest()
+			throws IOException {
+		assertFalse(TransferManifest.exists(fileSystem, transferredPath));
+		TransferManifest manifest = TransferManifest.load(fileSystem,
+				transferredPath);
+		assertEquals(manifest.getTransferredCount(), 0);
+		assertTrue(TransferManifest.exists(fileSystem, transferredPath));
+	}
+
+	public void markTransferred_flushedAndLoadedAgain_fileIsTransferred()
+			throws IOException {
+		TransferManifest manifest = TransferManifest.load(fileSystem,
+				transferredPath);
+		manifest.markTransferred("dir/file", 17);
+		manifest.flush();
+		TransferManifest loaded = TransferManifest.load(fileSystem,
+				transferredPath);
+		assertTrue(loaded.isTransferred("dir/file", 17));
+	}
+
+	public void markTransferred_withChecksum_checksumIsLoadedAgain()
+			throws IOException {
+		TransferManifest manifest = TransferManifest.load(fileSystem,
+				transferredPath);
+		manifest.markTransferred("dir/file", 17, 0xcafebabeL);
+		manifest.flush();
+		TransferManifest loaded = TransferManifest.load(fileSystem,
+				transferredPath);
+		assertTrue(loaded.isTransferred("dir/file", 17));
+		assertEquals(loaded.getChecksum("dir/file"), (Long) 0xcafebabeL);
+	}
+
+	public void getChecksum_markedTransferredWithoutChecksum_null()
+			throws IOException {
+		TransferManifest manifest = TransferManifest.createInMemory();
+		manifest.markTransferred("file", 17);
+		assertNull(manifest.getChecksum("file"));
+	}
+
+	public void isTransferred_differentLength_false() throws IOException {
+		TransferManifest manifest = TransferManifest.load(fileSystem,
+				transferredPath);
+		manifest.markTransferred("file", 17);
+		assertFalse(manifest.isTransferred("file", 18));
+	}
+
+	public void isTransferred_unknownFile_false() {
+		assertFalse(TransferManifest.createInMemory().isTransferred("file", 0));
+	}
+
+	public void delete_loadedManifest_noLongerExists() throws IOException {
+		TransferManifest manifest = TransferManifest.load(fileSystem,
+				transferredPath);
+		manifest.delete();
+		assertFalse(TransferManifest.exists(fileSystem, transferredPath));
+	}
+
+	public void markTransferred_inMemoryManifest_isNotPersisted()
+			throws IOException {
+		TransferManifest.createInMemory().markTransferred("file", 1);
+		assertFalse(TransferManifest.exists(fileSystem, transferredPath));
+	}
+
+	public void markTransferred_fewerFilesThanABatch_notPersistedUntilFlushed()
+			throws IOException {
+		TransferManifest manifest = TransferManifest.load(fileSystem,
+				transferredPath);
+		manifest.markTransferred("file", 17);
+		assertFalse(TransferManifest.load(fileSystem, transferredPath)
+				.isTransferred("file", 17));
+
+		manifest.flush();
+		assertTrue(TransferManifest.load(fileSystem, transferredPath)
+				.isTransferred("file", 17));
+	}
+
+	public void markTransferred_fullBatch_persistsTheBatch() throws IOException {
+		TransferManifest manifest = TransferManifest.load(fileSystem,
+				transferredPath);
+		for (int i = 0; i < TransferManifest.FLUSH_FILES; i++)
+			manifest.markTransferred("file" + i, i);
+
+		TransferManifest loaded = TransferManifest.load(fileSystem,
+				transferredPath);
+		assertEquals(loaded.getTransferredCount(), TransferManifest.FLUSH_FILES);
+	}
+
+	public void markTransferred_withChecksumFewerFilesThanABatch_notPersistedUntilFlushed()
+			throws IOException {
+		TransferManifest manifest = TransferManifest.load(fileSystem,
+				transferredPath);
+		manifest.markTransferred("file", 17, 0xcafebabeL);
+		assertNull(TransferManifest.load(fileSystem, transferredPath)
+				.getChecksum("file"));
+
+		manifest.flush();
+		assertEquals(TransferManifest.load(fileSystem, transferredPath)
+				.getChecksum("file"), (Long) 0xcafebabeL);
+	}
+}
@@ -122,4 +122,21 @@ public class FlusherTest {
 		Bucket b = TUtilsBucket.createBucketInDirectory(thawDir);
 		flusher.flush("index-does-not-exist", b.getEarliest(), b.getLatest());
 	}
+
+	public void _bucketThawedAfterAFlush_isFlushedByTheNextFlush()
+			throws IllegalIndexException {
+		Date date = TUtilsDate.getNowWithoutMillis();
+		Date laterDate = TUtilsDate.getLaterDate(date);
+		TUtilsBucket.createBucketInDirectoryWithTimesAndIndex(thawDir, date, date,
+				index);
+		flusher.flush(index, laterDate, laterDate);
+		Bucket thawedAfterFlush = TUtilsBucket
+				.createBucketInDirectoryWithTimesAndIndex(thawDir, laterDate,
+						laterDate, index);
+
+		flusher.flush(index, laterDate, laterDate);
+
+		assertFalse(thawedAfterFlush.getDirectory().exists());
+		assertEquals(asList(thawedAfterFlush), flusher.getFlushedBuckets());
+	}
 }
@@ -0,0 +1,122 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.history;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.testutil.TUtilsFile;
+
+@Test(groups = { "fast-unit" })
+public class OperationLedgerTest {
+
+	private static final long HOUR = 60 * 60 * 1000L;
+	private static final long DAY = 24 * HOUR;
+
+	private File directory;
+	private OperationLedger ledger;
+
+	@BeforeMethod
+	public void setUp() {
+		directory = TUtilsFile.createDirectory();
+		ledger = new OperationLedger(directory);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	private OperationRecord record(long time, OperationType type,
+			String index, long millis, boolean successful) {
+		Map<String, Long> stages = Collections.singletonMap("transfer", millis);
+		return new OperationRecord(time, type, index, "db_2_1_0",
+				"SPLUNK_BUCKET", 1024, stages, successful);
+	}
+
+	public void aggregate_recordsInSameInterval_aggregatesThemTogether() {
+		ledger.record(record(DAY + 1, OperationType.ARCHIVE, "a", 10, true));
+		ledger.record(record(DAY + 2, OperationType.ARCHIVE, "a", 30, false));
+
+		List<OperationAggregate> aggregates = ledger.aggregate(
+				OperationType.ARCHIVE, null, 0, 2 * DAY, DAY);
+
+		assertEquals(1, aggregates.size());
+		OperationAggregate aggregate = aggregates.get(0);
+		assertEquals(DAY, aggregate.getIntervalStart());
+		assertEquals(2, aggregate.getCount());
+		assertEquals(1, aggregate.getFailures());
+		assertEquals(2048, aggregate.getBytes());
+		assertEquals(20, aggregate.getMeanMillis());
+		assertEquals(30, aggregate.getPercentileMillis(0.95));
+		assertEquals(20L, (long) aggregate.getStageMeanMillis().get("transfer"));
+	}
+
+	public void aggregate_recordsInDifferentIntervals_ordersAggregatesByTime() {
+		ledger.record(record(3 * HOUR, OperationType.ARCHIVE, "a", 10, true));
+		ledger.record(record(HOUR, OperationType.ARCHIVE, "a", 10, true));
+
+		List<OperationAggregate> aggregates = ledger.aggregate(
+				OperationType.ARCHIVE, null, 0, DAY, HOUR);
+
+		assertEquals(2, aggregates.size());
+		assertEquals(HOUR, aggregates.get(0).getIntervalStart());
+		assertEquals(3 * HOUR, aggregates.get(1).getIntervalStart());
+	}
+
+	public void aggregate_typeIndexAndRange_onlyAggregatesMatchingRecords() {
+		ledger.record(record(HOUR, OperationType.ARCHIVE, "a", 10, true));
+		ledger.record(record(HOUR, OperationType.THAW, "a", 10, true));
+		ledger.record(record(HOUR, OperationType.ARCHIVE, "b", 10, true));
+		ledger.record(record(3 * DAY, OperationType.ARCHIVE, "a", 10, true));
+
+		List<OperationAggregate> aggregates = ledger.aggregate(
+				OperationType.ARCHIVE, "a", 0, DAY, DAY);
+
+		assertEquals(1, aggregates.size());
+		assertEquals(1, aggregates.get(0).getCount());
+	}
+
+	public void aggregate_segmentWithCorruptLine_skipsTheLine()
+			throws IOException {
+		ledger.record(record(HOUR, OperationType.ARCHIVE, "a", 10, true));
+		File segment = directory.listFiles()[0];
+		FileWriter writer = new FileWriter(segment, true);
+		writer.write("not a record\n");
+		writer.close();
+		ledger.record(record(2 * HOUR, OperationType.ARCHIVE, "a", 10, true));
+
+		List<OperationAggregate> aggregates = ledger.aggregate(
+				OperationType.ARCHIVE, null, 0, DAY, DAY);
+
+		assertEquals(2, aggregates.get(0).getCount());
+	}
+
+	public void aggregate_noRecords_emptyList() {
+		assertTrue(ledger.aggregate(OperationType.FLUSH, null, 0, DAY, DAY)
+				.isEmpty());
+	}
+}
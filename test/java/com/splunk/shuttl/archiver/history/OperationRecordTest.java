@@ -0,0 +1,59 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.history;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class OperationRecordTest {
+
+	public void parse_lineOfRecord_equalsRecord() {
+		Map<String, Long> stages = new LinkedHashMap<String, Long>();
+		stages.put("export_SPLUNK_BUCKET", 10L);
+		stages.put("transfer_SPLUNK_BUCKET", 200L);
+		OperationRecord record = new OperationRecord(1234L,
+				OperationType.ARCHIVE, "index", "db_2_1_0", "SPLUNK_BUCKET", 4096,
+				stages, true);
+
+		OperationRecord parsed = OperationRecord.parse(record.toLine());
+
+		assertEquals(record.toLine(), parsed.toLine());
+		assertEquals(stages, parsed.getStageMillis());
+		assertEquals(210, parsed.getTotalMillis());
+	}
+
+	public void parse_recordWithoutFormatAndStages_keepsThemEmpty() {
+		OperationRecord record = new OperationRecord(1234L, OperationType.FLUSH,
+				"index", "db_2_1_0", null, -1, new LinkedHashMap<String, Long>(),
+				false);
+
+		OperationRecord parsed = OperationRecord.parse(record.toLine());
+
+		assertNull(parsed.getFormat());
+		assertEquals(-1, parsed.getBytes());
+		assertTrue(parsed.getStageMillis().isEmpty());
+		assertFalse(parsed.isSuccessful());
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void parse_lineWithMissingColumns_throws() {
+		OperationRecord.parse("1234\tARCHIVE\tindex");
+	}
+}
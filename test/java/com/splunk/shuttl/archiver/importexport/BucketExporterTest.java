@@ -27,6 +27,7 @@ import org.testng.annotations.Test;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.archive.UnknownBucketFormatException;
 import com.splunk.shuttl.archiver.importexport.csv.CsvBucketCreator;
+import com.splunk.shuttl.archiver.importexport.csv.CsvExportMode;
 import com.splunk.shuttl.archiver.importexport.csv.CsvExporter;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
@@ -81,4 +82,48 @@ public class BucketExporterTest {
 		}
 		verifyZeroInteractions(csvExporter);
 	}
+
+	public void exportBucketToFormat_splunkBucketToCompressed_returnsSameDirectoryInCompressedFormatWithoutExporting() {
+		Bucket bucket = TUtilsBucket.createBucket();
+		Bucket compressedBucket = bucketExporter.exportBucket(bucket,
+				BucketFormat.SPLUNK_BUCKET_COMPRESSED);
+		assertEquals(BucketFormat.SPLUNK_BUCKET_COMPRESSED,
+				compressedBucket.getFormat());
+		assertEquals(bucket.getDirectory(), compressedBucket.getDirectory());
+		verifyZeroInteractions(csvExporter, csvBucketCreator);
+	}
+
+	public void getEarlierExport_csvWasExportedBefore_createsBucketFromEarlierCsvFile() {
+		Bucket bucket = TUtilsBucket.createBucket();
+		File csvFile = createFile();
+		when(csvExporter.getEarlierExport(bucket)).thenReturn(csvFile);
+		Bucket csvBucket = mock(Bucket.class);
+		when(csvBucketCreator.createBucketWithCsvFile(csvFile, bucket)).thenReturn(
+				csvBucket);
+		assertEquals(csvBucket,
+				bucketExporter.getEarlierExport(bucket, BucketFormat.CSV));
+	}
+
+	public void getEarlierExport_noEarlierCsvExport_null() {
+		Bucket bucket = TUtilsBucket.createBucket();
+		assertNull(bucketExporter.getEarlierExport(bucket, BucketFormat.CSV));
+		verifyZeroInteractions(csvBucketCreator);
+	}
+
+	public void getEarlierExport_streamedFormat_nullWithoutLookingForExport() {
+		Bucket bucket = TUtilsBucket.createBucket();
+		assertNull(bucketExporter.getEarlierExport(bucket,
+				BucketFormat.SPLUNK_BUCKET_COMPRESSED));
+		verifyZeroInteractions(csvExporter, csvBucketCreator);
+	}
+
+	public void exportBucketToFormat_streamingCsvExportMode_returnsSameDirectoryInCsvFormatWithoutExporting() {
+		bucketExporter = new BucketExporter(csvExporter, csvBucketCreator,
+				CsvExportMode.STREAM);
+		Bucket bucket = TUtilsBucket.createBucket();
+		Bucket csvBucket = bucketExporter.exportBucket(bucket, BucketFormat.CSV);
+		assertEquals(BucketFormat.CSV, csvBucket.getFormat());
+		assertEquals(bucket, csvBucket);
+		verifyZeroInteractions(csvExporter, csvBucketCreator);
+	}
 }
@@ -23,6 +23,7 @@ import org.testng.annotations.Test;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.importexport.csv.CsvImporter;
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
 @Test(groups = { "fast-unit" })
@@ -55,6 +56,18 @@ public class BucketImporterTest {
 		assertEquals(importedBucket, restoredBucket);
 	}
 
+	public void _bucketInCompressedFormat_sameDirectoryInSplunkBucketFormat() {
+		Bucket bucket = TUtilsBucket.createBucket();
+		Bucket compressedBucket = BucketFactory
+				.createBucketWithIndexDirectoryAndFormat(bucket.getIndex(),
+						bucket.getDirectory(), BucketFormat.SPLUNK_BUCKET_COMPRESSED);
+		Bucket restoredBucket = bucketImporter
+				.restoreToSplunkBucketFormat(compressedBucket);
+		assertEquals(BucketFormat.SPLUNK_BUCKET, restoredBucket.getFormat());
+		assertEquals(bucket.getDirectory(), restoredBucket.getDirectory());
+		verifyZeroInteractions(csvImporter);
+	}
+
 	@Test(expectedExceptions = { UnsupportedOperationException.class })
 	public void _bucketInUnknownFormat_throwsUnsupportedOperationException() {
 		Bucket unknownBucket = mock(Bucket.class);
@@ -15,10 +15,18 @@
 package com.splunk.shuttl.archiver.importexport;
 
 import static java.util.Arrays.*;
+import static java.util.Collections.*;
 import static org.testng.AssertJUnit.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -38,9 +46,100 @@ public class ShellExecutorTest {
 	public void executeCommand_givenEnvironmentVariable_echoThatEnvVar() {
 		env.put("SHELL_EXECUTOR", "foo");
 		String[] command = new String[] { "sh", "-c", "echo ${SHELL_EXECUTOR}" };
-		shellExecutor.executeCommand(env, asList(command));
-		List<String> out = shellExecutor.getStdOut();
+		List<String> out = shellExecutor.execute(env, asList(command))
+				.getStdOut();
 		assertEquals(1, out.size());
 		assertEquals("foo", out.get(0));
 	}
+
+	public void executeCommand_commandWritingMoreThanAPipeBuffer_doesNotBlock() {
+		String[] command = new String[] { "sh", "-c",
+				"i=0; while [ $i -lt 20000 ]; do echo line$i; i=$((i+1)); done" };
+		CommandResult result = shellExecutor.execute(env, asList(command));
+		assertEquals(0, result.getExitCode());
+		assertEquals(20000, result.getStdOut().size());
+	}
+
+	public void execute_twoCommandsAtTheSameTime_eachGetsItsOwnStdOut()
+			throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<CommandResult> foo = executor.submit(echoLines("foo"));
+			Future<CommandResult> bar = executor.submit(echoLines("bar"));
+			assertEquals(nCopies(5000, "foo"), foo.get().getStdOut());
+			assertEquals(nCopies(5000, "bar"), bar.get().getStdOut());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Callable<CommandResult> echoLines(final String line) {
+		return new Callable<CommandResult>() {
+
+			@Override
+			public CommandResult call() {
+				String[] command = new String[] { "sh", "-c",
+						"i=0; while [ $i -lt 5000 ]; do echo " + line
+								+ "; i=$((i+1)); done" };
+				return shellExecutor.execute(env, asList(command));
+			}
+		};
+	}
+
+	public void executeCommandWritingStdOutTo_echo_writesStdOutToStream()
+			throws IOException {
+		String[] command = new String[] { "sh", "-c",
+				"echo foo; echo bar 1>&2; echo baz" };
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int exit = shellExecutor.executeCommandWritingStdOutTo(env,
+				asList(command), out);
+		assertEquals(0, exit);
+		assertEquals("foo\nbaz\n", out.toString());
+	}
+
+	public void executeCommandWritingStdOutTo_failingCommand_returnsExitCode()
+			throws IOException {
+		String[] command = new String[] { "sh", "-c", "exit 4" };
+		assertEquals(4, shellExecutor.executeCommandWritingStdOutTo(env,
+				asList(command), new ByteArrayOutputStream()));
+	}
+
+	public void executeCommandReadingStdInFrom_cat_readsStreamAsStdIn()
+			throws IOException {
+		String[] command = new String[] { "sh", "-c", "cat /dev/stdin" };
+		ByteArrayInputStream in = new ByteArrayInputStream(
+				"foo\nbar\n".getBytes());
+		CommandResult result = shellExecutor.executeReadingStdInFrom(env,
+				asList(command), in);
+		assertEquals(0, result.getExitCode());
+		assertEquals(asList("foo", "bar"), result.getStdOut());
+	}
+
+	public void executeReadingStdInFrom_twoStreamsAtTheSameTime_eachCommandReadsItsOwnStream()
+			throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<CommandResult> foo = executor.submit(catLines("foo"));
+			Future<CommandResult> bar = executor.submit(catLines("bar"));
+			assertEquals(nCopies(5000, "foo"), foo.get().getStdOut());
+			assertEquals(nCopies(5000, "bar"), bar.get().getStdOut());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Callable<CommandResult> catLines(final String line) {
+		return new Callable<CommandResult>() {
+
+			@Override
+			public CommandResult call() throws IOException {
+				StringBuilder lines = new StringBuilder();
+				for (int i = 0; i < 5000; i++)
+					lines.append(line).append('\n');
+				String[] command = new String[] { "sh", "-c", "cat /dev/stdin" };
+				return shellExecutor.executeReadingStdInFrom(env, asList(command),
+						new ByteArrayInputStream(lines.toString().getBytes()));
+			}
+		};
+	}
 }
@@ -0,0 +1,132 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.importexport.compressed;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class BlockCompressionStreamsTest {
+
+	private byte[] compress(byte[] data, int blockSize, int threads)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BlockCompressingOutputStream compressing = new BlockCompressingOutputStream(
+				out, blockSize, threads);
+		compressing.write(data);
+		compressing.close();
+		return out.toByteArray();
+	}
+
+	private byte[] decompress(byte[] compressed, int threads)
+			throws IOException {
+		InputStream in = new BlockDecompressingInputStream(
+				new ByteArrayInputStream(compressed), threads);
+		try {
+			return IOUtils.toByteArray(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	private byte[] createRandomData(int size) {
+		byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+
+	public void compressAndDecompress_dataSpanningManyBlocks_getsSameData()
+			throws IOException {
+		byte[] data = createRandomData(10 * 1000 + 7);
+		assertEquals(decompress(compress(data, 1000, 3), 2), data);
+	}
+
+	public void compressAndDecompress_emptyData_getsEmptyData()
+			throws IOException {
+		assertEquals(decompress(compress(new byte[0], 1000, 2), 2).length, 0);
+	}
+
+	public void compress_repetitiveData_isSmallerThanData() throws IOException {
+		byte[] data = new byte[100 * 1000];
+		assertTrue(compress(data, 10 * 1000, 2).length < data.length / 10);
+	}
+
+	public void write_singleBytes_getsSameDataAsWritingArray() throws IOException {
+		byte[] data = createRandomData(2500);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BlockCompressingOutputStream compressing = new BlockCompressingOutputStream(
+				out, 1000, 2);
+		for (byte b : data)
+			compressing.write(b);
+		compressing.close();
+		assertEquals(out.toByteArray(), compress(data, 1000, 2));
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void decompress_streamWithoutHeader_throwsIOException()
+			throws IOException {
+		decompress(createRandomData(100), 1);
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void decompress_corruptedBlock_throwsIOException() throws IOException {
+		byte[] compressed = compress(createRandomData(5000), 1000, 2);
+		compressed[compressed.length / 2] ^= 0xff;
+		decompress(compressed, 2);
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void decompress_truncatedStream_throwsIOException() throws IOException {
+		byte[] compressed = compress(createRandomData(5000), 1000, 2);
+		byte[] truncated = new byte[compressed.length - 4];
+		System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+		decompress(truncated, 2);
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void abort_afterWritingBlocks_streamCantBeDecompressed()
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BlockCompressingOutputStream compressing = new BlockCompressingOutputStream(
+				out, 1000, 2);
+		compressing.write(createRandomData(5000));
+		compressing.abort();
+		compressing.close();
+		decompress(out.toByteArray(), 2);
+	}
+
+	public void abort_underlyingStream_isClosed() throws IOException {
+		OutputStream out = mock(OutputStream.class);
+		new BlockCompressingOutputStream(out, 1000, 1).abort();
+		verify(out).close();
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void construct_zeroThreads_throwsIllegalArgumentException()
+			throws IOException {
+		new BlockCompressingOutputStream(new ByteArrayOutputStream(), 1000, 0);
+	}
+}
@@ -0,0 +1,78 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.compressed;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class BucketCompressorTest {
+
+	DirectoryContainer directoryContainer;
+	BucketCompressor bucketCompressor;
+	File bucketDirectory;
+
+	@BeforeMethod
+	public void setUp() {
+		directoryContainer = mock(DirectoryContainer.class);
+		bucketCompressor = new BucketCompressor(directoryContainer, 1000, 2);
+		bucketDirectory = new File("bucket");
+	}
+
+	public void compressBucket_writingDirectoryFails_throwsAndWritesNoEndOfFrames()
+			throws IOException {
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws IOException {
+				((OutputStream) invocation.getArguments()[1]).write(new byte[2500]);
+				throw new IOException("disk failed");
+			}
+		}).when(directoryContainer).writeDirectory(eq(bucketDirectory),
+				any(OutputStream.class));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			bucketCompressor.compressBucket(bucketDirectory, out);
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertEquals(e.getMessage(), "disk failed");
+		}
+		BlockDecompressingInputStream in = new BlockDecompressingInputStream(
+				new ByteArrayInputStream(out.toByteArray()), 2);
+		try {
+			IOUtils.toByteArray(in);
+			fail("Expected the aborted stream to be unreadable");
+		} catch (IOException e) {
+		}
+	}
+
+	public void compressBucket_directoryWritten_closesStream() throws IOException {
+		OutputStream out = mock(OutputStream.class);
+		bucketCompressor.compressBucket(bucketDirectory, out);
+		verify(out).close();
+	}
+}
@@ -0,0 +1,97 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.importexport.compressed;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class DirectoryContainerTest {
+
+	DirectoryContainer directoryContainer;
+	File source;
+	File target;
+
+	@BeforeMethod
+	public void setUp() {
+		directoryContainer = new DirectoryContainer();
+		source = createDirectory();
+		target = createFilePath();
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		FileUtils.deleteQuietly(source);
+		FileUtils.deleteQuietly(target);
+	}
+
+	private byte[] writeSource() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		directoryContainer.writeDirectory(source, out);
+		return out.toByteArray();
+	}
+
+	public void writeAndExtract_nestedDirectories_extractsSameFilesAndContent()
+			throws IOException {
+		File file = createFileInParent(source, "a.data");
+		populateFileWithRandomContent(file);
+		File nestedDir = createDirectoryInParent(source, "rawdata");
+		File nestedFile = createFileInParent(nestedDir, "journal.gz");
+		populateFileWithRandomContent(nestedFile);
+		createDirectoryInParent(source, "empty");
+
+		directoryContainer.extractDirectory(new ByteArrayInputStream(
+				writeSource()), target);
+
+		assertTrue(FileUtils.contentEquals(file, new File(target, "a.data")));
+		assertTrue(FileUtils.contentEquals(nestedFile, new File(target,
+				"rawdata/journal.gz")));
+		assertTrue(new File(target, "empty").isDirectory());
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void extract_truncatedContainer_throwsIOException()
+			throws IOException {
+		populateFileWithRandomContent(createFileInParent(source, "a.data"));
+		byte[] container = writeSource();
+		directoryContainer.extractDirectory(new ByteArrayInputStream(container, 0,
+				container.length - 10), target);
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void extract_entryOutsideDirectory_throwsIOException()
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(DirectoryContainer.FILE_ENTRY);
+		out.writeUTF("../escaped");
+		out.writeLong(0);
+		out.writeByte(DirectoryContainer.END_ENTRY);
+		directoryContainer.extractDirectory(
+				new ByteArrayInputStream(bytes.toByteArray()), target);
+	}
+}
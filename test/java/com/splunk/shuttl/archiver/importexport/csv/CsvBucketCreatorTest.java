@@ -106,6 +106,18 @@ public class CsvBucketCreatorTest {
 		assertEquals(fileWithoutExtension, bucketDir.getName());
 	}
 
+	public void _givenCsvFileAlreadyInItsBucketDirectory_bucketIsTheDirectoryAndFileIsNotMoved() {
+		Bucket csvBucket = csvBucketCreator
+				.createBucketWithCsvFile(csvFile, bucket);
+		File movedCsvFile = csvBucket.getDirectory().listFiles()[0];
+
+		Bucket recreatedBucket = csvBucketCreator.createBucketWithCsvFile(
+				movedCsvFile, bucket);
+
+		assertEquals(csvBucket.getDirectory(), recreatedBucket.getDirectory());
+		assertTrue(movedCsvFile.exists());
+	}
+
 	// Sad path
 
 	@Test(expectedExceptions = { IllegalArgumentException.class })
@@ -18,9 +18,12 @@ import static com.splunk.shuttl.testutil.TUtilsFile.*;
 import static java.util.Arrays.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Map;
 
@@ -53,6 +56,8 @@ public class CsvExporterTest {
 
 		bucket = TUtilsBucket.createBucket();
 		emptyMap = Collections.<String, String> emptyMap();
+		when(getsBucketsCsvExportFile.getExportedCsvFile(bucket)).thenReturn(
+				createFilePath());
 	}
 
 	public void exportBucketToCsv_givenExecutableCommandEnvironmentAndCsvExportPath_executesSpecifiedCommand()
@@ -98,4 +103,45 @@ public class CsvExporterTest {
 		FileUtils.deleteQuietly(nonExistantCsvFile);
 		csvExporter.exportBucketToCsv(bucket);
 	}
+
+	@SuppressWarnings("unchecked")
+	public void exportBucketToCsv_bucketWasExportedBefore_returnsEarlierExportWithoutExporting() {
+		File exportedCsvFile = createFile();
+		when(getsBucketsCsvExportFile.getExportedCsvFile(bucket)).thenReturn(
+				exportedCsvFile);
+
+		assertEquals(csvExporter.exportBucketToCsv(bucket), exportedCsvFile);
+		verify(shellExecutor, never()).executeCommand(anyMap(), anyList());
+	}
+
+	public void getEarlierExport_bucketWasNotExportedBefore_null() {
+		assertNull(csvExporter.getEarlierExport(bucket));
+	}
+
+	public void exportBucketToCsvStream_givenExecutableCommand_executesCommandWritingToStandardOutAndStream()
+			throws IOException {
+		when(exportTool.getExecutableCommand()).thenReturn(
+				asList("/exporttool/path"));
+		when(exportTool.getEnvironment()).thenReturn(emptyMap);
+		OutputStream out = new ByteArrayOutputStream();
+
+		csvExporter.exportBucketToCsvStream(bucket, out);
+
+		String[] command = new String[] { "/exporttool/path",
+				bucket.getDirectory().getAbsolutePath(),
+				CsvExporter.STANDARD_OUT_PATH, "-csv" };
+		verify(shellExecutor).executeCommandWritingStdOutTo(emptyMap,
+				asList(command), out);
+		verifyZeroInteractions(getsBucketsCsvExportFile);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(expectedExceptions = { CsvExportFailedException.class })
+	public void exportBucketToCsvStream_nonZeroExitStatus_throwCsvExportFailedException()
+			throws IOException {
+		when(
+				shellExecutor.executeCommandWritingStdOutTo(anyMap(), anyList(),
+						any(OutputStream.class))).thenReturn(1);
+		csvExporter.exportBucketToCsvStream(bucket, new ByteArrayOutputStream());
+	}
 }
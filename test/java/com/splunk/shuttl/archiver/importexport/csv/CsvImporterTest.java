@@ -19,7 +19,10 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -128,4 +131,34 @@ public class CsvImporterTest {
 		assertNotEquals(BucketFormat.CSV, nonCsvBucket.getFormat());
 		csvImporter.importBucketFromCsv(nonCsvBucket);
 	}
+
+	public void importBucketFromCsvStream_givenStream_importsFromStdIn()
+			throws IOException {
+		List<String> importToolExecutable = asList("path/to/importtool");
+		when(splunkImportTool.getExecutableCommand()).thenReturn(
+				importToolExecutable);
+		when(splunkImportTool.getEnvironment()).thenReturn(emptyMap);
+		File directory = new File("bucket/dir");
+		InputStream csv = new ByteArrayInputStream(new byte[0]);
+		List<String> command = UtilsList.join(importToolExecutable,
+				asList(directory.getAbsolutePath(), CsvImporter.STANDARD_IN_PATH));
+
+		csvImporter.importBucketFromCsvStream("index", directory, csv);
+
+		verify(shellExecutor).executeCommandReadingStdInFrom(emptyMap, command,
+				csv);
+		verify(bucketFactory).createWithIndexDirectoryAndFormat("index",
+				directory, BucketFormat.SPLUNK_BUCKET);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(expectedExceptions = { CsvImportFailedException.class })
+	public void importBucketFromCsvStream_unsuccessfulImport_throws()
+			throws IOException {
+		when(
+				shellExecutor.executeCommandReadingStdInFrom(anyMap(), anyList(),
+						any(InputStream.class))).thenReturn(1);
+		csvImporter.importBucketFromCsvStream("index", new File("bucket/dir"),
+				new ByteArrayInputStream(new byte[0]));
+	}
 }
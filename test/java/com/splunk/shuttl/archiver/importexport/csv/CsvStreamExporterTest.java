@@ -0,0 +1,101 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.importexport.csv;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.importexport.compressed.BlockDecompressingInputStream;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class CsvStreamExporterTest {
+
+	CsvExporter csvExporter;
+	Bucket bucket;
+	byte[] csv;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		csvExporter = mock(CsvExporter.class);
+		bucket = TUtilsBucket.createBucket();
+		csv = "_time,_raw\n1,event\n".getBytes();
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				((OutputStream) invocation.getArguments()[1]).write(csv);
+				return null;
+			}
+		}).when(csvExporter).exportBucketToCsvStream(eq(bucket),
+				any(OutputStream.class));
+	}
+
+	public void writeBucket_notCompressed_writesCsvToStream() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CsvStreamExporter(csvExporter, false, 1).writeBucket(bucket, out);
+		assertEquals(out.toByteArray(), csv);
+	}
+
+	public void writeBucket_compressed_writesBlockCompressedCsvToStream()
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CsvStreamExporter(csvExporter, true, 2).writeBucket(bucket, out);
+		BlockDecompressingInputStream in = new BlockDecompressingInputStream(
+				new ByteArrayInputStream(out.toByteArray()), 2);
+		assertEquals(IOUtils.toByteArray(in), csv);
+	}
+
+	public void writeBucket_compressedExportFails_throwsAndWritesNoEndOfFrames()
+			throws IOException {
+		doThrow(new IOException("export failed")).when(csvExporter)
+				.exportBucketToCsvStream(eq(bucket), any(OutputStream.class));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			new CsvStreamExporter(csvExporter, true, 2).writeBucket(bucket, out);
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertEquals(e.getMessage(), "export failed");
+		}
+		BlockDecompressingInputStream in = new BlockDecompressingInputStream(
+				new ByteArrayInputStream(out.toByteArray()), 2);
+		try {
+			IOUtils.toByteArray(in);
+			fail("Expected the aborted stream to be unreadable");
+		} catch (IOException e) {
+		}
+	}
+
+	public void getFileName_compressedOrNot_csvFileNamedAfterBucket() {
+		assertEquals(new CsvStreamExporter(csvExporter, false, 1)
+				.getFileName(bucket), bucket.getName() + ".csv");
+		assertEquals(new CsvStreamExporter(csvExporter, true, 1)
+				.getFileName(bucket), bucket.getName()
+				+ CsvStreamExporter.COMPRESSED_CSV_EXTENSION);
+	}
+}
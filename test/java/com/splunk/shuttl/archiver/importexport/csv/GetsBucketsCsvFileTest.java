@@ -75,4 +75,15 @@ public class GetsBucketsCsvFileTest {
 		assertFalse(csvFile2.exists());
 	}
 
+	public void getExportedCsvFile_givenBucket_isInDirectoryCreatedByCsvBucketCreator()
+			throws IOException {
+		File csvFile = getsBucketsCsvExportFile.getCsvFile(bucket);
+		assertTrue(csvFile.createNewFile());
+		Bucket csvBucket = new CsvBucketCreator().createBucketWithCsvFile(csvFile,
+				bucket);
+		File exportedCsvFile = getsBucketsCsvExportFile.getExportedCsvFile(bucket);
+		assertEquals(csvBucket.getDirectory(), exportedCsvFile.getParentFile());
+		assertTrue(exportedCsvFile.exists());
+	}
+
 }
@@ -0,0 +1,173 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.listers;
+
+import static java.util.Arrays.*;
+import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.*;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.PathResolver;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+@Test(groups = { "fast-unit" })
+public class BucketTableTest {
+
+	private PathResolver pathResolver;
+	private BucketTable table;
+
+	@BeforeMethod
+	public void setUp() {
+		pathResolver = mock(PathResolver.class);
+		table = new BucketTable(pathResolver);
+	}
+
+	public void add_bucket_readsBackColumns() {
+		table.add("index", "db_20_10_0", BucketFormat.SPLUNK_BUCKET, 123L,
+				"0000abcd");
+		assertEquals(1, table.size());
+		assertEquals("index", table.getIndex(0));
+		assertEquals("db_20_10_0", table.getName(0));
+		assertEquals(BucketFormat.SPLUNK_BUCKET, table.getFormat(0));
+		assertEquals(10000, table.getEarliest(0));
+		assertEquals(20000, table.getLatest(0));
+		assertEquals(123L, (long) table.getSize(0));
+		assertEquals("0000abcd", table.getChecksum(0));
+	}
+
+	public void add_unknownFormatSizeAndChecksum_readsBackNull() {
+		table.add("index", "db_20_10_0", null, null, null);
+		assertNull(table.getFormat(0));
+		assertNull(table.getSize(0));
+		assertNull(table.getChecksum(0));
+	}
+
+	public void add_manyBucketsWithMultiByteNames_keepsEveryName() {
+		for (int i = 0; i < 1000; i++)
+			table.add("index" + (i % 3), "db_20_10_\u00e5" + i, null, null, null);
+		assertEquals(1000, table.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("index" + (i % 3), table.getIndex(i));
+			assertEquals("db_20_10_\u00e5" + i, table.getName(i));
+		}
+	}
+
+	public void setSize_unknownSize_isKnownAndCountedInTotal() {
+		table.add("index", "db_20_10_0", null, null, null);
+		table.add("index", "db_20_10_1", null, 5L, null);
+		table.setSize(0, 10);
+		assertEquals(10L, (long) table.getSize(0));
+		assertEquals(15, table.getTotalSize());
+	}
+
+	public void getUri_formatNotResolved_formatsHome() {
+		URI formatsHome = URI.create("valid:/formats/home");
+		when(pathResolver.getFormatsHome("index", "db_20_10_0")).thenReturn(
+				formatsHome);
+		table.add("index", "db_20_10_0", null, null, null);
+		assertEquals(formatsHome, table.getUri(0));
+	}
+
+	public void getBucket_resolvedFormat_bucketWithResolvedUri() {
+		URI uri = URI.create("valid:/archived/bucket");
+		when(
+				pathResolver.resolveArchivedBucketURI("index", "db_20_10_0",
+						BucketFormat.SPLUNK_BUCKET)).thenReturn(uri);
+		table.add("index", "db_20_10_0", BucketFormat.SPLUNK_BUCKET, 7L, null);
+		Bucket bucket = table.getBucket(0);
+		assertEquals(uri, bucket.getURI());
+		assertEquals("index", bucket.getIndex());
+		assertEquals("db_20_10_0", bucket.getName());
+		assertEquals(BucketFormat.SPLUNK_BUCKET, bucket.getFormat());
+		assertEquals(7L, (long) bucket.getSize());
+	}
+
+	public void filterByTimeRange_buckets_keepsOverlappingSortedByEarliest() {
+		table.add("index", "db_50_40_0", null, null, null);
+		table.add("index", "db_5_1_1", null, null, null);
+		table.add("index", "db_30_20_2", null, null, null);
+		table.add("index", "db_25_20_3", null, null, null);
+		table.add("index", "db_100_90_4", null, null, null);
+
+		BucketTable filtered = table.filterByTimeRange(new Date(10000), new Date(
+				45000));
+
+		assertEquals(3, filtered.size());
+		assertEquals("db_30_20_2", filtered.getName(0));
+		assertEquals("db_25_20_3", filtered.getName(1));
+		assertEquals("db_50_40_0", filtered.getName(2));
+	}
+
+	public void getRowsInKeyOrder_buckets_orderedByEarliestThenIndexThenName() {
+		table.add("index", "db_50_40_0", null, null, null);
+		table.add("other", "db_30_20_1", null, null, null);
+		table.add("index", "db_30_20_2", null, null, null);
+		table.add("index", "db_25_20_3", null, null, null);
+
+		int[] rows = table.getRowsInKeyOrder();
+
+		assertEquals(4, rows.length);
+		assertEquals(3, rows[0]);
+		assertEquals(2, rows[1]);
+		assertEquals(1, rows[2]);
+		assertEquals(0, rows[3]);
+	}
+
+	public void filterByTimeRange_illegalBucketName_leftOut() {
+		table.add("index", "not-a-bucket-name", null, null, null);
+		assertEquals(0, table.filterByTimeRange(new Date(0), new Date(Long.MAX_VALUE))
+				.size());
+	}
+
+	public void filterByTimeRange_earliestAfterLatest_empty() {
+		table.add("index", "db_20_10_0", null, null, null);
+		assertEquals(0, table.filterByTimeRange(new Date(20000), new Date(10000))
+				.size());
+	}
+
+	public void addAll_otherTable_appendsRows() {
+		BucketTable other = new BucketTable(pathResolver);
+		other.add("other", "db_20_10_1", BucketFormat.CSV, 2L, null);
+		table.add("index", "db_20_10_0", null, 1L, null);
+		table.addAll(other);
+		assertEquals(2, table.size());
+		assertEquals("other", table.getIndex(1));
+		assertEquals("db_20_10_1", table.getName(1));
+		assertEquals(BucketFormat.CSV, table.getFormat(1));
+		assertEquals(3, table.getTotalSize());
+	}
+
+	public void create_buckets_tableWithTheBuckets() throws Exception {
+		List<Bucket> buckets = asList(new Bucket(URI.create("valid:/uri"),
+				"index", "db_20_10_0", BucketFormat.SPLUNK_BUCKET, 3L, "12345678"));
+		BucketTable created = BucketTable.create(buckets, pathResolver);
+		assertEquals(1, created.size());
+		assertEquals("12345678", created.getChecksum(0));
+		assertEquals(3L, (long) created.getSize(0));
+	}
+
+	@Test(expectedExceptions = { IndexOutOfBoundsException.class })
+	public void getName_rowOutOfBounds_throws() {
+		table.getName(0);
+	}
+}
@@ -19,15 +19,18 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.catalog.CatalogBucketsLister;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.thaw.BucketFilter;
 import com.splunk.shuttl.archiver.thaw.BucketFormatResolver;
+import com.splunk.shuttl.archiver.thaw.BucketIntervalIndex;
 
 @Test(groups = { "fast-unit" })
 public class ListsBucketsFilteredTest {
@@ -35,6 +38,7 @@ public class ListsBucketsFilteredTest {
 	private ArchiveBucketsLister archiveBucketsLister;
 	private BucketFilter bucketFilter;
 	private BucketFormatResolver bucketFormatResolver;
+	private CatalogBucketsLister catalogBucketsLister;
 	private ListsBucketsFiltered listsBucketsFiltered;
 	private Date earliestTime;
 	private Date latestTime;
@@ -47,8 +51,9 @@ public class ListsBucketsFilteredTest {
 		archiveBucketsLister = mock(ArchiveBucketsLister.class);
 		bucketFilter = mock(BucketFilter.class);
 		bucketFormatResolver = mock(BucketFormatResolver.class);
+		catalogBucketsLister = mock(CatalogBucketsLister.class);
 		listsBucketsFiltered = new ListsBucketsFiltered(archiveBucketsLister,
-				bucketFilter, bucketFormatResolver);
+				bucketFilter, bucketFormatResolver, catalogBucketsLister);
 	}
 
 	@Test(groups = { "fast-unit" })
@@ -84,4 +89,73 @@ public class ListsBucketsFilteredTest {
 				.listFilteredBucketsAtIndex("foo", earliestTime, latestTime);
 		assertEquals(bucketsWithFormats, filteredBucketsAtIndex);
 	}
+
+	public void _givenIndexWithCatalog_filtersCatalogedBucketsWithoutResolvingFormats() {
+		BucketIntervalIndex catalogedBuckets = BucketIntervalIndex
+				.create(new ArrayList<Bucket>());
+		List<Bucket> filteredBuckets = asList(mock(Bucket.class));
+		when(catalogBucketsLister.getBucketIntervalIndex("index")).thenReturn(
+				catalogedBuckets);
+		when(
+				bucketFilter.filterBucketsByTimeRange(catalogedBuckets, earliestTime,
+						latestTime)).thenReturn(filteredBuckets);
+
+		List<Bucket> actual = listsBucketsFiltered.listFilteredBucketsAtIndex(
+				"index", earliestTime, latestTime);
+		assertEquals(filteredBuckets, actual);
+		verifyZeroInteractions(archiveBucketsLister, bucketFormatResolver);
+	}
+
+	@SuppressWarnings("unchecked")
+	public void listFilteredBuckets_givenIndexes_listsFilteredBucketsOfEachIndex() {
+		Bucket bucketA = mock(Bucket.class);
+		Bucket bucketB = mock(Bucket.class);
+		when(archiveBucketsLister.listIndexes()).thenReturn(asList("a", "b"));
+		BucketIntervalIndex catalogedBuckets = BucketIntervalIndex
+				.create(new ArrayList<Bucket>());
+		when(catalogBucketsLister.getBucketIntervalIndex("a")).thenReturn(
+				catalogedBuckets);
+		when(bucketFilter.filterBucketsByTimeRange(catalogedBuckets,
+				earliestTime, latestTime)).thenReturn(asList(bucketA));
+		when(bucketFormatResolver.resolveBucketsFormats(anyList())).thenReturn(
+				asList(bucketB));
+
+		List<Bucket> actual = listsBucketsFiltered.listFilteredBuckets(
+				earliestTime, latestTime);
+		assertEquals(asList(bucketA, bucketB), actual);
+	}
+
+	public void listFilteredBucketTableAtIndex_cataloged_filtersCatalogTableWithoutResolvingFormats() {
+		BucketTable catalogedBuckets = mock(BucketTable.class);
+		BucketTable filteredBuckets = mock(BucketTable.class);
+		when(catalogBucketsLister.listBucketTableInIndex("index")).thenReturn(
+				catalogedBuckets);
+		when(catalogedBuckets.filterByTimeRange(earliestTime, latestTime))
+				.thenReturn(filteredBuckets);
+
+		BucketTable actual = listsBucketsFiltered.listFilteredBucketTableAtIndex(
+				"index", earliestTime, latestTime);
+		assertEquals(filteredBuckets, actual);
+		verifyZeroInteractions(archiveBucketsLister, bucketFormatResolver);
+	}
+
+	public void listFilteredBucketTableAtIndex_notCataloged_resolvesFormatsOfFilteredBuckets() {
+		BucketTable bucketsInIndex = mock(BucketTable.class);
+		BucketTable filteredBuckets = mock(BucketTable.class);
+		BucketTable resolvedBuckets = mock(BucketTable.class);
+		List<Bucket> filtered = asList(mock(Bucket.class));
+		List<Bucket> resolved = asList(mock(Bucket.class));
+		when(archiveBucketsLister.listBucketTableInIndex("index")).thenReturn(
+				bucketsInIndex);
+		when(bucketsInIndex.filterByTimeRange(earliestTime, latestTime))
+				.thenReturn(filteredBuckets);
+		when(filteredBuckets.toBuckets()).thenReturn(filtered);
+		when(bucketFormatResolver.resolveBucketsFormats(filtered)).thenReturn(
+				resolved);
+		when(filteredBuckets.createTable(resolved)).thenReturn(resolvedBuckets);
+
+		BucketTable actual = listsBucketsFiltered.listFilteredBucketTableAtIndex(
+				"index", earliestTime, latestTime);
+		assertEquals(resolvedBuckets, actual);
+	}
 }
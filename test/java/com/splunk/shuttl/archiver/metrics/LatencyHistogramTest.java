@@ -0,0 +1,69 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.metrics;
+
+import static org.testng.AssertJUnit.*;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class LatencyHistogramTest {
+
+	private LatencyHistogram histogram;
+
+	@BeforeMethod
+	public void setUp() {
+		histogram = new LatencyHistogram();
+	}
+
+	public void getPercentileNanos_nothingRecorded_zero() {
+		assertEquals(0, histogram.getPercentileNanos(0.99));
+		assertEquals(0, histogram.getMeanNanos());
+	}
+
+	public void record_latencies_countTotalMeanAndMax() {
+		histogram.record(100);
+		histogram.record(300);
+		assertEquals(2, histogram.getCount());
+		assertEquals(400, histogram.getTotalNanos());
+		assertEquals(200, histogram.getMeanNanos());
+		assertEquals(300, histogram.getMaxNanos());
+	}
+
+	public void getPercentileNanos_latencies_withinFactorOfTwo() {
+		for (int i = 0; i < 99; i++)
+			histogram.record(1000);
+		histogram.record(1000000);
+		long p50 = histogram.getPercentileNanos(0.5);
+		assertTrue("p50: " + p50, p50 >= 1000 && p50 < 2000);
+		assertEquals(1000000, histogram.getPercentileNanos(1.0));
+	}
+
+	public void record_zeroAndNegative_recordedAsZero() {
+		histogram.record(0);
+		histogram.record(-5);
+		assertEquals(2, histogram.getCount());
+		assertEquals(0, histogram.getPercentileNanos(1.0));
+	}
+
+	public void reset_afterRecording_empty() {
+		histogram.record(10);
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMaxNanos());
+	}
+}
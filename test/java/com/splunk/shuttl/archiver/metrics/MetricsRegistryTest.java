@@ -0,0 +1,68 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.metrics;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class MetricsRegistryTest {
+
+	private MetricsRegistry registry;
+
+	@BeforeMethod
+	public void setUp() {
+		registry = new MetricsRegistry();
+	}
+
+	public void getCounter_sameName_sameCounter() {
+		assertSame(registry.getCounter("a"), registry.getCounter("a"));
+	}
+
+	public void getHistogram_sameName_sameHistogram() {
+		assertSame(registry.getHistogram("a"), registry.getHistogram("a"));
+	}
+
+	public void getSnapshot_metrics_valuesByName() {
+		registry.getCounter("counter").add(5);
+		registry.getHistogram("latency").record(2000000);
+		registry.registerGauge("gauge", new Gauge() {
+			@Override
+			public long getValue() {
+				return 7;
+			}
+		});
+
+		Map<String, Number> snapshot = registry.getSnapshot();
+		assertEquals(5L, snapshot.get("counter"));
+		assertEquals(1L, snapshot.get("latency.count"));
+		assertEquals(2.0, snapshot.get("latency.max_ms"));
+		assertEquals(7L, snapshot.get("gauge"));
+	}
+
+	public void reset_metrics_resetsCountersAndHistograms() {
+		registry.getCounter("counter").add(5);
+		registry.getHistogram("latency").record(10);
+		registry.reset();
+		Map<String, Number> snapshot = registry.getSnapshot();
+		assertEquals(0L, snapshot.get("counter"));
+		assertEquals(0L, snapshot.get("latency.count"));
+	}
+}
@@ -0,0 +1,60 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.metrics;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class StripedCounterTest {
+
+	public void add_values_getReturnsSum() {
+		StripedCounter counter = new StripedCounter(4);
+		counter.add(3);
+		counter.increment();
+		assertEquals(4, counter.get());
+	}
+
+	public void add_fromManyThreads_countsEveryAddition()
+			throws InterruptedException {
+		final StripedCounter counter = new StripedCounter(3);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++)
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++)
+						counter.increment();
+				}
+			});
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(80000, counter.get());
+	}
+
+	public void reset_afterAdding_zero() {
+		StripedCounter counter = new StripedCounter(1);
+		counter.add(10);
+		counter.reset();
+		assertEquals(0, counter.get());
+	}
+}
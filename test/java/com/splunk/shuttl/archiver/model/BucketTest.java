@@ -194,6 +194,34 @@ public class BucketTest {
 		assertNotNull(bucket.getSize());
 	}
 
+	public void getFileCount_localBucketWithFile_one() throws IOException {
+		File directory = createDirectory();
+		createFileInParent(directory, "file");
+		assertEquals((Long) 1L,
+				new Bucket(directory.toURI(), null, null, null).getFileCount());
+	}
+
+	public void getSize_filesAddedAfterSizeWasWalked_sizeIsNotWalkedAgain()
+			throws IOException {
+		File directory = createDirectory();
+		Bucket bucket = new Bucket(directory.toURI(), null, null, null);
+		assertEquals((Long) 0L, bucket.getSize());
+		populateFileWithRandomContent(createFileInParent(directory, "file"));
+		assertEquals((Long) 0L, bucket.getSize());
+	}
+
+	public void movedTo_sizeWalkedBeforeMove_movedBucketHasSameSize()
+			throws IOException {
+		File directory = createDirectory();
+		Bucket bucket = new Bucket(directory.toURI(), "index", null, null);
+		Long size = bucket.getSize();
+		File newDirectory = createDirectory();
+		Bucket moved = bucket.movedTo(newDirectory);
+		populateFileWithRandomContent(createFileInParent(newDirectory, "file"));
+		assertEquals(size, moved.getSize());
+		assertEquals("index", moved.getIndex());
+	}
+
 	public void getSize_remoteBucket_null() throws IOException {
 		Bucket bucket = new Bucket(URI.create("remote:/bucket"), null, null, null);
 		assertNull(bucket.getSize());
@@ -25,6 +25,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.IllegalBucketNameException;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 import com.splunk.shuttl.testutil.TUtilsDate;
 
@@ -126,4 +127,29 @@ public class BucketFilterTest {
 		assertTrue(filteredBuckets.contains(bucket));
 	}
 
+	public void filterBucketsByTimeRange_givenIntervalIndex_returnsBucketsWithinTimeRange() {
+		Bucket within = TUtilsBucket.createBucketWithTimes(earliest, latest);
+		Bucket after = createBucketWithEarliestAndLatestSetToDate(new Date(latest
+				.getTime() + 1000));
+		BucketIntervalIndex index = BucketIntervalIndex.create(Arrays.asList(
+				within, after));
+
+		assertEquals(Arrays.asList(within),
+				bucketFilter.filterBucketsByTimeRange(index, earliest, latest));
+	}
+
+	public void filterBucketsByTimeRange_givenIntervalIndexAndEarliestAfterLatest_emptyList() {
+		BucketIntervalIndex index = BucketIntervalIndex.create(Arrays
+				.asList(TUtilsBucket.createBucketWithTimes(earliest, latest)));
+		assertTrue(bucketFilter.filterBucketsByTimeRange(index, latest, earliest)
+				.isEmpty());
+	}
+
+	@Test(expectedExceptions = { IllegalBucketNameException.class })
+	public void filterBucketsByTimeRange_bucketWithIllegalName_throws() {
+		Bucket illegal = mock(Bucket.class);
+		when(illegal.getLatest()).thenThrow(new IllegalBucketNameException());
+		when(illegal.getEarliest()).thenThrow(new IllegalBucketNameException());
+		filterBuckets(illegal);
+	}
 }
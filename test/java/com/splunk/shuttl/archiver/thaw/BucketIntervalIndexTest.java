@@ -0,0 +1,117 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// License); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an AS IS BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.archiver.thaw;
+
+import static java.util.Arrays.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.IllegalBucketNameException;
+
+@Test(groups = { "fast-unit" })
+public class BucketIntervalIndexTest {
+
+	private Bucket bucketWithTimes(long earliest, long latest) {
+		Bucket bucket = mock(Bucket.class);
+		when(bucket.getEarliest()).thenReturn(new Date(earliest));
+		when(bucket.getLatest()).thenReturn(new Date(latest));
+		return bucket;
+	}
+
+	private List<Bucket> query(BucketIntervalIndex index, long earliest,
+			long latest) {
+		return index.getBucketsWithinTimeRange(new Date(earliest), new Date(
+				latest));
+	}
+
+	public void getBucketsWithinTimeRange_noBuckets_emptyList() {
+		BucketIntervalIndex index = BucketIntervalIndex
+				.create(new ArrayList<Bucket>());
+		assertTrue(query(index, 0, 100).isEmpty());
+	}
+
+	public void getBucketsWithinTimeRange_earliestAfterLatest_emptyList() {
+		BucketIntervalIndex index = BucketIntervalIndex.create(asList(bucketWithTimes(
+				0, 100)));
+		assertTrue(query(index, 50, 10).isEmpty());
+	}
+
+	public void getBucketsWithinTimeRange_givenBuckets_overlappingBucketsOrderedByEarliest() {
+		Bucket before = bucketWithTimes(0, 9);
+		Bucket touchingStart = bucketWithTimes(5, 10);
+		Bucket inside = bucketWithTimes(12, 13);
+		Bucket spanning = bucketWithTimes(1, 100);
+		Bucket touchingEnd = bucketWithTimes(20, 30);
+		Bucket after = bucketWithTimes(21, 30);
+		BucketIntervalIndex index = BucketIntervalIndex.create(asList(after,
+				inside, before, spanning, touchingEnd, touchingStart));
+
+		assertEquals(query(index, 10, 20),
+				asList(spanning, touchingStart, inside, touchingEnd));
+	}
+
+	public void create_bucketWithIllegalName_leftOutOfIndex() {
+		Bucket illegal = mock(Bucket.class);
+		when(illegal.getEarliest()).thenThrow(new IllegalBucketNameException());
+		Bucket legal = bucketWithTimes(0, 10);
+		BucketIntervalIndex index = BucketIntervalIndex.create(asList(illegal,
+				legal));
+		assertEquals(index.size(), 1);
+		assertEquals(query(index, 0, 10), asList(legal));
+	}
+
+	public void create_givenBuckets_readsEachBucketsTimesOnce() {
+		Bucket bucket = bucketWithTimes(0, 10);
+		BucketIntervalIndex index = BucketIntervalIndex.create(asList(bucket));
+		query(index, 0, 10);
+		query(index, 5, 6);
+		verify(bucket, times(1)).getEarliest();
+		verify(bucket, times(1)).getLatest();
+	}
+
+	public void getBucketsWithinTimeRange_randomBuckets_sameBucketsAsLinearFilter() {
+		Random random = new Random(4711);
+		List<Bucket> buckets = new ArrayList<Bucket>();
+		List<long[]> times = new ArrayList<long[]>();
+		for (int i = 0; i < 200; i++) {
+			long earliest = random.nextInt(1000);
+			long latest = earliest + random.nextInt(100);
+			buckets.add(bucketWithTimes(earliest, latest));
+			times.add(new long[] { earliest, latest });
+		}
+		BucketIntervalIndex index = BucketIntervalIndex.create(buckets);
+		for (int q = 0; q < 50; q++) {
+			long earliest = random.nextInt(1100);
+			long latest = earliest + random.nextInt(200);
+			HashSet<Bucket> expected = new HashSet<Bucket>();
+			for (int i = 0; i < buckets.size(); i++)
+				if (times.get(i)[1] >= earliest && times.get(i)[0] <= latest)
+					expected.add(buckets.get(i));
+			List<Bucket> actual = query(index, earliest, latest);
+			assertEquals(actual.size(), expected.size());
+			assertEquals(new HashSet<Bucket>(actual), expected);
+		}
+	}
+}
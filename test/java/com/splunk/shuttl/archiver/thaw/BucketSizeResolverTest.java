@@ -17,10 +17,16 @@ package com.splunk.shuttl.archiver.thaw;
 import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
+import java.io.IOException;
+
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.bucketsize.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogStore;
+import com.splunk.shuttl.archiver.catalog.CatalogEntry;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -60,4 +66,61 @@ public class BucketSizeResolverTest {
 		assertEquals(bucketWithoutSize.getURI(), sizedBucket.getURI());
 		assertFalse(bucketWithoutSize.getSize() == sizedBucket.getSize());
 	}
+
+	public void resolveBucketSize_bucketWithoutCatalogEntryOrSizeFile_unknownSize() {
+		when(archiveBucketSize.getSize(bucketWithoutSize)).thenThrow(
+				new RuntimeException());
+
+		Bucket bucket = bucketSizeResolver.resolveBucketSize(bucketWithoutSize);
+		assertNull(bucket.getSize());
+		assertEquals(bucketWithoutSize.getName(), bucket.getName());
+	}
+
+	public void resolveBucketSize_bucketInCatalog_sizeFromCatalogOnly()
+			throws IOException {
+		ArchiveCatalogStore archiveCatalogStore = mock(ArchiveCatalogStore.class);
+		ArchiveCatalog catalog = new ArchiveCatalog(bucketWithoutSize.getIndex());
+		catalog.add(new CatalogEntry(bucketWithoutSize.getName(), 0, 0,
+				BucketFormat.SPLUNK_BUCKET, 9L));
+		when(archiveCatalogStore.getCatalog(bucketWithoutSize.getIndex()))
+				.thenReturn(catalog);
+		bucketSizeResolver = new BucketSizeResolver(archiveBucketSize,
+				archiveCatalogStore);
+
+		Bucket sizedBucket = bucketSizeResolver
+				.resolveBucketSize(bucketWithoutSize);
+		assertEquals(9, (long) sizedBucket.getSize());
+		verifyZeroInteractions(archiveBucketSize);
+	}
+
+	public void resolveBucketSize_catalogHasSizeOfOtherFormat_sizeFromArchive()
+			throws IOException {
+		ArchiveCatalogStore archiveCatalogStore = mock(ArchiveCatalogStore.class);
+		ArchiveCatalog catalog = new ArchiveCatalog(bucketWithoutSize.getIndex());
+		catalog.add(new CatalogEntry(bucketWithoutSize.getName(), 0, 0,
+				BucketFormat.CSV, 9L));
+		catalog.add(new CatalogEntry(bucketWithoutSize.getName(), 0, 0,
+				BucketFormat.SPLUNK_BUCKET, null));
+		when(archiveCatalogStore.getCatalog(bucketWithoutSize.getIndex()))
+				.thenReturn(catalog);
+		when(archiveBucketSize.getSize(bucketWithoutSize)).thenReturn(4L);
+		bucketSizeResolver = new BucketSizeResolver(archiveBucketSize,
+				archiveCatalogStore);
+
+		Bucket sizedBucket = bucketSizeResolver
+				.resolveBucketSize(bucketWithoutSize);
+		assertEquals(4, (long) sizedBucket.getSize());
+	}
+
+	public void resolveBucketSize_indexWithoutCatalog_sizeFromArchive()
+			throws IOException {
+		ArchiveCatalogStore archiveCatalogStore = mock(ArchiveCatalogStore.class);
+		when(archiveBucketSize.getSize(bucketWithoutSize)).thenReturn(4L);
+		bucketSizeResolver = new BucketSizeResolver(archiveBucketSize,
+				archiveCatalogStore);
+
+		Bucket sizedBucket = bucketSizeResolver
+				.resolveBucketSize(bucketWithoutSize);
+		assertEquals(4, (long) sizedBucket.getSize());
+	}
 }
@@ -24,7 +24,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -61,7 +66,17 @@ public class BucketThawerTest {
 		index = "foo";
 		earliestTime = new Date();
 		latestTime = new Date(earliestTime.getTime() + 100);
-		bucket = mock(Bucket.class);
+		bucket = mockBucketNamed("bucket");
+	}
+
+	/**
+	 * Buckets are locked by name while they're thawed, so buckets that are
+	 * thawed together need different names.
+	 */
+	private Bucket mockBucketNamed(String name) {
+		Bucket bucket = mock(Bucket.class);
+		when(bucket.getName()).thenReturn(name);
+		return bucket;
 	}
 
 	public void thawBuckets_givenZeroBucketsWithinTimeRange_getsNoBuckets() {
@@ -74,17 +89,17 @@ public class BucketThawerTest {
 
 	public void thawBuckets_givenTwoBucketsWithinTimeRange_getsBuckets()
 			throws ThawTransferFailException, ImportThawedBucketFailException {
-		Bucket archivedBucketWithinTimeRange1 = mock(Bucket.class);
-		Bucket archivedBucketWithinTimeRange2 = mock(Bucket.class);
+		Bucket archivedBucketWithinTimeRange1 = mockBucketNamed("bucket1");
+		Bucket archivedBucketWithinTimeRange2 = mockBucketNamed("bucket2");
 		when(
 				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
 						latestTime)).thenReturn(
 				asList(archivedBucketWithinTimeRange1, archivedBucketWithinTimeRange2));
 
 		bucketThawer.thawBuckets(index, earliestTime, latestTime);
-		verify(getsBucketsFromArchive).getBucketFromArchive(
+		verify(getsBucketsFromArchive).transferBucketFromArchive(
 				archivedBucketWithinTimeRange1);
-		verify(getsBucketsFromArchive).getBucketFromArchive(
+		verify(getsBucketsFromArchive).transferBucketFromArchive(
 				archivedBucketWithinTimeRange2);
 	}
 
@@ -129,17 +144,23 @@ public class BucketThawerTest {
 
 	public void getThawedBuckets_gotBucketFromArchive_returnBucket()
 			throws ThawTransferFailException, ImportThawedBucketFailException {
-		Bucket bucket1 = mock(Bucket.class);
-		Bucket bucket2 = mock(Bucket.class);
+		Bucket bucket1 = mockBucketNamed("bucket1");
+		Bucket bucket2 = mockBucketNamed("bucket2");
 		when(
 				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
 						latestTime)).thenReturn(asList(bucket1, bucket2));
+		TransferredBucket transferredBucket1 = mock(TransferredBucket.class);
+		TransferredBucket transferredBucket2 = mock(TransferredBucket.class);
 		Bucket thawedBucket1 = mock(Bucket.class);
 		Bucket thawedBucket2 = mock(Bucket.class);
-		when(getsBucketsFromArchive.getBucketFromArchive(bucket1)).thenReturn(
-				thawedBucket1);
-		when(getsBucketsFromArchive.getBucketFromArchive(bucket2)).thenReturn(
-				thawedBucket2);
+		when(getsBucketsFromArchive.transferBucketFromArchive(bucket1)).thenReturn(
+				transferredBucket1);
+		when(getsBucketsFromArchive.transferBucketFromArchive(bucket2)).thenReturn(
+				transferredBucket2);
+		when(getsBucketsFromArchive.importTransferredBucket(transferredBucket1))
+				.thenReturn(thawedBucket1);
+		when(getsBucketsFromArchive.importTransferredBucket(transferredBucket2))
+				.thenReturn(thawedBucket2);
 		bucketThawer.thawBuckets(index, earliestTime, latestTime);
 		List<Bucket> thawedBuckets = bucketThawer.getThawedBuckets();
 		assertEquals(2, thawedBuckets.size());
@@ -150,7 +171,7 @@ public class BucketThawerTest {
 	public void getFailedBuckets_whenThawTransferFailExceptionIsThrownForABucket_returnBucket()
 			throws ThawTransferFailException, ImportThawedBucketFailException {
 		doThrow(ThawTransferFailException.class).when(getsBucketsFromArchive)
-				.getBucketFromArchive(bucket);
+				.transferBucketFromArchive(bucket);
 
 		run_thawBuckets_bucketFieldPassedToGetsBucketFromArchive();
 		List<FailedBucket> failedBuckets = bucketThawer.getFailedBuckets();
@@ -170,7 +191,7 @@ public class BucketThawerTest {
 	public void getFailedBuckets_whenImportThawedBucketFailExceptionIsThrownForBucket_returnBucket()
 			throws ThawTransferFailException, ImportThawedBucketFailException {
 		doThrow(ImportThawedBucketFailException.class).when(getsBucketsFromArchive)
-				.getBucketFromArchive(bucket);
+				.importTransferredBucket(any(TransferredBucket.class));
 
 		run_thawBuckets_bucketFieldPassedToGetsBucketFromArchive();
 		List<FailedBucket> failedBuckets = bucketThawer.getFailedBuckets();
@@ -185,16 +206,92 @@ public class BucketThawerTest {
 	public void getThawedBuckets_whenThawFails_doesntContainThatBucket()
 			throws ThawTransferFailException, ImportThawedBucketFailException {
 		doThrow(ThawTransferFailException.class).when(getsBucketsFromArchive)
-				.getBucketFromArchive(any(Bucket.class));
+				.transferBucketFromArchive(any(Bucket.class));
 		run_thawBuckets_bucketFieldPassedToGetsBucketFromArchive();
 		assertTrue(bucketThawer.getThawedBuckets().isEmpty());
 	}
 
 	public void getFailedBuckets_whenBucketSucceed_doesntContainThatBucket()
 			throws ThawTransferFailException, ImportThawedBucketFailException {
-		when(getsBucketsFromArchive.getBucketFromArchive(bucket)).thenReturn(
-				mock(Bucket.class));
+		when(
+				getsBucketsFromArchive
+						.importTransferredBucket(any(TransferredBucket.class)))
+				.thenReturn(mock(Bucket.class));
 		run_thawBuckets_bucketFieldPassedToGetsBucketFromArchive();
 		assertTrue(bucketThawer.getFailedBuckets().isEmpty());
 	}
+
+	public void thawBuckets_importOfFirstBucketIsSlow_transfersSecondBucketMeanwhile()
+			throws Exception {
+		bucketThawer = new BucketThawer(listsBucketsFiltered,
+				getsBucketsFromArchive, thawLocationProvider, thawBucketLocker, 1, 1);
+		Bucket bucket1 = mockBucketNamed("bucket1");
+		final Bucket bucket2 = mockBucketNamed("bucket2");
+		final TransferredBucket transferredBucket1 = mock(TransferredBucket.class);
+		final CountDownLatch secondTransferred = new CountDownLatch(1);
+		when(
+				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
+						latestTime)).thenReturn(asList(bucket1, bucket2));
+		when(getsBucketsFromArchive.transferBucketFromArchive(bucket1)).thenReturn(
+				transferredBucket1);
+		when(getsBucketsFromArchive.transferBucketFromArchive(bucket2)).thenAnswer(
+				new Answer<TransferredBucket>() {
+					@Override
+					public TransferredBucket answer(InvocationOnMock invocation) {
+						secondTransferred.countDown();
+						return mock(TransferredBucket.class);
+					}
+				});
+		final AtomicBoolean overlapped = new AtomicBoolean();
+		when(getsBucketsFromArchive.importTransferredBucket(transferredBucket1))
+				.thenAnswer(new Answer<Bucket>() {
+					@Override
+					public Bucket answer(InvocationOnMock invocation)
+							throws InterruptedException {
+						overlapped.set(secondTransferred.await(10, TimeUnit.SECONDS));
+						return mock(Bucket.class);
+					}
+				});
+
+		bucketThawer.thawBuckets(index, earliestTime, latestTime);
+		assertTrue(overlapped.get());
+		assertEquals(2, bucketThawer.getThawedBuckets().size());
+	}
+
+	public void thawBuckets_cancelledBeforeThawing_cancelsBucketsWithoutTransferring() {
+		when(
+				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
+						latestTime)).thenReturn(asList(bucket));
+
+		bucketThawer.cancel();
+		bucketThawer.thawBuckets(index, earliestTime, latestTime);
+
+		verifyZeroInteractions(getsBucketsFromArchive);
+		assertEquals(ThawProgress.BucketState.CANCELLED, bucketThawer
+				.getProgress().getBucketStates().get(bucket));
+		assertTrue(bucketThawer.getProgress().isFinished());
+	}
+
+	public void getProgress_bucketsThawedAndFailed_hasStatesOfBuckets()
+			throws ThawTransferFailException, ImportThawedBucketFailException {
+		Bucket failingBucket = mockBucketNamed("failingBucket");
+		when(
+				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
+						latestTime)).thenReturn(asList(bucket, failingBucket));
+		TransferredBucket transferredBucket = mock(TransferredBucket.class);
+		when(getsBucketsFromArchive.transferBucketFromArchive(bucket)).thenReturn(
+				transferredBucket);
+		when(getsBucketsFromArchive.importTransferredBucket(transferredBucket))
+				.thenReturn(mock(Bucket.class));
+		doThrow(new ThawTransferFailException(failingBucket)).when(
+				getsBucketsFromArchive).transferBucketFromArchive(failingBucket);
+
+		bucketThawer.thawBuckets(index, earliestTime, latestTime);
+
+		ThawProgress progress = bucketThawer.getProgress();
+		assertEquals(ThawProgress.BucketState.THAWED, progress.getBucketStates()
+				.get(bucket));
+		assertEquals(ThawProgress.BucketState.FAILED, progress.getBucketStates()
+				.get(failingBucket));
+	}
 }
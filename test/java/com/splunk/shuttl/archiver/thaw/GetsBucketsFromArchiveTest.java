@@ -23,6 +23,7 @@ import java.io.IOException;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.importexport.BucketImporter;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
@@ -80,6 +81,36 @@ public class GetsBucketsFromArchiveTest {
 		assertEquals(sizedBucket.getSize(), actualBucket.getSize());
 	}
 
+	public void transferBucketFromArchive_givenBucket_transfersWithoutImporting()
+			throws Exception {
+		Bucket bucketThawed = mock(Bucket.class);
+		when(thawBucketTransferer.transferBucketToThaw(bucket)).thenReturn(
+				bucketThawed);
+
+		TransferredBucket transferred = getsBucketsFromArchive
+				.transferBucketFromArchive(bucket);
+		assertEquals(bucketThawed, transferred.getBucket());
+		assertEquals(bucket, transferred.getArchivedBucket());
+		verifyZeroInteractions(bucketImporter, bucketSizeResolver);
+	}
+
+	public void importTransferredBucket_transferredToBucketOfOtherFormat_resolvesSizeWithArchivedBucket()
+			throws Exception {
+		Bucket bucketThawed = mock(Bucket.class);
+		when(bucket.getFormat()).thenReturn(BucketFormat.CSV);
+		when(bucketThawed.getFormat()).thenReturn(BucketFormat.SPLUNK_BUCKET);
+		when(thawBucketTransferer.transferBucketToThaw(bucket)).thenReturn(
+				bucketThawed);
+		when(bucketImporter.restoreToSplunkBucketFormat(bucketThawed)).thenReturn(
+				TUtilsBucket.createBucket());
+		when(bucketSizeResolver.resolveBucketSize(bucket)).thenReturn(
+				mock(Bucket.class));
+
+		getsBucketsFromArchive.importTransferredBucket(getsBucketsFromArchive
+				.transferBucketFromArchive(bucket));
+		verify(bucketSizeResolver).resolveBucketSize(bucket);
+	}
+
 	// Sad path
 
 	@Test(expectedExceptions = { ThawTransferFailException.class })
@@ -19,13 +19,26 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.ChecksumManifest;
+import com.splunk.shuttl.archiver.filesystem.ChecksumMismatchException;
+import com.splunk.shuttl.archiver.importexport.compressed.BucketCompressor;
+import com.splunk.shuttl.archiver.importexport.csv.CsvImportFailedException;
+import com.splunk.shuttl.archiver.importexport.csv.CsvImporter;
+import com.splunk.shuttl.archiver.importexport.csv.CsvStreamExporter;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.testutil.TUtilsBucket;
@@ -38,15 +51,19 @@ public class ThawBucketTransfererTest {
 	ArchiveFileSystem archiveFileSystem;
 	ThawLocationProvider thawLocationProvider;
 	BucketFactory bucketFactory;
+	BucketCompressor bucketCompressor;
 
 	@BeforeMethod
-	public void setUp() {
+	public void setUp() throws IOException {
 		bucket = TUtilsBucket.createBucket();
 		thawLocationProvider = mock(ThawLocationProvider.class);
 		archiveFileSystem = mock(ArchiveFileSystem.class);
 		bucketFactory = mock(BucketFactory.class);
+		bucketCompressor = mock(BucketCompressor.class);
+		when(archiveFileSystem.openFile(any(URI.class))).thenThrow(
+				new FileNotFoundException());
 		bucketTransferer = new ThawBucketTransferer(thawLocationProvider,
-				archiveFileSystem, bucketFactory);
+				archiveFileSystem, bucketFactory, bucketCompressor);
 	}
 
 	@Test(groups = { "fast-unit" })
@@ -95,4 +112,160 @@ public class ThawBucketTransfererTest {
 		assertEquals(bucketOnLocalDisk, actualBucket);
 	}
 
+	public void _givenCompressedBucket_decompressesArchivedFileToTransferLocation()
+			throws IOException {
+		Bucket bucket = TUtilsBucket.createBucket();
+		Bucket compressedBucket = new Bucket(bucket.getIndex(),
+				bucket.getDirectory(), BucketFormat.SPLUNK_BUCKET_COMPRESSED,
+				bucket.getSize());
+		File transferLocation = createFilePath();
+		File thawLocation = createFilePath();
+		when(thawLocationProvider.getThawTransferLocation(compressedBucket))
+				.thenReturn(transferLocation);
+		when(thawLocationProvider.getLocationInThawForBucket(compressedBucket))
+				.thenReturn(thawLocation);
+		URI compressedFile = URI.create(compressedBucket.getURI() + "/"
+				+ BucketCompressor.getCompressedFileName(bucket.getName()));
+		when(archiveFileSystem.listPath(compressedBucket.getURI())).thenReturn(
+				Arrays.asList(URI.create(compressedBucket.getURI() + "/archive_meta"),
+						compressedFile));
+		InputStream compressedStream = new ByteArrayInputStream(new byte[0]);
+		doReturn(compressedStream).when(archiveFileSystem).openFile(
+				compressedFile);
+
+		bucketTransferer.transferBucketToThaw(compressedBucket);
+
+		verify(bucketCompressor).decompressBucket(any(InputStream.class),
+				eq(transferLocation));
+		verify(archiveFileSystem, never()).getFile(any(File.class),
+				any(URI.class));
+		verify(bucketFactory).createWithIndexDirectoryAndSize(bucket.getIndex(),
+				thawLocation, BucketFormat.SPLUNK_BUCKET_COMPRESSED, bucket.getSize());
+	}
+
+	public void _givenCsvBucketArchivedCompressed_decompressesCsvFileInToTransferLocation()
+			throws IOException {
+		Bucket bucket = TUtilsBucket.createBucket();
+		Bucket csvBucket = new Bucket(bucket.getIndex(), bucket.getDirectory(),
+				BucketFormat.CSV, bucket.getSize());
+		File transferLocation = createFilePath();
+		when(thawLocationProvider.getThawTransferLocation(csvBucket)).thenReturn(
+				transferLocation);
+		when(thawLocationProvider.getLocationInThawForBucket(csvBucket))
+				.thenReturn(createFilePath());
+		URI compressedCsv = URI.create(csvBucket.getURI() + "/" + bucket.getName()
+				+ CsvStreamExporter.COMPRESSED_CSV_EXTENSION);
+		when(archiveFileSystem.listPath(csvBucket.getURI())).thenReturn(
+				Arrays.asList(compressedCsv));
+		InputStream compressedStream = new ByteArrayInputStream(new byte[0]);
+		doReturn(compressedStream).when(archiveFileSystem).openFile(
+				compressedCsv);
+
+		bucketTransferer.transferBucketToThaw(csvBucket);
+
+		verify(bucketCompressor).decompressFile(any(InputStream.class),
+				eq(new File(transferLocation, bucket.getName() + ".csv")));
+		verify(archiveFileSystem, never()).getFile(any(File.class),
+				any(URI.class));
+	}
+
+	public void _compressedFileNotMatchingChecksumManifest_throwsAndRemovesTransferLocation()
+			throws IOException {
+		Bucket bucket = TUtilsBucket.createBucket();
+		Bucket compressedBucket = new Bucket(bucket.getIndex(),
+				bucket.getDirectory(), BucketFormat.SPLUNK_BUCKET_COMPRESSED,
+				bucket.getSize());
+		File transferLocation = createFilePath();
+		when(thawLocationProvider.getThawTransferLocation(compressedBucket))
+				.thenReturn(transferLocation);
+		String compressedFileName = BucketCompressor.getCompressedFileName(bucket
+				.getName());
+		URI compressedFile = URI.create(compressedBucket.getURI() + "/"
+				+ compressedFileName);
+		when(archiveFileSystem.listPath(compressedBucket.getURI())).thenReturn(
+				Arrays.asList(compressedFile));
+		doReturn(new ByteArrayInputStream(new byte[] { 1, 2, 3 })).when(
+				archiveFileSystem).openFile(compressedFile);
+		ChecksumManifest checksums = new ChecksumManifest();
+		checksums.add(compressedFileName, 3, 0);
+		ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+		checksums.writeTo(manifestBytes);
+		doReturn(new ByteArrayInputStream(manifestBytes.toByteArray())).when(
+				archiveFileSystem).openFile(
+				ChecksumManifest.getManifestUri(compressedBucket.getURI()));
+
+		try {
+			bucketTransferer.transferBucketToThaw(compressedBucket);
+			fail();
+		} catch (ChecksumMismatchException e) {
+			assertFalse(transferLocation.exists());
+		}
+	}
+
+	public void _givenCsvImporterAndCompressedCsv_importsDecompressedStreamToTransferLocation()
+			throws IOException {
+		CsvImporter csvImporter = mock(CsvImporter.class);
+		bucketTransferer = new ThawBucketTransferer(thawLocationProvider,
+				archiveFileSystem, bucketFactory, bucketCompressor, csvImporter);
+		Bucket bucket = TUtilsBucket.createBucket();
+		Bucket csvBucket = new Bucket(bucket.getIndex(), bucket.getDirectory(),
+				BucketFormat.CSV, bucket.getSize());
+		File transferLocation = createFilePath();
+		File thawLocation = createFilePath();
+		when(thawLocationProvider.getThawTransferLocation(csvBucket)).thenReturn(
+				transferLocation);
+		when(thawLocationProvider.getLocationInThawForBucket(csvBucket))
+				.thenReturn(thawLocation);
+		URI compressedCsv = URI.create(csvBucket.getURI() + "/" + bucket.getName()
+				+ CsvStreamExporter.COMPRESSED_CSV_EXTENSION);
+		when(archiveFileSystem.listPath(csvBucket.getURI())).thenReturn(
+				Arrays.asList(compressedCsv));
+		doReturn(new ByteArrayInputStream(new byte[0])).when(archiveFileSystem)
+				.openFile(compressedCsv);
+		InputStream decompressed = new ByteArrayInputStream(new byte[0]);
+		when(bucketCompressor.decompressingStream(any(InputStream.class)))
+				.thenReturn(decompressed);
+
+		bucketTransferer.transferBucketToThaw(csvBucket);
+
+		verify(csvImporter).importBucketFromCsvStream(bucket.getIndex(),
+				transferLocation, decompressed);
+		verify(bucketCompressor, never()).decompressFile(any(InputStream.class),
+				any(File.class));
+		verify(archiveFileSystem, never()).getFile(any(File.class),
+				any(URI.class));
+		verify(bucketFactory).createWithIndexDirectoryAndSize(bucket.getIndex(),
+				thawLocation, BucketFormat.SPLUNK_BUCKET, bucket.getSize());
+	}
+
+	public void _csvStreamImportFails_throwsAndRemovesTransferLocation()
+			throws IOException {
+		CsvImporter csvImporter = mock(CsvImporter.class);
+		bucketTransferer = new ThawBucketTransferer(thawLocationProvider,
+				archiveFileSystem, bucketFactory, bucketCompressor, csvImporter);
+		Bucket bucket = TUtilsBucket.createBucket();
+		Bucket csvBucket = new Bucket(bucket.getIndex(), bucket.getDirectory(),
+				BucketFormat.CSV, bucket.getSize());
+		File transferLocation = createFilePath();
+		when(thawLocationProvider.getThawTransferLocation(csvBucket)).thenReturn(
+				transferLocation);
+		URI csv = URI.create(csvBucket.getURI() + "/" + bucket.getName() + ".csv");
+		when(archiveFileSystem.listPath(csvBucket.getURI())).thenReturn(
+				Arrays.asList(csv));
+		doReturn(new ByteArrayInputStream(new byte[0])).when(archiveFileSystem)
+				.openFile(csv);
+		when(
+				csvImporter.importBucketFromCsvStream(anyString(), any(File.class),
+						any(InputStream.class))).thenThrow(
+				new CsvImportFailedException("exit 1"));
+
+		try {
+			bucketTransferer.transferBucketToThaw(csvBucket);
+			fail();
+		} catch (CsvImportFailedException e) {
+			assertFalse(transferLocation.exists());
+		}
+		verify(bucketCompressor, never()).decompressingStream(
+				any(InputStream.class));
+	}
 }
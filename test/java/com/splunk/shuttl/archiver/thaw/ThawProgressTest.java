@@ -0,0 +1,104 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import static java.util.Arrays.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.thaw.ThawProgress.BucketState;
+
+@Test(groups = { "fast-unit" })
+public class ThawProgressTest {
+
+	ThawProgress progress;
+	Bucket bucket;
+	Bucket otherBucket;
+
+	@BeforeMethod
+	public void setUp() {
+		progress = new ThawProgress();
+		bucket = mock(Bucket.class);
+		otherBucket = mock(Bucket.class);
+	}
+
+	public void start_bucketsWithSizes_queuesBucketsAndSumsTheirSizes() {
+		when(bucket.getSize()).thenReturn(10L);
+		when(otherBucket.getSize()).thenReturn(20L);
+		progress.start(asList(bucket, otherBucket));
+
+		assertEquals(progress.getBytesTotal(), 30);
+		assertEquals(progress.getBytesDone(), 0);
+		assertEquals(progress.countBuckets(BucketState.QUEUED), 2);
+		assertFalse(progress.isFinished());
+	}
+
+	public void getBucketStates_startedWithBuckets_keepsTheListedOrder() {
+		progress.start(asList(otherBucket, bucket));
+		progress.setState(bucket, BucketState.TRANSFERRING);
+
+		Map<Bucket, BucketState> states = progress.getBucketStates();
+		assertEquals(new ArrayList<Bucket>(states.keySet()),
+				asList(otherBucket, bucket));
+		assertEquals(states.get(bucket), BucketState.TRANSFERRING);
+		assertEquals(states.get(otherBucket), BucketState.QUEUED);
+	}
+
+	public void thawed_bucketWithListedSize_countsListedSizeAsDone() {
+		when(bucket.getSize()).thenReturn(10L);
+		Bucket thawedBucket = mock(Bucket.class);
+		when(thawedBucket.getSize()).thenReturn(15L);
+		progress.start(asList(bucket));
+
+		progress.thawed(bucket, thawedBucket);
+
+		assertEquals(progress.getBytesDone(), 10);
+		assertEquals(progress.getBytesTotal(), 10);
+		assertEquals(progress.getBucketStates().get(bucket), BucketState.THAWED);
+	}
+
+	public void thawed_bucketWithoutListedSize_addsThawedSizeToDoneAndTotal() {
+		when(bucket.getSize()).thenReturn(null);
+		Bucket thawedBucket = mock(Bucket.class);
+		when(thawedBucket.getSize()).thenReturn(15L);
+		progress.start(asList(bucket));
+
+		progress.thawed(bucket, thawedBucket);
+
+		assertEquals(progress.getBytesDone(), 15);
+		assertEquals(progress.getBytesTotal(), 15);
+	}
+
+	public void getBytesPerSecond_notStarted_isZero() {
+		assertEquals(progress.getBytesPerSecond(), 0.0);
+	}
+
+	public void isDone_bucketStates_onlyEndStatesAreDone() {
+		assertFalse(BucketState.QUEUED.isDone());
+		assertFalse(BucketState.TRANSFERRING.isDone());
+		assertFalse(BucketState.IMPORTING.isDone());
+		assertTrue(BucketState.THAWED.isDone());
+		assertTrue(BucketState.SKIPPED.isDone());
+		assertTrue(BucketState.FAILED.isDone());
+		assertTrue(BucketState.CANCELLED.isDone());
+	}
+}
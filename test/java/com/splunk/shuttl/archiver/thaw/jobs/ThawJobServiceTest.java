@@ -0,0 +1,112 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw.jobs;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.thaw.BucketThawer;
+import com.splunk.shuttl.archiver.thaw.jobs.ThawJob.State;
+
+@Test(groups = { "fast-unit" })
+public class ThawJobServiceTest {
+
+	ThawJobService thawJobService;
+	ExecutorService executor;
+	BucketThawer bucketThawer;
+	Date from;
+	Date to;
+
+	@BeforeMethod
+	public void setUp() {
+		executor = mock(ExecutorService.class);
+		bucketThawer = mock(BucketThawer.class);
+		thawJobService = new ThawJobService(executor);
+		from = new Date(0);
+		to = new Date(100);
+	}
+
+	public void submit_givenThawer_queuesJobAndReturnsItWithoutRunningIt() {
+		ThawJob job = thawJobService.submit("index", from, to, bucketThawer);
+
+		verify(executor).execute(any(Runnable.class));
+		verifyZeroInteractions(bucketThawer);
+		assertEquals(job.getState(), State.QUEUED);
+		assertEquals(thawJobService.getJob(job.getId()), job);
+	}
+
+	public void submit_queuedJobIsRun_thawsBucketsAndIsDone() {
+		ThawJob job = thawJobService.submit("index", from, to, bucketThawer);
+
+		runQueuedJob();
+
+		verify(bucketThawer).thawBuckets("index", from, to);
+		assertEquals(job.getState(), State.DONE);
+	}
+
+	public void cancel_queuedJob_jobIsNeverRun() {
+		ThawJob job = thawJobService.submit("index", from, to, bucketThawer);
+
+		assertEquals(thawJobService.cancel(job.getId()), job);
+		runQueuedJob();
+
+		verify(bucketThawer).cancel();
+		verify(bucketThawer, never()).thawBuckets(anyString(), any(Date.class),
+				any(Date.class));
+		assertEquals(job.getState(), State.CANCELLED);
+	}
+
+	public void cancel_noSuchJob_returnsNull() {
+		assertNull(thawJobService.cancel("no-such-job"));
+	}
+
+	public void submit_jobThrowsException_jobIsDone() {
+		ThawJob job = thawJobService.submit("index", from, to, bucketThawer);
+		doThrow(new RuntimeException()).when(bucketThawer).thawBuckets("index",
+				from, to);
+
+		runQueuedJob();
+
+		assertEquals(job.getState(), State.DONE);
+	}
+
+	public void submit_moreFinishedJobsThanKept_removesTheOldestFinishedJob() {
+		ThawJob first = thawJobService.submit("index", from, to, bucketThawer);
+		first.cancel();
+		for (int i = 1; i < ThawJobService.MAX_FINISHED_JOBS; i++)
+			thawJobService.submit("index", from, to, bucketThawer).cancel();
+		assertNotNull(thawJobService.getJob(first.getId()));
+
+		thawJobService.submit("index", from, to, bucketThawer);
+
+		assertNull(thawJobService.getJob(first.getId()));
+		assertEquals(thawJobService.getJobs().size(),
+				ThawJobService.MAX_FINISHED_JOBS);
+	}
+
+	private void runQueuedJob() {
+		ArgumentCaptor<Runnable> runner = ArgumentCaptor.forClass(Runnable.class);
+		verify(executor, atLeastOnce()).execute(runner.capture());
+		runner.getValue().run();
+	}
+}
@@ -31,11 +31,6 @@ import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.archive.BucketArchiver;
 import com.splunk.shuttl.archiver.archive.BucketArchiverFactory;
-import com.splunk.shuttl.archiver.archive.PathResolver;
-import com.splunk.shuttl.archiver.bucketsize.ArchiveBucketSize;
-import com.splunk.shuttl.archiver.bucketsize.BucketSizeIO;
-import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
-import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFiltered;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFilteredFactory;
 import com.splunk.shuttl.archiver.model.Bucket;
@@ -53,7 +48,6 @@ public class BucketSizeFunctionalTest {
 	private BucketThawer bucketThawer;
 	private ArchiveConfiguration config;
 	private File thawLocation;
-	private ArchiveBucketSize archiveBucketSize;
 	private File archiverData;
 
 	@BeforeMethod
@@ -71,13 +65,6 @@ public class BucketSizeFunctionalTest {
 		bucketThawer = BucketThawerFactory
 				.createWithConfigAndSplunkSettingsAndLocalFileSystemPaths(config,
 						splunkSettings, localFileSystemPaths);
-
-		PathResolver pathResolver = new PathResolver(config);
-		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
-				.getWithConfiguration(config);
-		archiveBucketSize = ArchiveBucketSize.create(pathResolver,
-				archiveFileSystem, new BucketSizeIO(archiveFileSystem,
-						localFileSystemPaths));
 	}
 
 	@AfterMethod
@@ -100,7 +87,7 @@ public class BucketSizeFunctionalTest {
 
 		assertEquals(1, listBucketsInIndex.size());
 		Bucket bucketInArchive = listBucketsInIndex.get(0);
-		assertEquals(bucketSize, archiveBucketSize.getSize(bucketInArchive));
+		assertEquals(bucketSize, (long) bucketInArchive.getSize());
 	}
 
 	public void BucketSize_bucketRoundTrip_bucketGetSizeShouldBeTheSameBeforeArchiveAndAfterThaw() {
@@ -82,6 +82,69 @@ public class ShuttlArchiverMBeanTest {
 		assertEquals(archiverMBean.getBucketFormatPriority(), bucketFormatPriority);
 	}
 
+	public void setArchiveWorkers_workersAreSet_gotWorkers() {
+		Integer archiveWorkers = 7;
+		assertNotEquals(archiverMBean.getArchiveWorkers(), archiveWorkers);
+		archiverMBean.setArchiveWorkers(archiveWorkers);
+		assertEquals(archiverMBean.getArchiveWorkers(), archiveWorkers);
+	}
+
+	public void setCsvExportMode_modeIsSet_gotMode() {
+		String csvExportMode = "COMPRESSED_STREAM";
+		assertNotEquals(archiverMBean.getCsvExportMode(), csvExportMode);
+		archiverMBean.setCsvExportMode(csvExportMode);
+		assertEquals(archiverMBean.getCsvExportMode(), csvExportMode);
+	}
+
+	public void setThawTransferWorkers_workersAreSet_gotWorkers() {
+		Integer thawTransferWorkers = 3;
+		assertNotEquals(archiverMBean.getThawTransferWorkers(),
+				thawTransferWorkers);
+		archiverMBean.setThawTransferWorkers(thawTransferWorkers);
+		assertEquals(archiverMBean.getThawTransferWorkers(), thawTransferWorkers);
+	}
+
+	public void setThawImportWorkers_workersAreSet_gotWorkers() {
+		Integer thawImportWorkers = 5;
+		assertNotEquals(archiverMBean.getThawImportWorkers(), thawImportWorkers);
+		archiverMBean.setThawImportWorkers(thawImportWorkers);
+		assertEquals(archiverMBean.getThawImportWorkers(), thawImportWorkers);
+	}
+
+	public void setArchiveBandwidthLimit_limitIsSet_gotLimit() {
+		Long archiveBandwidthLimit = 1024L;
+		assertNotEquals(archiverMBean.getArchiveBandwidthLimit(),
+				archiveBandwidthLimit);
+		archiverMBean.setArchiveBandwidthLimit(archiveBandwidthLimit);
+		assertEquals(archiverMBean.getArchiveBandwidthLimit(),
+				archiveBandwidthLimit);
+	}
+
+	public void setArchiveBandwidthSchedule_scheduleIsSet_gotSchedule() {
+		String archiveBandwidthSchedule = "8-18=1024";
+		assertNotEquals(archiverMBean.getArchiveBandwidthSchedule(),
+				archiveBandwidthSchedule);
+		archiverMBean.setArchiveBandwidthSchedule(archiveBandwidthSchedule);
+		assertEquals(archiverMBean.getArchiveBandwidthSchedule(),
+				archiveBandwidthSchedule);
+	}
+
+	public void setThawBandwidthLimit_limitIsSet_gotLimit() {
+		Long thawBandwidthLimit = 2048L;
+		assertNotEquals(archiverMBean.getThawBandwidthLimit(), thawBandwidthLimit);
+		archiverMBean.setThawBandwidthLimit(thawBandwidthLimit);
+		assertEquals(archiverMBean.getThawBandwidthLimit(), thawBandwidthLimit);
+	}
+
+	public void setThawBandwidthSchedule_scheduleIsSet_gotSchedule() {
+		String thawBandwidthSchedule = "22-6=4096";
+		assertNotEquals(archiverMBean.getThawBandwidthSchedule(),
+				thawBandwidthSchedule);
+		archiverMBean.setThawBandwidthSchedule(thawBandwidthSchedule);
+		assertEquals(archiverMBean.getThawBandwidthSchedule(),
+				thawBandwidthSchedule);
+	}
+
 	public void save_configured_producesCorrectXML() throws Exception {
 		List<String> archiveFormats = asList("SPLUNK_BUCKET", "CSV");
 		String clusterName = "some_cluster_name";
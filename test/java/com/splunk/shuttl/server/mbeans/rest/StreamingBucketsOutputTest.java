@@ -0,0 +1,173 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static java.util.Arrays.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.*;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.PathResolver;
+import com.splunk.shuttl.archiver.listers.BucketTable;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.thaw.BucketSizeResolver;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class StreamingBucketsOutputTest {
+
+	private BucketTable table;
+	private BucketSizeResolver bucketSizeResolver;
+
+	@BeforeMethod
+	public void setUp() {
+		PathResolver pathResolver = mock(PathResolver.class);
+		when(
+				pathResolver.resolveArchivedBucketURI(anyString(), anyString(),
+						any(BucketFormat.class))).thenReturn(
+				URI.create("valid:/archived/bucket"));
+		table = new BucketTable(pathResolver);
+		for (int i = 0; i < 5; i++)
+			table.add("index", "db_20_10_" + i, BucketFormat.SPLUNK_BUCKET, 1024L,
+					null);
+		bucketSizeResolver = mock(BucketSizeResolver.class);
+	}
+
+	private Map<?, ?> write(StreamingBucketsOutput output) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		output.write(bytes);
+		return new ObjectMapper().readValue(bytes.toByteArray(), Map.class);
+	}
+
+	public void create_noLimit_writesAllBucketsWithoutNext() throws Exception {
+		Map<?, ?> response = write(StreamingBucketsOutput.create(table, null,
+				Integer.MAX_VALUE, bucketSizeResolver));
+		assertEquals(5, ((List<?>) response.get("buckets")).size());
+		assertNull(response.get("next"));
+		assertEquals("5 KB", response.get("buckets_TOTAL_SIZE"));
+	}
+
+	public void create_limit_writesPageWithCursorToNextPage() throws Exception {
+		Map<?, ?> response = write(StreamingBucketsOutput.create(table, null, 2,
+				bucketSizeResolver));
+		assertEquals(2, ((List<?>) response.get("buckets")).size());
+		assertEquals(StreamingBucketsOutput.getCursor("index", "db_20_10_1"),
+				response.get("next"));
+	}
+
+	public void create_afterCursor_writesBucketsAfterTheCursor() throws Exception {
+		String after = StreamingBucketsOutput.getCursor("index", "db_20_10_2");
+		Map<?, ?> response = write(StreamingBucketsOutput.create(table, after,
+				10, bucketSizeResolver));
+		List<?> buckets = (List<?>) response.get("buckets");
+		assertEquals(2, buckets.size());
+		assertEquals("db_20_10_3", ((Map<?, ?>) buckets.get(0)).get("bucketName"));
+		assertNull(response.get("next"));
+	}
+
+	public void create_cursorOfGoneBucket_writesBucketsAfterWhereItWas()
+			throws Exception {
+		String after = StreamingBucketsOutput.getCursor("index", "db_20_10_25");
+		Map<?, ?> response = write(StreamingBucketsOutput.create(table, after,
+				10, bucketSizeResolver));
+		List<?> buckets = (List<?>) response.get("buckets");
+		assertEquals(2, buckets.size());
+		assertEquals("db_20_10_3", ((Map<?, ?>) buckets.get(0)).get("bucketName"));
+	}
+
+	public void create_cursorAfterLastBucket_writesNoBuckets() throws Exception {
+		Map<?, ?> response = write(StreamingBucketsOutput.create(table,
+				StreamingBucketsOutput.getCursor("index", "db_99_90_0"), 10,
+				bucketSizeResolver));
+		assertTrue(((List<?>) response.get("buckets")).isEmpty());
+		assertNull(response.get("next"));
+	}
+
+	@Test(expectedExceptions = { WebApplicationException.class })
+	public void create_afterIsNotACursor_throws() {
+		StreamingBucketsOutput.create(table, "gone", 10, bucketSizeResolver);
+	}
+
+	public void create_rowsOfSeveralIndexes_pagesInEarliestThenIndexOrder()
+			throws Exception {
+		table.add("other", "db_20_10_0", BucketFormat.SPLUNK_BUCKET, 1024L, null);
+		table.add("other", "db_8_5_0", BucketFormat.SPLUNK_BUCKET, 1024L, null);
+
+		Map<?, ?> first = write(StreamingBucketsOutput.create(table, null, 1,
+				bucketSizeResolver));
+		assertEquals("db_8_5_0",
+				((Map<?, ?>) ((List<?>) first.get("buckets")).get(0))
+						.get("bucketName"));
+		Map<?, ?> second = write(StreamingBucketsOutput.create(table,
+				(String) first.get("next"), 6, bucketSizeResolver));
+		List<?> buckets = (List<?>) second.get("buckets");
+		assertEquals(6, buckets.size());
+		assertEquals("index", ((Map<?, ?>) buckets.get(0)).get("indexName"));
+		assertEquals("other", ((Map<?, ?>) buckets.get(5)).get("indexName"));
+		assertNull(second.get("next"));
+	}
+
+	public void create_bucketList_ordersBucketsAndPagesAfterCursor()
+			throws Exception {
+		List<Bucket> buckets = asList(
+				TUtilsBucket.createBucketWithIndexAndName("index", "db_30_20_0"),
+				TUtilsBucket.createBucketWithIndexAndName("index", "db_20_10_0"),
+				TUtilsBucket.createBucketWithIndexAndName("index", "db_40_30_0"));
+		Map<?, ?> response = write(StreamingBucketsOutput.create(buckets,
+				StreamingBucketsOutput.getCursor("index", "db_25_15_0"), 1));
+		List<?> page = (List<?>) response.get("buckets");
+		assertEquals(1, page.size());
+		assertEquals("db_30_20_0", ((Map<?, ?>) page.get(0)).get("bucketName"));
+		assertEquals(StreamingBucketsOutput.getCursor("index", "db_30_20_0"),
+				response.get("next"));
+	}
+
+	public void write_bucketWithoutSize_resolvesSizeWhenWritten()
+			throws Exception {
+		table.add("index", "db_20_10_5", BucketFormat.SPLUNK_BUCKET, null, null);
+		Bucket sized = mock(Bucket.class);
+		when(sized.getSize()).thenReturn(2048L);
+		when(bucketSizeResolver.resolveBucketSize(any(Bucket.class))).thenReturn(
+				sized);
+
+		Map<?, ?> response = write(StreamingBucketsOutput.create(table,
+				StreamingBucketsOutput.getCursor("index", "db_20_10_4"), 10,
+				bucketSizeResolver));
+		assertEquals("2 KB", response.get("buckets_TOTAL_SIZE"));
+		assertEquals(2048L, (long) table.getSize(5));
+	}
+
+	@Test(expectedExceptions = { WebApplicationException.class })
+	public void getValidLimit_notPositive_throws() {
+		StreamingBucketsOutput.getValidLimit("0");
+	}
+
+	public void getValidLimit_null_noLimit() {
+		assertEquals(Integer.MAX_VALUE, StreamingBucketsOutput.getValidLimit(null));
+	}
+}